@@ -0,0 +1,208 @@
+package connect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The JMH baseline for the hot paths of {@link ConnectFourModelImpl}, measured in
+ * operations per second with the bytes allocated per operation from the GC profiler.
+ * Every benchmark runs for each board size and for two kinds of move sequence:
+ * <ul>
+ *   <li>{@code random}: uniformly random legal columns from a fixed seed until the game
+ *   ends, which is what most games look like;</li>
+ *   <li>{@code adversarial}: a pattern that fills every cell without ever lining up four
+ *   discs, so the game lasts as long as possible and no win check can stop early.</li>
+ * </ul>
+ * The adversarial pattern needs an even number of columns, which is why the standard
+ * board is measured as 6x8.
+ *
+ * <p>{@code makeMove} plays the sequence one move per operation and resets the board
+ * when it runs out, so the reset is spread over a whole game. {@code makeUndoMove} plays
+ * the next move of the half-played board and takes it back, which is what a depth-first
+ * search does at every node. {@code rejectedTryMove} and {@code rejectedMakeMove} compare
+ * the two ways of turning down a move on the finished board: a status code and an
+ * exception. {@code checkWin} is private
+ * and is called through a method handle on the cell of the last move of the sequence:
+ * the winning move of a random game, or the move that fills an adversarial board.
+ * {@code resetBoard} clears a board where the whole sequence has been played, which is
+ * replayed outside the measurement before every call.
+ * The other benchmarks read a board where half of the sequence has been played.
+ *
+ * <p>Run it with {@code ./gradlew :bench:jmh}.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ModelBenchmark {
+  private static final MethodHandle CHECK_WIN = checkWinHandle();
+
+  @Param({"4x4", "6x8", "20x30", "100x100"})
+  public String board;
+
+  @Param({"random", "adversarial"})
+  public String sequence;
+
+  private int[] moves;
+  private int next;
+  private ConnectFourModelImpl game;
+  private ConnectFourModelImpl midGame;
+  private ConnectFourModelImpl finished;
+  private int lastRow;
+  private int lastColumn;
+
+  /**
+   * Builds the move sequence and the models the benchmarks work on.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    String[] size = board.split("x");
+    int rows = Integer.parseInt(size[0]);
+    int columns = Integer.parseInt(size[1]);
+    moves = sequence.equals("random")
+        ? randomSequence(rows, columns) : adversarialSequence(rows, columns);
+    game = new ConnectFourModelImpl(rows, columns);
+    midGame = new ConnectFourModelImpl(rows, columns);
+    finished = new ConnectFourModelImpl(rows, columns);
+    for (int i = 0; i < moves.length; i++) {
+      if (i < moves.length / 2) {
+        midGame.makeMove(moves[i]);
+      }
+      finished.makeMove(moves[i]);
+    }
+    lastColumn = moves[moves.length - 1];
+    lastRow = finished.getColumnHeight(lastColumn) - 1;
+  }
+
+  @Benchmark
+  public void makeMove() {
+    if (next == moves.length) {
+      game.resetBoard();
+      next = 0;
+    }
+    game.makeMove(moves[next++]);
+  }
+
+  @Benchmark
+  public boolean makeUndoMove() {
+    midGame.makeMove(moves[moves.length / 2]);
+    midGame.undoMove();
+    return midGame.isGameOver();
+  }
+
+  @Benchmark
+  public int rejectedTryMove() {
+    return finished.tryMove(lastColumn);
+  }
+
+  @Benchmark
+  public String rejectedMakeMove() {
+    try {
+      finished.makeMove(lastColumn);
+      return null;
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+  }
+
+  @Benchmark
+  public boolean checkWin() throws Throwable {
+    return (boolean) CHECK_WIN.invokeExact(finished, lastRow, lastColumn);
+  }
+
+  @Benchmark
+  public boolean isGameOver() {
+    return midGame.isGameOver();
+  }
+
+  @Benchmark
+  public Player[][] getBoardState() {
+    return midGame.getBoardState();
+  }
+
+  @Benchmark
+  public void resetBoard(FilledBoard filled) {
+    filled.model.resetBoard();
+  }
+
+  @Benchmark
+  public String toStringMidGame() {
+    return midGame.toString();
+  }
+
+  /**
+   * A board refilled with the whole sequence before every call, so that each reset
+   * clears a finished game rather than the empty board the previous reset left.
+   */
+  @State(Scope.Thread)
+  public static class FilledBoard {
+    private ConnectFourModelImpl model;
+
+    /**
+     * Replays the sequence of the benchmark on a board of its size.
+     */
+    @Setup(Level.Invocation)
+    public void fill(ModelBenchmark benchmark) {
+      if (model == null) {
+        model = new ConnectFourModelImpl(benchmark.finished.getRows(),
+            benchmark.finished.getColumns());
+      }
+      for (int move : benchmark.moves) {
+        model.makeMove(move);
+      }
+    }
+  }
+
+  /**
+   * Generates random legal columns until the game is won or the board is full.
+   */
+  private static int[] randomSequence(int rows, int columns) {
+    SplittableRandom random = new SplittableRandom(rows * 1000L + columns);
+    ConnectFourModelImpl model = new ConnectFourModelImpl(rows, columns);
+    int[] sequence = new int[rows * columns];
+    int count = 0;
+    while (!model.isGameOver()) {
+      int column = random.nextInt(columns);
+      if (model.getColumnHeight(column) < rows) {
+        model.makeMove(column);
+        sequence[count++] = column;
+      }
+    }
+    return Arrays.copyOf(sequence, count);
+  }
+
+  /**
+   * Fills the board row by row so colors alternate within a row, and shifts the starting
+   * column by one every two rows so no column or diagonal runs longer than two.
+   */
+  private static int[] adversarialSequence(int rows, int columns) {
+    int[] sequence = new int[rows * columns];
+    int count = 0;
+    for (int i = 0; i < rows; i++) {
+      int offset = (i / 2) % 2;
+      for (int j = 0; j < columns; j++) {
+        sequence[count++] = (j + offset) % columns;
+      }
+    }
+    return sequence;
+  }
+
+  private static MethodHandle checkWinHandle() {
+    try {
+      return MethodHandles.privateLookupIn(ConnectFourModelImpl.class, MethodHandles.lookup())
+          .findVirtual(ConnectFourModelImpl.class, "checkWin",
+              MethodType.methodType(boolean.class, int.class, int.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+}
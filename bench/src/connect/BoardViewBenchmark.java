@@ -0,0 +1,100 @@
+package connect;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+
+/**
+ * A frame-time benchmark for {@link ScrollableBoardView}. It shows a completely filled
+ * board of 2000 by 2000 cells in a 1200 by 800 viewport, pans diagonally across it and
+ * paints every frame into an image, as the scroll pane would after a full repaint, for a
+ * range of zoom levels. It prints the mean and worst time per frame, which should stay
+ * flat whatever the size of the board. Run it with {@code java connect.BoardViewBenchmark}.
+ */
+public class BoardViewBenchmark {
+  private static final int SIZE = 2000;
+  private static final int[] CELL_SIZES = {1, 3, 8, 24, 64};
+  private static final int FRAMES = 200;
+
+  /**
+   * Runs the benchmark and prints one line per cell size.
+   * @param args the command-line arguments that are not used
+   */
+  public static void main(String[] args) {
+    ScrollableBoardView view = new ScrollableBoardView(new FullBoard(SIZE, SIZE));
+    JScrollPane scrollPane = new JScrollPane(view);
+    scrollPane.setSize(1200, 800);
+    scrollPane.doLayout();
+    JViewport viewport = scrollPane.getViewport();
+    viewport.doLayout();
+    BufferedImage frame = new BufferedImage(viewport.getWidth(), viewport.getHeight(),
+        BufferedImage.TYPE_INT_RGB);
+    System.out.printf("%-6s %12s %12s%n", "cell", "mean ms", "worst ms");
+    for (int cell : CELL_SIZES) {
+      view.setCellSize(cell);
+      int width = view.getWidth() - viewport.getWidth();
+      int height = view.getHeight() - viewport.getHeight();
+      double worst = 0;
+      long total = 0;
+      for (int pass = 0; pass < 2; pass++) {
+        worst = 0;
+        total = 0;
+        for (int i = 0; i < FRAMES; i++) {
+          viewport.setViewPosition(new Point((int) ((long) width * i / FRAMES),
+              (int) ((long) height * i / FRAMES)));
+          long start = System.nanoTime();
+          paint(view, viewport, frame);
+          long elapsed = System.nanoTime() - start;
+          total += elapsed;
+          worst = Math.max(worst, elapsed / 1e6);
+        }
+      }
+      System.out.printf("%-6d %12.2f %12.2f%n", cell, total / 1e6 / FRAMES, worst);
+    }
+  }
+
+  private static void paint(ScrollableBoardView view, JViewport viewport, BufferedImage frame) {
+    Rectangle visible = new Rectangle(viewport.getViewPosition(), viewport.getExtentSize());
+    Graphics2D g = frame.createGraphics();
+    g.translate(-visible.x, -visible.y);
+    g.setClip(visible);
+    view.paint(g);
+    g.dispose();
+  }
+
+  /**
+   * A board in which every cell holds a disc, in a pattern of short vertical runs.
+   */
+  private static final class FullBoard implements BoardSnapshot {
+    private final int rows;
+    private final int columns;
+
+    private FullBoard(int rows, int columns) {
+      this.rows = rows;
+      this.columns = columns;
+    }
+
+    @Override
+    public int getRows() {
+      return rows;
+    }
+
+    @Override
+    public int getColumns() {
+      return columns;
+    }
+
+    @Override
+    public Player getCell(int row, int column) {
+      return ((row / 3 + column) & 1) == 0 ? Player.RED : Player.YELLOW;
+    }
+
+    @Override
+    public int getColumnHeight(int column) {
+      return rows;
+    }
+  }
+}
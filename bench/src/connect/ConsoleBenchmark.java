@@ -0,0 +1,91 @@
+package connect;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * A throughput benchmark for scripted console play. It writes a script of random games on
+ * the standard board, with the occasional invalid token and "yes" between games, and
+ * pipes it through {@link ConnectFourConsoleController} and through
+ * {@link BufferedConsoleController}, both reading from a byte stream in memory and
+ * writing to a stream that throws the output away, as a piped regression run would.
+ * It prints games per second for both and checks that they wrote the same number of
+ * bytes. Run it with {@code java connect.ConsoleBenchmark [games]}.
+ */
+public class ConsoleBenchmark {
+
+  /**
+   * Runs the benchmark.
+   * @param args optionally the number of games, twenty thousand by default
+   * @throws IOException if a controller fails
+   */
+  public static void main(String[] args) throws IOException {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    byte[] script = script(games);
+    System.out.printf("%d games, %.1f MB of input%n", games, script.length / 1e6);
+    for (int pass = 0; pass < 3; pass++) {
+      CountingStream console = new CountingStream();
+      long start = System.nanoTime();
+      Writer writer = new OutputStreamWriter(console, StandardCharsets.US_ASCII);
+      new ConnectFourConsoleController(
+          new InputStreamReader(new ByteArrayInputStream(script), StandardCharsets.US_ASCII),
+          new ConnectFourView(writer)).playGame(new ConnectFourModelImpl(6, 7));
+      writer.flush();
+      report("console", games, System.nanoTime() - start);
+      CountingStream buffered = new CountingStream();
+      start = System.nanoTime();
+      new BufferedConsoleController(new ByteArrayInputStream(script),
+          new BufferedConsoleView(buffered)).playGame(new ConnectFourModelImpl(6, 7));
+      report("buffered", games, System.nanoTime() - start);
+      if (console.bytes != buffered.bytes) {
+        System.out.printf("output differs: %d and %d bytes%n", console.bytes, buffered.bytes);
+      }
+    }
+  }
+
+  private static byte[] script(int games) {
+    SplittableRandom random = new SplittableRandom(1);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    StringBuilder script = new StringBuilder();
+    for (int g = 0; g < games; g++) {
+      model.resetBoard();
+      while (!model.isGameOver()) {
+        int column = random.nextInt(7);
+        if (random.nextInt(50) == 0) {
+          script.append("oops\n");
+        }
+        script.append(column + 1).append('\n');
+        model.tryMove(column);
+      }
+      script.append(g < games - 1 ? "yes\n" : "no\n");
+    }
+    return script.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static void report(String path, int games, long nanos) {
+    System.out.printf("%-9s %10.0f games/s%n", path, games * 1e9 / nanos);
+  }
+
+  /**
+   * An output stream that counts the bytes written to it and throws them away.
+   */
+  private static final class CountingStream extends OutputStream {
+    private long bytes;
+
+    @Override
+    public void write(int b) {
+      bytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      bytes += len;
+    }
+  }
+}
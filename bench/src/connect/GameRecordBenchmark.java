@@ -0,0 +1,89 @@
+package connect;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * A throughput benchmark for the game-record format. It writes random games on the
+ * standard board to a temporary file, then reads the file back twice: once decoding the
+ * records only, and once replaying every game on a model. It prints the bytes per game,
+ * the games that fit into a gigabyte and the speed of every pass. The file is read right
+ * after it is written, so it comes from the page cache rather than the disk.
+ * Run it with {@code java connect.GameRecordBenchmark [games]}.
+ */
+public class GameRecordBenchmark {
+
+  /**
+   * Runs the benchmark.
+   * @param args optionally the number of games, two million by default
+   * @throws IOException if the temporary file cannot be written or read
+   */
+  public static void main(String[] args) throws IOException {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+    Path file = Files.createTempFile("games", ".c4gr");
+    try {
+      long start = System.nanoTime();
+      write(file, games);
+      long size = Files.size(file);
+      report("write", games, size, System.nanoTime() - start);
+      System.out.printf("%.2f bytes/game, %.1f million games/GB%n",
+          (double) size / games, (1L << 30) * games / (double) size / 1e6);
+      for (int pass = 0; pass < 3; pass++) {
+        start = System.nanoTime();
+        long moves = read(file, false);
+        report("read", games, size, System.nanoTime() - start);
+        start = System.nanoTime();
+        read(file, true);
+        report("replay", games, size, System.nanoTime() - start);
+        if (moves == 0) {
+          System.out.println("no moves");
+        }
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void write(Path file, int games) throws IOException {
+    SplittableRandom random = new SplittableRandom(1);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    int[] moves = new int[42];
+    try (GameRecordWriter writer = new GameRecordWriter(FileChannel.open(file,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+      for (int g = 0; g < games; g++) {
+        model.resetBoard();
+        int count = 0;
+        while (!model.isGameOver()) {
+          int column = random.nextInt(7);
+          if (model.tryMove(column) == MoveStatus.OK) {
+            moves[count++] = column;
+          }
+        }
+        writer.write(model, moves, count);
+      }
+    }
+  }
+
+  private static long read(Path file, boolean replay) throws IOException {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    long moves = 0;
+    try (GameRecordReader reader = new GameRecordReader(FileChannel.open(file))) {
+      while (reader.next()) {
+        moves += reader.getMoveCount();
+        if (replay) {
+          reader.replay(model);
+        }
+      }
+    }
+    return moves;
+  }
+
+  private static void report(String pass, int games, long bytes, long nanos) {
+    System.out.printf("%-7s %8.2f M games/s %8.1f MB/s%n", pass,
+        games * 1e3 / nanos, bytes * 1e3 / nanos);
+  }
+}
@@ -0,0 +1,83 @@
+package connect;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.BiFunction;
+
+/**
+ * A memory-footprint report for the board storage of {@link ConnectFourModelImpl} and
+ * {@link PackedConnectFourModel}. For every board size it prints the bytes per cell that
+ * a model keeps to hold a half-filled board, including its move stack, and the bytes per
+ * cell that one call to {@code getBoardState} allocates. The bytes a model keeps are
+ * measured as the growth of the heap after a full garbage collection, over enough copies
+ * of the model to hide the noise; the bytes a call allocates are counted by the JVM for
+ * the current thread, which needs a HotSpot JVM.
+ * Run it with {@code java connect.ModelFootprintBenchmark}.
+ */
+public class ModelFootprintBenchmark {
+  private static final int[] SIZES = {6, 24, 100, 400, 1000};
+  private static final long CELLS_PER_MEASUREMENT = 4_000_000;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /**
+   * Runs the report and prints one line per board size and model.
+   * @param args the command-line arguments that are not used
+   */
+  public static void main(String[] args) {
+    System.out.printf("%-12s %-8s %14s %14s %18s%n",
+        "board", "model", "model bytes", "bytes/cell", "boardState b/cell");
+    for (int size : SIZES) {
+      report(size, "impl", ConnectFourModelImpl::new);
+      report(size, "packed", PackedConnectFourModel::new);
+    }
+  }
+
+  private static void report(int size,
+                             String name,
+                             BiFunction<Integer, Integer, ConnectFourModel> factory) {
+    // a first round loads the classes, so they are not counted
+    halfFilled(size, factory).getBoardState();
+    int copies = (int) Math.max(1, CELLS_PER_MEASUREMENT / ((long) size * size));
+    ConnectFourModel[] models = new ConnectFourModel[copies];
+    long before = usedHeap();
+    for (int i = 0; i < copies; i++) {
+      models[i] = halfFilled(size, factory);
+    }
+    long modelBytes = (usedHeap() - before) / copies;
+    before = allocatedBytes();
+    models[0].getBoardState();
+    long stateBytes = allocatedBytes() - before;
+    double cells = (double) size * size;
+    System.out.printf("%-12s %-8s %14d %14.3f %18.3f%n", size + "x" + size, name,
+        modelBytes, modelBytes / cells, stateBytes / cells);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static long allocatedBytes() {
+    return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Fills the lower half of the board with a pattern that never lines up four discs.
+   * The number of columns must be even.
+   */
+  private static ConnectFourModel halfFilled(
+      int size, BiFunction<Integer, Integer, ConnectFourModel> factory) {
+    ConnectFourModel model = factory.apply(size, size);
+    for (int i = 0; i < size / 2; i++) {
+      int offset = (i / 2) % 2;
+      for (int j = 0; j < size; j++) {
+        model.makeMove((j + offset) % size);
+      }
+    }
+    return model;
+  }
+}
@@ -0,0 +1,71 @@
+package connect;
+
+/**
+ * A micro-benchmark for the game-state queries that the controllers call several times
+ * per turn: {@code isGameOver}, {@code getWinner} and {@code getTurn}. Each board is
+ * half filled before timing, and the time per query is printed for growing board sizes.
+ * The numbers should stay flat as the board grows.
+ * Run it with {@code java connect.ModelQueryBenchmark}.
+ */
+public class ModelQueryBenchmark {
+  private static final int[] SIZES = {6, 24, 100, 400, 1000};
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int MEASURED_ROUNDS = 5;
+  private static final int QUERIES_PER_ROUND = 2_000_000;
+
+  /**
+   * Runs the benchmark and prints one line per board size.
+   * @param args the command-line arguments that are not used
+   */
+  public static void main(String[] args) {
+    System.out.printf("%-12s %14s%n", "board", "ns/query");
+    long sink = 0;
+    for (int size : SIZES) {
+      ConnectFourModel model = halfFilled(size, size);
+      for (int i = 0; i < WARMUP_ROUNDS; i++) {
+        sink += queryRound(model);
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < MEASURED_ROUNDS; i++) {
+        sink += queryRound(model);
+      }
+      long elapsed = System.nanoTime() - start;
+      double nsPerQuery = (double) elapsed / (MEASURED_ROUNDS * QUERIES_PER_ROUND * 3L);
+      System.out.printf("%-12s %14.2f%n", size + "x" + size, nsPerQuery);
+    }
+    // print the sink so the JIT cannot drop the queries as dead code
+    System.out.println("(sink " + sink + ")");
+  }
+
+  private static long queryRound(ConnectFourModel model) {
+    long sink = 0;
+    for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+      if (model.isGameOver()) {
+        sink++;
+      }
+      if (model.getWinner() != null) {
+        sink++;
+      }
+      sink += model.getTurn().ordinal();
+    }
+    return sink;
+  }
+
+  /**
+   * Fills the lower half of the board with a pattern that never lines up four discs,
+   * so the game is still running and a draw check would have to look at empty cells.
+   * The number of columns must be even.
+   */
+  private static ConnectFourModel halfFilled(int rows, int columns) {
+    ConnectFourModel model = new ConnectFourModelImpl(rows, columns);
+    // rows are filled left to right so colors alternate within a row, and the starting
+    // column shifts by one every two rows so no column or diagonal runs longer than two
+    for (int i = 0; i < rows / 2; i++) {
+      int offset = (i / 2) % 2;
+      for (int j = 0; j < columns; j++) {
+        model.makeMove((j + offset) % columns);
+      }
+    }
+    return model;
+  }
+}
@@ -0,0 +1,42 @@
+package connect;
+
+/**
+ * Measures the playout rate of {@link MonteCarloConnectFourAI} on large boards as threads
+ * are added. Every run searches the position after one move in the center column for a
+ * fixed time. Run it with {@code java connect.MonteCarloBenchmark [threads...]}; by
+ * default it tries 1, 2, 4 and as many threads as there are processors.
+ */
+public class MonteCarloBenchmark {
+  private static final int[][] SIZES = {{6, 7}, {20, 30}, {50, 80}};
+  private static final long BUDGET_MILLIS = 2000;
+
+  /**
+   * Runs the benchmark and prints one line per board size and thread count.
+   * @param args the thread counts to try
+   */
+  public static void main(String[] args) {
+    int[] threadCounts;
+    if (args.length == 0) {
+      threadCounts = new int[] {1, 2, 4, Runtime.getRuntime().availableProcessors()};
+    } else {
+      threadCounts = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        threadCounts[i] = Integer.parseInt(args[i]);
+      }
+    }
+    System.out.printf("%-8s %-8s %14s %12s %6s%n",
+        "board", "threads", "playouts/s", "tree nodes", "move");
+    for (int[] size : SIZES) {
+      for (int threads : threadCounts) {
+        ConnectFourModel model = new ConnectFourModelImpl(size[0], size[1]);
+        model.makeMove(size[1] / 2);
+        try (MonteCarloConnectFourAI ai = new MonteCarloConnectFourAI(threads)) {
+          ai.setTimeBudget(BUDGET_MILLIS);
+          int move = ai.chooseMove(model);
+          System.out.printf("%-8s %-8d %14.0f %12d %6d%n", size[0] + "x" + size[1],
+              threads, ai.getPlayoutsPerSecond(), ai.getTreeSize(), move);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package connect;
+
+/**
+ * Measures how much faster {@link ParallelNegamaxConnectFourAI} solves a fixed set of
+ * 6x7 positions as threads are added. Every run starts from an empty transposition table,
+ * and the speedup is reported against the single-threaded run.
+ * Run it with {@code java connect.ParallelSearchBenchmark [threads...]}; by default it
+ * tries 1, 2, 4 and as many threads as there are processors.
+ */
+public class ParallelSearchBenchmark {
+  /**
+   * Positions given as one-based columns played from the empty board. Each one takes
+   * between one and a few seconds to solve on a single thread.
+   */
+  private static final String[] POSITIONS = {"4453212", "3454554", "74534466", "44453"};
+
+  /**
+   * Runs the benchmark and prints one line per thread count.
+   * @param args the thread counts to try
+   */
+  public static void main(String[] args) {
+    int[] threadCounts;
+    if (args.length == 0) {
+      threadCounts = new int[] {1, 2, 4, Runtime.getRuntime().availableProcessors()};
+    } else {
+      threadCounts = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        threadCounts[i] = Integer.parseInt(args[i]);
+      }
+    }
+    System.out.printf("%-8s %10s %14s %9s%n", "threads", "seconds", "nodes/s", "speedup");
+    double baseline = 0;
+    for (int threads : threadCounts) {
+      long nodes = 0;
+      long elapsed = 0;
+      long checksum = 0;
+      for (String moves : POSITIONS) {
+        try (ParallelNegamaxConnectFourAI ai = new ParallelNegamaxConnectFourAI(threads)) {
+          checksum = checksum * 31 + ai.solve(position(moves));
+          nodes += ai.getNodeCount();
+          elapsed += ai.getElapsedNanos();
+        }
+      }
+      double seconds = elapsed / 1e9;
+      if (baseline == 0) {
+        baseline = seconds;
+      }
+      System.out.printf("%-8d %10.2f %14.0f %9.2f   (scores %d)%n",
+          threads, seconds, nodes / seconds, baseline / seconds, checksum);
+    }
+  }
+
+  private static ConnectFourModel position(String moves) {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    for (int i = 0; i < moves.length(); i++) {
+      model.makeMove(moves.charAt(i) - '1');
+    }
+    return model;
+  }
+}
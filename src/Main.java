@@ -1,6 +1,16 @@
+import connect.ConnectFourModel;
 import connect.ConnectFourModelImpl;
+import connect.IterativeDeepeningConnectFourAI;
+import connect.MoveJournal;
+import connect.OpeningBook;
+import connect.Player;
 import connect.SwingConnectFourControllerImpl;
 import connect.SwingConnectFourViewImpl;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 
 /**
@@ -9,28 +19,66 @@ import connect.SwingConnectFourViewImpl;
  * The view and the model are separated from each other.
  * The controller is the middleman between the view and the model.
  * The window will display the game board and the current player.
- * The main portion of the window will be a 6row x 7column grid of buttons.
- * The buttons are initially empty (white)
- * and will be filled with the player's color (yellow or red) when clicked.
+ * The main portion of the window is a {@link connect.BoardComponent} that paints the board,
+ * sized from the model, or a scrollable and zoomable {@link connect.ScrollableBoardView}
+ * for boards with more than a hundred rows or columns.
+ * The cells are initially empty (white)
+ * and a disc of the player's color (yellow or red) drops into the column clicked.
  * The window will also display the current player's turn at the top.
  * The window will also display a message when the game is over.
  * The window will have a "Restart Game" button that will reset the game.
  * The window will have a "Quit" button that will close the window.
+ * Pass "ai" as the first argument to play red against a computer opponent,
+ * optionally followed by how many milliseconds it may think about each move.
+ * Pass "journal=DIR" to keep the game in a move journal in that directory,
+ * so that it picks up where it left off when the program is started again.
+ * Pass "book=FILE" to let the computer opponent play the opening from an opening book
+ * made by {@link connect.OpeningBookGenerator} for the board size of the game.
  */
 public class Main {
   /**
    * The main method to run the Connect 4 game.
-   * @param args the command-line arguments that are not used
+   * @param args "ai" and an optional time budget in milliseconds to play against
+   *     the computer, or nothing for two human players, and optionally
+   *     "journal=DIR" to journal the game and "book=FILE" to give the computer an
+   *     opening book
+   * @throws IOException if the journal or the book cannot be read or written
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
 
-    ConnectFourModelImpl model = new ConnectFourModelImpl(6, 7);
-    SwingConnectFourViewImpl view = new SwingConnectFourViewImpl("Connect 4");
-    SwingConnectFourControllerImpl controller = new SwingConnectFourControllerImpl(view, model);
+    List<String> options = new ArrayList<>(Arrays.asList(args));
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    boolean resumed = false;
+    OpeningBook book = null;
+    for (String option : new ArrayList<>(options)) {
+      if (option.startsWith("journal=")) {
+        MoveJournal journal = MoveJournal.open(Paths.get(option.substring(8)));
+        resumed = journal.getGame(1) != null;
+        model = resumed ? journal.getGame(1) : journal.startGame(1, model);
+        options.remove(option);
+      } else if (option.startsWith("book=")) {
+        book = OpeningBook.open(Paths.get(option.substring(5)));
+        options.remove(option);
+      }
+    }
+    SwingConnectFourViewImpl view = new SwingConnectFourViewImpl("Connect 4",
+        model.getRows(), model.getColumns());
+    SwingConnectFourControllerImpl controller;
+    if (options.size() > 0 && options.get(0).equals("ai")) {
+      long budgetMillis = options.size() > 1 ? Long.parseLong(options.get(1)) : 1000;
+      controller = new SwingConnectFourControllerImpl(view, model,
+          new IterativeDeepeningConnectFourAI(budgetMillis, book), Player.YELLOW);
+    } else {
+      controller = new SwingConnectFourControllerImpl(view, model);
+    }
 
+    if (resumed && model.isGameOver()) {
+      model.resetBoard();
+    }
     view.setController(controller);
     view.createBoard();
 
+    // shows the model's board, so a resumed game goes on where it stopped
     controller.playGame(model);
 
   }
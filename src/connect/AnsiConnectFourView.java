@@ -0,0 +1,163 @@
+package connect;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A console view for terminals that understand ANSI escape sequences, which redraws only
+ * the cells of the board that changed instead of printing the whole board after every
+ * move. It works with {@link ConnectFourConsoleController} like the plain view does.
+ *
+ * <p>The board is drawn once at the top of the screen, in the layout of the models'
+ * {@code toString}, and the view keeps the frame it last drew. Every later board it is
+ * given is compared with that frame, and only the changed cells are written, each after
+ * an escape sequence that moves the cursor to it; a cell just after the previous one is
+ * reached by rewriting the few characters in between instead. Messages go to the area
+ * below the board, which is cleared whenever the board is updated. A move therefore
+ * costs a few dozen bytes on a board of any size, where the plain view prints two bytes
+ * per cell.
+ *
+ * <p>Updates are drawn lazily and in bursts: a board is only drawn when the next message
+ * is displayed or {@link #flush()} is called, so several boards in a row cost one diff
+ * between the first and the last, and a whole update reaches the output in a single
+ * {@code append} call. A board of a different size, such as the first one, clears the
+ * screen and is drawn in full.
+ */
+public class AnsiConnectFourView extends ConnectFourView {
+  private static final String ESCAPE = "\u001b[";
+  private static final int MAX_GAP = 4;
+
+  private final Screen screen;
+
+  /**
+   * Constructor for the AnsiConnectFourView class.
+   *
+   * @param out the output destination, usually a terminal
+   */
+  public AnsiConnectFourView(Appendable out) {
+    this(new Screen(Objects.requireNonNull(out, "Appendable can't be null")));
+  }
+
+  private AnsiConnectFourView(Screen screen) {
+    super(screen);
+    this.screen = screen;
+  }
+
+  /**
+   * Updates the board on the screen to the given state, in the format of the models'
+   * {@code toString}. Nothing is written until the next message or {@link #flush()}.
+   *
+   * @param gameState the current state of the game board
+   */
+  @Override
+  public void displayGameState(String gameState) {
+    screen.pending = gameState;
+  }
+
+  /**
+   * Updates the board to its state when the player quit and displays the quit message.
+   *
+   * @param gameState the game state when the player quits
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public void displayGameQuit(String gameState) throws IOException {
+    displayGameState(gameState);
+    displayErrorMessage("Game quit!");
+  }
+
+  /**
+   * Draws the board if it was updated since it was last drawn.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  public void flush() throws IOException {
+    screen.draw();
+  }
+
+  /**
+   * The output of the view, which draws a pending board before anything else is written.
+   */
+  private static final class Screen implements Appendable {
+    private final Appendable out;
+    private final StringBuilder update = new StringBuilder();
+    private String pending;
+    private char[][] frame = new char[0][];
+
+    private Screen(Appendable out) {
+      this.out = out;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+      draw();
+      out.append(csq);
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+      draw();
+      out.append(csq, start, end);
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+      draw();
+      out.append(c);
+      return this;
+    }
+
+    private void draw() throws IOException {
+      if (pending == null) {
+        return;
+      }
+      String[] lines = pending.split("\n");
+      pending = null;
+      update.setLength(0);
+      if (!sameSize(lines)) {
+        frame = new char[lines.length][];
+        update.append(ESCAPE).append("H").append(ESCAPE).append("2J");
+        for (int i = 0; i < lines.length; i++) {
+          frame[i] = lines[i].toCharArray();
+          update.append(lines[i]).append('\n');
+        }
+      } else {
+        for (int i = 0; i < lines.length; i++) {
+          int next = -1;
+          for (int k = 0; k < frame[i].length; k++) {
+            char c = lines[i].charAt(k);
+            if (c != frame[i][k]) {
+              // a cell close after the last one written is reached by writing the
+              // unchanged characters in between, which is shorter than a cursor move
+              if (next >= 0 && k - next <= MAX_GAP) {
+                update.append(lines[i], next, k);
+              } else {
+                update.append(ESCAPE).append(i + 1).append(';').append(k + 1).append('H');
+              }
+              update.append(c);
+              frame[i][k] = c;
+              next = k + 1;
+            }
+          }
+        }
+      }
+      // messages go below the board, one blank line down
+      update.append(ESCAPE).append(frame.length + 2).append(";1H").append(ESCAPE).append('J');
+      out.append(update);
+    }
+
+    private boolean sameSize(String[] lines) {
+      if (lines.length != frame.length) {
+        return false;
+      }
+      for (int i = 0; i < lines.length; i++) {
+        if (lines[i].length() != frame[i].length) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
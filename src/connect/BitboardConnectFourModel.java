@@ -0,0 +1,407 @@
+package connect;
+
+
+/**
+ * A model representing the game state of Connect Four, backed by bitboards.
+ * Each player's discs are packed into a single {@code long}, one bit per cell, laid out
+ * column by column from the bottom up. Every column carries one extra sentinel bit above
+ * its top row so that shifting a bitboard never carries a disc from one column into the
+ * next. Wins are detected with a handful of shift-and-AND operations instead of scanning
+ * the grid, so a move costs the same no matter what is already on the board.
+ * The model behaves exactly like {@link ConnectFourModelImpl} and can be used wherever
+ * a {@link ConnectFourModel} is expected.
+ */
+public class BitboardConnectFourModel implements ConnectFourModel {
+  private final int rows;
+  private final int columns;
+  private final int height;
+  private final long bottomMask;
+  private final long boardMask;
+  private long redDiscs;
+  private long yellowDiscs;
+  private final int[] history;
+  private int moves;
+  private Snapshot snapshot;
+  private final ZobristHashes hashes;
+  private Player turn;
+  private Player winner;
+  private boolean gameOver;
+
+  /**
+   * Constructs a new bitboard-backed model that takes in the number of rows and columns
+   * for the game board. Because every column needs a sentinel bit, the board must satisfy
+   * {@code (rows + 1) * columns <= 64}, which covers the standard 6x7 board.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @throws IllegalArgumentException if the number of rows or columns is less than 4,
+   *     or if the board does not fit into a 64-bit bitboard
+   */
+  public BitboardConnectFourModel(int rows, int columns) throws IllegalArgumentException {
+    if (rows < 4 || columns < 4) {
+      throw new IllegalArgumentException("Invalid rows or columns");
+    }
+    if (!fits(rows, columns)) {
+      throw new IllegalArgumentException("Board too large for a bitboard");
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.height = rows + 1;
+    this.bottomMask = bottomMask(rows, columns);
+    this.boardMask = this.bottomMask * ((1L << rows) - 1);
+    this.history = new int[rows * columns];
+    this.turn = Player.RED;
+    this.winner = null;
+    this.gameOver = false;
+    this.hashes = new ZobristHashes(rows, columns);
+    this.initializeBoard();
+  }
+
+  /**
+   * Checks whether a board of the given size fits into a single bitboard.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @return true if a board of that size can be represented, false otherwise
+   */
+  public static boolean fits(int rows, int columns) {
+    return rows > 0 && columns > 0 && (long) (rows + 1) * columns <= Long.SIZE;
+  }
+
+  @Override
+  public void initializeBoard() {
+    this.redDiscs = 0L;
+    this.yellowDiscs = 0L;
+    this.moves = 0;
+    this.snapshot = null;
+    this.hashes.clear();
+  }
+
+  @Override
+  public void makeMove(int column) throws IllegalArgumentException {
+    int status = this.tryMove(column);
+    if (status != MoveStatus.OK) {
+      throw new IllegalArgumentException(MoveStatus.message(status));
+    }
+  }
+
+  @Override
+  public int tryMove(int column) {
+    // check if the game is over
+    if (this.gameOver) {
+      return MoveStatus.GAME_OVER;
+    }
+    // check if the column is valid
+    if (column < 0 || column >= columns) {
+      return MoveStatus.INVALID_COLUMN;
+    }
+    // check if the column is full
+    long mask = redDiscs | yellowDiscs;
+    if ((mask & topMask(column)) != 0) {
+      return MoveStatus.COLUMN_FULL;
+    }
+    // adding the column's bottom bit to the mask carries into the first empty cell
+    long move = (mask + bottomMask(column)) & columnMask(column);
+    this.snapshot = null;
+    long discs;
+    if (this.turn == Player.RED) {
+      redDiscs |= move;
+      discs = redDiscs;
+    } else {
+      yellowDiscs |= move;
+      discs = yellowDiscs;
+    }
+    hashes.toggle(Long.numberOfTrailingZeros(move) - column * height, column, this.turn);
+    history[moves++] = column;
+    // check if the game is over
+    if (alignment(discs, height)) {
+      this.gameOver = true;
+      this.winner = this.turn;
+    } else if (this.checkDraw()) {
+      this.gameOver = true;
+    } else {
+      this.turn = this.turn == Player.RED ? Player.YELLOW : Player.RED;
+    }
+    return MoveStatus.OK;
+  }
+
+  @Override
+  public void undoMove() throws IllegalArgumentException {
+    if (moves == 0) {
+      throw new IllegalArgumentException("No move to undo");
+    }
+    int column = history[--moves];
+    // the last disc of a column is its highest set bit
+    long move = Long.highestOneBit((redDiscs | yellowDiscs) & columnMask(column));
+    this.snapshot = null;
+    hashes.toggle(Long.numberOfTrailingZeros(move) - column * height, column,
+        (redDiscs & move) != 0 ? Player.RED : Player.YELLOW);
+    redDiscs &= ~move;
+    yellowDiscs &= ~move;
+    // a move that ends the game leaves the turn with the player who made it
+    if (this.gameOver) {
+      this.gameOver = false;
+      this.winner = null;
+    } else {
+      this.turn = this.turn == Player.RED ? Player.YELLOW : Player.RED;
+    }
+  }
+
+  /**
+   * Retrieves the hashes of the board that {@link CanonicalKey} reads.
+   *
+   * @return the hashes, kept up to date with every move
+   */
+  ZobristHashes getHashes() {
+    return this.hashes;
+  }
+
+  private boolean checkDraw() {
+    return moves == rows * columns;
+  }
+
+  /**
+   * Checks if a bitboard contains four discs in a row in any direction.
+   * Shifting by 1 follows a column, by {@code height} follows a row, and by
+   * {@code height - 1} and {@code height + 1} follow the two diagonals.
+   *
+   * @param discs the bitboard of one player's discs
+   * @param height the number of bits per column, including the sentinel bit
+   * @return true if the bitboard contains four aligned discs, false otherwise
+   */
+  static boolean alignment(long discs, int height) {
+    long m = discs & (discs >>> height);
+    if ((m & (m >>> (2 * height))) != 0) {
+      return true;
+    }
+    m = discs & (discs >>> (height - 1));
+    if ((m & (m >>> (2 * (height - 1)))) != 0) {
+      return true;
+    }
+    m = discs & (discs >>> (height + 1));
+    if ((m & (m >>> (2 * (height + 1)))) != 0) {
+      return true;
+    }
+    m = discs & (discs >>> 1);
+    return (m & (m >>> 2)) != 0;
+  }
+
+  /**
+   * Builds a bitboard with the bottom cell of every column set.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @return the bitboard of all bottom cells
+   */
+  static long bottomMask(int rows, int columns) {
+    long mask = 0L;
+    for (int j = 0; j < columns; j++) {
+      mask |= 1L << (j * (rows + 1));
+    }
+    return mask;
+  }
+
+  private long bottomMask(int column) {
+    return 1L << (column * height);
+  }
+
+  private long topMask(int column) {
+    return 1L << (rows - 1 + column * height);
+  }
+
+  private long columnMask(int column) {
+    return ((1L << rows) - 1) << (column * height);
+  }
+
+  private static Player cellAt(long redDiscs, long yellowDiscs, int bit) {
+    if ((redDiscs & (1L << bit)) != 0) {
+      return Player.RED;
+    }
+    if ((yellowDiscs & (1L << bit)) != 0) {
+      return Player.YELLOW;
+    }
+    return null;
+  }
+
+  @Override
+  public Player getTurn() {
+    if (this.gameOver) {
+      return null;
+    }
+    return this.turn;
+  }
+
+  @Override
+  public boolean isGameOver() {
+    return this.gameOver;
+  }
+
+  @Override
+  public Player getWinner() {
+    if (this.gameOver) {
+      return this.winner;
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public void resetBoard() {
+    this.initializeBoard();
+    this.turn = Player.RED;
+    this.winner = null;
+    this.gameOver = false;
+  }
+
+  @Override
+  public Player[][] getBoardState() {
+    Player[][] copy = new Player[rows][columns];
+    long mask = (redDiscs | yellowDiscs) & boardMask;
+    while (mask != 0) {
+      int bit = Long.numberOfTrailingZeros(mask);
+      copy[bit % height][bit / height] =
+          (redDiscs & (1L << bit)) != 0 ? Player.RED : Player.YELLOW;
+      mask &= mask - 1;
+    }
+    return copy;
+  }
+
+  @Override
+  public int getRows() {
+    return rows;
+  }
+
+  @Override
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Retrieves the win length, which is always four for a bitboard model.
+   *
+   * @return 4
+   */
+  @Override
+  public int getWinLength() {
+    return 4;
+  }
+
+  @Override
+  public Player getCell(int row, int column) throws IllegalArgumentException {
+    if (row < 0 || row >= rows || column < 0 || column >= columns) {
+      throw new IllegalArgumentException("Invalid row or column");
+    }
+    return cellAt(redDiscs, yellowDiscs, row + column * height);
+  }
+
+  @Override
+  public int getColumnHeight(int column) throws IllegalArgumentException {
+    if (column < 0 || column >= columns) {
+      throw new IllegalArgumentException("Invalid column");
+    }
+    return Long.bitCount((redDiscs | yellowDiscs) & columnMask(column));
+  }
+
+  @Override
+  public long legalMovesMask() {
+    return legalMovesMask(0);
+  }
+
+  @Override
+  public long legalMovesMask(int firstColumn) throws IllegalArgumentException {
+    if (firstColumn < 0) {
+      throw new IllegalArgumentException("Invalid column");
+    }
+    if (this.gameOver) {
+      return 0L;
+    }
+    // a bitboard has at most 16 columns, so looking at the top cell of each is cheap
+    long mask = redDiscs | yellowDiscs;
+    long legal = 0L;
+    for (int j = firstColumn; j < columns; j++) {
+      if ((mask & topMask(j)) == 0) {
+        legal |= 1L << (j - firstColumn);
+      }
+    }
+    return legal;
+  }
+
+  @Override
+  public BoardSnapshot getSnapshot() {
+    if (this.snapshot == null) {
+      this.snapshot = new Snapshot(rows, columns, redDiscs, yellowDiscs);
+    }
+    return this.snapshot;
+  }
+
+  /**
+   * A toString method that returns the current state of the game board.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    int i;
+    int j;
+    for (i = 0; i < rows; i++) {
+      for (j = 0; j < columns; j++) {
+        Player cell = cellAt(redDiscs, yellowDiscs, i + j * height);
+        if (cell == null) {
+          sb.append("_");
+        } else {
+          sb.append(cell.getDisplayName());
+        }
+        if (j < columns - 1) {
+          sb.append(" ");
+        }
+      }
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * A snapshot of the board. Two bitboards describe the whole position, so the snapshot
+   * simply keeps its own copy of them.
+   */
+  private static final class Snapshot implements BoardSnapshot {
+    private final int rows;
+    private final int columns;
+    private final long redDiscs;
+    private final long yellowDiscs;
+
+    private Snapshot(int rows, int columns, long redDiscs, long yellowDiscs) {
+      this.rows = rows;
+      this.columns = columns;
+      this.redDiscs = redDiscs;
+      this.yellowDiscs = yellowDiscs;
+    }
+
+    @Override
+    public int getRows() {
+      return rows;
+    }
+
+    @Override
+    public int getColumns() {
+      return columns;
+    }
+
+    @Override
+    public Player getCell(int row, int column) throws IllegalArgumentException {
+      if (row < 0 || row >= rows || column < 0 || column >= columns) {
+        throw new IllegalArgumentException("Invalid row or column");
+      }
+      return cellAt(redDiscs, yellowDiscs, row + column * (rows + 1));
+    }
+
+    @Override
+    public int getColumnHeight(int column) throws IllegalArgumentException {
+      if (column < 0 || column >= columns) {
+        throw new IllegalArgumentException("Invalid column");
+      }
+      long columnMask = ((1L << rows) - 1) << (column * (rows + 1));
+      return Long.bitCount((redDiscs | yellowDiscs) & columnMask);
+    }
+  }
+
+}
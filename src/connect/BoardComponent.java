@@ -0,0 +1,292 @@
+package connect;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import javax.swing.JComponent;
+
+/**
+ * A Swing component that paints a Connect Four board of any size by itself, in place of a
+ * grid of buttons. Cells are squares as large as fit into the component, and the board is
+ * centered in it. Clicking a cell reports its column to the column listener.
+ *
+ * <p>The component keeps its own copy of the board, one byte per cell, and compares every
+ * update with it: only the cells that changed are repainted, each with a repaint request
+ * for its own rectangle, so a move repaints one cell however large the board is. Painting
+ * only covers the cells inside the clip. Each cell is drawn by copying one of three
+ * images, for an empty cell and a disc of each player, which are drawn once for the
+ * current cell size and kept until the size changes.
+ *
+ * <p>Like every Swing component it must only be used on the event dispatch thread.
+ */
+public class BoardComponent extends JComponent {
+  private static final long serialVersionUID = 1L;
+  private static final int PREFERRED_CELL = 80;
+  private static final int MIN_CELL = 4;
+  // the preferred size stays within this so that a wide board still fits on the screen
+  private static final int MAX_PREFERRED_WIDTH = 1200;
+  private static final int MAX_PREFERRED_HEIGHT = 800;
+  private static final Color BOARD = new Color(0x1E, 0x4F, 0xC8);
+  private static final Color EMPTY = Color.WHITE;
+  private static final byte NONE = 0;
+  private static final byte RED = 1;
+  private static final byte YELLOW = 2;
+
+  private int rows;
+  private int columns;
+  private byte[] cells;
+  private IntConsumer columnListener = column -> { };
+  private final BufferedImage[] images = new BufferedImage[3];
+  private int imageSize;
+
+  /**
+   * Constructs an empty board.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @throws IllegalArgumentException if the number of rows or columns is not positive
+   */
+  public BoardComponent(int rows, int columns) throws IllegalArgumentException {
+    setBoardSize(rows, columns);
+    setOpaque(true);
+    addMouseListener(new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        int column = columnAt(e.getX());
+        if (column >= 0) {
+          columnListener.accept(column);
+        }
+      }
+    });
+  }
+
+  /**
+   * Changes the size of the board and empties it.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @throws IllegalArgumentException if the number of rows or columns is not positive
+   */
+  public void setBoardSize(int rows, int columns) throws IllegalArgumentException {
+    if (rows <= 0 || columns <= 0 || (long) rows * columns > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid rows or columns");
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.cells = new byte[rows * columns];
+    int cell = Math.max(MIN_CELL, Math.min(PREFERRED_CELL,
+        Math.min(MAX_PREFERRED_WIDTH / columns, MAX_PREFERRED_HEIGHT / rows)));
+    setPreferredSize(new Dimension(columns * cell, rows * cell));
+    revalidate();
+    repaint();
+  }
+
+  /**
+   * Retrieves the number of rows in the board.
+   *
+   * @return the number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Retrieves the number of columns in the board.
+   *
+   * @return the number of columns
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Sets the listener told about the column of every cell the user clicks.
+   *
+   * @param listener the listener, which receives the zero-based column
+   */
+  public void setColumnListener(IntConsumer listener) {
+    this.columnListener = listener == null ? column -> { } : listener;
+  }
+
+  /**
+   * Retrieves the disc shown in a cell.
+   *
+   * @param row the zero-based row, counted from the bottom
+   * @param column the zero-based column
+   * @return the player who owns the disc, or null for an empty cell
+   * @throws IllegalArgumentException if the row or column is out of bounds
+   */
+  public Player getCell(int row, int column) throws IllegalArgumentException {
+    checkCell(row, column);
+    return toPlayer(cells[column * rows + row]);
+  }
+
+  /**
+   * Shows a disc in a cell, or empties it, and repaints the cell if it changed.
+   *
+   * @param row the zero-based row, counted from the bottom
+   * @param column the zero-based column
+   * @param player the player who owns the disc, or null for an empty cell
+   * @throws IllegalArgumentException if the row or column is out of bounds
+   */
+  public void setCell(int row, int column, Player player) throws IllegalArgumentException {
+    checkCell(row, column);
+    byte value = toByte(player);
+    int index = column * rows + row;
+    if (cells[index] != value) {
+      cells[index] = value;
+      repaintCell(row, column);
+    }
+  }
+
+  /**
+   * Shows a snapshot of a model, repainting only the cells that differ from what is shown.
+   * A snapshot of another board size changes the size of the board first.
+   *
+   * @param snapshot the snapshot to show
+   */
+  public void setBoard(BoardSnapshot snapshot) {
+    if (snapshot.getRows() != rows || snapshot.getColumns() != columns) {
+      setBoardSize(snapshot.getRows(), snapshot.getColumns());
+    }
+    for (int j = 0; j < columns; j++) {
+      for (int i = 0; i < rows; i++) {
+        setCell(i, j, snapshot.getCell(i, j));
+      }
+    }
+  }
+
+  /**
+   * Empties every cell.
+   */
+  public void clear() {
+    Arrays.fill(cells, NONE);
+    repaint();
+  }
+
+  /**
+   * Computes the size of a cell in pixels at the component's current size.
+   *
+   * @return the side of a cell, at least one pixel
+   */
+  public int getCellSize() {
+    return Math.max(1, Math.min(getWidth() / columns, getHeight() / rows));
+  }
+
+  /**
+   * Computes the screen rectangle of a cell at the component's current size.
+   *
+   * @param row the zero-based row, counted from the bottom
+   * @param column the zero-based column
+   * @return the rectangle the cell is painted in
+   */
+  public Rectangle getCellBounds(int row, int column) {
+    int cell = getCellSize();
+    return new Rectangle(originX(cell) + column * cell,
+        originY(cell) + (rows - 1 - row) * cell, cell, cell);
+  }
+
+  /**
+   * Finds the column under a horizontal position.
+   *
+   * @param x the horizontal position in the component
+   * @return the zero-based column, or -1 if the position is beside the board
+   */
+  public int columnAt(int x) {
+    int cell = getCellSize();
+    int offset = x - originX(cell);
+    if (offset < 0 || offset >= columns * cell) {
+      return -1;
+    }
+    return offset / cell;
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(0, 0, getWidth(), getHeight());
+    }
+    g.setColor(getBackground() != null ? getBackground() : Color.LIGHT_GRAY);
+    g.fillRect(clip.x, clip.y, clip.width, clip.height);
+    int cell = getCellSize();
+    if (cell != imageSize) {
+      drawImages(cell);
+    }
+    int x0 = originX(cell);
+    int y0 = originY(cell);
+    // only the cells that intersect the clip are painted
+    int firstColumn = Math.max(0, (clip.x - x0) / cell);
+    int lastColumn = Math.min(columns - 1, (clip.x + clip.width - 1 - x0) / cell);
+    int firstLine = Math.max(0, (clip.y - y0) / cell);
+    int lastLine = Math.min(rows - 1, (clip.y + clip.height - 1 - y0) / cell);
+    for (int line = firstLine; line <= lastLine; line++) {
+      int row = rows - 1 - line;
+      int y = y0 + line * cell;
+      for (int j = firstColumn; j <= lastColumn; j++) {
+        g.drawImage(images[cells[j * rows + row]], x0 + j * cell, y, null);
+      }
+    }
+  }
+
+  private void repaintCell(int row, int column) {
+    Rectangle bounds = getCellBounds(row, column);
+    repaint(bounds.x, bounds.y, bounds.width, bounds.height);
+  }
+
+  private int originX(int cell) {
+    return Math.max(0, (getWidth() - columns * cell) / 2);
+  }
+
+  private int originY(int cell) {
+    return Math.max(0, (getHeight() - rows * cell) / 2);
+  }
+
+  /**
+   * Draws the images of an empty cell and of the discs for a cell size.
+   */
+  private void drawImages(int cell) {
+    Color[] colors = {EMPTY, Color.RED, Color.YELLOW};
+    for (int k = 0; k < images.length; k++) {
+      BufferedImage image = new BufferedImage(cell, cell, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = image.createGraphics();
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g.setColor(BOARD);
+      g.fillRect(0, 0, cell, cell);
+      g.setColor(colors[k]);
+      int margin = Math.max(cell / 10, cell > 2 ? 1 : 0);
+      g.fillOval(margin, margin, cell - 2 * margin, cell - 2 * margin);
+      g.dispose();
+      images[k] = image;
+    }
+    imageSize = cell;
+  }
+
+  private void checkCell(int row, int column) {
+    if (row < 0 || row >= rows || column < 0 || column >= columns) {
+      throw new IllegalArgumentException("Invalid row or column");
+    }
+  }
+
+  private static byte toByte(Player player) {
+    if (player == null) {
+      return NONE;
+    }
+    return player == Player.RED ? RED : YELLOW;
+  }
+
+  private static Player toPlayer(byte value) {
+    if (value == NONE) {
+      return null;
+    }
+    return value == RED ? Player.RED : Player.YELLOW;
+  }
+}
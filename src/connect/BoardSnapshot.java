@@ -0,0 +1,45 @@
+package connect;
+
+/**
+ * An immutable, read-only view of a Connect Four board at one point in time.
+ * Rows are counted from the bottom of the board, so row 0 is where the first disc
+ * dropped into a column lands. A snapshot never changes after it is taken, even while
+ * the model it came from keeps playing, so it can be handed to renderers, spectators
+ * or bots on other threads.
+ */
+public interface BoardSnapshot {
+
+  /**
+   * Retrieves the number of rows in the board.
+   *
+   * @return the number of rows
+   */
+  int getRows();
+
+  /**
+   * Retrieves the number of columns in the board.
+   *
+   * @return the number of columns
+   */
+  int getColumns();
+
+  /**
+   * Retrieves the disc in a single cell of the board.
+   *
+   * @param row the row of the cell, counted from the bottom
+   * @param column the column of the cell
+   * @return the player whose disc occupies the cell, or {@code null} if it is empty
+   * @throws IllegalArgumentException if the row or column is out of bounds
+   */
+  Player getCell(int row, int column) throws IllegalArgumentException;
+
+  /**
+   * Retrieves the number of discs in a column, which is also the row that the next
+   * disc dropped into that column will occupy.
+   *
+   * @param column the column to look at
+   * @return the number of discs in the column
+   * @throws IllegalArgumentException if the column is out of bounds
+   */
+  int getColumnHeight(int column) throws IllegalArgumentException;
+}
@@ -0,0 +1,235 @@
+package connect;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A console controller for scripted and piped play that plays exactly like
+ * {@link ConnectFourConsoleController} and writes the same text, but reads and writes
+ * bytes instead of characters. Input is read into a byte buffer a block at a time and
+ * split into tokens at whitespace by hand, numbers are parsed straight from the bytes,
+ * and output goes through a {@link BufferedConsoleView}, so a game costs no regular
+ * expressions, no strings and no board rebuilt from scratch on every turn.
+ *
+ * <p>A token is a move if it is an optional sign followed by decimal digits that fit in
+ * an {@code int}; anything else is reported as invalid input and skipped, as
+ * {@link java.util.Scanner#nextInt()} would. Input is expected to be ASCII. The view is
+ * flushed whenever the controller has to wait for more input, so prompts still show up
+ * before an interactive player is asked to type.
+ */
+public class BufferedConsoleController implements ConnectFourController {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final byte[] YES = {'y', 'e', 's'};
+
+  private final InputStream input;
+  private final BufferedConsoleView view;
+  private final ConnectFourAI ai;
+  private final Player aiPlayer;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  // the bounds of the last token in the buffer
+  private int tokenStart;
+  private int tokenEnd;
+
+  /**
+   * Constructs a controller for two human players.
+   *
+   * @param input the input source for user moves
+   * @param view the view component for displaying the game state and messages
+   */
+  public BufferedConsoleController(InputStream input, BufferedConsoleView view) {
+    this(input, view, null, null);
+  }
+
+  /**
+   * Constructs a controller where a computer opponent plays for one of the players.
+   *
+   * @param input the input source for user moves
+   * @param view the view component for displaying the game state and messages
+   * @param ai the computer opponent, or {@code null} for two human players
+   * @param aiPlayer the player the computer opponent plays for
+   */
+  public BufferedConsoleController(InputStream input, BufferedConsoleView view,
+                                   ConnectFourAI ai, Player aiPlayer) {
+    this.input = Objects.requireNonNull(input, "InputStream can't be null");
+    this.view = Objects.requireNonNull(view, "View can't be null");
+    this.ai = ai;
+    this.aiPlayer = aiPlayer;
+  }
+
+  /**
+   * Execute a single game of Connect Four given a Connect Four Model. When the game
+   * is over, the playGame method ends. Everything displayed is flushed before it returns.
+   *
+   * @param model a non-null Connect Four Model
+   * @throws IllegalArgumentException if the model is null
+   * @throws NoSuchElementException if the input ends while a move or an answer is due
+   * @throws IOException if the input cannot be read or the output cannot be written
+   */
+  @Override
+  public void playGame(ConnectFourModel model) throws IllegalArgumentException, IOException {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    view.renderBoard(model);
+    try {
+      play(model);
+    } finally {
+      view.flush();
+    }
+  }
+
+  private void play(ConnectFourModel model) throws IOException {
+    boolean playAgain = true;
+    do {
+      view.displayGameState();
+      view.displayPlayerTurn(model.getTurn());
+
+      boolean validMove = false;
+      if (ai != null && model.getTurn() == aiPlayer) {
+        int column = ai.chooseMove(model);
+        model.makeMove(column);
+        view.placeDisc(model.getColumnHeight(column) - 1, column, aiPlayer);
+        view.displayComputerMove(aiPlayer, column + 1);
+        validMove = true;
+      }
+      while (!validMove) {
+        view.askForMove();
+        nextToken();
+        if (!isIntToken()) {
+          view.displayInvalidInput();
+          continue;
+        }
+        int column = tokenValue();
+        if (column == 0) {
+          view.displayGameQuit();
+          playAgain = false;
+          break;
+        }
+        Player player = model.getTurn();
+        int status = model.tryMove(column - 1);
+        if (status == MoveStatus.OK) {
+          view.placeDisc(model.getColumnHeight(column - 1) - 1, column - 1, player);
+          validMove = true;
+        } else {
+          view.displayInvalidNumber(status);
+        }
+      }
+
+      if (model.isGameOver()) {
+        view.displayGameOver(model.getWinner());
+        view.askPlayAgain();
+        nextToken();
+        if (tokenEqualsIgnoreCase(YES)) {
+          playAgain = true;
+          model.resetBoard();
+          view.renderBoard(model);
+        } else {
+          playAgain = false;
+        }
+      }
+    } while (playAgain);
+  }
+
+  /**
+   * Finds the next token in the input, reading more of it as needed.
+   *
+   * @throws NoSuchElementException if the input ends first
+   */
+  private void nextToken() throws IOException {
+    while (true) {
+      while (position < limit && (buffer[position] & 0xFF) <= ' ') {
+        position++;
+      }
+      if (position < limit) {
+        break;
+      }
+      if (!fill(0)) {
+        throw new NoSuchElementException("No more input");
+      }
+    }
+    tokenStart = position;
+    while (true) {
+      while (position < limit && (buffer[position] & 0xFF) > ' ') {
+        position++;
+      }
+      if (position < limit || !fill(position - tokenStart)) {
+        break;
+      }
+    }
+    tokenEnd = position;
+  }
+
+  /**
+   * Reads more input, keeping the given number of bytes before the current position,
+   * which belong to a token that is still being read. A token longer than the buffer
+   * is cut where the buffer ends.
+   *
+   * @return false if the input has ended or the token fills the whole buffer
+   */
+  private boolean fill(int keep) throws IOException {
+    if (keep == buffer.length) {
+      return false;
+    }
+    System.arraycopy(buffer, position - keep, buffer, 0, keep);
+    tokenStart -= position - keep;
+    position = keep;
+    limit = keep;
+    // nothing more will be displayed until the input arrives
+    view.flush();
+    int read = input.read(buffer, limit, buffer.length - limit);
+    if (read <= 0) {
+      return false;
+    }
+    limit += read;
+    return true;
+  }
+
+  private boolean isIntToken() {
+    int i = tokenStart;
+    if (buffer[i] == '-' || buffer[i] == '+') {
+      i++;
+    }
+    if (i == tokenEnd) {
+      return false;
+    }
+    long value = 0;
+    for (; i < tokenEnd; i++) {
+      int digit = buffer[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return false;
+      }
+      value = value * 10 + digit;
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        return false;
+      }
+    }
+    return buffer[tokenStart] == '-' || value <= Integer.MAX_VALUE;
+  }
+
+  private int tokenValue() {
+    boolean negative = buffer[tokenStart] == '-';
+    int i = negative || buffer[tokenStart] == '+' ? tokenStart + 1 : tokenStart;
+    long value = 0;
+    for (; i < tokenEnd; i++) {
+      value = value * 10 + buffer[i] - '0';
+    }
+    return (int) (negative ? -value : value);
+  }
+
+  private boolean tokenEqualsIgnoreCase(byte[] word) {
+    if (tokenEnd - tokenStart != word.length) {
+      return false;
+    }
+    for (int i = 0; i < word.length; i++) {
+      int b = buffer[tokenStart + i];
+      if ((b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b) != word[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,253 @@
+package connect;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A console view for {@link BufferedConsoleController} that writes the same text as
+ * {@link ConnectFourView} at a fraction of the cost, for scripted games piped through the
+ * console. Text is encoded into a byte buffer and handed to the stream a whole block at a
+ * time, and every message is encoded once, when the view is created.
+ *
+ * <p>The view keeps the text of the board, in the layout of the models'
+ * {@code toString}, and the controller tells it about every disc played, so showing the
+ * board copies the cached text instead of building it again; a move only rewrites the
+ * one byte of its cell. Nothing reaches the stream before {@link #flush()}, which the
+ * controller calls whenever it is about to wait for input.
+ */
+public class BufferedConsoleView {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final byte EMPTY = '_';
+
+  private static final byte[] PLAYER = ascii("Player ");
+  private static final byte[] MAKE_YOUR_MOVE = ascii(", make your move: \n");
+  private static final byte[] PLAYS_COLUMN = ascii(" plays column ");
+  private static final byte[] INVALID_NUMBER = ascii("Not a valid number: ");
+  private static final byte[] GAME_QUIT = ascii("Game quit! Ending game state:\n");
+  private static final byte[] TIE = ascii("Game over! It's a tie!\n");
+  private static final byte[] GAME_OVER = ascii("Game over! ");
+  private static final byte[] IS_THE_WINNER = ascii(" is the winner!\n");
+  private static final byte[] PLAY_AGAIN = ascii("Do you want to play again? (yes/no)\n");
+  private static final byte[] INVALID_INPUT =
+      ascii("Invalid input. Please enter a valid number.\n");
+  private static final byte[] ASK_FOR_MOVE = ascii("Enter a column number to make a move: \n");
+  private static final byte[] RED = ascii(Player.RED.toString());
+  private static final byte[] YELLOW = ascii(Player.YELLOW.toString());
+  private static final byte[][] STATUS_MESSAGES = {
+      null,
+      ascii(MoveStatus.message(MoveStatus.GAME_OVER)),
+      ascii(MoveStatus.message(MoveStatus.INVALID_COLUMN)),
+      ascii(MoveStatus.message(MoveStatus.COLUMN_FULL))};
+  private static final byte RED_DISC = ascii(Player.RED.getDisplayName())[0];
+  private static final byte YELLOW_DISC = ascii(Player.YELLOW.getDisplayName())[0];
+
+  private final OutputStream out;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int count;
+  private byte[] board = new byte[0];
+  private int lineLength;
+
+  /**
+   * Constructs a view that writes to a stream.
+   *
+   * @param out the output destination for game state and messages
+   */
+  public BufferedConsoleView(OutputStream out) {
+    this.out = Objects.requireNonNull(out, "OutputStream can't be null");
+  }
+
+  /**
+   * Renders the whole board of a model into the cached text, for a new game or a model
+   * that changed without the view being told.
+   *
+   * @param model the model to render
+   */
+  public void renderBoard(ConnectFourModel model) {
+    int rows = model.getRows();
+    int columns = model.getColumns();
+    lineLength = 2 * columns;
+    if (board.length != rows * lineLength) {
+      board = new byte[rows * lineLength];
+    }
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        board[i * lineLength + 2 * j] = EMPTY;
+        board[i * lineLength + 2 * j + 1] = j < columns - 1 ? (byte) ' ' : (byte) '\n';
+      }
+    }
+    for (int j = 0; j < columns; j++) {
+      int columnHeight = model.getColumnHeight(j);
+      for (int i = 0; i < columnHeight; i++) {
+        placeDisc(i, j, model.getCell(i, j));
+      }
+    }
+  }
+
+  /**
+   * Updates the cached text for a disc that was just played.
+   *
+   * @param row the zero-based row of the disc, counted from the bottom
+   * @param column the zero-based column of the disc
+   * @param player the player who owns the disc
+   */
+  public void placeDisc(int row, int column, Player player) {
+    board[row * lineLength + 2 * column] = player == Player.RED ? RED_DISC : YELLOW_DISC;
+  }
+
+  /**
+   * Displays the cached board, followed by an empty line as {@link ConnectFourView} does.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void displayGameState() throws IOException {
+    write(board);
+    write((byte) '\n');
+  }
+
+  /**
+   * Displays the player whose turn it is to make a move.
+   *
+   * @param player the player whose turn it is
+   * @throws IOException if the stream cannot be written
+   */
+  public void displayPlayerTurn(Player player) throws IOException {
+    write(PLAYER);
+    write(name(player));
+    write(MAKE_YOUR_MOVE);
+  }
+
+  /**
+   * Displays the reason a move was rejected.
+   *
+   * @param status the status of the rejected move
+   * @throws IOException if the stream cannot be written
+   */
+  public void displayInvalidNumber(int status) throws IOException {
+    write(INVALID_NUMBER);
+    write(STATUS_MESSAGES[status]);
+    write((byte) '\n');
+  }
+
+  /**
+   * Displays the cached board when the player quits.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void displayGameQuit() throws IOException {
+    write(GAME_QUIT);
+    displayGameState();
+  }
+
+  /**
+   * Displays the game over message, including the winner (if there is one).
+   *
+   * @param winner the winner of the game, or {@code null} if there is no winner
+   * @throws IOException if the stream cannot be written
+   */
+  public void displayGameOver(Player winner) throws IOException {
+    if (winner == null) {
+      write(TIE);
+    } else {
+      write(GAME_OVER);
+      write(name(winner));
+      write(IS_THE_WINNER);
+    }
+  }
+
+  /**
+   * Asks the player if they want to play again.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void askPlayAgain() throws IOException {
+    write(PLAY_AGAIN);
+  }
+
+  /**
+   * Displays an error message for input that is not a number.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void displayInvalidInput() throws IOException {
+    write(INVALID_INPUT);
+  }
+
+  /**
+   * Displays the move made by a computer opponent.
+   *
+   * @param player the player the computer plays for
+   * @param column the one-based column the computer played
+   * @throws IOException if the stream cannot be written
+   */
+  public void displayComputerMove(Player player, int column) throws IOException {
+    write(PLAYER);
+    write(name(player));
+    write(PLAYS_COLUMN);
+    writeInt(column);
+    write((byte) '\n');
+  }
+
+  /**
+   * Asks the player for a move.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void askForMove() throws IOException {
+    write(ASK_FOR_MOVE);
+  }
+
+  /**
+   * Hands everything displayed so far to the stream and flushes it.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void flush() throws IOException {
+    if (count > 0) {
+      out.write(buffer, 0, count);
+      count = 0;
+    }
+    out.flush();
+  }
+
+  private static byte[] name(Player player) {
+    return player == Player.RED ? RED : YELLOW;
+  }
+
+  private void write(byte[] bytes) throws IOException {
+    if (bytes.length > buffer.length - count) {
+      out.write(buffer, 0, count);
+      count = 0;
+      if (bytes.length > buffer.length) {
+        out.write(bytes);
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buffer, count, bytes.length);
+    count += bytes.length;
+  }
+
+  private void write(byte b) throws IOException {
+    if (count == buffer.length) {
+      out.write(buffer, 0, count);
+      count = 0;
+    }
+    buffer[count++] = b;
+  }
+
+  private void writeInt(int value) throws IOException {
+    String digits = Integer.toString(value);
+    if (buffer.length - count < digits.length()) {
+      out.write(buffer, 0, count);
+      count = 0;
+    }
+    for (int i = 0; i < digits.length(); i++) {
+      buffer[count++] = (byte) digits.charAt(i);
+    }
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,91 @@
+package connect;
+
+/**
+ * Canonical 64-bit keys of Connect Four positions. The rules are the same when the board
+ * is mirrored left to right, so a position and its mirror image have the same value and
+ * the same best moves, mirrored. A canonical key is the same for both: it is the smaller
+ * of the Zobrist hashes of the board and of its mirror image, where every disc adds the
+ * random key of its player and cell. Caches and books keyed by it hold one entry where
+ * they would otherwise hold two, about half the entries overall; one that stores moves
+ * stores them for the orientation the key was taken from, which {@link #isMirrored}
+ * tells.
+ *
+ * <p>The keys work for boards of any size and are the ones the searches keep up to date
+ * incrementally while they play and take back moves, adding or removing one disc's key
+ * per move on each of the two hashes. The models of this package keep both hashes up to
+ * date the same way, so reading the key of one costs nothing however large the board;
+ * the key of any other model is computed from its board.
+ */
+public final class CanonicalKey {
+
+  private CanonicalKey() {
+  }
+
+  /**
+   * Computes the canonical key of a model's position.
+   *
+   * @param model the model to read
+   * @return the key shared by the position and its mirror image
+   */
+  public static long of(ConnectFourModel model) {
+    long hash = zobristHash(model, false);
+    long mirrorHash = zobristHash(model, true);
+    return Long.compareUnsigned(hash, mirrorHash) <= 0 ? hash : mirrorHash;
+  }
+
+  /**
+   * Checks if the canonical key of a model's position is the key of its mirror image, in
+   * which case column {@code j} of the model is column {@code columns - 1 - j} of the
+   * position the key stands for.
+   *
+   * @param model the model to read
+   * @return true if the key comes from the mirrored board
+   */
+  public static boolean isMirrored(ConnectFourModel model) {
+    return Long.compareUnsigned(zobristHash(model, true), zobristHash(model, false)) < 0;
+  }
+
+  /**
+   * Computes the Zobrist hash of a model's board or of its mirror image, the same as a
+   * {@link GridPosition} of the board keeps.
+   *
+   * @param model the model to read
+   * @param mirrored true for the hash of the board mirrored left to right
+   * @return the hash
+   */
+  static long zobristHash(ConnectFourModel model, boolean mirrored) {
+    ZobristHashes hashes = hashesOf(model);
+    if (hashes != null) {
+      return hashes.get(mirrored);
+    }
+    int rows = model.getRows();
+    int columns = model.getColumns();
+    long hash = 0;
+    for (int j = 0; j < columns; j++) {
+      int index = (mirrored ? columns - 1 - j : j) * rows;
+      int columnHeight = model.getColumnHeight(j);
+      for (int i = 0; i < columnHeight; i++) {
+        hash ^= GridPosition.zobristKey(index + i, model.getCell(i, j) == Player.RED ? 1 : 2);
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Finds the hashes a model keeps up to date, or null if it keeps none.
+   */
+  static ZobristHashes hashesOf(ConnectFourModel model) {
+    if (model instanceof JournaledConnectFourModel) {
+      return hashesOf(((JournaledConnectFourModel) model).getModel());
+    } else if (model instanceof ConnectFourModelImpl) {
+      return ((ConnectFourModelImpl) model).getHashes();
+    } else if (model instanceof PackedConnectFourModel) {
+      return ((PackedConnectFourModel) model).getHashes();
+    } else if (model instanceof BitboardConnectFourModel) {
+      return ((BitboardConnectFourModel) model).getHashes();
+    } else if (model instanceof SnapshotModel) {
+      return ((SnapshotModel) model).getHashes();
+    }
+    return null;
+  }
+}
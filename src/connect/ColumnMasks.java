@@ -0,0 +1,36 @@
+package connect;
+
+/**
+ * Helpers for the bitsets of full columns that the models keep to answer
+ * {@link ConnectFourModel#legalMovesMask(int)}, with bit {@code j % 64} of word
+ * {@code j / 64} set when column {@code j} is full.
+ */
+final class ColumnMasks {
+
+  private ColumnMasks() {
+  }
+
+  /**
+   * Reads the playable columns among the 64 columns starting at a given column.
+   *
+   * @param fullColumns the bitset of full columns
+   * @param columns the number of columns in the game board
+   * @param firstColumn the column that bit 0 of the mask stands for, which must not be
+   *     negative
+   * @return the bitmask of the columns in the block that exist and are not full
+   */
+  static long playable(long[] fullColumns, int columns, int firstColumn) {
+    if (firstColumn >= columns) {
+      return 0L;
+    }
+    int word = firstColumn >>> 6;
+    int offset = firstColumn & 63;
+    long full = fullColumns[word] >>> offset;
+    if (offset != 0 && word + 1 < fullColumns.length) {
+      full |= fullColumns[word + 1] << (Long.SIZE - offset);
+    }
+    int remaining = columns - firstColumn;
+    long exists = remaining >= Long.SIZE ? -1L : (1L << remaining) - 1;
+    return ~full & exists;
+  }
+}
@@ -0,0 +1,21 @@
+package connect;
+
+/**
+ * Represents a computer opponent for Connect Four: given the current state of a game,
+ * pick the column to play next. Both controllers can hand the turns of one player to an
+ * implementation of this interface.
+ */
+public interface ConnectFourAI {
+
+  /**
+   * Chooses the column that the player whose turn it is should play next.
+   * The model is only read, never changed. If the calling thread is interrupted, an
+   * opponent may stop thinking and return any legal column soon after.
+   *
+   * @param model a non-null Connect Four Model whose game is not over
+   * @return the zero-based column to play
+   * @throws IllegalArgumentException if the model is null, the game is over,
+   *     or the board is not supported by this opponent
+   */
+  int chooseMove(ConnectFourModel model) throws IllegalArgumentException;
+}
@@ -11,6 +11,8 @@ import java.util.Scanner;
 public class ConnectFourConsoleController implements ConnectFourController {
   private final Readable input;
   private final ConnectFourView view;
+  private final ConnectFourAI ai;
+  private final Player aiPlayer;
   private ConnectFourModel model;
 
   /**
@@ -20,8 +22,24 @@ public class ConnectFourConsoleController implements ConnectFourController {
    * @param view the view component for displaying the game state and messages
    */
   public ConnectFourConsoleController(Readable input, ConnectFourView view) {
+    this(input, view, null, null);
+  }
+
+  /**
+   * Constructor for a ConnectFourConsoleController where a computer opponent plays
+   * for one of the players.
+   *
+   * @param input the input source for user moves
+   * @param view the view component for displaying the game state and messages
+   * @param ai the computer opponent, or {@code null} for two human players
+   * @param aiPlayer the player the computer opponent plays for
+   */
+  public ConnectFourConsoleController(Readable input, ConnectFourView view,
+                                      ConnectFourAI ai, Player aiPlayer) {
     this.input = input;
     this.view = view;
+    this.ai = ai;
+    this.aiPlayer = aiPlayer;
     this.model = new ConnectFourModelImpl(6, 7);
   }
 
@@ -48,6 +66,12 @@ public class ConnectFourConsoleController implements ConnectFourController {
 
       int column = -1;
       boolean validMove = false;
+      if (ai != null && model.getTurn() == aiPlayer) {
+        column = ai.chooseMove(model);
+        model.makeMove(column);
+        view.displayComputerMove(aiPlayer.toString(), column + 1);
+        validMove = true;
+      }
       while (!validMove) {
         try {
           view.askForMove();
@@ -57,13 +81,15 @@ public class ConnectFourConsoleController implements ConnectFourController {
             playAgain = false;
             break;
           }
-          model.makeMove(column - 1);
-          validMove = true;
+          int status = model.tryMove(column - 1);
+          if (status == MoveStatus.OK) {
+            validMove = true;
+          } else {
+            view.displayInvalidNumber(MoveStatus.message(status));
+          }
         } catch (InputMismatchException e) {
           view.displayInvalidInput();
           scanner.next();
-        } catch (IllegalArgumentException e) {
-          view.displayInvalidNumber(e.getMessage());
         }
 
       }
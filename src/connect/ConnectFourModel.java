@@ -24,6 +24,48 @@ public interface ConnectFourModel {
    */
   void makeMove(int column) throws IllegalArgumentException;
 
+  /**
+   * Attempts to place a disc in the specified column like {@link #makeMove(int)}, but
+   * reports a rejected move through the returned status instead of an exception, so that
+   * bots and other callers that try many moves pay nothing for the ones that fail.
+   *
+   * @param column the column in which to place the disc
+   * @return {@link MoveStatus#OK} if the disc was placed, otherwise
+   *     {@link MoveStatus#GAME_OVER}, {@link MoveStatus#INVALID_COLUMN} or
+   *     {@link MoveStatus#COLUMN_FULL}, checked in that order
+   */
+  int tryMove(int column);
+
+  /**
+   * Retrieves the columns that can be played, as a bitmask where bit {@code i} is set if
+   * column {@code i} is not full. The mask is 0 once the game is over. Only the first 64
+   * columns fit into the mask; see {@link #legalMovesMask(int)} for wider boards.
+   *
+   * @return the bitmask of the playable columns among the first 64
+   */
+  long legalMovesMask();
+
+  /**
+   * Retrieves the playable columns among the 64 columns starting at a given column, as a
+   * bitmask where bit {@code i} is set if column {@code firstColumn + i} exists and is not
+   * full. Calling it with 0, 64, 128 and so on covers a board of any width.
+   *
+   * @param firstColumn the column that bit 0 of the mask stands for
+   * @return the bitmask of the playable columns in the block
+   * @throws IllegalArgumentException if the first column is negative
+   */
+  long legalMovesMask(int firstColumn) throws IllegalArgumentException;
+
+  /**
+   * Takes back the last move, restoring the board, the turn, the winner and whether the
+   * game is over exactly as they were before it was made. Moves are kept on a stack, so
+   * they can be taken back one after another down to the start of the game, and a search
+   * can try a move and back it out on a single model without copying the board.
+   *
+   * @throws IllegalArgumentException if no move has been made since the board was reset
+   */
+  void undoMove() throws IllegalArgumentException;
+
   /**
    * Retrieves the player whose turn it is to make a move.
    *
@@ -55,8 +97,61 @@ public interface ConnectFourModel {
   /**
    * Retrieves the current state of the game board. This method is useful
    * for the View component to display the current game status.
+   * A new array is allocated on every call; use {@link #getCell(int, int)} or
+   * {@link #getSnapshot()} to read the board without copying it.
    *
    * @return a 2D array representing the current state of the board
    */
   Player[][] getBoardState();
+
+  /**
+   * Retrieves the number of rows in the game board.
+   *
+   * @return the number of rows
+   */
+  int getRows();
+
+  /**
+   * Retrieves the number of columns in the game board.
+   *
+   * @return the number of columns
+   */
+  int getColumns();
+
+  /**
+   * Retrieves the number of discs in a row that a player needs to win.
+   *
+   * @return the win length
+   */
+  int getWinLength();
+
+  /**
+   * Retrieves the disc in a single cell of the game board without allocating.
+   * Rows are counted from the bottom, matching {@link #getBoardState()}.
+   *
+   * @param row the row of the cell
+   * @param column the column of the cell
+   * @return the player whose disc occupies the cell, or {@code null} if it is empty
+   * @throws IllegalArgumentException if the row or column is out of bounds
+   */
+  Player getCell(int row, int column) throws IllegalArgumentException;
+
+  /**
+   * Retrieves the number of discs in a column, which is also the row that the next
+   * disc dropped into that column will occupy.
+   *
+   * @param column the column to look at
+   * @return the number of discs in the column
+   * @throws IllegalArgumentException if the column is out of bounds
+   */
+  int getColumnHeight(int column) throws IllegalArgumentException;
+
+  /**
+   * Retrieves an immutable snapshot of the game board. The snapshot shares storage with
+   * the model and the model only copies what it is about to change, so taking a snapshot
+   * is cheap and repeated calls without a move in between return the same snapshot.
+   *
+   * @return an immutable view of the current board
+   */
+  BoardSnapshot getSnapshot();
 }
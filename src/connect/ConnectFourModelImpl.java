@@ -1,15 +1,28 @@
 package connect;
 
+import java.util.Arrays;
 
 /**
  * A model representing the game state of Connect Four.
  * The model is responsible for maintaining the state of the game,
  * and for enforcing the rules of the game.
+ * The number of discs in a row needed to win is four unless another win length
+ * is given, which allows connect-5, connect-6 and other variants.
  */
 public class ConnectFourModelImpl implements ConnectFourModel {
+  private static final int INITIAL_HISTORY = 64;
+
   private Player[][] board;
+  private int[] heights;
+  private int[] history;
+  private long[] fullColumns;
+  private boolean[] ownedRows;
+  private Snapshot snapshot;
+  private final ZobristHashes hashes;
+  private int moves;
   private final int rows;
   private final int columns;
+  private final int winLength;
   private Player turn;
   private Player winner;
   private boolean gameOver;
@@ -23,14 +36,34 @@ public class ConnectFourModelImpl implements ConnectFourModel {
    * @throws IllegalArgumentException if the number of rows or columns is less than 4
    */
   public ConnectFourModelImpl(int rows, int columns) throws IllegalArgumentException {
-    if (rows < 4 || columns < 4) {
+    this(rows, columns, 4);
+  }
+
+  /**
+   * Constructs a new model for a connect-N variant, where a player needs the given
+   * number of discs in a row to win.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @param winLength the number of discs in a row that wins the game
+   * @throws IllegalArgumentException if the win length is less than 2, or the number of
+   *     rows or columns is less than the win length
+   */
+  public ConnectFourModelImpl(int rows, int columns, int winLength)
+      throws IllegalArgumentException {
+    if (winLength < 2) {
+      throw new IllegalArgumentException("Invalid win length");
+    }
+    if (rows < winLength || columns < winLength) {
       throw new IllegalArgumentException("Invalid rows or columns");
     }
     this.turn = Player.RED;
     this.rows = rows;
     this.columns = columns;
+    this.winLength = winLength;
     this.winner = null;
     this.gameOver = false;
+    this.hashes = new ZobristHashes(rows, columns);
     this.initializeBoard();
   }
 
@@ -44,32 +77,50 @@ public class ConnectFourModelImpl implements ConnectFourModel {
         this.board[i][j] = null;
       }
     }
+    this.heights = new int[columns];
+    this.history = new int[Math.min(rows * columns, INITIAL_HISTORY)];
+    this.fullColumns = new long[(columns + 63) >>> 6];
+    this.ownedRows = new boolean[rows];
+    Arrays.fill(this.ownedRows, true);
+    this.snapshot = null;
+    this.hashes.clear();
+    this.moves = 0;
   }
 
   @Override
   public void makeMove(int column) throws IllegalArgumentException {
+    int status = this.tryMove(column);
+    if (status != MoveStatus.OK) {
+      throw new IllegalArgumentException(MoveStatus.message(status));
+    }
+  }
+
+  @Override
+  public int tryMove(int column) {
     // check if the game is over
     if (this.gameOver) {
-      throw new IllegalArgumentException("Game over");
+      return MoveStatus.GAME_OVER;
     }
     // check if the column is valid
     if (column < 0 || column >= columns) {
-      throw new IllegalArgumentException("Invalid column");
+      return MoveStatus.INVALID_COLUMN;
     }
     // check if the column is full
-    int i;
-    // find the first empty row in the column
-    for (i = 0; i < rows; i++) { // start from the bottom
-      if (this.board[i][column] == null) {
-        this.board[i][column] = this.turn;
-        break;
-      }
+    int row = this.heights[column];
+    if (row == rows) {
+      return MoveStatus.COLUMN_FULL;
     }
-    if (i == rows) {
-      throw new IllegalArgumentException("Column full");
+    // the column height is the first empty row, counted from the bottom
+    this.prepareWrite(row);
+    this.board[row][column] = this.turn;
+    this.hashes.toggle(row, column, this.turn);
+    this.heights[column] = row + 1;
+    if (row + 1 == rows) {
+      this.fullColumns[column >>> 6] |= 1L << column;
     }
+    this.pushMove(column);
     // check if the game is over
-    if (this.checkWin()) {
+    if (this.checkWin(row, column)) {
       this.gameOver = true;
       this.winner = this.turn;
     } else if (this.checkDraw()) {
@@ -77,69 +128,110 @@ public class ConnectFourModelImpl implements ConnectFourModel {
     } else {
       this.turn = this.turn == Player.RED ? Player.YELLOW : Player.RED;
     }
+    return MoveStatus.OK;
   }
 
-  private boolean checkDraw() {
-    int i;
-    int j;
-    for (i = 0; i < rows; i++) {
-      for (j = 0; j < columns; j++) {
-        if (this.board[i][j] == null) {
-          return false;
-        }
-      }
+  @Override
+  public void undoMove() throws IllegalArgumentException {
+    if (this.moves == 0) {
+      throw new IllegalArgumentException("No move to undo");
+    }
+    int column = this.history[--this.moves];
+    int row = this.heights[column] - 1;
+    this.prepareWrite(row);
+    this.hashes.toggle(row, column, this.board[row][column]);
+    this.board[row][column] = null;
+    this.heights[column] = row;
+    this.fullColumns[column >>> 6] &= ~(1L << column);
+    // a move that ends the game leaves the turn with the player who made it
+    if (this.gameOver) {
+      this.gameOver = false;
+      this.winner = null;
+    } else {
+      this.turn = this.turn == Player.RED ? Player.YELLOW : Player.RED;
     }
-    return true;
   }
 
   /**
-   * Four helper methods that check if the current player has won the game.
-   * @return true if the current player has won the game, false otherwise
+   * Retrieves the hashes of the board that {@link CanonicalKey} reads.
+   *
+   * @return the hashes, kept up to date with every move
    */
-  private boolean checkWin() {
-    return checkHorizontalWin() || checkVerticalWin() || checkDiagonalWin();
+  ZobristHashes getHashes() {
+    return this.hashes;
   }
 
-  private boolean checkHorizontalWin() {
-    for (int i = 0; i < rows; i++) {
-      for (int j = 0; j <= columns - 4; j++) {
-        if (board[i][j] != null
-            && board[i][j] == board[i][j + 1]
-            && board[i][j] == board[i][j + 2]
-            && board[i][j] == board[i][j + 3]) {
-          return true;
-        }
-      }
+  /**
+   * Records a move on the move stack, which grows by doubling up to one entry per cell.
+   * @param column the column just played
+   */
+  private void pushMove(int column) {
+    if (this.moves == this.history.length) {
+      this.history = Arrays.copyOf(this.history,
+          Math.min(this.history.length * 2, rows * columns));
     }
-    return false;
+    this.history[this.moves++] = column;
   }
 
-  private boolean checkVerticalWin() {
-    for (int i = 0; i <= rows - 4; i++) {
-      for (int j = 0; j < columns; j++) {
-        if (board[i][j] != null && board[i][j] == board[i + 1][j]
-            && board[i][j] == board[i + 2][j] && board[i][j] == board[i + 3][j]) {
-          return true;
-        }
-      }
+  /**
+   * Makes sure that a row can be written without changing an outstanding snapshot.
+   * The first write after a snapshot copies the outer row array and the heights, and
+   * each row is then copied only when a disc is first placed in it.
+   * @param row the row that is about to change
+   */
+  private void prepareWrite(int row) {
+    if (this.snapshot != null) {
+      this.board = this.board.clone();
+      this.heights = this.heights.clone();
+      Arrays.fill(this.ownedRows, false);
+      this.snapshot = null;
+    }
+    if (!this.ownedRows[row]) {
+      this.board[row] = this.board[row].clone();
+      this.ownedRows[row] = true;
     }
-    return false;
   }
 
-  private boolean checkDiagonalWin() {
-    for (int i = 0; i <= rows - 4; i++) {
-      for (int j = 0; j <= columns - 4; j++) {
-        if (board[i][j] != null && board[i][j] == board[i + 1][j + 1]
-            && board[i][j] == board[i + 2][j + 2] && board[i][j] == board[i + 3][j + 3]) {
-          return true;
-        }
-        if (board[i][j + 3] != null && board[i][j + 3] == board[i + 1][j + 2]
-            && board[i][j + 3] == board[i + 2][j + 1] && board[i][j + 3] == board[i + 3][j]) {
-          return true;
-        }
-      }
+  private boolean checkDraw() {
+    // every move fills exactly one cell, so the board is full after rows * columns moves
+    return this.moves == rows * columns;
+  }
+
+  /**
+   * Helper methods that check if the disc just placed completes a winning run.
+   * Only the four lines through the new disc can have changed, so each one is
+   * followed outward from that disc in both directions, stopping after at most
+   * win length - 1 discs each way, which keeps the check O(win length) per move.
+   * @param row the row of the disc just placed
+   * @param column the column of the disc just placed
+   * @return true if the current player has won the game, false otherwise
+   */
+  private boolean checkWin(int row, int column) {
+    return checkLine(row, column, 0, 1)
+        || checkLine(row, column, 1, 0)
+        || checkLine(row, column, 1, 1)
+        || checkLine(row, column, 1, -1);
+  }
+
+  private boolean checkLine(int row, int column, int rowStep, int columnStep) {
+    Player player = board[row][column];
+    int count = 1
+        + countDiscs(player, row, column, rowStep, columnStep)
+        + countDiscs(player, row, column, -rowStep, -columnStep);
+    return count >= winLength;
+  }
+
+  private int countDiscs(Player player, int row, int column, int rowStep, int columnStep) {
+    int count = 0;
+    int i = row + rowStep;
+    int j = column + columnStep;
+    while (count < winLength - 1 && i >= 0 && i < rows && j >= 0 && j < columns
+        && board[i][j] == player) {
+      count++;
+      i += rowStep;
+      j += columnStep;
     }
-    return false;
+    return count;
   }
 
   @Override
@@ -152,15 +244,12 @@ public class ConnectFourModelImpl implements ConnectFourModel {
 
   @Override
   public boolean isGameOver() {
-    if (this.checkDraw()) {
-      this.gameOver = true;
-    }
     return this.gameOver;
   }
 
   @Override
   public Player getWinner() {
-    if (this.isGameOver()) {
+    if (this.gameOver) {
       return this.winner;
     } else {
       return null;
@@ -169,12 +258,23 @@ public class ConnectFourModelImpl implements ConnectFourModel {
 
   @Override
   public void resetBoard() {
-    int i;
-    int j;
-    for (i = 0; i < rows; i++) {
-      for (j = 0; j < columns; j++) {
-        this.board[i][j] = null;
+    if (this.snapshot != null) {
+      // the snapshot keeps the old board, so start over with fresh storage
+      this.initializeBoard();
+    } else {
+      int i;
+      for (i = 0; i < rows; i++) {
+        if (this.ownedRows[i]) {
+          Arrays.fill(this.board[i], null);
+        } else {
+          this.board[i] = new Player[columns];
+          this.ownedRows[i] = true;
+        }
       }
+      Arrays.fill(this.heights, 0);
+      Arrays.fill(this.fullColumns, 0L);
+      this.hashes.clear();
+      this.moves = 0;
     }
     this.turn = Player.RED;
     this.winner = null;
@@ -190,6 +290,61 @@ public class ConnectFourModelImpl implements ConnectFourModel {
     return copy;
   }
 
+  @Override
+  public int getRows() {
+    return rows;
+  }
+
+  @Override
+  public int getColumns() {
+    return columns;
+  }
+
+  @Override
+  public int getWinLength() {
+    return winLength;
+  }
+
+  @Override
+  public Player getCell(int row, int column) throws IllegalArgumentException {
+    if (row < 0 || row >= rows || column < 0 || column >= columns) {
+      throw new IllegalArgumentException("Invalid row or column");
+    }
+    return board[row][column];
+  }
+
+  @Override
+  public int getColumnHeight(int column) throws IllegalArgumentException {
+    if (column < 0 || column >= columns) {
+      throw new IllegalArgumentException("Invalid column");
+    }
+    return heights[column];
+  }
+
+  @Override
+  public long legalMovesMask() {
+    return legalMovesMask(0);
+  }
+
+  @Override
+  public long legalMovesMask(int firstColumn) throws IllegalArgumentException {
+    if (firstColumn < 0) {
+      throw new IllegalArgumentException("Invalid column");
+    }
+    if (this.gameOver) {
+      return 0L;
+    }
+    return ColumnMasks.playable(fullColumns, columns, firstColumn);
+  }
+
+  @Override
+  public BoardSnapshot getSnapshot() {
+    if (this.snapshot == null) {
+      this.snapshot = new Snapshot(board, heights);
+    }
+    return this.snapshot;
+  }
+
   /**
    * A toString method that returns the current state of the game board.
    */
@@ -214,4 +369,44 @@ public class ConnectFourModelImpl implements ConnectFourModel {
     return sb.toString();
   }
 
-}
\ No newline at end of file
+  /**
+   * A snapshot that shares the board and height arrays of the model. The model stops
+   * writing to shared arrays as soon as it hands one out, so the snapshot never changes.
+   */
+  private static final class Snapshot implements BoardSnapshot {
+    private final Player[][] board;
+    private final int[] heights;
+
+    private Snapshot(Player[][] board, int[] heights) {
+      this.board = board;
+      this.heights = heights;
+    }
+
+    @Override
+    public int getRows() {
+      return board.length;
+    }
+
+    @Override
+    public int getColumns() {
+      return heights.length;
+    }
+
+    @Override
+    public Player getCell(int row, int column) throws IllegalArgumentException {
+      if (row < 0 || row >= board.length || column < 0 || column >= heights.length) {
+        throw new IllegalArgumentException("Invalid row or column");
+      }
+      return board[row][column];
+    }
+
+    @Override
+    public int getColumnHeight(int column) throws IllegalArgumentException {
+      if (column < 0 || column >= heights.length) {
+        throw new IllegalArgumentException("Invalid column");
+      }
+      return heights[column];
+    }
+  }
+
+}
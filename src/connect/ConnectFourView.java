@@ -102,6 +102,18 @@ public class ConnectFourView {
     out.append("Invalid input. Please enter a valid number.\n");
   }
 
+  /**
+   * Displays the move made by a computer opponent.
+   *
+   * @param player the player the computer plays for
+   * @param column the one-based column the computer played
+   * @throws IOException if an I/O error occurs
+   */
+  public void displayComputerMove(String player, int column) throws IOException {
+    out.append("Player ").append(player).append(" plays column ")
+        .append(String.valueOf(column)).append("\n");
+  }
+
   /**
    * Asks the player for a move.
    *
@@ -0,0 +1,53 @@
+package connect;
+
+/**
+ * The compact binary format of archived games, read and written by
+ * {@link GameRecordReader} and {@link GameRecordWriter}.
+ *
+ * <p>A file starts with the magic number {@code C4GR} and a format version byte, followed
+ * by one record per game. A record is a header of the number of rows, the number of
+ * columns, a result byte and the number of moves, followed by the moves as zero-based
+ * columns. Numbers are unsigned varints: seven bits per byte, lowest first, with the top
+ * bit set on every byte but the last. The low two bits of the result byte hold one of the
+ * result codes below; if bit 2 is set, a varint win length follows it, and the win length
+ * is 4 otherwise. When the board has at most 15 columns the moves are packed two per byte
+ * in 4-bit nibbles, the first move in the low nibble; wider boards store every move as a
+ * varint. A typical game on the standard board takes about 15 bytes, so a gigabyte holds
+ * tens of millions of games.
+ */
+public final class GameRecord {
+  /** The result of a game that was not finished. */
+  public static final int UNFINISHED = 0;
+  /** The result of a game won by red. */
+  public static final int RED_WON = 1;
+  /** The result of a game won by yellow. */
+  public static final int YELLOW_WON = 2;
+  /** The result of a game that filled the board without a winner. */
+  public static final int DRAW = 3;
+
+  static final int MAGIC = 0x43344752;
+  static final int VERSION = 1;
+  static final int RESULT_MASK = 3;
+  static final int CUSTOM_WIN_LENGTH = 4;
+  static final int MAX_NIBBLE_COLUMNS = 15;
+
+  private GameRecord() {
+  }
+
+  /**
+   * Retrieves the result code of a model's game.
+   *
+   * @param model the model to look at
+   * @return {@link #UNFINISHED}, {@link #RED_WON}, {@link #YELLOW_WON} or {@link #DRAW}
+   */
+  public static int resultOf(ConnectFourModel model) {
+    if (!model.isGameOver()) {
+      return UNFINISHED;
+    }
+    Player winner = model.getWinner();
+    if (winner == null) {
+      return DRAW;
+    }
+    return winner == Player.RED ? RED_WON : YELLOW_WON;
+  }
+}
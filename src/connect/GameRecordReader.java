@@ -0,0 +1,259 @@
+package connect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads games from a channel in the {@link GameRecord} format, one record at a time.
+ * The channel is read into a direct buffer in large blocks, and the moves of the current
+ * record are decoded into an array that is reused for every record, so reading a file
+ * allocates nothing per game and keeps up with the channel.
+ *
+ * <pre>
+ * try (GameRecordReader reader = new GameRecordReader(FileChannel.open(file))) {
+ *   while (reader.next()) {
+ *     reader.replay(model);
+ *   }
+ * }
+ * </pre>
+ */
+public class GameRecordReader implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  // the most moves an int array can hold with the spare entry, which some VMs limit
+  // to a little under Integer.MAX_VALUE
+  private static final int MAX_MOVES = Integer.MAX_VALUE - 9;
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private boolean endOfChannel;
+  private int[] moves = new int[64];
+  private int moveCount;
+  private int rows;
+  private int columns;
+  private int winLength;
+  private int result;
+  private long games;
+
+  /**
+   * Constructs a reader for a file on a channel and checks the file header.
+   *
+   * @param channel the channel to read from, which the reader closes when it is closed
+   * @throws IllegalArgumentException if the channel is null
+   * @throws IOException if the channel cannot be read or does not hold game records
+   */
+  public GameRecordReader(ReadableByteChannel channel)
+      throws IllegalArgumentException, IOException {
+    if (channel == null) {
+      throw new IllegalArgumentException("Channel cannot be null");
+    }
+    this.channel = channel;
+    buffer.flip();
+    if (!fill(5) || buffer.getInt() != GameRecord.MAGIC
+        || buffer.get() != GameRecord.VERSION) {
+      throw new IOException("Not a game record file");
+    }
+  }
+
+  /**
+   * Reads the next record, whose fields the getters then return.
+   *
+   * @return true if a record was read, false at the end of the channel
+   * @throws IOException if the channel cannot be read or the record is corrupt
+   */
+  public boolean next() throws IOException {
+    if (!fill(1)) {
+      return false;
+    }
+    rows = getVarint();
+    columns = getVarint();
+    int flags = getByte();
+    result = flags & GameRecord.RESULT_MASK;
+    winLength = (flags & GameRecord.CUSTOM_WIN_LENGTH) != 0 ? getVarint() : 4;
+    moveCount = getVarint();
+    if (rows <= 0 || columns <= 0 || winLength <= 0 || moveCount < 0
+        || moveCount > MAX_MOVES || moveCount > (long) rows * columns || flags >>> 3 != 0) {
+      throw new IOException("Corrupt game record");
+    }
+    // one spare entry takes the unused nibble after an odd number of moves; the moves
+    // that do not fit into the buffer are only made room for as they arrive, so a corrupt
+    // count ends with a truncated record rather than a huge array
+    ensureMoves(Math.min(moveCount, 2 * BUFFER_SIZE));
+    if (columns <= GameRecord.MAX_NIBBLE_COLUMNS) {
+      long bytes = ((long) moveCount + 1) / 2;
+      // the moves of all but very tall boards fit into the buffer and are read in one go
+      boolean buffered = bytes <= BUFFER_SIZE && fill((int) bytes);
+      for (int i = 0; i < moveCount; i += 2) {
+        if (i + 1 >= moves.length) {
+          ensureMoves(i + 1);
+        }
+        int pair = buffered ? buffer.get() & 0xFF : getByte();
+        moves[i] = pair & 0xF;
+        moves[i + 1] = pair >>> 4;
+      }
+    } else {
+      for (int i = 0; i < moveCount; i++) {
+        if (i >= moves.length) {
+          ensureMoves(i);
+        }
+        moves[i] = getVarint();
+      }
+    }
+    games++;
+    return true;
+  }
+
+  /**
+   * Retrieves the number of rows of the current record's board.
+   *
+   * @return the number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Retrieves the number of columns of the current record's board.
+   *
+   * @return the number of columns
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Retrieves the win length of the current record's game.
+   *
+   * @return the number of discs in a row that wins the game
+   */
+  public int getWinLength() {
+    return winLength;
+  }
+
+  /**
+   * Retrieves the result of the current record's game.
+   *
+   * @return the result code from {@link GameRecord}
+   */
+  public int getResult() {
+    return result;
+  }
+
+  /**
+   * Retrieves the number of moves of the current record.
+   *
+   * @return the number of moves
+   */
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  /**
+   * Retrieves a move of the current record.
+   *
+   * @param index the index of the move, starting at 0 for the first move of the game
+   * @return the zero-based column of the move
+   * @throws IllegalArgumentException if the index is out of bounds
+   */
+  public int getMove(int index) throws IllegalArgumentException {
+    if (index < 0 || index >= moveCount) {
+      throw new IllegalArgumentException("Invalid move index");
+    }
+    return moves[index];
+  }
+
+  /**
+   * Retrieves the number of records read so far.
+   *
+   * @return the number of games
+   */
+  public long getGames() {
+    return games;
+  }
+
+  /**
+   * Plays the current record's game on a model, starting from an empty board.
+   *
+   * @param model a model of the record's board size and win length
+   * @throws IllegalArgumentException if the model does not match the record, or the
+   *     moves are not legal on it
+   * @throws IOException if the game does not end with the recorded result
+   */
+  public void replay(ConnectFourModel model) throws IllegalArgumentException, IOException {
+    if (model.getRows() != rows || model.getColumns() != columns
+        || model.getWinLength() != winLength) {
+      throw new IllegalArgumentException("Model does not match the record");
+    }
+    model.resetBoard();
+    for (int i = 0; i < moveCount; i++) {
+      int status = model.tryMove(moves[i]);
+      if (status != MoveStatus.OK) {
+        throw new IllegalArgumentException(MoveStatus.message(status));
+      }
+    }
+    if (GameRecord.resultOf(model) != result) {
+      throw new IOException("Corrupt game record: result does not match the moves");
+    }
+  }
+
+  /**
+   * Closes the channel.
+   *
+   * @throws IOException if the channel cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Makes room for a move index, at least doubling the array but never beyond the spare
+   * entry after the current record's moves.
+   */
+  private void ensureMoves(int index) {
+    if (index >= moves.length) {
+      long length = Math.max(index + 1L, Math.min(moves.length * 2L, moveCount + 1L));
+      moves = Arrays.copyOf(moves, (int) length);
+    }
+  }
+
+  /**
+   * Reads from the channel until at least the given number of bytes is buffered.
+   *
+   * @return false if the channel ended first
+   */
+  private boolean fill(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return true;
+    }
+    buffer.compact();
+    while (buffer.position() < bytes && !endOfChannel) {
+      if (channel.read(buffer) < 0) {
+        endOfChannel = true;
+      }
+    }
+    buffer.flip();
+    return buffer.remaining() >= bytes;
+  }
+
+  private int getByte() throws IOException {
+    if (!fill(1)) {
+      throw new IOException("Truncated game record");
+    }
+    return buffer.get() & 0xFF;
+  }
+
+  private int getVarint() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      int b = getByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Corrupt game record: varint too long");
+  }
+}
@@ -0,0 +1,155 @@
+package connect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes games to a channel in the {@link GameRecord} format. Records are encoded into a
+ * direct buffer and handed to the channel a whole buffer at a time, so writing a game
+ * costs no system call and allocates nothing.
+ */
+public class GameRecordWriter implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  // the longest varint of an int
+  private static final int MAX_VARINT = 5;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private long games;
+
+  /**
+   * Constructs a writer that starts a new file on a channel.
+   *
+   * @param channel the channel to write to, which the writer closes when it is closed
+   * @throws IllegalArgumentException if the channel is null
+   */
+  public GameRecordWriter(WritableByteChannel channel) throws IllegalArgumentException {
+    if (channel == null) {
+      throw new IllegalArgumentException("Channel cannot be null");
+    }
+    this.channel = channel;
+    buffer.putInt(GameRecord.MAGIC);
+    buffer.put((byte) GameRecord.VERSION);
+  }
+
+  /**
+   * Writes the game a model has played.
+   *
+   * @param model the model after the moves were played
+   * @param moves the zero-based columns played from the empty board
+   * @param count the number of moves to write from the start of the array
+   * @throws IllegalArgumentException if the number of moves is out of bounds
+   * @throws IOException if the channel cannot be written
+   */
+  public void write(ConnectFourModel model, int[] moves, int count)
+      throws IllegalArgumentException, IOException {
+    write(model.getRows(), model.getColumns(), model.getWinLength(),
+        GameRecord.resultOf(model), moves, count);
+  }
+
+  /**
+   * Writes a game.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @param winLength the number of discs in a row that wins the game
+   * @param result the result code of the game from {@link GameRecord}
+   * @param moves the zero-based columns played from the empty board
+   * @param count the number of moves to write from the start of the array
+   * @throws IllegalArgumentException if the board size, the result, the number of moves
+   *     or a move is out of bounds
+   * @throws IOException if the channel cannot be written
+   */
+  public void write(int rows, int columns, int winLength, int result, int[] moves, int count)
+      throws IllegalArgumentException, IOException {
+    if (rows <= 0 || columns <= 0 || winLength <= 0) {
+      throw new IllegalArgumentException("Invalid rows, columns or win length");
+    }
+    if ((result & ~GameRecord.RESULT_MASK) != 0) {
+      throw new IllegalArgumentException("Invalid result");
+    }
+    if (count < 0 || count > moves.length || count > (long) rows * columns) {
+      throw new IllegalArgumentException("Invalid number of moves");
+    }
+    for (int i = 0; i < count; i++) {
+      if (moves[i] < 0 || moves[i] >= columns) {
+        throw new IllegalArgumentException("Invalid column");
+      }
+    }
+    ensure(4 * MAX_VARINT + 1);
+    putVarint(rows);
+    putVarint(columns);
+    if (winLength == 4) {
+      buffer.put((byte) result);
+    } else {
+      buffer.put((byte) (result | GameRecord.CUSTOM_WIN_LENGTH));
+      putVarint(winLength);
+    }
+    putVarint(count);
+    if (columns <= GameRecord.MAX_NIBBLE_COLUMNS) {
+      for (int i = 0; i < count; i += 2) {
+        int high = i + 1 < count ? moves[i + 1] : 0;
+        ensure(1);
+        buffer.put((byte) (moves[i] | high << 4));
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        ensure(MAX_VARINT);
+        putVarint(moves[i]);
+      }
+    }
+    games++;
+  }
+
+  /**
+   * Retrieves the number of games written so far.
+   *
+   * @return the number of games
+   */
+  public long getGames() {
+    return games;
+  }
+
+  /**
+   * Hands everything written so far to the channel.
+   *
+   * @throws IOException if the channel cannot be written
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Flushes the writer and closes the channel.
+   *
+   * @throws IOException if the channel cannot be written or closed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+
+  private void putVarint(int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+}
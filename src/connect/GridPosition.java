@@ -0,0 +1,395 @@
+package connect;
+
+/**
+ * A Connect Four position of any board size, used by searches that cannot rely on a
+ * bitboard or on four in a row. Cells are stored column by column in a byte array next
+ * to the height of every column, so playing or taking back a move writes one cell, and a
+ * win is found by counting discs along the four lines through the cell that was just
+ * played.
+ *
+ * <p>The position keeps a Zobrist hash of its discs up to date as moves are played and
+ * taken back: every cell has a random 64-bit key for each player, and the hash is the
+ * exclusive or of the keys of all occupied cells. The player to move follows from the
+ * number of discs, so it needs no key of its own. A second hash of the board's mirror
+ * image is kept next to it, and the smaller of the two is a canonical hash that a
+ * position and its mirror image share, so tables keyed by it hold one entry for both.
+ *
+ * <p>A heuristic evaluation is kept up to date the same way. Every window of win length
+ * cells in a line that holds discs of only one player is worth points to that player,
+ * four times more for every extra disc, and playing a disc only changes the windows
+ * through its cell.
+ * Searches that never evaluate, such as random playouts, can turn this off.
+ */
+final class GridPosition {
+  private static final byte EMPTY = 0;
+  private static final long SEED = 0x9E3779B97F4A7C15L;
+  private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+  private final int rows;
+  private final int columns;
+  private final int winLength;
+  private final int[] windowWeights;
+  private final byte[] cells;
+  private final int[] heights;
+  private final boolean evaluated;
+  private int moves;
+  private long hash;
+  private long mirrorHash;
+  private int evaluation;
+
+  /**
+   * Constructs an empty position.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @throws IllegalArgumentException if the number of rows or columns is not positive
+   */
+  GridPosition(int rows, int columns) throws IllegalArgumentException {
+    this(rows, columns, 4, true);
+  }
+
+  /**
+   * Constructs an empty position for a connect-N variant that may skip the heuristic
+   * evaluation.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @param winLength the number of discs in a row that wins the game
+   * @param evaluated false to leave {@link #evaluate()} at 0 and make moves cheaper
+   * @throws IllegalArgumentException if the number of rows or columns is not positive,
+   *     or the win length is less than 2
+   */
+  GridPosition(int rows, int columns, int winLength, boolean evaluated)
+      throws IllegalArgumentException {
+    if (rows <= 0 || columns <= 0) {
+      throw new IllegalArgumentException("Invalid rows or columns");
+    }
+    if (winLength < 2) {
+      throw new IllegalArgumentException("Invalid win length");
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.winLength = winLength;
+    // a full window is a win, which the search scores itself
+    this.windowWeights = new int[winLength + 1];
+    for (int count = 1; count < winLength; count++) {
+      windowWeights[count] = 1 << Math.min(2 * (count - 1), 24);
+    }
+    this.cells = new byte[rows * columns];
+    this.heights = new int[columns];
+    this.evaluated = evaluated;
+  }
+
+  /**
+   * Reads the position of a model through its cell accessors.
+   *
+   * @param model the model to read
+   * @return the position on the model's board
+   * @throws IllegalArgumentException if the game is over
+   */
+  static GridPosition of(ConnectFourModel model) throws IllegalArgumentException {
+    return of(model, true);
+  }
+
+  /**
+   * Reads the position of a model through its cell accessors, optionally without the
+   * heuristic evaluation.
+   *
+   * @param model the model to read
+   * @param evaluated false to leave {@link #evaluate()} at 0 and make moves cheaper
+   * @return the position on the model's board
+   * @throws IllegalArgumentException if the game is over
+   */
+  static GridPosition of(ConnectFourModel model, boolean evaluated)
+      throws IllegalArgumentException {
+    if (model.isGameOver()) {
+      throw new IllegalArgumentException("Game over");
+    }
+    GridPosition position = new GridPosition(model.getRows(), model.getColumns(),
+        model.getWinLength(), evaluated);
+    for (int j = 0; j < position.columns; j++) {
+      int columnHeight = model.getColumnHeight(j);
+      for (int i = 0; i < columnHeight; i++) {
+        position.set(i, j, model.getCell(i, j) == Player.RED ? 1 : 2);
+      }
+      position.heights[j] = columnHeight;
+      position.moves += columnHeight;
+    }
+    return position;
+  }
+
+  /**
+   * Reads the position of a model, reusing an earlier position of the same game when the
+   * model's board only has discs on top of it. Then only the heights of the columns and
+   * the new discs are read, instead of the whole board, and the earlier position is
+   * brought up to date and returned.
+   *
+   * @param model the model to read
+   * @param previous an earlier position to reuse, or {@code null}
+   * @return the position on the model's board
+   * @throws IllegalArgumentException if the game is over
+   */
+  static GridPosition of(ConnectFourModel model, GridPosition previous)
+      throws IllegalArgumentException {
+    if (model.isGameOver()) {
+      throw new IllegalArgumentException("Game over");
+    }
+    if (previous != null && previous.catchUp(model)) {
+      return previous;
+    }
+    return of(model, previous == null || previous.evaluated);
+  }
+
+  /**
+   * Adds the discs the model has on top of this position. The hashes then tell whether
+   * the discs below were the same, since a board that grew from another game is not.
+   *
+   * @return false if the model's board does not extend this position, which may then
+   *     hold anything
+   */
+  private boolean catchUp(ConnectFourModel model) {
+    if (model.getRows() != rows || model.getColumns() != columns
+        || model.getWinLength() != winLength) {
+      return false;
+    }
+    for (int j = 0; j < columns; j++) {
+      if (model.getColumnHeight(j) < heights[j]) {
+        return false;
+      }
+    }
+    for (int j = 0; j < columns; j++) {
+      int columnHeight = model.getColumnHeight(j);
+      for (int i = heights[j]; i < columnHeight; i++) {
+        set(i, j, model.getCell(i, j) == Player.RED ? 1 : 2);
+      }
+      moves += columnHeight - heights[j];
+      heights[j] = columnHeight;
+    }
+    return hash == CanonicalKey.zobristHash(model, false);
+  }
+
+  int getRows() {
+    return rows;
+  }
+
+  int getColumns() {
+    return columns;
+  }
+
+  int getWinLength() {
+    return winLength;
+  }
+
+  int getMoves() {
+    return moves;
+  }
+
+  int getHeight(int column) {
+    return heights[column];
+  }
+
+  /**
+   * Retrieves the player to move, where 1 is the player who moved first and 2 the other.
+   *
+   * @return the player to move
+   */
+  int getCurrentPlayer() {
+    return (moves & 1) + 1;
+  }
+
+  /**
+   * Retrieves the disc in a cell.
+   *
+   * @param row the zero-based row, counted from the bottom
+   * @param column the zero-based column
+   * @return 0 for an empty cell, otherwise the player who owns the disc
+   */
+  int getCell(int row, int column) {
+    return cells[column * rows + row];
+  }
+
+  /**
+   * Retrieves the Zobrist hash of the discs on the board.
+   *
+   * @return the hash of the position
+   */
+  long hash() {
+    return hash;
+  }
+
+  /**
+   * Retrieves a hash that is the same for the position and its mirror image: the
+   * smaller of the Zobrist hashes of the board and of the board mirrored left to right.
+   *
+   * @return the canonical hash of the position
+   */
+  long canonicalHash() {
+    return Long.compareUnsigned(hash, mirrorHash) <= 0 ? hash : mirrorHash;
+  }
+
+  /**
+   * Checks if {@link #canonicalHash()} is the hash of the mirrored board, in which case
+   * column {@code j} of this position is column {@code columns - 1 - j} of the position
+   * the canonical hash stands for.
+   *
+   * @return true if the canonical hash comes from the mirror image
+   */
+  boolean isMirrored() {
+    return Long.compareUnsigned(mirrorHash, hash) < 0;
+  }
+
+  /**
+   * Retrieves the heuristic evaluation of the position for the player to move.
+   *
+   * @return the sum of the windows open to the player to move minus the sum of the
+   *     windows open to the opponent
+   */
+  int evaluate() {
+    return (moves & 1) == 0 ? evaluation : -evaluation;
+  }
+
+  boolean canPlay(int column) {
+    return heights[column] < rows;
+  }
+
+  boolean isFull() {
+    return moves == rows * columns;
+  }
+
+  /**
+   * Plays a disc for the player to move in a column that is not full.
+   *
+   * @param column the column to play
+   */
+  void play(int column) {
+    set(heights[column]++, column, getCurrentPlayer());
+    moves++;
+  }
+
+  /**
+   * Takes back the top disc of a column, which must be the last move played.
+   *
+   * @param column the column that was played
+   */
+  void undo(int column) {
+    moves--;
+    set(--heights[column], column, EMPTY);
+  }
+
+  /**
+   * Checks if the player to move wins by playing a column that is not full.
+   *
+   * @param column the column to check
+   * @return true if playing the column completes a run of the win length
+   */
+  boolean isWinningMove(int column) {
+    int row = heights[column];
+    int player = getCurrentPlayer();
+    return lineLength(player, row, column, 1, 0) >= winLength
+        || lineLength(player, row, column, 0, 1) >= winLength
+        || lineLength(player, row, column, 1, 1) >= winLength
+        || lineLength(player, row, column, 1, -1) >= winLength;
+  }
+
+  /**
+   * Counts the discs of a player in a line through an empty cell, including the cell.
+   */
+  private int lineLength(int player, int row, int column, int rowStep, int columnStep) {
+    return 1 + countDiscs(player, row, column, rowStep, columnStep)
+        + countDiscs(player, row, column, -rowStep, -columnStep);
+  }
+
+  private int countDiscs(int player, int row, int column, int rowStep, int columnStep) {
+    int count = 0;
+    int i = row + rowStep;
+    int j = column + columnStep;
+    while (count < winLength - 1 && i >= 0 && i < rows && j >= 0 && j < columns
+        && cells[j * rows + i] == player) {
+      count++;
+      i += rowStep;
+      j += columnStep;
+    }
+    return count;
+  }
+
+  /**
+   * Writes a cell and updates the hashes and the evaluation: the old disc's key is removed
+   * and the new one's added, which are the same operation under exclusive or, and the
+   * windows through the cell are scored again.
+   */
+  private void set(int row, int column, int player) {
+    int index = column * rows + row;
+    int mirrorIndex = (columns - 1 - column) * rows + row;
+    if (cells[index] != EMPTY) {
+      hash ^= zobristKey(index, cells[index]);
+      mirrorHash ^= zobristKey(mirrorIndex, cells[index]);
+    }
+    if (player != EMPTY) {
+      hash ^= zobristKey(index, player);
+      mirrorHash ^= zobristKey(mirrorIndex, player);
+    }
+    if (evaluated) {
+      evaluation -= windowsThrough(row, column);
+      cells[index] = (byte) player;
+      evaluation += windowsThrough(row, column);
+    } else {
+      cells[index] = (byte) player;
+    }
+  }
+
+  /**
+   * Sums the values of all windows of win length cells that contain a cell, from the
+   * point of view of the player who moved first.
+   */
+  private int windowsThrough(int row, int column) {
+    int sum = 0;
+    for (int[] direction : DIRECTIONS) {
+      int rowStep = direction[0];
+      int columnStep = direction[1];
+      for (int k = 0; k < winLength; k++) {
+        int startRow = row - k * rowStep;
+        int startColumn = column - k * columnStep;
+        int endRow = startRow + (winLength - 1) * rowStep;
+        int endColumn = startColumn + (winLength - 1) * columnStep;
+        if (startRow >= 0 && startColumn >= 0 && startColumn < columns && endRow < rows
+            && endColumn >= 0 && endColumn < columns) {
+          sum += window(startRow, startColumn, rowStep, columnStep);
+        }
+      }
+    }
+    return sum;
+  }
+
+  private int window(int row, int column, int rowStep, int columnStep) {
+    int first = 0;
+    int second = 0;
+    for (int k = 0; k < winLength; k++) {
+      int cell = cells[(column + k * columnStep) * rows + row + k * rowStep];
+      if (cell == 1) {
+        first++;
+      } else if (cell == 2) {
+        second++;
+      }
+    }
+    if (first > 0 && second > 0) {
+      return 0;
+    }
+    return windowWeights[first] - windowWeights[second];
+  }
+
+  /**
+   * Computes the random key of a player's disc in a cell. The keys are derived from the
+   * cell index with the SplitMix64 mixing function instead of being kept in a table, so
+   * boards of any size need no extra memory.
+   *
+   * @param cell the index of the cell
+   * @param player the player who owns the disc
+   * @return the key of the disc
+   */
+  static long zobristKey(int cell, int player) {
+    long z = SEED * (2L * cell + player);
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,374 @@
+package connect;
+
+import java.util.Arrays;
+
+/**
+ * A computer opponent that answers within a fixed wall-clock budget on boards of any size.
+ * Unlike {@link NegamaxConnectFourAI} it does not solve the position: it searches one ply
+ * deeper at a time with an alpha-beta negamax search over a {@link GridPosition}, scores
+ * the positions at the horizon with the position's heuristic evaluation, and returns the
+ * best move of the deepest search that finished before the deadline. A search that runs
+ * past the deadline is abandoned, so the answer never comes much later than the budget.
+ * A search whose thread is interrupted is abandoned the same way.
+ *
+ * <p>The position is kept from one move to the next, and only the discs played since the
+ * last move are added to it, so the time before the search starts grows with the number
+ * of columns rather than with the size of the board. The first move of a game that is
+ * already under way, and the first move after its board was reset or replaced, copy the
+ * whole board instead; that copy counts against the budget but cannot be cut short, so
+ * on a huge board such a move may take longer than the budget.
+ *
+ * <p>Each search after the first starts with an aspiration window around the score of the
+ * previous one and only searches again with a full window if the score falls outside it.
+ * The principal variation of the previous search is tried first at every ply, followed by
+ * the best move stored in an {@link OffHeapTranspositionTable} and the remaining columns
+ * from the center outwards. The table is keyed by the position's canonical hash, so a
+ * position and its mirror image share one entry.
+ *
+ * <p>Scores are from the point of view of the player to move. A forced win scores
+ * {@link #WIN} minus the number of plies until the winning move, a forced loss the
+ * negative of that, and anything else is the heuristic evaluation.
+ *
+ * <p>An {@link OpeningBook} can be given, and positions it holds are answered with its
+ * solved move instead of a search. It only helps on the book's board size.
+ */
+public class IterativeDeepeningConnectFourAI implements ConnectFourAI {
+  /** The score of a win on the current move. */
+  public static final int WIN = 1 << 30;
+
+  private static final long DEFAULT_TABLE_BYTES = 64L << 20;
+  private static final int MAX_DEPTH = 64;
+  private static final int ASPIRATION_WINDOW = 32;
+  // about how many columns to scan for wins between two looks at the clock
+  private static final int DEADLINE_CHECK_COLUMNS = 1 << 11;
+  // any score beyond this is a forced win or loss rather than an evaluation
+  private static final int PROVEN = WIN - 2 * MAX_DEPTH;
+
+  private final long budgetNanos;
+  private final OffHeapTranspositionTable table;
+  private final OpeningBook book;
+  private final int[][] pv = new int[MAX_DEPTH + 1][MAX_DEPTH + 1];
+  private final int[] pvLength = new int[MAX_DEPTH + 1];
+  private int[] previousPv = new int[0];
+  private GridPosition position;
+  private int[] columnOrder;
+  private long deadline;
+  private int deadlineCheckMask;
+  private boolean timedOut;
+  private long nodeCount;
+  private int completedDepth;
+  private int lastScore;
+
+  /**
+   * Constructs a new opponent that answers within the given time and uses a 64 MiB
+   * transposition table.
+   *
+   * @param budgetMillis the time to think about every move, in milliseconds
+   * @throws IllegalArgumentException if the budget is not positive
+   */
+  public IterativeDeepeningConnectFourAI(long budgetMillis) throws IllegalArgumentException {
+    this(budgetMillis, DEFAULT_TABLE_BYTES);
+  }
+
+  /**
+   * Constructs a new opponent that answers within the given time, uses a 64 MiB
+   * transposition table, and looks positions up in an opening book before searching them.
+   *
+   * @param budgetMillis the time to think about every move, in milliseconds
+   * @param book the opening book to consult, or {@code null} for none
+   * @throws IllegalArgumentException if the budget is not positive
+   */
+  public IterativeDeepeningConnectFourAI(long budgetMillis, OpeningBook book)
+      throws IllegalArgumentException {
+    this(budgetMillis, DEFAULT_TABLE_BYTES, book);
+  }
+
+  /**
+   * Constructs a new opponent that answers within the given time and uses a
+   * transposition table of the given size outside the Java heap.
+   *
+   * @param budgetMillis the time to think about every move, in milliseconds
+   * @param tableBytes the memory for the transposition table, in bytes
+   * @throws IllegalArgumentException if the budget is not positive or the table is too
+   *     small
+   */
+  public IterativeDeepeningConnectFourAI(long budgetMillis, long tableBytes)
+      throws IllegalArgumentException {
+    this(budgetMillis, tableBytes, null);
+  }
+
+  /**
+   * Constructs a new opponent that answers within the given time, uses a transposition
+   * table of the given size outside the Java heap, and looks positions up in an opening
+   * book before searching them.
+   *
+   * @param budgetMillis the time to think about every move, in milliseconds
+   * @param tableBytes the memory for the transposition table, in bytes
+   * @param book the opening book to consult, or {@code null} for none
+   * @throws IllegalArgumentException if the budget is not positive or the table is too
+   *     small
+   */
+  public IterativeDeepeningConnectFourAI(long budgetMillis, long tableBytes, OpeningBook book)
+      throws IllegalArgumentException {
+    if (budgetMillis <= 0) {
+      throw new IllegalArgumentException("Invalid time budget");
+    }
+    this.budgetNanos = budgetMillis * 1_000_000;
+    this.table = new OffHeapTranspositionTable(tableBytes);
+    this.book = book;
+  }
+
+  @Override
+  public int chooseMove(ConnectFourModel model) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    long start = System.nanoTime();
+    deadline = start + budgetNanos;
+    if (book != null) {
+      int move = book.getMove(model);
+      if (move >= 0) {
+        nodeCount = 0;
+        completedDepth = 0;
+        previousPv = new int[0];
+        lastScore = 0;
+        return move;
+      }
+    }
+    position = GridPosition.of(model, position);
+    if (columnOrder == null || columnOrder.length != position.getColumns()) {
+      columnOrder = NegamaxSearch.columnOrder(position.getColumns());
+      // every node scans all columns, so wide boards look at the clock more often
+      deadlineCheckMask =
+          Integer.highestOneBit(Math.max(1, DEADLINE_CHECK_COLUMNS / columnOrder.length)) - 1;
+    }
+    timedOut = false;
+    nodeCount = 0;
+    completedDepth = 0;
+    previousPv = new int[0];
+    table.newSearch();
+
+    int best = -1;
+    for (int column : columnOrder) {
+      if (position.canPlay(column)) {
+        if (position.isWinningMove(column)) {
+          lastScore = WIN;
+          return column;
+        }
+        if (best < 0) {
+          best = column;
+        }
+      }
+    }
+    int score = 0;
+    int maxDepth = Math.min(MAX_DEPTH, position.getRows() * position.getColumns()
+        - position.getMoves());
+    for (int depth = 1; depth <= maxDepth; depth++) {
+      int alpha = -WIN;
+      int beta = WIN;
+      if (depth > 1 && Math.abs(score) < PROVEN) {
+        alpha = score - ASPIRATION_WINDOW;
+        beta = score + ASPIRATION_WINDOW;
+      }
+      int result = negamax(depth, 0, alpha, beta, true);
+      if (!timedOut && (result <= alpha || result >= beta)) {
+        result = negamax(depth, 0, -WIN, WIN, true);
+      }
+      if (timedOut) {
+        break;
+      }
+      score = result;
+      previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+      completedDepth = depth;
+      if (previousPv.length > 0) {
+        best = previousPv[0];
+      }
+      // a proven result cannot change with more depth
+      if (Math.abs(score) >= PROVEN) {
+        break;
+      }
+    }
+    lastScore = score;
+    return best;
+  }
+
+  /**
+   * Retrieves the number of plies of the deepest search finished by the last call to
+   * {@link #chooseMove(ConnectFourModel)}.
+   *
+   * @return the completed depth, or 0 if the move was an immediate win, came from the
+   *     opening book, or the budget was too short for a single ply
+   */
+  public int getCompletedDepth() {
+    return completedDepth;
+  }
+
+  /**
+   * Retrieves the score of the last chosen move for the player who makes it.
+   *
+   * @return the score of the move, or 0 if it came from the opening book
+   */
+  public int getLastScore() {
+    return lastScore;
+  }
+
+  /**
+   * Retrieves the number of positions visited by the last search.
+   *
+   * @return the number of nodes searched
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Retrieves the moves both players are expected to play from the position of the last
+   * search, according to the deepest search that finished.
+   *
+   * @return the principal variation as a sequence of zero-based columns
+   */
+  public int[] getPrincipalVariation() {
+    return previousPv.clone();
+  }
+
+  /**
+   * Retrieves the share of transposition table lookups that found their position.
+   *
+   * @return the hit rate between 0 and 1
+   */
+  public double getTableHitRate() {
+    return table.getHitRate();
+  }
+
+  /**
+   * Searches the current position to the given depth. The result is exact when it falls
+   * inside (alpha, beta); otherwise it is a bound on the same side of the window.
+   *
+   * @param onPv whether every move leading here follows the previous principal variation
+   */
+  private int negamax(int depth, int ply, int alpha, int beta, boolean onPv) {
+    GridPosition p = position;
+    pvLength[ply] = 0;
+    if ((++nodeCount & deadlineCheckMask) == 0
+        && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted())) {
+      timedOut = true;
+    }
+    if (timedOut) {
+      return 0;
+    }
+    int columns = p.getColumns();
+    for (int column = 0; column < columns; column++) {
+      if (p.canPlay(column) && p.isWinningMove(column)) {
+        setPv(ply, column, 0);
+        return WIN - ply;
+      }
+    }
+    if (p.isFull()) {
+      return 0;
+    }
+    if (depth == 0) {
+      return p.evaluate();
+    }
+
+    // a position and its mirror image share an entry, whose move is stored for the
+    // orientation the canonical hash was taken from
+    boolean mirrored = p.isMirrored();
+    long hash = p.canonicalHash();
+    long data = table.probe(hash);
+    int hashMove = -1;
+    if (data != 0) {
+      hashMove = OffHeapTranspositionTable.move(data);
+      if (mirrored && hashMove >= 0) {
+        hashMove = columns - 1 - hashMove;
+      }
+      if (ply > 0 && OffHeapTranspositionTable.depth(data) >= depth) {
+        int stored = fromTable(OffHeapTranspositionTable.score(data), ply);
+        int bound = OffHeapTranspositionTable.bound(data);
+        if (bound == OffHeapTranspositionTable.EXACT
+            || bound == OffHeapTranspositionTable.LOWER && stored >= beta
+            || bound == OffHeapTranspositionTable.UPPER && stored <= alpha) {
+          return stored;
+        }
+      }
+    }
+
+    int originalAlpha = alpha;
+    int best = -WIN;
+    int bestMove = -1;
+    int pvMove = onPv && ply < previousPv.length ? previousPv[ply] : -1;
+    // the principal variation move first, then the table's best move, then the rest
+    for (int i = -2; i < columns; i++) {
+      int column;
+      if (i == -2) {
+        column = pvMove;
+      } else if (i == -1) {
+        column = hashMove == pvMove ? -1 : hashMove;
+      } else {
+        column = columnOrder[i];
+        if (column == pvMove || column == hashMove) {
+          continue;
+        }
+      }
+      // a colliding table entry may hold a move that is not legal here
+      if (column < 0 || column >= columns || !p.canPlay(column)) {
+        continue;
+      }
+      p.play(column);
+      int score = -negamax(depth - 1, ply + 1, -beta, -alpha, column == pvMove);
+      p.undo(column);
+      if (timedOut) {
+        return 0;
+      }
+      if (score > best) {
+        best = score;
+        bestMove = column;
+        if (score > alpha) {
+          alpha = score;
+          setPv(ply, column, pvLength[ply + 1]);
+          if (alpha >= beta) {
+            break;
+          }
+        }
+      }
+    }
+    int bound = best <= originalAlpha ? OffHeapTranspositionTable.UPPER
+        : best >= beta ? OffHeapTranspositionTable.LOWER : OffHeapTranspositionTable.EXACT;
+    table.store(hash, toTable(best, ply), bound, depth,
+        mirrored && bestMove >= 0 ? columns - 1 - bestMove : bestMove);
+    return best;
+  }
+
+  /**
+   * Makes a move followed by the principal variation of its child the principal
+   * variation of a ply.
+   */
+  private void setPv(int ply, int column, int childLength) {
+    pv[ply][0] = column;
+    System.arraycopy(pv[ply + 1], 0, pv[ply], 1, childLength);
+    pvLength[ply] = childLength + 1;
+  }
+
+  /**
+   * Stores win and loss scores relative to the position rather than the root, so that
+   * they stay correct when the position is reached at another ply.
+   */
+  private static int toTable(int score, int ply) {
+    if (score >= PROVEN) {
+      return score + ply;
+    }
+    if (score <= -PROVEN) {
+      return score - ply;
+    }
+    return score;
+  }
+
+  private static int fromTable(int score, int ply) {
+    if (score >= PROVEN) {
+      return score - ply;
+    }
+    if (score <= -PROVEN) {
+      return score + ply;
+    }
+    return score;
+  }
+}
@@ -0,0 +1,158 @@
+package connect;
+
+/**
+ * A model that records every change to its game in a {@link MoveJournal} before the
+ * change is reported back, so the game survives the host going down. It wraps another
+ * model and passes every call through; successful moves, take-backs and resets are also
+ * appended to the journal, while rejected moves and queries are not. Instances come from
+ * {@link MoveJournal#startGame(long, ConnectFourModel)} and {@link MoveJournal#getGame(long)}.
+ * A journal that can no longer be written is reported as an
+ * {@link java.io.UncheckedIOException} from the call that changed the game. A change the
+ * journal refuses or fails to record is not made to the board, or taken back from it, so
+ * the board always matches the journal.
+ */
+class JournaledConnectFourModel implements ConnectFourModel {
+  private final MoveJournal journal;
+  private final long gameId;
+  private final ConnectFourModel model;
+
+  JournaledConnectFourModel(MoveJournal journal, long gameId, ConnectFourModel model) {
+    this.journal = journal;
+    this.gameId = gameId;
+    this.model = model;
+  }
+
+  /**
+   * Retrieves the model this one passes its calls to.
+   *
+   * @return the wrapped model
+   */
+  ConnectFourModel getModel() {
+    return model;
+  }
+
+  @Override
+  public void initializeBoard() {
+    resetBoard();
+  }
+
+  @Override
+  public void makeMove(int column) throws IllegalArgumentException {
+    int status = tryMove(column);
+    if (status != MoveStatus.OK) {
+      throw new IllegalArgumentException(MoveStatus.message(status));
+    }
+  }
+
+  @Override
+  public int tryMove(int column) {
+    journal.checkJournaled(gameId);
+    int status = model.tryMove(column);
+    if (status == MoveStatus.OK) {
+      try {
+        journal.recordMove(gameId, column);
+      } catch (RuntimeException e) {
+        model.undoMove();
+        throw e;
+      }
+    }
+    return status;
+  }
+
+  @Override
+  public long legalMovesMask() {
+    return model.legalMovesMask();
+  }
+
+  @Override
+  public long legalMovesMask(int firstColumn) throws IllegalArgumentException {
+    return model.legalMovesMask(firstColumn);
+  }
+
+  @Override
+  public void undoMove() throws IllegalArgumentException {
+    journal.checkJournaled(gameId);
+    int[] heights = new int[model.getColumns()];
+    for (int j = 0; j < heights.length; j++) {
+      heights[j] = model.getColumnHeight(j);
+    }
+    model.undoMove();
+    try {
+      journal.recordUndo(gameId);
+    } catch (RuntimeException e) {
+      // play the disc that was taken back again, in the column that lost one
+      int column = 0;
+      while (model.getColumnHeight(column) == heights[column]) {
+        column++;
+      }
+      model.tryMove(column);
+      throw e;
+    }
+  }
+
+  @Override
+  public Player getTurn() {
+    return model.getTurn();
+  }
+
+  @Override
+  public boolean isGameOver() {
+    return model.isGameOver();
+  }
+
+  @Override
+  public Player getWinner() {
+    return model.getWinner();
+  }
+
+  @Override
+  public void resetBoard() {
+    // a reset cannot be taken back, so it is only made once the journal has it
+    journal.recordReset(gameId);
+    model.resetBoard();
+  }
+
+  @Override
+  public Player[][] getBoardState() {
+    return model.getBoardState();
+  }
+
+  @Override
+  public int getRows() {
+    return model.getRows();
+  }
+
+  @Override
+  public int getColumns() {
+    return model.getColumns();
+  }
+
+  @Override
+  public int getWinLength() {
+    return model.getWinLength();
+  }
+
+  @Override
+  public Player getCell(int row, int column) throws IllegalArgumentException {
+    return model.getCell(row, column);
+  }
+
+  @Override
+  public int getColumnHeight(int column) throws IllegalArgumentException {
+    return model.getColumnHeight(column);
+  }
+
+  @Override
+  public BoardSnapshot getSnapshot() {
+    return model.getSnapshot();
+  }
+
+  /**
+   * Returns the board of the wrapped model, so the console views print it as they would
+   * print an unjournaled game.
+   */
+  @Override
+  public String toString() {
+    return model.toString();
+  }
+}
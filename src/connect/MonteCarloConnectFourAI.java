@@ -0,0 +1,438 @@
+package connect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A computer opponent for large boards, where no alpha-beta search gets deep enough to
+ * matter. It runs Monte Carlo Tree Search: every iteration walks down a search tree by
+ * the UCT rule, which balances the moves that won most often against the moves tried
+ * least often, adds the children of the node it reaches, and finishes the game from there
+ * with random moves. The result of that playout is added to every node on the path, and
+ * the most visited move at the root is played.
+ *
+ * <p>Several threads grow one tree at the same time. A thread counts its visit to a node
+ * on the way down, before the playout result is known, which is a virtual loss: other
+ * threads see the node's win rate drop and spread out to other moves instead of all
+ * following the same path.
+ *
+ * <p>The tree is kept in parallel primitive arrays indexed by node, holding the move into
+ * the node, the index of its first child and its number of children, visits and wins, so
+ * millions of nodes cost a few arrays rather than millions of objects. The children of a
+ * node sit next to each other and are claimed together when the node is expanded. Once
+ * the arrays are full the tree stops growing and iterations only run playouts.
+ *
+ * <p>A search stops when its time budget or its iteration budget runs out, whichever
+ * comes first.
+ */
+public class MonteCarloConnectFourAI implements ConnectFourAI, AutoCloseable {
+  private static final int DEFAULT_MAX_NODES = 1 << 22;
+  private static final long DEFAULT_BUDGET_MILLIS = 1000;
+  private static final double EXPLORATION = Math.sqrt(2);
+  private static final int UNEXPANDED = 0;
+  private static final int EXPANDING = -1;
+  private static final byte OPEN = 0;
+  private static final byte WON = 1;
+  private static final byte DRAWN = 2;
+
+  private final int threads;
+  private final int maxNodes;
+  private final ExecutorService executor;
+  private final int[] moves;
+  private final int[] childCounts;
+  private final byte[] outcomes;
+  private final AtomicIntegerArray firstChildren;
+  private final AtomicIntegerArray visits;
+  // in half points for the player who made the move into the node: 2 for a win, 1 a draw
+  private final AtomicLongArray wins;
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong iterations = new AtomicLong();
+  private final long seed;
+  private long budgetNanos = DEFAULT_BUDGET_MILLIS * 1_000_000;
+  private long iterationBudget = Long.MAX_VALUE;
+  private long searches;
+  private long playoutCount;
+  private long elapsedNanos;
+
+  /**
+   * Constructs a new opponent that searches on the given number of threads for one
+   * second per move, with room for about 4 million tree nodes.
+   *
+   * @param threads the number of search threads
+   * @throws IllegalArgumentException if the number of threads is not positive
+   */
+  public MonteCarloConnectFourAI(int threads) throws IllegalArgumentException {
+    this(threads, DEFAULT_MAX_NODES, System.nanoTime());
+  }
+
+  /**
+   * Constructs a new opponent that searches on the given number of threads, with room
+   * for the given number of tree nodes. Each node takes 25 bytes.
+   *
+   * @param threads the number of search threads
+   * @param maxNodes the maximum number of tree nodes
+   * @param seed the seed of the random playouts
+   * @throws IllegalArgumentException if the number of threads or nodes is not positive
+   */
+  public MonteCarloConnectFourAI(int threads, int maxNodes, long seed)
+      throws IllegalArgumentException {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Invalid number of threads");
+    }
+    if (maxNodes <= 0) {
+      throw new IllegalArgumentException("Invalid number of nodes");
+    }
+    this.threads = threads;
+    this.maxNodes = maxNodes;
+    this.seed = seed;
+    this.moves = new int[maxNodes];
+    this.childCounts = new int[maxNodes];
+    this.outcomes = new byte[maxNodes];
+    this.firstChildren = new AtomicIntegerArray(maxNodes);
+    this.visits = new AtomicIntegerArray(maxNodes);
+    this.wins = new AtomicLongArray(maxNodes);
+    this.executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "connect-four-mcts");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Sets how long every search may take.
+   *
+   * @param millis the time budget in milliseconds
+   * @throws IllegalArgumentException if the budget is not positive
+   */
+  public synchronized void setTimeBudget(long millis) throws IllegalArgumentException {
+    if (millis <= 0) {
+      throw new IllegalArgumentException("Invalid time budget");
+    }
+    this.budgetNanos = millis * 1_000_000;
+  }
+
+  /**
+   * Sets how many iterations every search may run over all threads. The search still
+   * stops at the time budget if that comes first.
+   *
+   * @param iterations the iteration budget
+   * @throws IllegalArgumentException if the budget is not positive
+   */
+  public synchronized void setIterationBudget(long iterations)
+      throws IllegalArgumentException {
+    if (iterations <= 0) {
+      throw new IllegalArgumentException("Invalid iteration budget");
+    }
+    this.iterationBudget = iterations;
+  }
+
+  @Override
+  public synchronized int chooseMove(ConnectFourModel model) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    long start = System.nanoTime();
+    GridPosition root = GridPosition.of(model, false);
+    long deadline = start + budgetNanos;
+    int[] order = NegamaxSearch.columnOrder(root.getColumns());
+    for (int column : order) {
+      if (root.canPlay(column) && root.isWinningMove(column)) {
+        elapsedNanos = System.nanoTime() - start;
+        playoutCount = 0;
+        return column;
+      }
+    }
+
+    size.set(1);
+    iterations.set(0);
+    initializeNode(0, -1);
+    searches++;
+    List<Future<Long>> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Worker worker = new Worker(GridPosition.of(model, false), order,
+          new SplittableRandom(seed + searches * threads + t));
+      workers.add(executor.submit(() -> worker.run(deadline)));
+    }
+    long completed = 0;
+    boolean interrupted = false;
+    for (int i = 0; i < workers.size(); i++) {
+      try {
+        completed += workers.get(i).get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof RuntimeException
+            ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+      } catch (InterruptedException e) {
+        // the workers stop at the deadline, and none may touch the tree after this returns
+        interrupted = true;
+        i--;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    elapsedNanos = System.nanoTime() - start;
+    playoutCount = completed;
+
+    int best = -1;
+    int first = firstChildren.get(0);
+    if (first > 0) {
+      int mostVisits = -1;
+      for (int child = first; child < first + childCounts[0]; child++) {
+        if (visits.get(child) > mostVisits) {
+          mostVisits = visits.get(child);
+          best = moves[child];
+        }
+      }
+    }
+    if (best < 0) {
+      // the budget ran out before the root was expanded
+      for (int column : order) {
+        if (root.canPlay(column)) {
+          return column;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Retrieves the number of playouts run by the last search, over all threads.
+   *
+   * @return the number of playouts
+   */
+  public synchronized long getPlayoutCount() {
+    return playoutCount;
+  }
+
+  /**
+   * Retrieves the wall-clock time taken by the last search.
+   *
+   * @return the time in nanoseconds
+   */
+  public synchronized long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Retrieves the speed of the last search, over all threads.
+   *
+   * @return the number of playouts per second
+   */
+  public synchronized double getPlayoutsPerSecond() {
+    return elapsedNanos == 0 ? 0 : playoutCount * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Retrieves the number of nodes in the tree of the last search.
+   *
+   * @return the number of tree nodes
+   */
+  public synchronized int getTreeSize() {
+    return Math.min(size.get(), maxNodes);
+  }
+
+  /**
+   * Retrieves the number of search threads.
+   *
+   * @return the number of threads
+   */
+  public int getThreadCount() {
+    return threads;
+  }
+
+  /**
+   * Stops the search threads. The opponent cannot be used afterwards.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Claims and fills the children of a node that this thread is expanding.
+   *
+   * @return the index of the first child, or {@link #EXPANDING} if the tree is full,
+   *     which leaves the node a leaf for good
+   */
+  private int expand(int node, GridPosition p, int[] order) {
+    int count = 0;
+    for (int column : order) {
+      if (p.canPlay(column)) {
+        count++;
+      }
+    }
+    int first;
+    do {
+      first = size.get();
+      if (count > maxNodes - first) {
+        return EXPANDING;
+      }
+    } while (!size.compareAndSet(first, first + count));
+    int child = first;
+    boolean fullAfterMove = p.getMoves() + 1 == p.getRows() * p.getColumns();
+    for (int column : order) {
+      if (p.canPlay(column)) {
+        initializeNode(child, column);
+        outcomes[child] = p.isWinningMove(column) ? WON : fullAfterMove ? DRAWN : OPEN;
+        child++;
+      }
+    }
+    childCounts[node] = count;
+    // publishing the first child makes the children written above visible to other threads
+    firstChildren.set(node, first);
+    return first;
+  }
+
+  private void initializeNode(int node, int move) {
+    moves[node] = move;
+    childCounts[node] = 0;
+    outcomes[node] = OPEN;
+    visits.set(node, 0);
+    wins.set(node, 0);
+    firstChildren.set(node, UNEXPANDED);
+  }
+
+  /**
+   * Picks the child with the highest UCT value, trying unvisited children first.
+   */
+  private int select(int node, int first) {
+    double logParent = Math.log(Math.max(1, visits.get(node)));
+    int best = first;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (int child = first; child < first + childCounts[node]; child++) {
+      int n = visits.get(child);
+      if (n == 0) {
+        return child;
+      }
+      double value = wins.get(child) / (2.0 * n) + EXPLORATION * Math.sqrt(logParent / n);
+      if (value > bestValue) {
+        bestValue = value;
+        best = child;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * The state of one search thread: its own copy of the root position and buffers for
+   * the path through the tree and the playout.
+   */
+  private final class Worker {
+    private final GridPosition p;
+    private final int[] order;
+    private final SplittableRandom random;
+    private final int[] path;
+    private final int[] played;
+    private final int[] openColumns;
+
+    private Worker(GridPosition p, int[] order, SplittableRandom random) {
+      this.p = p;
+      this.order = order;
+      this.random = random;
+      int cells = p.getRows() * p.getColumns();
+      this.path = new int[cells + 1];
+      this.played = new int[cells];
+      this.openColumns = new int[p.getColumns()];
+    }
+
+    /**
+     * Runs iterations until the deadline or the shared iteration budget is reached.
+     *
+     * @return the number of iterations this thread ran
+     */
+    private long run(long deadline) {
+      long count = 0;
+      while (System.nanoTime() < deadline
+          && iterations.getAndIncrement() < iterationBudget) {
+        iterate();
+        count++;
+      }
+      return count;
+    }
+
+    /**
+     * Runs one iteration on the position, which equals the root and is left equal to it.
+     */
+    private void iterate() {
+      int rootPlayer = p.getCurrentPlayer();
+      int depth = 0;
+      int node = 0;
+      int winner;
+      while (true) {
+        path[depth] = node;
+        visits.incrementAndGet(node);
+        if (outcomes[node] == WON) {
+          winner = 3 - p.getCurrentPlayer();
+          break;
+        }
+        if (outcomes[node] == DRAWN) {
+          winner = 0;
+          break;
+        }
+        int first = firstChildren.get(node);
+        if (first == UNEXPANDED && (node == 0 || visits.get(node) > 1)
+            && firstChildren.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+          first = expand(node, p, order);
+        }
+        if (first <= 0) {
+          winner = playout();
+          break;
+        }
+        node = select(node, first);
+        p.play(moves[node]);
+        depth++;
+      }
+      // node i on the path was entered by the player to move at node i - 1
+      for (int i = depth; i >= 0; i--) {
+        int mover = (i & 1) == 1 ? rootPlayer : 3 - rootPlayer;
+        wins.addAndGet(path[i], winner == 0 ? 1 : winner == mover ? 2 : 0);
+        if (i > 0) {
+          p.undo(moves[path[i]]);
+        }
+      }
+    }
+
+    /**
+     * Finishes the game with random moves and takes them back.
+     *
+     * @return the player who won, or 0 for a draw
+     */
+    private int playout() {
+      int open = 0;
+      for (int column = 0; column < p.getColumns(); column++) {
+        if (p.canPlay(column)) {
+          openColumns[open++] = column;
+        }
+      }
+      int count = 0;
+      int winner = 0;
+      while (open > 0) {
+        int i = random.nextInt(open);
+        int column = openColumns[i];
+        boolean won = p.isWinningMove(column);
+        p.play(column);
+        played[count++] = column;
+        if (won) {
+          winner = 3 - p.getCurrentPlayer();
+          break;
+        }
+        if (!p.canPlay(column)) {
+          openColumns[i] = openColumns[--open];
+        }
+      }
+      while (count > 0) {
+        p.undo(played[--count]);
+      }
+      return winner;
+    }
+  }
+}
@@ -0,0 +1,699 @@
+package connect;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A crash-safe, append-only journal of the games in progress on a game host. Every game
+ * has an ID, and every successful move, take-back and reset of a game started with
+ * {@link #startGame(long, ConnectFourModel)} is appended to the journal before the call
+ * that made it returns. When the host restarts, {@link #open(Path)} reads the journal
+ * back and rebuilds every game that was in progress.
+ *
+ * <p>Writes are made durable with group commit: callers append their entries to a shared
+ * buffer and wait, while a single committer thread writes everything that has piled up
+ * and syncs it to disk with one {@code force}. Games played on different threads
+ * therefore share disk syncs, and the more games are played at once, the more moves every
+ * sync covers. Each entry carries a CRC-32C checksum, so an entry that was only partly
+ * written when the host went down is recognized and cut off on the next start.
+ *
+ * <p>To keep restarts quick, the journal writes a snapshot of all games in progress after
+ * every {@code snapshotInterval} entries and then starts a new, empty log. Files are
+ * numbered by generation: {@code snapshot-N.bin} holds the games as they were when
+ * {@code journal-N.log} was started, so a restart loads the newest snapshot and only
+ * replays the entries written since. A snapshot is written to a temporary file, synced
+ * and renamed into place, so a crash while writing it leaves the previous generation
+ * intact.
+ */
+public class MoveJournal implements Closeable {
+  private static final int SNAPSHOT_MAGIC = 0x4334534E;
+  private static final int VERSION = 1;
+  private static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000;
+  private static final String LOG_PREFIX = "journal-";
+  private static final String LOG_SUFFIX = ".log";
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  // an entry is its length, its checksum and then the payload
+  private static final int ENTRY_HEADER = 8;
+  private static final int MAX_PAYLOAD = 32;
+
+  private static final byte START = 1;
+  private static final byte MOVE = 2;
+  private static final byte UNDO = 3;
+  private static final byte RESET = 4;
+  private static final byte END = 5;
+
+  private final Path directory;
+  private final int snapshotInterval;
+  private final Map<Long, GameState> games;
+  private final Map<Long, ConnectFourModel> models = new LinkedHashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition entriesAppended = lock.newCondition();
+  private final Condition entriesCommitted = lock.newCondition();
+  private final CRC32C crc = new CRC32C();
+  private final Thread committer;
+  private FileChannel log;
+  private long generation;
+  private ByteBuffer pending = ByteBuffer.allocate(1 << 12);
+  private ByteBuffer writing = ByteBuffer.allocate(1 << 12);
+  private long appended;
+  private long committed;
+  private long commits;
+  private int entriesSinceSnapshot;
+  private IOException failure;
+  private boolean closed;
+
+  private MoveJournal(Path directory, int snapshotInterval, long generation,
+                      Map<Long, GameState> games, FileChannel log) {
+    this.directory = directory;
+    this.snapshotInterval = snapshotInterval;
+    this.generation = generation;
+    this.games = games;
+    this.log = log;
+    for (Map.Entry<Long, GameState> game : games.entrySet()) {
+      models.put(game.getKey(), new JournaledConnectFourModel(this, game.getKey(),
+          game.getValue().rebuild()));
+    }
+    this.committer = new Thread(this::commitLoop, "connect-four-journal");
+    this.committer.setDaemon(true);
+    this.committer.start();
+  }
+
+  /**
+   * Opens the journal in a directory, creating it if needed, and rebuilds the games that
+   * were in progress. Snapshots are taken every 10,000 entries.
+   *
+   * @param directory the directory of the journal files
+   * @return the open journal
+   * @throws IOException if the journal cannot be read or written, or its newest snapshot
+   *     is corrupt
+   */
+  public static MoveJournal open(Path directory) throws IOException {
+    return open(directory, DEFAULT_SNAPSHOT_INTERVAL);
+  }
+
+  /**
+   * Opens the journal in a directory, creating it if needed, and rebuilds the games that
+   * were in progress.
+   *
+   * @param directory the directory of the journal files
+   * @param snapshotInterval the number of entries between two snapshots
+   * @return the open journal
+   * @throws IllegalArgumentException if the directory is null or the interval is not
+   *     positive
+   * @throws IOException if the journal cannot be read or written, or its newest snapshot
+   *     is corrupt
+   */
+  public static MoveJournal open(Path directory, int snapshotInterval)
+      throws IllegalArgumentException, IOException {
+    if (directory == null) {
+      throw new IllegalArgumentException("Directory cannot be null");
+    }
+    if (snapshotInterval <= 0) {
+      throw new IllegalArgumentException("Invalid snapshot interval");
+    }
+    Files.createDirectories(directory);
+    // a snapshot is only renamed into place once it is complete, so the newest one must
+    // be readable; the older generations may already be gone, so there is nothing to
+    // fall back to. Without a snapshot, start from nothing
+    long generation = 0;
+    Map<Long, GameState> games = new LinkedHashMap<>();
+    long[] snapshots = generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    if (snapshots.length > 0) {
+      generation = snapshots[snapshots.length - 1];
+      games = readSnapshot(snapshotFile(directory, generation));
+    }
+    FileChannel log = FileChannel.open(logFile(directory, generation),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long end = replay(log, games);
+      // cut off an entry that was only partly written
+      log.truncate(end);
+      log.position(end);
+      log.force(true);
+    } catch (IOException e) {
+      log.close();
+      throw e;
+    }
+    deleteOlderGenerations(directory, generation);
+    return new MoveJournal(directory, snapshotInterval, generation, games, log);
+  }
+
+  /**
+   * Starts journaling a new game. The model must have an empty board; its moves are
+   * journaled from now on as long as they are made through the returned model.
+   *
+   * @param gameId the ID of the game, which must not be in progress
+   * @param model the model to play the game on, with an empty board
+   * @return the journaled model to play the game through
+   * @throws IllegalArgumentException if the ID is taken or the board is not empty
+   * @throws UncheckedIOException if the journal cannot be written
+   */
+  public ConnectFourModel startGame(long gameId, ConnectFourModel model)
+      throws IllegalArgumentException {
+    for (int j = 0; j < model.getColumns(); j++) {
+      if (model.getColumnHeight(j) != 0) {
+        throw new IllegalArgumentException("Board is not empty");
+      }
+    }
+    ConnectFourModel journaled = new JournaledConnectFourModel(this, gameId, model);
+    lock.lock();
+    try {
+      if (games.containsKey(gameId)) {
+        throw new IllegalArgumentException("Game already in progress: " + gameId);
+      }
+      models.put(gameId, journaled);
+      append(START, gameId, model.getRows(), model.getColumns(), model.getWinLength());
+    } finally {
+      lock.unlock();
+    }
+    return journaled;
+  }
+
+  /**
+   * Stops journaling a game and forgets it, so that it is not rebuilt on the next start.
+   *
+   * @param gameId the ID of the game
+   * @throws IllegalArgumentException if the game is not in progress
+   * @throws UncheckedIOException if the journal cannot be written
+   */
+  public void endGame(long gameId) throws IllegalArgumentException {
+    lock.lock();
+    try {
+      if (!games.containsKey(gameId)) {
+        throw new IllegalArgumentException("No game in progress: " + gameId);
+      }
+      models.remove(gameId);
+      append(END, gameId, 0, 0, 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the IDs of the games in progress.
+   *
+   * @return an unmodifiable copy of the IDs, in the order the games were started
+   */
+  public Set<Long> getGameIds() {
+    lock.lock();
+    try {
+      return Collections.unmodifiableSet(new java.util.LinkedHashSet<>(models.keySet()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the journaled model of a game in progress, which after a restart holds
+   * the game as it was rebuilt from the journal.
+   *
+   * @param gameId the ID of the game
+   * @return the model to keep playing the game through, or null if there is no such game
+   */
+  public ConnectFourModel getGame(long gameId) {
+    lock.lock();
+    try {
+      return models.get(gameId);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of entries appended since the journal was opened.
+   *
+   * @return the number of entries
+   */
+  public long getEntries() {
+    lock.lock();
+    try {
+      return appended;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of disk syncs made since the journal was opened. With games on
+   * several threads it is smaller than the number of entries.
+   *
+   * @return the number of group commits
+   */
+  public long getCommits() {
+    lock.lock();
+    try {
+      return commits;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void recordMove(long gameId, int column) {
+    record(MOVE, gameId, column);
+  }
+
+  void recordUndo(long gameId) {
+    record(UNDO, gameId, 0);
+  }
+
+  void recordReset(long gameId) {
+    record(RESET, gameId, 0);
+  }
+
+  /**
+   * Checks that a game can still be journaled, so that a change the journal would refuse
+   * is never made to the board.
+   *
+   * @param gameId the ID of the game
+   * @throws IllegalStateException if the game has ended or the journal is closed
+   * @throws UncheckedIOException if the journal can no longer be written
+   */
+  void checkJournaled(long gameId) {
+    lock.lock();
+    try {
+      checkWritable(gameId);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void record(byte type, long gameId, int column) {
+    lock.lock();
+    try {
+      checkWritable(gameId);
+      append(type, gameId, column, 0, 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void checkWritable(long gameId) {
+    if (closed) {
+      throw new IllegalStateException("Journal closed");
+    }
+    if (failure != null) {
+      throw new UncheckedIOException(failure);
+    }
+    if (!games.containsKey(gameId)) {
+      throw new IllegalStateException("Game is no longer journaled: " + gameId);
+    }
+  }
+
+  /**
+   * Appends an entry, applies it to the games in memory and waits until the committer
+   * has synced it to disk. The caller holds the lock, which the wait releases.
+   */
+  private void append(byte type, long gameId, int a, int b, int c) {
+    if (closed) {
+      throw new IllegalStateException("Journal closed");
+    }
+    if (failure != null) {
+      throw new UncheckedIOException(failure);
+    }
+    if (pending.remaining() < ENTRY_HEADER + MAX_PAYLOAD) {
+      pending = ByteBuffer.allocate(pending.capacity() * 2).put(pending.flip());
+    }
+    int start = pending.position();
+    pending.position(start + ENTRY_HEADER);
+    int length = encode(pending, type, gameId, a, b, c);
+    crc.reset();
+    crc.update(pending.array(), start + ENTRY_HEADER, length);
+    pending.putInt(start, length);
+    pending.putInt(start + 4, (int) crc.getValue());
+    try {
+      apply(games, type, gameId, a, b, c);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    long sequence = ++appended;
+    entriesSinceSnapshot++;
+    entriesAppended.signal();
+    while (committed < sequence && failure == null) {
+      entriesCommitted.awaitUninterruptibly();
+    }
+    if (committed < sequence) {
+      throw new UncheckedIOException(failure);
+    }
+  }
+
+  private static int encode(ByteBuffer buffer, byte type, long gameId, int a, int b, int c) {
+    int start = buffer.position();
+    buffer.put(type).putLong(gameId);
+    if (type == START) {
+      buffer.putInt(a).putInt(b).putInt(c);
+    } else if (type == MOVE) {
+      buffer.putInt(a);
+    }
+    return buffer.position() - start;
+  }
+
+  /**
+   * Writes whatever has been appended and syncs it, over and over, handing the buffer
+   * being filled and the buffer being written back and forth.
+   */
+  private void commitLoop() {
+    while (true) {
+      long target;
+      lock.lock();
+      try {
+        while (pending.position() == 0 && !closed) {
+          entriesAppended.awaitUninterruptibly();
+        }
+        if (pending.position() == 0) {
+          return;
+        }
+        ByteBuffer full = pending;
+        pending = writing;
+        writing = full;
+        target = appended;
+      } finally {
+        lock.unlock();
+      }
+      try {
+        writeAndSync(writing);
+      } catch (IOException e) {
+        lock.lock();
+        try {
+          failure = e;
+          entriesCommitted.signalAll();
+        } finally {
+          lock.unlock();
+        }
+        return;
+      }
+      lock.lock();
+      try {
+        committed = target;
+        commits++;
+        if (entriesSinceSnapshot >= snapshotInterval) {
+          snapshot();
+        }
+        entriesCommitted.signalAll();
+      } catch (IOException e) {
+        failure = e;
+        entriesCommitted.signalAll();
+        return;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void writeAndSync(ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      log.write(buffer);
+    }
+    log.force(false);
+    buffer.clear();
+  }
+
+  /**
+   * Writes a snapshot of all games and starts the next generation of the log. The caller
+   * holds the lock, so no entry can be appended in between; entries appended while the
+   * last commit was being written are committed to the old log first, because the
+   * snapshot already contains them.
+   */
+  private void snapshot() throws IOException {
+    if (pending.position() > 0) {
+      writeAndSync(pending);
+      committed = appended;
+      commits++;
+    }
+    long next = generation + 1;
+    Path temporary = directory.resolve(SNAPSHOT_PREFIX + next + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      CheckedOutputStream checked = new CheckedOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32C());
+      DataOutputStream out = new DataOutputStream(checked);
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(games.size());
+      for (Map.Entry<Long, GameState> game : games.entrySet()) {
+        GameState state = game.getValue();
+        out.writeLong(game.getKey());
+        out.writeInt(state.rows);
+        out.writeInt(state.columns);
+        out.writeInt(state.winLength);
+        out.writeInt(state.count);
+        for (int i = 0; i < state.count; i++) {
+          out.writeInt(state.moves[i]);
+        }
+      }
+      out.writeInt((int) checked.getChecksum().getValue());
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(temporary, snapshotFile(directory, next), StandardCopyOption.ATOMIC_MOVE);
+    FileChannel nextLog = FileChannel.open(logFile(directory, next),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    log.close();
+    log = nextLog;
+    generation = next;
+    entriesSinceSnapshot = 0;
+    deleteOlderGenerations(directory, next);
+  }
+
+  /**
+   * Waits for everything appended to be committed, stops the committer and closes the
+   * log. The games in progress stay in the journal for the next start.
+   *
+   * @throws IOException if the log cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      entriesAppended.signal();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      committer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    log.close();
+  }
+
+  /**
+   * Applies the entries of a log to the games, stopping at the first entry that is
+   * incomplete or fails its checksum.
+   *
+   * @return the length of the log up to the last good entry
+   */
+  private static long replay(FileChannel log, Map<Long, GameState> games) throws IOException {
+    DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Channels.newInputStream(log.position(0))));
+    CRC32C crc = new CRC32C();
+    byte[] payload = new byte[MAX_PAYLOAD];
+    long end = 0;
+    while (true) {
+      int length;
+      int checksum;
+      try {
+        length = in.readInt();
+        checksum = in.readInt();
+        if (length <= 0 || length > MAX_PAYLOAD) {
+          return end;
+        }
+        in.readFully(payload, 0, length);
+      } catch (EOFException e) {
+        return end;
+      }
+      crc.reset();
+      crc.update(payload, 0, length);
+      if ((int) crc.getValue() != checksum) {
+        return end;
+      }
+      ByteBuffer entry = ByteBuffer.wrap(payload, 0, length);
+      byte type = entry.get();
+      long gameId = entry.getLong();
+      int a = entry.remaining() >= 4 ? entry.getInt() : 0;
+      int b = entry.remaining() >= 4 ? entry.getInt() : 0;
+      int c = entry.remaining() >= 4 ? entry.getInt() : 0;
+      apply(games, type, gameId, a, b, c);
+      end += ENTRY_HEADER + length;
+    }
+  }
+
+  /**
+   * Applies one entry to the games in memory.
+   *
+   * @throws IOException if the entry does not fit the games, which means the journal is
+   *     corrupt
+   */
+  private static void apply(Map<Long, GameState> games, byte type, long gameId,
+                            int a, int b, int c) throws IOException {
+    if (type == START) {
+      games.put(gameId, new GameState(a, b, c));
+      return;
+    }
+    GameState state = games.get(gameId);
+    if (state == null) {
+      throw new IOException("Corrupt journal: no game " + gameId);
+    }
+    switch (type) {
+      case MOVE:
+        state.push(a);
+        break;
+      case UNDO:
+        state.count = Math.max(0, state.count - 1);
+        break;
+      case RESET:
+        state.count = 0;
+        break;
+      case END:
+        games.remove(gameId);
+        break;
+      default:
+        throw new IOException("Corrupt journal: unknown entry " + type);
+    }
+  }
+
+  private static Map<Long, GameState> readSnapshot(Path file) throws IOException {
+    try (InputStream stream = Files.newInputStream(file)) {
+      CheckedInputStream checked = new CheckedInputStream(
+          new BufferedInputStream(stream), new CRC32C());
+      DataInputStream in = new DataInputStream(checked);
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a journal snapshot: " + file);
+      }
+      int size = in.readInt();
+      Map<Long, GameState> games = new LinkedHashMap<>();
+      for (int g = 0; g < size; g++) {
+        long gameId = in.readLong();
+        GameState state = new GameState(in.readInt(), in.readInt(), in.readInt());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          state.push(in.readInt());
+        }
+        games.put(gameId, state);
+      }
+      int expected = (int) checked.getChecksum().getValue();
+      if (in.readInt() != expected) {
+        throw new IOException("Corrupt journal snapshot: " + file);
+      }
+      return games;
+    }
+  }
+
+  private static Path logFile(Path directory, long generation) {
+    return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+  }
+
+  private static Path snapshotFile(Path directory, long generation) {
+    return directory.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+  }
+
+  /**
+   * Lists the generations of the files with a prefix and suffix, in ascending order.
+   */
+  private static long[] generations(Path directory, String prefix, String suffix)
+      throws IOException {
+    long[] found = new long[0];
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+        prefix + "*" + suffix)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        try {
+          long generation = Long.parseLong(
+              name.substring(prefix.length(), name.length() - suffix.length()));
+          found = Arrays.copyOf(found, found.length + 1);
+          found[found.length - 1] = generation;
+        } catch (NumberFormatException e) {
+          // not one of ours
+        }
+      }
+    }
+    Arrays.sort(found);
+    return found;
+  }
+
+  /**
+   * Deletes the logs and snapshots of the generations before the given one, and the
+   * temporary files of snapshots that were never completed. Newer generations are kept.
+   */
+  private static void deleteOlderGenerations(Path directory, long generation)
+      throws IOException {
+    for (long other : generations(directory, LOG_PREFIX, LOG_SUFFIX)) {
+      if (other < generation) {
+        Files.deleteIfExists(logFile(directory, other));
+      }
+    }
+    for (long other : generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+      if (other < generation) {
+        Files.deleteIfExists(snapshotFile(directory, other));
+      }
+    }
+    for (long other : generations(directory, SNAPSHOT_PREFIX, ".tmp")) {
+      Files.deleteIfExists(directory.resolve(SNAPSHOT_PREFIX + other + ".tmp"));
+    }
+  }
+
+  /**
+   * The board size and the moves of a game in progress, which is all it takes to
+   * rebuild it.
+   */
+  private static final class GameState {
+    private final int rows;
+    private final int columns;
+    private final int winLength;
+    private int[] moves = new int[16];
+    private int count;
+
+    private GameState(int rows, int columns, int winLength) {
+      this.rows = rows;
+      this.columns = columns;
+      this.winLength = winLength;
+    }
+
+    private void push(int column) {
+      if (count == moves.length) {
+        moves = Arrays.copyOf(moves, count * 2);
+      }
+      moves[count++] = column;
+    }
+
+    private ConnectFourModel rebuild() {
+      ConnectFourModel model = new ConnectFourModelImpl(rows, columns, winLength);
+      for (int i = 0; i < count; i++) {
+        model.makeMove(moves[i]);
+      }
+      return model;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package connect;
+
+/**
+ * The status codes returned by {@link ConnectFourModel#tryMove(int)}. They are plain
+ * {@code int} constants so that rejecting a move costs no more than accepting one: there
+ * is no exception to create and no stack trace to fill in.
+ */
+public final class MoveStatus {
+  /** The move was made. */
+  public static final int OK = 0;
+  /** The move was rejected because the game is already over. */
+  public static final int GAME_OVER = 1;
+  /** The move was rejected because the column is out of bounds. */
+  public static final int INVALID_COLUMN = 2;
+  /** The move was rejected because the column has no empty cell left. */
+  public static final int COLUMN_FULL = 3;
+
+  private MoveStatus() {
+  }
+
+  /**
+   * Retrieves the message that describes a status, which is also the message of the
+   * exception {@link ConnectFourModel#makeMove(int)} throws for a rejected move.
+   *
+   * @param status the status code
+   * @return the message of the status
+   * @throws IllegalArgumentException if the status is not one of the codes above
+   */
+  public static String message(int status) throws IllegalArgumentException {
+    switch (status) {
+      case OK:
+        return "OK";
+      case GAME_OVER:
+        return "Game over";
+      case INVALID_COLUMN:
+        return "Invalid column";
+      case COLUMN_FULL:
+        return "Column full";
+      default:
+        throw new IllegalArgumentException("Invalid status");
+    }
+  }
+}
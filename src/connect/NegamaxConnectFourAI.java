@@ -0,0 +1,196 @@
+package connect;
+
+/**
+ * A computer opponent that solves Connect Four positions exactly. It runs a negamax
+ * search with alpha-beta pruning over a bitboard copy of the model's position, tries
+ * central columns first and moves that open the most threats before the rest, and
+ * remembers upper bounds of searched positions in a fixed-size transposition table.
+ * The exact score is found with a sequence of null-window searches that narrow the
+ * range of possible scores. Boards must fit into a bitboard, see
+ * {@link BitboardConnectFourModel#fits(int, int)}, and games must be won with four in a
+ * row.
+ *
+ * <p>Scores are from the point of view of the player to move: positive if that player
+ * can force a win, 0 for a draw and negative for a loss. A win with the player's k-th
+ * last disc scores k, so quicker wins score higher.
+ *
+ * <p>An {@link OpeningBook} can be given to answer the early moves, which are by far the
+ * most expensive to solve, with a lookup instead of a search.
+ *
+ * <p>The search does not solve the opening of a 6 by 7 board at interactive speed: the
+ * first few moves take tens of seconds to minutes each on one core, and only an opening
+ * book that covers them answers them at once. Without a time budget every move is solved
+ * however long it takes. With a budget the opponent stops being a solver wherever the
+ * search runs out of time: the exact search gets half of the budget, and a move it has
+ * not solved by then is a heuristic guess of an {@link IterativeDeepeningConnectFourAI}
+ * in the other half, which may lose a won game. {@link #isLastMoveSolved()} tells which
+ * kind of move was played. Later in the game, where positions solve in milliseconds, the
+ * budgeted opponent plays perfectly.
+ */
+public class NegamaxConnectFourAI implements ConnectFourAI {
+  private static final int DEFAULT_TABLE_SIZE = 1 << 23;
+  private static final long FALLBACK_TABLE_BYTES = 16L << 20;
+
+  private final NegamaxSearch search;
+  private final OpeningBook book;
+  private final long budgetMillis;
+  private IterativeDeepeningConnectFourAI fallback;
+  private long elapsedNanos;
+  private boolean lastMoveSolved;
+
+  /**
+   * Constructs a new opponent with a transposition table of about 8 million entries.
+   */
+  public NegamaxConnectFourAI() {
+    this(DEFAULT_TABLE_SIZE);
+  }
+
+  /**
+   * Constructs a new opponent with a transposition table of the given number of entries.
+   * Each entry takes 8 bytes.
+   *
+   * @param tableSize the minimum number of transposition table entries
+   * @throws IllegalArgumentException if the table size is not positive
+   */
+  public NegamaxConnectFourAI(int tableSize) throws IllegalArgumentException {
+    this(tableSize, null);
+  }
+
+  /**
+   * Constructs a new opponent with a transposition table of the given number of entries
+   * that looks positions up in an opening book before searching them.
+   *
+   * @param tableSize the minimum number of transposition table entries
+   * @param book the opening book to consult, or {@code null} for none
+   * @throws IllegalArgumentException if the table size is not positive
+   */
+  public NegamaxConnectFourAI(int tableSize, OpeningBook book) throws IllegalArgumentException {
+    this.search = new NegamaxSearch(new TranspositionTable(tableSize));
+    this.book = book;
+    this.budgetMillis = 0;
+  }
+
+  /**
+   * Constructs a new opponent that answers every move within about the given time. Moves
+   * the book does not cover are solved if that takes less than half the budget, and
+   * otherwise guessed by a heuristic search in the other half, so without a book the
+   * first moves of a 6 by 7 game are not solved.
+   *
+   * @param tableSize the minimum number of transposition table entries
+   * @param book the opening book to consult, or {@code null} for none
+   * @param budgetMillis the time to think about every move, in milliseconds
+   * @throws IllegalArgumentException if the table size or the budget is not positive
+   */
+  public NegamaxConnectFourAI(int tableSize, OpeningBook book, long budgetMillis)
+      throws IllegalArgumentException {
+    if (budgetMillis <= 0) {
+      throw new IllegalArgumentException("Invalid time budget");
+    }
+    this.search = new NegamaxSearch(new TranspositionTable(tableSize));
+    this.book = book;
+    this.budgetMillis = budgetMillis;
+  }
+
+  @Override
+  public int chooseMove(ConnectFourModel model) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    Position p = Position.of(model);
+    long start = System.nanoTime();
+    search.resetNodeCount();
+    int move = -1;
+    if (book != null && book.covers(p.getRows(), p.getColumns())) {
+      move = book.getMove(p);
+    }
+    lastMoveSolved = true;
+    if (move < 0) {
+      if (budgetMillis > 0) {
+        search.setDeadline(start + budgetMillis * 500_000);
+      }
+      move = search.bestMove(p);
+      search.clearDeadline();
+      if (search.isStopped()) {
+        lastMoveSolved = false;
+        if (fallback == null) {
+          fallback = new IterativeDeepeningConnectFourAI(Math.max(1, budgetMillis / 2),
+              FALLBACK_TABLE_BYTES);
+        }
+        move = fallback.chooseMove(model);
+      }
+    }
+    elapsedNanos = System.nanoTime() - start;
+    return move;
+  }
+
+  /**
+   * Checks if the last move was found in the book or by solving the position, rather than
+   * by the heuristic search after the time budget ran out.
+   *
+   * @return true if the last move is known to be best
+   */
+  public boolean isLastMoveSolved() {
+    return lastMoveSolved;
+  }
+
+  /**
+   * Computes the exact score of the model's position for the player to move.
+   *
+   * @param model a non-null Connect Four Model whose game is not over
+   * @return the score of the position
+   * @throws IllegalArgumentException if the model is null, the game is over,
+   *     the board does not fit into a bitboard, or the win length is not 4
+   */
+  public int solve(ConnectFourModel model) throws IllegalArgumentException {
+    return solve(model, false);
+  }
+
+  /**
+   * Computes the score of the model's position for the player to move. A weak solve only
+   * tells a win from a draw from a loss and returns 1, 0 or -1, which is much faster.
+   *
+   * @param model a non-null Connect Four Model whose game is not over
+   * @param weak true to only find the sign of the score
+   * @return the score of the position
+   * @throws IllegalArgumentException if the model is null, the game is over,
+   *     the board does not fit into a bitboard, or the win length is not 4
+   */
+  public int solve(ConnectFourModel model, boolean weak) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    Position p = Position.of(model);
+    long start = System.nanoTime();
+    search.resetNodeCount();
+    int score = search.solve(p, weak);
+    elapsedNanos = System.nanoTime() - start;
+    return score;
+  }
+
+  /**
+   * Retrieves the number of positions visited by the last search.
+   *
+   * @return the number of nodes searched
+   */
+  public long getNodeCount() {
+    return search.getNodeCount();
+  }
+
+  /**
+   * Retrieves the wall-clock time taken by the last search.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Retrieves the search speed of the last search.
+   *
+   * @return the number of nodes searched per second
+   */
+  public double getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : search.getNodeCount() * 1e9 / elapsedNanos;
+  }
+}
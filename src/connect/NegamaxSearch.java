@@ -0,0 +1,299 @@
+package connect;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The search behind {@link NegamaxConnectFourAI} and {@link ParallelNegamaxConnectFourAI}.
+ * One search runs on one thread and owns its position and move-ordering buffers, while
+ * the transposition table may be shared with searches on other threads. A search can be
+ * given a stop signal or a deadline: once the signal is raised, the deadline passes or the
+ * thread is interrupted, the search unwinds as fast as it can, without storing anything
+ * in the table, and its result must be thrown away. The table
+ * is keyed by {@link Position#canonicalKey()}, since it only holds scores and a position
+ * scores the same as its mirror image.
+ */
+final class NegamaxSearch {
+  private static final int STOP_CHECK_INTERVAL = 1 << 10;
+
+  private final TranspositionTable table;
+  private final int variation;
+  private final AtomicBoolean stop;
+  private Position position;
+  private int rows;
+  private int columns;
+  private int cells;
+  private int lowestScore;
+  private int[] rootOrder;
+  private int[] columnOrder;
+  private long[][] sortedMoves;
+  private int[][] sortedScores;
+  private long nodeCount;
+  private int lastScore;
+  private boolean stopped;
+  private boolean hasDeadline;
+  private long deadline;
+
+  /**
+   * Constructs a search that never stops early and uses the standard move order.
+   *
+   * @param table the transposition table to use
+   */
+  NegamaxSearch(TranspositionTable table) {
+    this(table, 0, null);
+  }
+
+  /**
+   * Constructs a search for use as one of several threads sharing a table.
+   *
+   * @param table the transposition table to use
+   * @param variation how far to rotate the move order, so that threads with different
+   *     variations explore different parts of the tree first
+   * @param stop the signal that stops the search, or {@code null}
+   */
+  NegamaxSearch(TranspositionTable table, int variation, AtomicBoolean stop) {
+    this.table = table;
+    this.variation = variation;
+    this.stop = stop;
+  }
+
+  long getNodeCount() {
+    return nodeCount;
+  }
+
+  void resetNodeCount() {
+    nodeCount = 0;
+  }
+
+  /**
+   * Retrieves the score of the move returned by the last call to {@link #bestMove}.
+   *
+   * @return the score of the best move for the player who makes it
+   */
+  int getLastScore() {
+    return lastScore;
+  }
+
+  /**
+   * Sets the time after which searches stop, as if the stop signal had been raised.
+   *
+   * @param deadline the deadline in {@link System#nanoTime()} units
+   */
+  void setDeadline(long deadline) {
+    this.hasDeadline = true;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Lets searches run until they finish or the stop signal is raised.
+   */
+  void clearDeadline() {
+    this.hasDeadline = false;
+  }
+
+  /**
+   * Checks if the last search was cut short by the stop signal or the deadline.
+   *
+   * @return true if the result of the last search is meaningless
+   */
+  boolean isStopped() {
+    return stopped;
+  }
+
+  /**
+   * Finds the best column for the player to move by solving every child position.
+   * Among moves with equal scores the most central one wins, whatever the variation.
+   *
+   * @param p the position to search, which is left unchanged
+   * @return the best column
+   */
+  int bestMove(Position p) {
+    prepare(p);
+    for (int column : rootOrder) {
+      if (p.canPlay(column) && p.isWinningMove(column)) {
+        lastScore = (cells + 1 - p.getMoves()) / 2;
+        return column;
+      }
+    }
+    int best = -1;
+    int bestScore = Integer.MIN_VALUE;
+    for (int column : rootOrder) {
+      if (p.canPlay(column)) {
+        long move = p.playColumn(column);
+        int score = -solveFromHere(false);
+        p.undo(move);
+        if (stopped) {
+          return best;
+        }
+        if (score > bestScore) {
+          best = column;
+          bestScore = score;
+        }
+      }
+    }
+    lastScore = bestScore;
+    return best;
+  }
+
+  /**
+   * Computes the score of a position, see {@link NegamaxConnectFourAI#solve(ConnectFourModel,
+   * boolean)}.
+   *
+   * @param p the position to search, which is left unchanged
+   * @param weak true to only find the sign of the score
+   * @return the score of the position
+   */
+  int solve(Position p, boolean weak) {
+    prepare(p);
+    return solveFromHere(weak);
+  }
+
+  private int solveFromHere(boolean weak) {
+    Position p = position;
+    if (p.canWinNext()) {
+      return weak ? 1 : (cells + 1 - p.getMoves()) / 2;
+    }
+    int min = -(cells - p.getMoves()) / 2;
+    int max = (cells + 1 - p.getMoves()) / 2;
+    if (weak) {
+      min = -1;
+      max = 1;
+    }
+    // narrow the score range with null-window searches, probing near zero first
+    while (min < max && !stopped) {
+      int med = min + (max - min) / 2;
+      if (med <= 0 && min / 2 < med) {
+        med = min / 2;
+      } else if (med >= 0 && max / 2 > med) {
+        med = max / 2;
+      }
+      int r = negamax(med, med + 1);
+      if (r <= med) {
+        max = r;
+      } else {
+        min = r;
+      }
+    }
+    // a weak search only proves the sign, the magnitude is just a bound
+    return weak ? Integer.signum(min) : min;
+  }
+
+  /**
+   * Searches the current position, which must not allow the player to move an immediate
+   * win. The result is exact when it falls inside (alpha, beta); otherwise it is a bound
+   * on the same side of the window as the exact score.
+   */
+  private int negamax(int alpha, int beta) {
+    Position p = position;
+    if ((++nodeCount & (STOP_CHECK_INTERVAL - 1)) == 0
+        && (stop != null && stop.get() || hasDeadline && System.nanoTime() - deadline > 0
+            || Thread.currentThread().isInterrupted())) {
+      stopped = true;
+    }
+    if (stopped) {
+      return 0;
+    }
+    long next = p.possibleNonLosingMoves();
+    int moves = p.getMoves();
+    if (next == 0) {
+      return -(cells - moves) / 2;
+    }
+    if (moves >= cells - 2) {
+      return 0;
+    }
+    // the opponent cannot win on their next move, which raises the lower bound
+    int min = -(cells - 2 - moves) / 2;
+    if (alpha < min) {
+      alpha = min;
+      if (alpha >= beta) {
+        return alpha;
+      }
+    }
+    // the player to move cannot win on this move, which lowers the upper bound
+    int max = (cells - 1 - moves) / 2;
+    long key = p.canonicalKey();
+    int stored = table.get(key);
+    if (stored != 0) {
+      max = stored + lowestScore;
+    }
+    if (beta > max) {
+      beta = max;
+      if (alpha >= beta) {
+        return beta;
+      }
+    }
+    long[] candidates = sortedMoves[moves];
+    int[] scores = sortedScores[moves];
+    int count = 0;
+    for (int i = columnOrder.length - 1; i >= 0; i--) {
+      long move = next & p.columnMask(columnOrder[i]);
+      if (move != 0) {
+        // insertion sort by score, later insertions win ties so earlier columns come first
+        int score = p.moveScore(move);
+        int pos = count++;
+        while (pos > 0 && scores[pos - 1] > score) {
+          candidates[pos] = candidates[pos - 1];
+          scores[pos] = scores[pos - 1];
+          pos--;
+        }
+        candidates[pos] = move;
+        scores[pos] = score;
+      }
+    }
+    for (int i = count - 1; i >= 0; i--) {
+      long move = candidates[i];
+      p.play(move);
+      int score = -negamax(-beta, -alpha);
+      p.undo(move);
+      if (stopped) {
+        return 0;
+      }
+      if (score >= beta) {
+        return score;
+      }
+      if (score > alpha) {
+        alpha = score;
+      }
+    }
+    table.put(key, alpha - lowestScore);
+    return alpha;
+  }
+
+  /**
+   * Sets up the search state for a position, reallocating buffers when the board size
+   * changes.
+   */
+  private void prepare(Position p) {
+    this.position = p;
+    this.stopped = false;
+    table.ensureBoard(p.getRows(), p.getColumns());
+    if (p.getRows() == rows && p.getColumns() == columns) {
+      return;
+    }
+    rows = p.getRows();
+    columns = p.getColumns();
+    cells = rows * columns;
+    // strictly below any score the search can produce, so stored values are never 0
+    lowestScore = -cells / 2 - 1;
+    rootOrder = columnOrder(columns);
+    columnOrder = new int[columns];
+    for (int i = 0; i < columns; i++) {
+      columnOrder[i] = rootOrder[(i + variation) % columns];
+    }
+    sortedMoves = new long[cells + 1][columns];
+    sortedScores = new int[cells + 1][columns];
+  }
+
+  /**
+   * Orders columns from the center outward, which is where the strongest moves usually are.
+   *
+   * @param columns the number of columns in the game board
+   * @return the column indexes, center first
+   */
+  static int[] columnOrder(int columns) {
+    int[] order = new int[columns];
+    for (int i = 0; i < columns; i++) {
+      order[i] = columns / 2 + (1 - 2 * (i % 2)) * (i + 1) / 2;
+    }
+    return order;
+  }
+}
@@ -0,0 +1,300 @@
+package connect;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A transposition table for depth-limited searches that lives outside the Java heap, so
+ * that tables of several gigabytes add nothing to garbage collection pauses. Entries are
+ * keyed by a 64-bit position hash, such as the Zobrist hash of a {@link GridPosition}, and
+ * hold a score, the kind of bound the score is, the search depth it came from and the
+ * best move found.
+ *
+ * <p>The table is split into buckets of two entries. The first entry of a bucket keeps
+ * the deepest result, which is the most expensive to recompute: it is only replaced by a
+ * result of at least the same depth, or once it is left over from an earlier search. The
+ * second entry always takes whatever the first one rejected, so recent shallow results are
+ * not lost either.
+ *
+ * <p>Several threads can use one table without locks. Every entry is two 64-bit words
+ * written with single atomic accesses: the data and the hash xor the data. Two threads
+ * writing the same entry at once can leave the words of different writes in it, but then
+ * the hash no longer matches and a reader treats the entry as a miss instead of reading a
+ * corrupt score.
+ */
+final class OffHeapTranspositionTable {
+  /** The score is exact. */
+  static final int EXACT = 1;
+  /** The score is a lower bound, the search failed high. */
+  static final int LOWER = 2;
+  /** The score is an upper bound, the search failed low. */
+  static final int UPPER = 3;
+
+  private static final VarHandle WORDS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final int ENTRY_BYTES = 16;
+  private static final int BUCKET_BYTES = 2 * ENTRY_BYTES;
+  private static final int MAX_CHUNK_BYTES = 1 << 30;
+  private static final int OCCUPANCY_SAMPLE = 1 << 16;
+
+  private final ByteBuffer[] chunks;
+  private final int chunkShift;
+  private final long bucketMask;
+  private final int bucketsPerChunkMask;
+  private volatile int generation;
+
+  private final LongAdder probes = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder collisions = new LongAdder();
+  private final LongAdder stores = new LongAdder();
+  private final LongAdder overwrites = new LongAdder();
+
+  /**
+   * Constructs an empty table that takes at most the given number of bytes of native
+   * memory. The number of buckets is rounded down to a power of two.
+   *
+   * @param maxBytes the memory budget in bytes, at least 32
+   * @throws IllegalArgumentException if the budget is too small for one bucket
+   */
+  OffHeapTranspositionTable(long maxBytes) throws IllegalArgumentException {
+    if (maxBytes < BUCKET_BYTES) {
+      throw new IllegalArgumentException("Invalid table size");
+    }
+    long buckets = Long.highestOneBit(maxBytes / BUCKET_BYTES);
+    long bytes = buckets * BUCKET_BYTES;
+    int chunkBytes = (int) Math.min(bytes, MAX_CHUNK_BYTES);
+    this.chunks = new ByteBuffer[(int) (bytes / chunkBytes)];
+    for (int i = 0; i < chunks.length; i++) {
+      chunks[i] = ByteBuffer.allocateDirect(chunkBytes).order(ByteOrder.nativeOrder());
+    }
+    this.bucketMask = buckets - 1;
+    this.bucketsPerChunkMask = chunkBytes / BUCKET_BYTES - 1;
+    this.chunkShift = Integer.numberOfTrailingZeros(chunkBytes / BUCKET_BYTES);
+  }
+
+  /**
+   * Retrieves the number of entries the table can hold.
+   *
+   * @return the number of entries
+   */
+  long capacity() {
+    return (bucketMask + 1) * 2;
+  }
+
+  /**
+   * Retrieves the native memory taken by the table.
+   *
+   * @return the size in bytes
+   */
+  long sizeInBytes() {
+    return (bucketMask + 1) * BUCKET_BYTES;
+  }
+
+  /**
+   * Starts a new search, so that the deep entries of earlier searches may be replaced.
+   */
+  void newSearch() {
+    generation = (generation + 1) & 0x3F;
+  }
+
+  /**
+   * Looks up a position.
+   *
+   * @param hash the hash of the position
+   * @return the packed entry data, or 0 if the position is not in the table; read it with
+   *     {@link #score(long)}, {@link #bound(long)}, {@link #depth(long)} and
+   *     {@link #move(long)}
+   */
+  long probe(long hash) {
+    probes.increment();
+    ByteBuffer chunk = chunk(hash);
+    int offset = offset(hash);
+    boolean occupied = false;
+    for (int e = offset; e < offset + BUCKET_BYTES; e += ENTRY_BYTES) {
+      long data = (long) WORDS.getOpaque(chunk, e + 8);
+      long check = (long) WORDS.getOpaque(chunk, e);
+      if (data != 0) {
+        if ((check ^ data) == hash) {
+          hits.increment();
+          return data;
+        }
+        occupied = true;
+      }
+    }
+    if (occupied) {
+      collisions.increment();
+    }
+    return 0;
+  }
+
+  /**
+   * Stores the result of searching a position.
+   *
+   * @param hash the hash of the position
+   * @param score the score, which must fit into 32 bits
+   * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+   * @param depth the remaining depth that was searched, between 0 and 255
+   * @param move the best column, between 0 and 65534, or -1 if there is none
+   */
+  void store(long hash, int score, int bound, int depth, int move) {
+    stores.increment();
+    ByteBuffer chunk = chunk(hash);
+    int first = offset(hash);
+    int second = first + ENTRY_BYTES;
+    int currentGeneration = generation;
+    long data = pack(score, bound, depth, move, currentGeneration);
+    long deepData = (long) WORDS.getOpaque(chunk, first + 8);
+    long deepHash = (long) WORDS.getOpaque(chunk, first) ^ deepData;
+    int target;
+    if (deepData == 0 || deepHash == hash || depth >= depth(deepData)
+        || generation(deepData) != currentGeneration) {
+      target = first;
+    } else {
+      target = second;
+    }
+    long oldData = (long) WORDS.getOpaque(chunk, target + 8);
+    if (oldData != 0 && ((long) WORDS.getOpaque(chunk, target) ^ oldData) != hash) {
+      overwrites.increment();
+    }
+    WORDS.setOpaque(chunk, target + 8, data);
+    WORDS.setOpaque(chunk, target, hash ^ data);
+  }
+
+  /**
+   * Removes every entry.
+   */
+  void clear() {
+    for (ByteBuffer chunk : chunks) {
+      for (int i = 0; i < chunk.capacity(); i += 8) {
+        WORDS.setOpaque(chunk, i, 0L);
+      }
+    }
+  }
+
+  static int score(long data) {
+    return (int) data;
+  }
+
+  static int bound(long data) {
+    return (int) (data >>> 56) & 0x3;
+  }
+
+  static int depth(long data) {
+    return (int) (data >>> 48) & 0xFF;
+  }
+
+  /**
+   * Unpacks the best move of an entry.
+   *
+   * @param data the data returned by {@link #probe(long)}
+   * @return the best column, or -1 if the entry has none
+   */
+  static int move(long data) {
+    return (int) ((data >>> 32) & 0xFFFF) - 1;
+  }
+
+  private static int generation(long data) {
+    return (int) (data >>> 58);
+  }
+
+  private static long pack(int score, int bound, int depth, int move, int generation) {
+    return (score & 0xFFFFFFFFL)
+        | (long) ((move + 1) & 0xFFFF) << 32
+        | (long) (depth & 0xFF) << 48
+        | (long) (bound & 0x3) << 56
+        | (long) generation << 58;
+  }
+
+  private ByteBuffer chunk(long hash) {
+    return chunks[(int) ((hash & bucketMask) >>> chunkShift)];
+  }
+
+  private int offset(long hash) {
+    return ((int) hash & bucketsPerChunkMask) * BUCKET_BYTES;
+  }
+
+  /**
+   * Retrieves the number of lookups since the statistics were last reset.
+   *
+   * @return the number of probes
+   */
+  long getProbes() {
+    return probes.sum();
+  }
+
+  /**
+   * Retrieves the number of lookups that found their position.
+   *
+   * @return the number of hits
+   */
+  long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Retrieves the number of lookups that missed although their bucket held other
+   * positions, which is how often positions compete for the same bucket.
+   *
+   * @return the number of collisions
+   */
+  long getCollisions() {
+    return collisions.sum();
+  }
+
+  /**
+   * Retrieves the number of stores since the statistics were last reset.
+   *
+   * @return the number of stores
+   */
+  long getStores() {
+    return stores.sum();
+  }
+
+  /**
+   * Retrieves the number of stores that replaced the entry of another position.
+   *
+   * @return the number of overwritten entries
+   */
+  long getOverwrites() {
+    return overwrites.sum();
+  }
+
+  /**
+   * Retrieves the share of lookups that found their position.
+   *
+   * @return the hit rate between 0 and 1
+   */
+  double getHitRate() {
+    long probeCount = probes.sum();
+    return probeCount == 0 ? 0 : (double) hits.sum() / probeCount;
+  }
+
+  /**
+   * Estimates the share of entries in use from the first 65536 entries, which is exact
+   * for tables no larger than that and cheap for tables of any size.
+   *
+   * @return the occupancy between 0 and 1
+   */
+  double getOccupancy() {
+    ByteBuffer chunk = chunks[0];
+    int sample = (int) Math.min(capacity(), OCCUPANCY_SAMPLE);
+    int used = 0;
+    for (int i = 0; i < sample; i++) {
+      if ((long) WORDS.getOpaque(chunk, i * ENTRY_BYTES + 8) != 0) {
+        used++;
+      }
+    }
+    return (double) used / sample;
+  }
+
+  void resetStats() {
+    probes.reset();
+    hits.reset();
+    collisions.reset();
+    stores.reset();
+    overwrites.reset();
+  }
+}
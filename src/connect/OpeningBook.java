@@ -0,0 +1,170 @@
+package connect;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only opening book of solved Connect Four positions, written by
+ * {@link OpeningBookGenerator}. The book file is memory-mapped rather than read onto the
+ * heap, so opening even a large book is instant, and a lookup is a binary search over the
+ * mapped entries that only touches the pages it needs.
+ *
+ * <p>The file starts with a header of the magic number {@code C4BK}, a format version,
+ * the number of rows and columns, the deepest ply in the book and the number of entries.
+ * It is followed by fixed-size entries sorted by position key as an unsigned number. Each
+ * entry holds the 8-byte key of a position, the best column for the player to move and
+ * the score of that move. All numbers are big-endian.
+ */
+public class OpeningBook {
+  static final int MAGIC = 0x4334424B;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final int ENTRY_SIZE = 10;
+
+  private final MappedByteBuffer entries;
+  private final int rows;
+  private final int columns;
+  private final int maxPly;
+  private final int size;
+
+  private OpeningBook(MappedByteBuffer entries, int rows, int columns, int maxPly, int size) {
+    this.entries = entries;
+    this.rows = rows;
+    this.columns = columns;
+    this.maxPly = maxPly;
+    this.size = size;
+  }
+
+  /**
+   * Opens a book file by mapping it into memory.
+   *
+   * @param file the path of the book file
+   * @return the opening book
+   * @throws IOException if the file cannot be read or is not a valid opening book
+   */
+  public static OpeningBook open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length < HEADER_SIZE) {
+        throw new IOException("Not an opening book: " + file);
+      }
+      // the mapping stays valid after the channel is closed
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      buffer.order(ByteOrder.BIG_ENDIAN);
+      if (buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+        throw new IOException("Not an opening book: " + file);
+      }
+      int rows = buffer.get(5);
+      int columns = buffer.get(6);
+      int maxPly = buffer.get(7) & 0xFF;
+      int size = buffer.getInt(8);
+      if (size < 0 || length != HEADER_SIZE + (long) size * ENTRY_SIZE) {
+        throw new IOException("Corrupt opening book: " + file);
+      }
+      return new OpeningBook(buffer, rows, columns, maxPly, size);
+    }
+  }
+
+  /**
+   * Retrieves the number of rows of the board the book was built for.
+   *
+   * @return the number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Retrieves the number of columns of the board the book was built for.
+   *
+   * @return the number of columns
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Retrieves the deepest ply stored in the book, counted in discs on the board.
+   *
+   * @return the deepest ply
+   */
+  public int getMaxPly() {
+    return maxPly;
+  }
+
+  /**
+   * Retrieves the number of positions in the book.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Looks up the best move for the model's position.
+   *
+   * @param model a non-null Connect Four Model
+   * @return the zero-based best column, or -1 if the position is not in the book
+   */
+  public int getMove(ConnectFourModel model) {
+    if (model == null || model.isGameOver() || model.getWinLength() != 4
+        || model.getRows() != rows || model.getColumns() != columns) {
+      return -1;
+    }
+    return getMove(Position.of(model));
+  }
+
+  /**
+   * Looks up the best move for a position of the book's board size.
+   *
+   * @param p the position to look up
+   * @return the zero-based best column, or -1 if the position is not in the book
+   */
+  int getMove(Position p) {
+    if (p.getMoves() > maxPly) {
+      return -1;
+    }
+    int index = find(p.key());
+    return index < 0 ? -1 : entries.get(HEADER_SIZE + index * ENTRY_SIZE + 8);
+  }
+
+  /**
+   * Looks up the score of the best move for a position of the book's board size.
+   *
+   * @param p the position to look up
+   * @return the score, or {@code Integer.MIN_VALUE} if the position is not in the book
+   */
+  int getScore(Position p) {
+    int index = p.getMoves() > maxPly ? -1 : find(p.key());
+    return index < 0 ? Integer.MIN_VALUE : entries.get(HEADER_SIZE + index * ENTRY_SIZE + 9);
+  }
+
+  private int find(long key) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Long.compareUnsigned(entries.getLong(HEADER_SIZE + mid * ENTRY_SIZE), key);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks whether the book holds positions of the given board size.
+   */
+  boolean covers(int rows, int columns) {
+    return this.rows == rows && this.columns == columns;
+  }
+}
@@ -0,0 +1,211 @@
+package connect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds an {@link OpeningBook} offline. The generator enumerates every distinct position
+ * reachable within a given number of plies where the game is still running, solves each
+ * one exactly, and writes the best move and its score to a sorted binary book file.
+ * Positions are solved on several threads that share one transposition table.
+ *
+ * <p>Run it with
+ * {@code java connect.OpeningBookGenerator rows columns maxPly output [threads]}.
+ * Solving the first plies of the standard board takes a long time; that cost is paid
+ * once here instead of in every game.
+ */
+public class OpeningBookGenerator {
+  private static final int TABLE_SIZE = 1 << 24;
+
+  private final int rows;
+  private final int columns;
+  private final int maxPly;
+  private final int threads;
+
+  /**
+   * Constructs a generator for a board size and depth.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @param maxPly the deepest ply to include, counted in discs on the board
+   * @param threads the number of solver threads
+   * @throws IllegalArgumentException if the board does not fit into a bitboard, or the
+   *     ply or number of threads is out of range
+   */
+  public OpeningBookGenerator(int rows, int columns, int maxPly, int threads)
+      throws IllegalArgumentException {
+    if (rows < 4 || columns < 4 || !BitboardConnectFourModel.fits(rows, columns)) {
+      throw new IllegalArgumentException("Invalid rows or columns");
+    }
+    if (maxPly < 0 || maxPly >= rows * columns) {
+      throw new IllegalArgumentException("Invalid ply");
+    }
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Invalid number of threads");
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.maxPly = maxPly;
+    this.threads = threads;
+  }
+
+  /**
+   * Enumerates, solves and writes the book.
+   *
+   * @param output the path of the book file to write
+   * @return the number of positions written
+   * @throws IOException if the file cannot be written
+   * @throws InterruptedException if the thread is interrupted while solving
+   */
+  public int generate(Path output) throws IOException, InterruptedException {
+    long[] keys = enumerate();
+    byte[] moves = new byte[keys.length];
+    byte[] scores = new byte[keys.length];
+    solve(keys, moves, scores);
+    write(output, keys, moves, scores);
+    return keys.length;
+  }
+
+  /**
+   * Collects the keys of all positions up to the maximum ply where nobody has won yet,
+   * sorted as unsigned numbers.
+   */
+  private long[] enumerate() {
+    Set<Long> level = new HashSet<>();
+    level.add(new Position(rows, columns).key());
+    List<Long> all = new ArrayList<>(level);
+    for (int ply = 0; ply < maxPly; ply++) {
+      Set<Long> next = new HashSet<>();
+      for (long key : level) {
+        Position p = Position.fromKey(rows, columns, key);
+        for (int column = 0; column < columns; column++) {
+          if (p.canPlay(column) && !p.isWinningMove(column)) {
+            long move = p.playColumn(column);
+            next.add(p.key());
+            p.undo(move);
+          }
+        }
+      }
+      all.addAll(next);
+      level = next;
+    }
+    long[] keys = new long[all.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = all.get(i);
+    }
+    // flipping the sign bit makes a signed sort order the keys as unsigned numbers
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] ^= Long.MIN_VALUE;
+    }
+    Arrays.sort(keys);
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] ^= Long.MIN_VALUE;
+    }
+    return keys;
+  }
+
+  /**
+   * Solves every position, deepest first so that the shallower and harder positions
+   * find the results of their children in the shared table.
+   */
+  private void solve(long[] keys, byte[] moves, byte[] scores) throws InterruptedException {
+    int[] plies = new int[keys.length];
+    Integer[] order = new Integer[keys.length];
+    for (int i = 0; i < order.length; i++) {
+      plies[i] = Position.fromKey(rows, columns, keys[i]).getMoves();
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Integer.compare(plies[b], plies[a]));
+    TranspositionTable table = new TranspositionTable(TABLE_SIZE);
+    AtomicInteger nextIndex = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        workers.add(executor.submit(() -> {
+          NegamaxSearch search = new NegamaxSearch(table);
+          int i;
+          while ((i = nextIndex.getAndIncrement()) < order.length) {
+            int index = order[i];
+            moves[index] = (byte) search.bestMove(Position.fromKey(rows, columns, keys[index]));
+            scores[index] = (byte) search.getLastScore();
+          }
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void write(Path output, long[] keys, byte[] moves, byte[] scores) throws IOException {
+    try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.BIG_ENDIAN);
+      buffer.putInt(OpeningBook.MAGIC);
+      buffer.put((byte) OpeningBook.VERSION);
+      buffer.put((byte) rows);
+      buffer.put((byte) columns);
+      buffer.put((byte) maxPly);
+      buffer.putInt(keys.length);
+      buffer.putInt(0);
+      for (int i = 0; i < keys.length; i++) {
+        if (buffer.remaining() < OpeningBook.ENTRY_SIZE) {
+          drain(channel, buffer);
+        }
+        buffer.putLong(keys[i]);
+        buffer.put(moves[i]);
+        buffer.put(scores[i]);
+      }
+      drain(channel, buffer);
+    }
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Generates a book from the command line.
+   *
+   * @param args the rows, columns, maximum ply, output path and optional thread count
+   * @throws IOException if the book cannot be written
+   * @throws InterruptedException if the generator is interrupted
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length < 4) {
+      System.err.println("Usage: OpeningBookGenerator rows columns maxPly output [threads]");
+      return;
+    }
+    int threads = args.length > 4
+        ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+    OpeningBookGenerator generator = new OpeningBookGenerator(Integer.parseInt(args[0]),
+        Integer.parseInt(args[1]), Integer.parseInt(args[2]), threads);
+    long start = System.nanoTime();
+    int count = generator.generate(Paths.get(args[3]));
+    System.out.printf("Wrote %d positions in %.1f s%n", count, (System.nanoTime() - start) / 1e9);
+  }
+}
@@ -0,0 +1,497 @@
+package connect;
+
+import java.util.Arrays;
+
+/**
+ * A model representing the game state of Connect Four, for boards far larger than the
+ * standard one. Every cell takes two bits in {@code long} words, 32 cells per word, laid
+ * out column by column from the bottom up, and the height of every column is kept in an
+ * {@code int} array. The words are held in blocks of 16384 cells. A 1000x1000 board
+ * therefore needs about 250 KB instead of the several megabytes of references that a
+ * {@code Player[][]} board costs. Wins are detected the same way as in
+ * {@link ConnectFourModelImpl}, by counting discs outward from the disc just placed, and
+ * the model behaves exactly like it, including connect-N win lengths.
+ *
+ * <p>The columns played are kept on a move stack so that moves can be taken back. The
+ * stack is packed as tightly as the board, with just enough bits per entry for the
+ * largest column index, and it grows with the number of moves rather than the board.
+ * The full columns are kept in a bitset so that the playable columns can be read as a
+ * bitmask.
+ *
+ * <p>A snapshot shares the blocks and the heights of the model. The first write after a
+ * snapshot copies the array of blocks and the heights, and each block is then copied
+ * only when a disc is first placed in it or taken from it, so a snapshot of a huge board
+ * costs as much as the part of the board that changes afterwards.
+ */
+public class PackedConnectFourModel implements ConnectFourModel {
+  private static final int EMPTY = 0;
+  private static final int RED = 1;
+  private static final int YELLOW = 2;
+  // 32 cells of two bits fit in a long
+  private static final int CELLS_PER_WORD_SHIFT = 5;
+  private static final int CELL_INDEX_MASK = (1 << CELLS_PER_WORD_SHIFT) - 1;
+  // 512 words of cells, 4 KiB, are copied at a time after a snapshot
+  private static final int CELLS_PER_BLOCK_SHIFT = 14;
+  private static final int CELL_BLOCK_MASK = (1 << CELLS_PER_BLOCK_SHIFT) - 1;
+  private static final int INITIAL_HISTORY_WORDS = 8;
+
+  private final int rows;
+  private final int columns;
+  private final int winLength;
+  private long[][] cells;
+  private boolean[] ownedBlocks;
+  private int[] heights;
+  private long[] fullColumns;
+  private final int historyBits;
+  private long[] history;
+  private Snapshot snapshot;
+  private final ZobristHashes hashes;
+  private int moves;
+  private Player turn;
+  private Player winner;
+  private boolean gameOver;
+
+  /**
+   * Constructs a new packed model that takes in the number of rows and columns for the
+   * game board.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @throws IllegalArgumentException if the number of rows or columns is less than 4
+   */
+  public PackedConnectFourModel(int rows, int columns) throws IllegalArgumentException {
+    this(rows, columns, 4);
+  }
+
+  /**
+   * Constructs a new packed model for a connect-N variant, where a player needs the
+   * given number of discs in a row to win.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @param winLength the number of discs in a row that wins the game
+   * @throws IllegalArgumentException if the win length is less than 2, the number of
+   *     rows or columns is less than the win length, or the board has more cells than an
+   *     array can index
+   */
+  public PackedConnectFourModel(int rows, int columns, int winLength)
+      throws IllegalArgumentException {
+    if (winLength < 2) {
+      throw new IllegalArgumentException("Invalid win length");
+    }
+    if (rows < winLength || columns < winLength) {
+      throw new IllegalArgumentException("Invalid rows or columns");
+    }
+    if ((long) rows * columns > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Board too large");
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.winLength = winLength;
+    this.historyBits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(columns - 1));
+    this.turn = Player.RED;
+    this.winner = null;
+    this.gameOver = false;
+    this.hashes = new ZobristHashes(rows, columns);
+    this.initializeBoard();
+  }
+
+  @Override
+  public void initializeBoard() {
+    long cellCount = (long) rows * columns;
+    int blocks = (int) ((cellCount + CELL_BLOCK_MASK) >>> CELLS_PER_BLOCK_SHIFT);
+    this.cells = new long[blocks][];
+    for (int b = 0; b < blocks; b++) {
+      this.cells[b] = new long[blockWords(b)];
+    }
+    this.ownedBlocks = new boolean[blocks];
+    Arrays.fill(this.ownedBlocks, true);
+    this.heights = new int[columns];
+    this.fullColumns = new long[(columns + 63) >>> 6];
+    this.history = new long[INITIAL_HISTORY_WORDS];
+    this.snapshot = null;
+    this.hashes.clear();
+    this.moves = 0;
+  }
+
+  @Override
+  public void makeMove(int column) throws IllegalArgumentException {
+    int status = this.tryMove(column);
+    if (status != MoveStatus.OK) {
+      throw new IllegalArgumentException(MoveStatus.message(status));
+    }
+  }
+
+  @Override
+  public int tryMove(int column) {
+    // check if the game is over
+    if (this.gameOver) {
+      return MoveStatus.GAME_OVER;
+    }
+    // check if the column is valid
+    if (column < 0 || column >= columns) {
+      return MoveStatus.INVALID_COLUMN;
+    }
+    // check if the column is full
+    int row = this.heights[column];
+    if (row == rows) {
+      return MoveStatus.COLUMN_FULL;
+    }
+    int player = this.turn == Player.RED ? RED : YELLOW;
+    int index = column * rows + row;
+    long[] block = this.writableBlock(index);
+    block[(index & CELL_BLOCK_MASK) >>> CELLS_PER_WORD_SHIFT] |= (long) player << shift(index);
+    this.hashes.toggle(row, column, this.turn);
+    this.heights[column] = row + 1;
+    if (row + 1 == rows) {
+      this.fullColumns[column >>> 6] |= 1L << column;
+    }
+    this.pushMove(column);
+    // check if the game is over
+    if (this.checkWin(player, row, column)) {
+      this.gameOver = true;
+      this.winner = this.turn;
+    } else if (this.checkDraw()) {
+      this.gameOver = true;
+    } else {
+      this.turn = this.turn == Player.RED ? Player.YELLOW : Player.RED;
+    }
+    return MoveStatus.OK;
+  }
+
+  @Override
+  public void undoMove() throws IllegalArgumentException {
+    if (this.moves == 0) {
+      throw new IllegalArgumentException("No move to undo");
+    }
+    int column = this.readMove(--this.moves);
+    int row = this.heights[column] - 1;
+    int index = column * rows + row;
+    this.hashes.toggle(row, column, toPlayer(cellAt(this.cells, index)));
+    long[] block = this.writableBlock(index);
+    block[(index & CELL_BLOCK_MASK) >>> CELLS_PER_WORD_SHIFT] &= ~(3L << shift(index));
+    this.heights[column] = row;
+    this.fullColumns[column >>> 6] &= ~(1L << column);
+    // a move that ends the game leaves the turn with the player who made it
+    if (this.gameOver) {
+      this.gameOver = false;
+      this.winner = null;
+    } else {
+      this.turn = this.turn == Player.RED ? Player.YELLOW : Player.RED;
+    }
+  }
+
+  /**
+   * Makes sure that a cell can be written without changing an outstanding snapshot.
+   * The first write after a snapshot copies the array of blocks and the heights, and
+   * each block is then copied only when a cell in it is first written.
+   * @param index the index of the cell that is about to change
+   * @return the block that holds the cell, which the model may write
+   */
+  private long[] writableBlock(int index) {
+    if (this.snapshot != null) {
+      this.cells = this.cells.clone();
+      this.heights = this.heights.clone();
+      Arrays.fill(this.ownedBlocks, false);
+      this.snapshot = null;
+    }
+    int b = index >>> CELLS_PER_BLOCK_SHIFT;
+    if (!this.ownedBlocks[b]) {
+      this.cells[b] = this.cells[b].clone();
+      this.ownedBlocks[b] = true;
+    }
+    return this.cells[b];
+  }
+
+  /**
+   * Computes the number of words in a block, which is less for the last block of a board
+   * whose cells do not fill it.
+   */
+  private int blockWords(int block) {
+    long cellCount = (long) rows * columns - ((long) block << CELLS_PER_BLOCK_SHIFT);
+    long blockCells = Math.min(cellCount, 1L << CELLS_PER_BLOCK_SHIFT);
+    return (int) ((blockCells + CELL_INDEX_MASK) >>> CELLS_PER_WORD_SHIFT);
+  }
+
+  /**
+   * Retrieves the hashes of the board that {@link CanonicalKey} reads.
+   *
+   * @return the hashes, kept up to date with every move
+   */
+  ZobristHashes getHashes() {
+    return this.hashes;
+  }
+
+  /**
+   * Records a move on the move stack, which doubles in size whenever it is full. An entry
+   * may straddle two words, so there is always one word to spare after the last entry.
+   */
+  private void pushMove(int column) {
+    long bit = (long) this.moves * historyBits;
+    int word = (int) (bit >>> 6);
+    if (word + 1 >= this.history.length) {
+      this.history = Arrays.copyOf(this.history, this.history.length * 2);
+    }
+    int offset = (int) bit & 63;
+    long mask = (1L << historyBits) - 1;
+    this.history[word] = this.history[word] & ~(mask << offset) | (long) column << offset;
+    if (offset + historyBits > Long.SIZE) {
+      int spill = Long.SIZE - offset;
+      this.history[word + 1] =
+          this.history[word + 1] & ~(mask >>> spill) | (long) column >>> spill;
+    }
+    this.moves++;
+  }
+
+  private int readMove(int move) {
+    long bit = (long) move * historyBits;
+    int word = (int) (bit >>> 6);
+    int offset = (int) bit & 63;
+    long value = this.history[word] >>> offset;
+    if (offset + historyBits > Long.SIZE) {
+      value |= this.history[word + 1] << (Long.SIZE - offset);
+    }
+    return (int) (value & ((1L << historyBits) - 1));
+  }
+
+  private boolean checkDraw() {
+    // every move fills exactly one cell, so the board is full after rows * columns moves
+    return this.moves == rows * columns;
+  }
+
+  /**
+   * Checks if the disc just placed completes a winning run, by following each of the
+   * four lines through it outward in both directions.
+   * @param player the two-bit value of the disc just placed
+   * @param row the row of the disc just placed
+   * @param column the column of the disc just placed
+   * @return true if the current player has won the game, false otherwise
+   */
+  private boolean checkWin(int player, int row, int column) {
+    return checkLine(player, row, column, 0, 1)
+        || checkLine(player, row, column, 1, 0)
+        || checkLine(player, row, column, 1, 1)
+        || checkLine(player, row, column, 1, -1);
+  }
+
+  private boolean checkLine(int player, int row, int column, int rowStep, int columnStep) {
+    int count = 1
+        + countDiscs(player, row, column, rowStep, columnStep)
+        + countDiscs(player, row, column, -rowStep, -columnStep);
+    return count >= winLength;
+  }
+
+  private int countDiscs(int player, int row, int column, int rowStep, int columnStep) {
+    int count = 0;
+    int i = row + rowStep;
+    int j = column + columnStep;
+    while (count < winLength - 1 && i >= 0 && i < rows && j >= 0 && j < columns
+        && cellAt(cells, j * rows + i) == player) {
+      count++;
+      i += rowStep;
+      j += columnStep;
+    }
+    return count;
+  }
+
+  private static int shift(int index) {
+    return (index & CELL_INDEX_MASK) << 1;
+  }
+
+  private static int cellAt(long[][] cells, int index) {
+    long word = cells[index >>> CELLS_PER_BLOCK_SHIFT][(index & CELL_BLOCK_MASK)
+        >>> CELLS_PER_WORD_SHIFT];
+    return (int) (word >>> shift(index)) & 3;
+  }
+
+  private static Player toPlayer(int cell) {
+    if (cell == RED) {
+      return Player.RED;
+    }
+    if (cell == YELLOW) {
+      return Player.YELLOW;
+    }
+    return null;
+  }
+
+  @Override
+  public Player getTurn() {
+    if (this.gameOver) {
+      return null;
+    }
+    return this.turn;
+  }
+
+  @Override
+  public boolean isGameOver() {
+    return this.gameOver;
+  }
+
+  @Override
+  public Player getWinner() {
+    if (this.gameOver) {
+      return this.winner;
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public void resetBoard() {
+    if (this.snapshot != null) {
+      // the snapshot keeps the old board, so start over with fresh storage
+      this.initializeBoard();
+    } else {
+      for (int b = 0; b < this.cells.length; b++) {
+        if (this.ownedBlocks[b]) {
+          Arrays.fill(this.cells[b], 0L);
+        } else {
+          this.cells[b] = new long[blockWords(b)];
+          this.ownedBlocks[b] = true;
+        }
+      }
+      Arrays.fill(this.heights, 0);
+      Arrays.fill(this.fullColumns, 0L);
+      this.hashes.clear();
+      this.moves = 0;
+    }
+    this.turn = Player.RED;
+    this.winner = null;
+    this.gameOver = false;
+  }
+
+  @Override
+  public Player[][] getBoardState() {
+    Player[][] copy = new Player[rows][columns];
+    for (int j = 0; j < columns; j++) {
+      for (int i = 0; i < heights[j]; i++) {
+        copy[i][j] = toPlayer(cellAt(cells, j * rows + i));
+      }
+    }
+    return copy;
+  }
+
+  @Override
+  public int getRows() {
+    return rows;
+  }
+
+  @Override
+  public int getColumns() {
+    return columns;
+  }
+
+  @Override
+  public int getWinLength() {
+    return winLength;
+  }
+
+  @Override
+  public Player getCell(int row, int column) throws IllegalArgumentException {
+    if (row < 0 || row >= rows || column < 0 || column >= columns) {
+      throw new IllegalArgumentException("Invalid row or column");
+    }
+    return toPlayer(cellAt(cells, column * rows + row));
+  }
+
+  @Override
+  public int getColumnHeight(int column) throws IllegalArgumentException {
+    if (column < 0 || column >= columns) {
+      throw new IllegalArgumentException("Invalid column");
+    }
+    return heights[column];
+  }
+
+  @Override
+  public long legalMovesMask() {
+    return legalMovesMask(0);
+  }
+
+  @Override
+  public long legalMovesMask(int firstColumn) throws IllegalArgumentException {
+    if (firstColumn < 0) {
+      throw new IllegalArgumentException("Invalid column");
+    }
+    if (this.gameOver) {
+      return 0L;
+    }
+    return ColumnMasks.playable(fullColumns, columns, firstColumn);
+  }
+
+  @Override
+  public BoardSnapshot getSnapshot() {
+    if (this.snapshot == null) {
+      this.snapshot = new Snapshot(rows, cells, heights);
+    }
+    return this.snapshot;
+  }
+
+  /**
+   * A toString method that returns the current state of the game board.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    int i;
+    int j;
+    for (i = 0; i < rows; i++) {
+      for (j = 0; j < columns; j++) {
+        Player cell = toPlayer(cellAt(cells, j * rows + i));
+        if (cell == null) {
+          sb.append("_");
+        } else {
+          sb.append(cell.getDisplayName());
+        }
+        if (j < columns - 1) {
+          sb.append(" ");
+        }
+      }
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * A snapshot that shares the blocks of packed cells and the heights of the model. The
+   * model stops writing to shared arrays as soon as it hands one out, so the snapshot
+   * never changes.
+   */
+  private static final class Snapshot implements BoardSnapshot {
+    private final int rows;
+    private final long[][] cells;
+    private final int[] heights;
+
+    private Snapshot(int rows, long[][] cells, int[] heights) {
+      this.rows = rows;
+      this.cells = cells;
+      this.heights = heights;
+    }
+
+    @Override
+    public int getRows() {
+      return rows;
+    }
+
+    @Override
+    public int getColumns() {
+      return heights.length;
+    }
+
+    @Override
+    public Player getCell(int row, int column) throws IllegalArgumentException {
+      if (row < 0 || row >= rows || column < 0 || column >= heights.length) {
+        throw new IllegalArgumentException("Invalid row or column");
+      }
+      return toPlayer(cellAt(cells, column * rows + row));
+    }
+
+    @Override
+    public int getColumnHeight(int column) throws IllegalArgumentException {
+      if (column < 0 || column >= heights.length) {
+        throw new IllegalArgumentException("Invalid column");
+      }
+      return heights[column];
+    }
+  }
+
+}
@@ -0,0 +1,234 @@
+package connect;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A computer opponent that solves Connect Four positions on several threads at once.
+ * It uses the Lazy SMP scheme: every thread runs the same exact search as
+ * {@link NegamaxConnectFourAI} on its own copy of the position, all threads share one
+ * lock-free transposition table, and each thread tries moves in a slightly different
+ * order. Threads that explore a subtree first leave results in the table that the other
+ * threads pick up, and the answer of whichever thread finishes first is used, since every
+ * thread computes the exact result. The other threads are then stopped.
+ *
+ * <p>Like {@link NegamaxConnectFourAI}, the opponent can consult an {@link OpeningBook}
+ * before starting the threads.
+ *
+ * <p>The worker threads are daemon threads, so an unclosed opponent does not keep the
+ * program alive, but {@link #close()} releases them right away.
+ */
+public class ParallelNegamaxConnectFourAI implements ConnectFourAI, AutoCloseable {
+  private static final int DEFAULT_TABLE_SIZE = 1 << 23;
+
+  private final NegamaxSearch[] searches;
+  private final AtomicBoolean stop;
+  private final ExecutorService executor;
+  private final OpeningBook book;
+  private long nodeCount;
+  private long elapsedNanos;
+
+  /**
+   * Constructs a new opponent that searches on the given number of threads, sharing a
+   * transposition table of about 8 million entries.
+   *
+   * @param threads the number of search threads
+   * @throws IllegalArgumentException if the number of threads is not positive
+   */
+  public ParallelNegamaxConnectFourAI(int threads) throws IllegalArgumentException {
+    this(threads, DEFAULT_TABLE_SIZE);
+  }
+
+  /**
+   * Constructs a new opponent that searches on the given number of threads, sharing a
+   * transposition table of the given number of entries. Each entry takes 8 bytes.
+   *
+   * @param threads the number of search threads
+   * @param tableSize the minimum number of transposition table entries
+   * @throws IllegalArgumentException if the number of threads or the table size is not
+   *     positive
+   */
+  public ParallelNegamaxConnectFourAI(int threads, int tableSize)
+      throws IllegalArgumentException {
+    this(threads, tableSize, null);
+  }
+
+  /**
+   * Constructs a new opponent that searches on the given number of threads, sharing a
+   * transposition table of the given number of entries, and looks positions up in an
+   * opening book before searching them.
+   *
+   * @param threads the number of search threads
+   * @param tableSize the minimum number of transposition table entries
+   * @param book the opening book to consult, or {@code null} for none
+   * @throws IllegalArgumentException if the number of threads or the table size is not
+   *     positive
+   */
+  public ParallelNegamaxConnectFourAI(int threads, int tableSize, OpeningBook book)
+      throws IllegalArgumentException {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Invalid number of threads");
+    }
+    TranspositionTable table = new TranspositionTable(tableSize);
+    this.stop = new AtomicBoolean();
+    this.searches = new NegamaxSearch[threads];
+    for (int i = 0; i < threads; i++) {
+      this.searches[i] = new NegamaxSearch(table, i, stop);
+    }
+    this.executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "connect-four-search");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.book = book;
+  }
+
+  @Override
+  public synchronized int chooseMove(ConnectFourModel model) throws IllegalArgumentException {
+    if (book != null && model != null && book.covers(model.getRows(), model.getColumns())) {
+      long start = System.nanoTime();
+      int move = book.getMove(model);
+      if (move >= 0) {
+        elapsedNanos = System.nanoTime() - start;
+        nodeCount = 0;
+        return move;
+      }
+    }
+    return run(model, NegamaxSearch::bestMove);
+  }
+
+  /**
+   * Computes the exact score of the model's position for the player to move, see
+   * {@link NegamaxConnectFourAI#solve(ConnectFourModel)}.
+   *
+   * @param model a non-null Connect Four Model whose game is not over
+   * @return the score of the position
+   * @throws IllegalArgumentException if the model is null, the game is over,
+   *     the board does not fit into a bitboard, or the win length is not 4
+   */
+  public synchronized int solve(ConnectFourModel model) throws IllegalArgumentException {
+    return run(model, (search, p) -> search.solve(p, false));
+  }
+
+  /**
+   * Computes the score of the model's position for the player to move, see
+   * {@link NegamaxConnectFourAI#solve(ConnectFourModel, boolean)}.
+   *
+   * @param model a non-null Connect Four Model whose game is not over
+   * @param weak true to only find the sign of the score
+   * @return the score of the position
+   * @throws IllegalArgumentException if the model is null, the game is over,
+   *     the board does not fit into a bitboard, or the win length is not 4
+   */
+  public synchronized int solve(ConnectFourModel model, boolean weak)
+      throws IllegalArgumentException {
+    return run(model, (search, p) -> search.solve(p, weak));
+  }
+
+  /**
+   * Retrieves the number of search threads.
+   *
+   * @return the number of threads
+   */
+  public int getThreadCount() {
+    return searches.length;
+  }
+
+  /**
+   * Retrieves the number of positions visited by the last search, over all threads.
+   *
+   * @return the number of nodes searched
+   */
+  public synchronized long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Retrieves the wall-clock time taken by the last search.
+   *
+   * @return the time in nanoseconds
+   */
+  public synchronized long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Retrieves the search speed of the last search, over all threads.
+   *
+   * @return the number of nodes searched per second
+   */
+  public synchronized double getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : nodeCount * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Stops the search threads. The opponent cannot be used afterwards.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Runs the same search on every thread and returns the result of the first thread
+   * that finishes, after all other threads have stopped.
+   */
+  private int run(ConnectFourModel model, ToIntBiFunction<NegamaxSearch, Position> task)
+      throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    Position root = Position.of(model);
+    long start = System.nanoTime();
+    stop.set(false);
+    CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+    for (NegamaxSearch search : searches) {
+      Position p = root.copy();
+      completion.submit(() -> {
+        search.resetNodeCount();
+        return task.applyAsInt(search, p);
+      });
+    }
+    Integer result = null;
+    RuntimeException failure = null;
+    boolean interrupted = false;
+    for (int i = 0; i < searches.length; i++) {
+      try {
+        int value = completion.take().get();
+        if (result == null) {
+          // the first thread to finish was never stopped, so its result is exact
+          result = value;
+          stop.set(true);
+        }
+      } catch (ExecutionException e) {
+        stop.set(true);
+        if (failure == null) {
+          failure = e.getCause() instanceof RuntimeException
+              ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+      } catch (InterruptedException e) {
+        // keep waiting so that no thread is still searching when this method returns
+        stop.set(true);
+        interrupted = true;
+        i--;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    elapsedNanos = System.nanoTime() - start;
+    nodeCount = 0;
+    for (NegamaxSearch search : searches) {
+      nodeCount += search.getNodeCount();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,351 @@
+package connect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * A headless position enumerator in the style of chess perft. Starting from a position,
+ * it plays every legal continuation up to a given depth through the
+ * {@link ConnectFourModel} interface, and counts the positions reached at every depth
+ * along with how many of them end in a win or a draw. Games that are over are not
+ * continued. Since the counts only depend on the rules, they are a cheap way to check a
+ * new model implementation against {@link ConnectFourModelImpl}, and the number of moves
+ * played per second makes the same run a throughput benchmark.
+ *
+ * <p>The work is split by first move, with one task per legal column on a pool of
+ * threads. Optionally, transpositions are removed: a position reached again by another
+ * move order, which is recognized by its Zobrist hash in a concurrent set per depth, is
+ * neither counted nor continued, so the counts become the number of distinct positions.
+ *
+ * <p>Models are created by a factory, one per task. A task walks its part of the tree
+ * depth first on its model, making a move to enter a position and taking it back with
+ * {@link ConnectFourModel#undoMove()} to leave it, so no position allocates anything.
+ */
+public class Perft {
+  private final Supplier<? extends ConnectFourModel> factory;
+  private final int threads;
+
+  /**
+   * Constructs an enumerator for the models created by a factory.
+   *
+   * @param factory creates new models with an empty board, all of the same size
+   * @param threads the number of threads to enumerate on
+   * @throws IllegalArgumentException if the factory is null or the number of threads is
+   *     not positive
+   */
+  public Perft(Supplier<? extends ConnectFourModel> factory, int threads)
+      throws IllegalArgumentException {
+    if (factory == null) {
+      throw new IllegalArgumentException("Factory cannot be null");
+    }
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Invalid number of threads");
+    }
+    this.factory = factory;
+    this.threads = threads;
+  }
+
+  /**
+   * Enumerates all continuations of a position.
+   *
+   * @param start the zero-based columns played from the empty board to reach the start
+   *     position
+   * @param depth the number of moves to look ahead
+   * @param dedupe true to count every distinct position once
+   * @return the counts for every depth from 0 to the given depth
+   * @throws IllegalArgumentException if the depth is negative or the start moves are not
+   *     legal
+   */
+  public Result run(int[] start, int depth, boolean dedupe) throws IllegalArgumentException {
+    if (depth < 0) {
+      throw new IllegalArgumentException("Invalid depth");
+    }
+    long begin = System.nanoTime();
+    ConnectFourModel root = replay(start);
+    Counts total = new Counts(depth);
+    List<Set<Long>> seen = new ArrayList<>();
+    for (int i = 0; i <= depth; i++) {
+      seen.add(dedupe ? ConcurrentHashMap.newKeySet() : null);
+    }
+    total.moves = start.length;
+    total.count(root, 0);
+    if (!root.isGameOver() && depth > 0) {
+      long rootHash = hash(root);
+      List<Integer> firstMoves = new ArrayList<>();
+      for (int column = 0; column < root.getColumns(); column++) {
+        if (root.getColumnHeight(column) < root.getRows()) {
+          firstMoves.add(column);
+        }
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+        Thread thread = new Thread(r, "connect-four-perft");
+        thread.setDaemon(true);
+        return thread;
+      });
+      try {
+        List<Future<Counts>> tasks = new ArrayList<>();
+        for (int column : firstMoves) {
+          long hash = rootHash ^ discKey(root, column);
+          tasks.add(executor.submit(() -> {
+            Counts counts = new Counts(depth);
+            ConnectFourModel model = replay(start);
+            counts.moves += start.length;
+            visit(model, column, 1, depth, hash, seen, counts);
+            return counts;
+          }));
+        }
+        for (Future<Counts> task : tasks) {
+          total.add(task.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted", e);
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof RuntimeException
+            ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    return new Result(total, System.nanoTime() - begin);
+  }
+
+  /**
+   * Plays a move, counts the position it leads to, enumerates the continuations and
+   * takes the move back.
+   */
+  private void visit(ConnectFourModel model, int column, int ply, int depth, long hash,
+                     List<Set<Long>> seen, Counts counts) {
+    Set<Long> seenAtPly = seen.get(ply);
+    if (seenAtPly != null && !seenAtPly.add(hash)) {
+      return;
+    }
+    model.makeMove(column);
+    counts.moves++;
+    counts.count(model, ply);
+    if (ply < depth) {
+      // the mask is empty once the game is over
+      for (int first = 0; first < model.getColumns(); first += Long.SIZE) {
+        long legal = model.legalMovesMask(first);
+        while (legal != 0) {
+          int next = first + Long.numberOfTrailingZeros(legal);
+          legal &= legal - 1;
+          visit(model, next, ply + 1, depth, hash ^ discKey(model, next), seen, counts);
+        }
+      }
+    }
+    model.undoMove();
+  }
+
+  private ConnectFourModel replay(int[] start) {
+    ConnectFourModel model = factory.get();
+    for (int column : start) {
+      model.makeMove(column);
+    }
+    return model;
+  }
+
+  /**
+   * Computes the Zobrist hash of a model's discs, the same way {@link GridPosition} does.
+   */
+  private static long hash(ConnectFourModel model) {
+    long hash = 0;
+    for (int j = 0; j < model.getColumns(); j++) {
+      for (int i = 0; i < model.getColumnHeight(j); i++) {
+        hash ^= GridPosition.zobristKey(j * model.getRows() + i,
+            model.getCell(i, j) == Player.RED ? 1 : 2);
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Computes the Zobrist key of the disc the player to move would drop into a column.
+   */
+  private static long discKey(ConnectFourModel model, int column) {
+    int cell = column * model.getRows() + model.getColumnHeight(column);
+    return GridPosition.zobristKey(cell, model.getTurn() == Player.RED ? 1 : 2);
+  }
+
+  /**
+   * The counts of one task, which are added up when all tasks are done.
+   */
+  private static final class Counts {
+    private final long[] positions;
+    private final long[] wins;
+    private final long[] draws;
+    private long moves;
+
+    private Counts(int depth) {
+      positions = new long[depth + 1];
+      wins = new long[depth + 1];
+      draws = new long[depth + 1];
+    }
+
+    private void count(ConnectFourModel model, int ply) {
+      positions[ply]++;
+      if (model.isGameOver()) {
+        if (model.getWinner() != null) {
+          wins[ply]++;
+        } else {
+          draws[ply]++;
+        }
+      }
+    }
+
+    private void add(Counts other) {
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] += other.positions[i];
+        wins[i] += other.wins[i];
+        draws[i] += other.draws[i];
+      }
+      moves += other.moves;
+    }
+  }
+
+  /**
+   * The counts of an enumeration, by depth from the start position.
+   */
+  public static final class Result {
+    private final long[] positions;
+    private final long[] wins;
+    private final long[] draws;
+    private final long moves;
+    private final long elapsedNanos;
+
+    private Result(Counts counts, long elapsedNanos) {
+      this.positions = counts.positions;
+      this.wins = counts.wins;
+      this.draws = counts.draws;
+      this.moves = counts.moves;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Retrieves the deepest depth of the enumeration.
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+      return positions.length - 1;
+    }
+
+    /**
+     * Retrieves the number of positions reached after a number of moves, including
+     * positions where the game just ended. At the full depth these are the leaves.
+     *
+     * @param ply the number of moves after the start position
+     * @return the number of positions
+     */
+    public long getPositions(int ply) {
+      return positions[ply];
+    }
+
+    /**
+     * Retrieves the number of positions after a number of moves where the last move won.
+     *
+     * @param ply the number of moves after the start position
+     * @return the number of wins
+     */
+    public long getWins(int ply) {
+      return wins[ply];
+    }
+
+    /**
+     * Retrieves the number of positions after a number of moves where the last move
+     * filled the board without a winner.
+     *
+     * @param ply the number of moves after the start position
+     * @return the number of draws
+     */
+    public long getDraws(int ply) {
+      return draws[ply];
+    }
+
+    /**
+     * Retrieves the number of moves played on models, including the start moves that
+     * every task plays on its own model.
+     *
+     * @return the number of moves
+     */
+    public long getMoves() {
+      return moves;
+    }
+
+    /**
+     * Retrieves the wall-clock time of the enumeration.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * Retrieves the throughput of the enumeration over all threads.
+     *
+     * @return the number of moves played per second
+     */
+    public double getMovesPerSecond() {
+      return elapsedNanos == 0 ? 0 : moves * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(String.format("%5s %15s %12s %12s%n", "ply", "positions", "wins", "draws"));
+      for (int i = 0; i < positions.length; i++) {
+        sb.append(String.format("%5d %15d %12d %12d%n", i, positions[i], wins[i], draws[i]));
+      }
+      sb.append(String.format("%d moves in %.2f s, %.0f moves/s%n",
+          moves, elapsedNanos / 1e9, getMovesPerSecond()));
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Runs an enumeration from the command line and prints the counts.
+   *
+   * @param args the rows, columns and depth, then optionally the number of threads,
+   *     "dedupe" to count distinct positions, "bitboard" to enumerate with
+   *     {@link BitboardConnectFourModel}, and the start moves as one-based digits
+   */
+  public static void main(String[] args) {
+    if (args.length < 3) {
+      System.err.println(
+          "Usage: Perft rows columns depth [threads] [dedupe] [bitboard] [start moves]");
+      return;
+    }
+    int rows = Integer.parseInt(args[0]);
+    int columns = Integer.parseInt(args[1]);
+    int depth = Integer.parseInt(args[2]);
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean dedupe = false;
+    boolean bitboard = false;
+    int[] start = new int[0];
+    for (int i = 3; i < args.length; i++) {
+      if (args[i].equals("dedupe")) {
+        dedupe = true;
+      } else if (args[i].equals("bitboard")) {
+        bitboard = true;
+      } else if (i == 3) {
+        threads = Integer.parseInt(args[i]);
+      } else {
+        start = args[i].chars().map(c -> c - '1').toArray();
+      }
+    }
+    Supplier<ConnectFourModel> factory = bitboard
+        ? () -> new BitboardConnectFourModel(rows, columns)
+        : () -> new ConnectFourModelImpl(rows, columns);
+    System.out.print(new Perft(factory, threads).run(start, depth, dedupe));
+    System.out.println("start " + Arrays.toString(start));
+  }
+}
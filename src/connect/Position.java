@@ -0,0 +1,287 @@
+package connect;
+
+/**
+ * A compact Connect Four position used by the search engines. It uses the same bitboard
+ * layout as {@link BitboardConnectFourModel}, but stores the discs of the player to move
+ * and a mask of all occupied cells, so that playing a move is two bit operations and can
+ * be undone just as cheaply. A position never reports a win itself: callers check
+ * {@link #isWinningMove(int)} before playing, which is how the search uses it.
+ */
+final class Position {
+  private final int rows;
+  private final int columns;
+  private final int height;
+  private final long bottomMask;
+  private final long boardMask;
+  private long current;
+  private long mask;
+  private int moves;
+
+  /**
+   * Constructs an empty position.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @throws IllegalArgumentException if the board does not fit into a bitboard
+   */
+  Position(int rows, int columns) throws IllegalArgumentException {
+    if (!BitboardConnectFourModel.fits(rows, columns)) {
+      throw new IllegalArgumentException("Board too large for a bitboard");
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.height = rows + 1;
+    this.bottomMask = BitboardConnectFourModel.bottomMask(rows, columns);
+    this.boardMask = this.bottomMask * ((1L << rows) - 1);
+  }
+
+  /**
+   * Copies a position, so that another search can play moves on it independently.
+   *
+   * @return a new position equal to this one
+   */
+  Position copy() {
+    Position copy = new Position(rows, columns);
+    copy.current = current;
+    copy.mask = mask;
+    copy.moves = moves;
+    return copy;
+  }
+
+  /**
+   * Rebuilds a position from its key. Once the bottom cells are added back to the key, the
+   * highest set bit of every column sits just above the column's top disc, and everything
+   * below it is occupied.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @param key a key returned by {@link #key()}
+   * @return the position with that key
+   */
+  static Position fromKey(int rows, int columns, long key) {
+    Position position = new Position(rows, columns);
+    long marked = key + position.bottomMask;
+    for (int j = 0; j < columns; j++) {
+      long column = (marked >>> (j * position.height)) & ((1L << position.height) - 1);
+      long occupied = Long.highestOneBit(column) - 1;
+      position.mask |= occupied << (j * position.height);
+      position.moves += Long.bitCount(occupied);
+    }
+    position.current = key - position.mask;
+    return position;
+  }
+
+  /**
+   * Reads the position of a model through its cell accessors.
+   *
+   * @param model the model to read
+   * @return the position on the model's board, with the player to move as current player
+   * @throws IllegalArgumentException if the game is over, the board is too large or the
+   *     game is not won with four in a row
+   */
+  static Position of(ConnectFourModel model) throws IllegalArgumentException {
+    if (model.isGameOver()) {
+      throw new IllegalArgumentException("Game over");
+    }
+    if (model.getWinLength() != 4) {
+      throw new IllegalArgumentException("Win length must be 4");
+    }
+    Position position = new Position(model.getRows(), model.getColumns());
+    Player turn = model.getTurn();
+    for (int j = 0; j < position.columns; j++) {
+      int columnHeight = model.getColumnHeight(j);
+      for (int i = 0; i < columnHeight; i++) {
+        long bit = 1L << (i + j * position.height);
+        position.mask |= bit;
+        if (model.getCell(i, j) == turn) {
+          position.current |= bit;
+        }
+      }
+      position.moves += columnHeight;
+    }
+    return position;
+  }
+
+  int getRows() {
+    return rows;
+  }
+
+  int getColumns() {
+    return columns;
+  }
+
+  int getMoves() {
+    return moves;
+  }
+
+  /**
+   * Retrieves a key that identifies the position uniquely. Adding the mask to the current
+   * player's discs sets one extra bit just above the top disc of every column.
+   *
+   * @return the key of the position
+   */
+  long key() {
+    return current + mask;
+  }
+
+  /**
+   * Retrieves a key that the position shares with its mirror image and with no other
+   * position: the smaller of {@link #key()} and the key of the board mirrored left to
+   * right. The mirrored key is the key with its columns in reverse order, which takes a
+   * shift and a mask per column, so tables keyed by it hold one entry for both
+   * orientations without the position tracking a second board.
+   *
+   * @return the canonical key of the position
+   */
+  long canonicalKey() {
+    long key = current + mask;
+    long column = (1L << height) - 1;
+    long mirrored = 0;
+    for (int j = 0, k = columns - 1; j < columns; j++, k--) {
+      mirrored |= ((key >>> (j * height)) & column) << (k * height);
+    }
+    return Long.compareUnsigned(key, mirrored) <= 0 ? key : mirrored;
+  }
+
+  boolean canPlay(int column) {
+    return (mask & topMask(column)) == 0;
+  }
+
+  /**
+   * Plays a move given as a bitboard with the single landing cell set.
+   *
+   * @param move the cell to play
+   */
+  void play(long move) {
+    current ^= mask;
+    mask |= move;
+    moves++;
+  }
+
+  /**
+   * Takes back a move that was just played with {@link #play(long)}.
+   *
+   * @param move the cell that was played
+   */
+  void undo(long move) {
+    mask ^= move;
+    current ^= mask;
+    moves--;
+  }
+
+  /**
+   * Plays a disc in a column that is not full.
+   *
+   * @param column the column to play
+   * @return the cell that was played, for {@link #undo(long)}
+   */
+  long playColumn(int column) {
+    long move = (mask + bottomMask(column)) & columnMask(column);
+    play(move);
+    return move;
+  }
+
+  /**
+   * Checks if the player to move wins by playing a column that is not full.
+   *
+   * @param column the column to check
+   * @return true if playing the column wins the game
+   */
+  boolean isWinningMove(int column) {
+    return (winningPositions() & possible() & columnMask(column)) != 0;
+  }
+
+  /**
+   * Checks if the player to move can win with their next move.
+   *
+   * @return true if one of the playable cells wins the game
+   */
+  boolean canWinNext() {
+    return (winningPositions() & possible()) != 0;
+  }
+
+  /**
+   * Retrieves the playable cells that do not hand the opponent an immediate win.
+   * If the opponent threatens two cells at once, every move loses and the result is 0.
+   *
+   * @return a bitboard of the moves worth searching
+   */
+  long possibleNonLosingMoves() {
+    long possible = possible();
+    long opponentWin = opponentWinningPositions();
+    long forced = possible & opponentWin;
+    if (forced != 0) {
+      if ((forced & (forced - 1)) != 0) {
+        return 0;
+      }
+      possible = forced;
+    }
+    // never play directly below a cell the opponent would win on
+    return possible & ~(opponentWin >>> 1);
+  }
+
+  /**
+   * Scores a move by the number of winning cells it creates for the player to move,
+   * which is a good guess at how strong the move is.
+   *
+   * @param move the cell to play
+   * @return the number of open winning cells after the move
+   */
+  int moveScore(long move) {
+    return Long.bitCount(computeWinningPositions(current | move, mask));
+  }
+
+  long possible() {
+    return (mask + bottomMask) & boardMask;
+  }
+
+  long columnMask(int column) {
+    return ((1L << rows) - 1) << (column * height);
+  }
+
+  private long bottomMask(int column) {
+    return 1L << (column * height);
+  }
+
+  private long topMask(int column) {
+    return 1L << (rows - 1 + column * height);
+  }
+
+  private long winningPositions() {
+    return computeWinningPositions(current, mask);
+  }
+
+  private long opponentWinningPositions() {
+    return computeWinningPositions(current ^ mask, mask);
+  }
+
+  /**
+   * Computes the empty cells that would complete four in a row for a player.
+   *
+   * @param position the player's discs
+   * @param mask all occupied cells
+   * @return a bitboard of the empty cells where the player would win
+   */
+  private long computeWinningPositions(long position, long mask) {
+    // vertical
+    long r = (position << 1) & (position << 2) & (position << 3);
+    r |= alignedEnds(position, height);
+    r |= alignedEnds(position, height - 1);
+    r |= alignedEnds(position, height + 1);
+    return r & (boardMask ^ mask);
+  }
+
+  /**
+   * Finds the cells that complete three discs along a direction, either at one end of the
+   * line or in a gap inside it.
+   */
+  private static long alignedEnds(long position, int shift) {
+    long p = (position << shift) & (position << (2 * shift));
+    long r = p & (position << (3 * shift));
+    r |= p & (position >>> shift);
+    p = (position >>> shift) & (position >>> (2 * shift));
+    r |= p & (position << shift);
+    r |= p & (position >>> (3 * shift));
+    return r;
+  }
+}
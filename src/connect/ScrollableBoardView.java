@@ -0,0 +1,536 @@
+package connect;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import javax.swing.JComponent;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+/**
+ * A board view for boards far too large to show whole, meant to be put in a
+ * {@link JScrollPane}. It scrolls with the scroll bars, the mouse wheel or by dragging the
+ * board, zooms around the mouse pointer when the wheel turns with Ctrl held down, and
+ * reports the column of a click that is not a drag to the column listener.
+ *
+ * <p>The view keeps no copy of the board: it paints straight from the snapshot of the model
+ * it was last given, and it only ever looks at the cells inside the clip, which the scroll
+ * pane limits to the visible part of the board. Empty cells are painted a block of cells at
+ * a time from one cached image, and discs are only looked up below the height of each
+ * visible column, so a frame costs about as much as the discs on screen however large the
+ * board is. The only memory the view uses is a few images for the current cell size, so a
+ * board of 2000 by 2000 cells takes no more than a standard one. When cells get too small
+ * to show a disc, each one is a square of color, and the pixels are written straight into
+ * a cached image one tile at a time rather than drawn cell by cell.
+ *
+ * <p>Like every Swing component it must only be used on the event dispatch thread.
+ */
+public class ScrollableBoardView extends JComponent implements Scrollable {
+  private static final long serialVersionUID = 1L;
+  private static final int DEFAULT_CELL = 24;
+  private static final int MIN_CELL = 1;
+  private static final int MAX_CELL = 128;
+  // below this size a disc is drawn as a square
+  private static final int SMALL_CELL = 4;
+  // the cached image of empty cells is about this many pixels wide and high
+  private static final int TILE_PIXELS = 512;
+  // the largest width or height of the whole board in pixels
+  private static final int MAX_EXTENT = 1 << 24;
+  private static final int MAX_VIEWPORT_WIDTH = 1200;
+  private static final int MAX_VIEWPORT_HEIGHT = 800;
+  private static final int DRAG_THRESHOLD = 4;
+  private static final double ZOOM_STEP = 1.25;
+  private static final Color BOARD = new Color(0x1E, 0x4F, 0xC8);
+  private static final Color EMPTY = Color.WHITE;
+  private static final Color[] DISCS = {Color.RED, Color.YELLOW};
+
+  private BoardSnapshot board;
+  private int cellSize = DEFAULT_CELL;
+  private IntConsumer columnListener = column -> { };
+  private final BufferedImage[] discImages = new BufferedImage[DISCS.length];
+  private BufferedImage emptyTile;
+  private BufferedImage pixelTile;
+  private int tileCells;
+  private int imageSize;
+  private Point pressedOnScreen;
+  private Point pressedViewPosition;
+  private boolean dragging;
+
+  /**
+   * Constructs a view of an empty board.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   * @throws IllegalArgumentException if the number of rows or columns is not positive
+   */
+  public ScrollableBoardView(int rows, int columns) throws IllegalArgumentException {
+    this(new EmptyBoard(rows, columns));
+  }
+
+  /**
+   * Constructs a view of a board.
+   *
+   * @param board the snapshot of the board to show
+   * @throws IllegalArgumentException if the snapshot is null
+   */
+  public ScrollableBoardView(BoardSnapshot board) throws IllegalArgumentException {
+    if (board == null) {
+      throw new IllegalArgumentException("Board can't be null");
+    }
+    this.board = board;
+    this.cellSize = clampCell(DEFAULT_CELL);
+    setOpaque(true);
+    MouseAdapter mouse = new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        pressedOnScreen = e.getLocationOnScreen();
+        JViewport viewport = getViewport();
+        pressedViewPosition = viewport == null ? null : viewport.getViewPosition();
+        dragging = false;
+      }
+
+      @Override
+      public void mouseDragged(MouseEvent e) {
+        drag(e.getLocationOnScreen());
+      }
+
+      @Override
+      public void mouseReleased(MouseEvent e) {
+        if (pressedOnScreen != null && !dragging) {
+          int column = columnAt(e.getX());
+          if (column >= 0) {
+            columnListener.accept(column);
+          }
+        }
+        pressedOnScreen = null;
+        dragging = false;
+      }
+
+      @Override
+      public void mouseWheelMoved(MouseWheelEvent e) {
+        if (e.isControlDown()) {
+          double factor = Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation());
+          zoom((int) Math.round(cellSize * factor), e.getPoint());
+        } else {
+          // a listener on the view keeps the scroll pane from seeing the wheel
+          Container scrollPane = SwingUtilities.getAncestorOfClass(JScrollPane.class,
+              ScrollableBoardView.this);
+          if (scrollPane != null) {
+            scrollPane.dispatchEvent(
+                SwingUtilities.convertMouseEvent(ScrollableBoardView.this, e, scrollPane));
+          }
+        }
+      }
+    };
+    addMouseListener(mouse);
+    addMouseMotionListener(mouse);
+    addMouseWheelListener(mouse);
+  }
+
+  /**
+   * Retrieves the snapshot the view shows.
+   *
+   * @return the snapshot of the board
+   */
+  public BoardSnapshot getBoard() {
+    return board;
+  }
+
+  /**
+   * Shows another snapshot of the board. Only the visible part of the board is painted
+   * again, so the cost does not depend on the size of the board.
+   *
+   * @param board the snapshot to show
+   * @throws IllegalArgumentException if the snapshot is null
+   */
+  public void setBoard(BoardSnapshot board) throws IllegalArgumentException {
+    if (board == null) {
+      throw new IllegalArgumentException("Board can't be null");
+    }
+    boolean resized = board.getRows() != this.board.getRows()
+        || board.getColumns() != this.board.getColumns();
+    this.board = board;
+    if (resized) {
+      this.cellSize = clampCell(cellSize);
+      revalidate();
+    }
+    repaint();
+  }
+
+  /**
+   * Shows an empty board of the same size.
+   */
+  public void clear() {
+    setBoard(new EmptyBoard(board.getRows(), board.getColumns()));
+  }
+
+  /**
+   * Sets the listener told about the column of every cell the user clicks.
+   *
+   * @param listener the listener, which receives the zero-based column
+   */
+  public void setColumnListener(IntConsumer listener) {
+    this.columnListener = listener == null ? column -> { } : listener;
+  }
+
+  /**
+   * Retrieves the size of a cell in pixels.
+   *
+   * @return the side of a cell
+   */
+  public int getCellSize() {
+    return cellSize;
+  }
+
+  /**
+   * Zooms the board to another cell size, keeping the middle of the visible part of the
+   * board in place.
+   *
+   * @param cellSize the side of a cell in pixels, which is kept between 1 and 128 and small
+   *     enough for the whole board to stay addressable
+   */
+  public void setCellSize(int cellSize) {
+    Rectangle visible = getVisibleRect();
+    zoom(cellSize, new Point(visible.x + visible.width / 2, visible.y + visible.height / 2));
+  }
+
+  /**
+   * Zooms the board to another cell size, keeping the point of the board under a position
+   * in the component at the same place in the viewport.
+   *
+   * @param cellSize the side of a cell in pixels, kept within the same bounds as by
+   *     {@link #setCellSize(int)}
+   * @param anchor the position in the component that stays put
+   */
+  public void zoom(int cellSize, Point anchor) {
+    int cell = clampCell(cellSize);
+    if (cell == this.cellSize) {
+      return;
+    }
+    double boardX = (anchor.x - originX(this.cellSize)) / (double) this.cellSize;
+    double boardY = (anchor.y - originY(this.cellSize)) / (double) this.cellSize;
+    this.cellSize = cell;
+    JViewport viewport = getViewport();
+    if (viewport != null) {
+      Point view = viewport.getViewPosition();
+      Dimension extent = viewport.getExtentSize();
+      Dimension preferred = getPreferredSize();
+      Dimension size = new Dimension(Math.max(preferred.width, extent.width),
+          Math.max(preferred.height, extent.height));
+      viewport.setViewSize(size);
+      int x = (int) Math.round(originX(cell) + boardX * cell) - (anchor.x - view.x);
+      int y = (int) Math.round(originY(cell) + boardY * cell) - (anchor.y - view.y);
+      viewport.setViewPosition(new Point(clamp(x, size.width - extent.width),
+          clamp(y, size.height - extent.height)));
+    }
+    revalidate();
+    repaint();
+  }
+
+  /**
+   * Computes the rectangle of a cell in the component.
+   *
+   * @param row the zero-based row, counted from the bottom
+   * @param column the zero-based column
+   * @return the rectangle the cell is painted in
+   */
+  public Rectangle getCellBounds(int row, int column) {
+    return new Rectangle(originX(cellSize) + column * cellSize,
+        originY(cellSize) + (board.getRows() - 1 - row) * cellSize, cellSize, cellSize);
+  }
+
+  /**
+   * Finds the column under a horizontal position.
+   *
+   * @param x the horizontal position in the component
+   * @return the zero-based column, or -1 if the position is beside the board
+   */
+  public int columnAt(int x) {
+    int offset = x - originX(cellSize);
+    if (offset < 0 || offset >= board.getColumns() * cellSize) {
+      return -1;
+    }
+    return offset / cellSize;
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    if (isPreferredSizeSet()) {
+      return super.getPreferredSize();
+    }
+    return new Dimension(board.getColumns() * cellSize, board.getRows() * cellSize);
+  }
+
+  @Override
+  public Dimension getPreferredScrollableViewportSize() {
+    Dimension preferred = getPreferredSize();
+    return new Dimension(Math.min(preferred.width, MAX_VIEWPORT_WIDTH),
+        Math.min(preferred.height, MAX_VIEWPORT_HEIGHT));
+  }
+
+  @Override
+  public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation,
+                                        int direction) {
+    return cellSize;
+  }
+
+  @Override
+  public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation,
+                                         int direction) {
+    int extent = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    return Math.max(cellSize, extent - cellSize);
+  }
+
+  @Override
+  public boolean getScrollableTracksViewportWidth() {
+    // a board narrower than the viewport fills it and is centered
+    JViewport viewport = getViewport();
+    return viewport != null && viewport.getWidth() > getPreferredSize().width;
+  }
+
+  @Override
+  public boolean getScrollableTracksViewportHeight() {
+    JViewport viewport = getViewport();
+    return viewport != null && viewport.getHeight() > getPreferredSize().height;
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = getVisibleRect();
+    }
+    g.setColor(getBackground() != null ? getBackground() : Color.LIGHT_GRAY);
+    g.fillRect(clip.x, clip.y, clip.width, clip.height);
+    int rows = board.getRows();
+    int columns = board.getColumns();
+    int cell = cellSize;
+    int x0 = originX(cell);
+    int y0 = originY(cell);
+    Rectangle area = clip.intersection(new Rectangle(x0, y0, columns * cell, rows * cell));
+    if (area.isEmpty()) {
+      return;
+    }
+    if (cell < SMALL_CELL) {
+      // tiles of at most the size of the cached image of empty cells
+      for (int y = area.y; y < area.y + area.height; y += TILE_PIXELS) {
+        for (int x = area.x; x < area.x + area.width; x += TILE_PIXELS) {
+          paintPixels(g, area.intersection(new Rectangle(x, y, TILE_PIXELS, TILE_PIXELS)),
+              x0, y0);
+        }
+      }
+      return;
+    }
+    if (cell != imageSize) {
+      drawImages(cell);
+    }
+    // the visible cells, with lines counted from the top
+    int firstColumn = (area.x - x0) / cell;
+    int lastColumn = (area.x + area.width - 1 - x0) / cell;
+    int firstLine = (area.y - y0) / cell;
+    int lastLine = (area.y + area.height - 1 - y0) / cell;
+    Graphics2D g2 = (Graphics2D) g.create();
+    try {
+      g2.clipRect(area.x, area.y, area.width, area.height);
+      paintEmpty(g2, x0, y0, firstColumn, lastColumn, firstLine, lastLine);
+      int lowRow = rows - 1 - lastLine;
+      int highRow = rows - 1 - firstLine;
+      for (int j = firstColumn; j <= lastColumn; j++) {
+        int top = Math.min(board.getColumnHeight(j) - 1, highRow);
+        int x = x0 + j * cell;
+        for (int row = lowRow; row <= top; row++) {
+          g2.drawImage(discImages[board.getCell(row, j).ordinal()], x,
+              y0 + (rows - 1 - row) * cell, null);
+        }
+      }
+    } finally {
+      g2.dispose();
+    }
+  }
+
+  /**
+   * Paints the empty board over the visible cells with the cached block of empty cells,
+   * aligned to whole blocks so that it lines up with the cells however far the board
+   * is scrolled.
+   */
+  private void paintEmpty(Graphics2D g, int x0, int y0, int firstColumn, int lastColumn,
+                          int firstLine, int lastLine) {
+    int cell = cellSize;
+    int fromLine = firstLine - firstLine % tileCells;
+    int fromColumn = firstColumn - firstColumn % tileCells;
+    for (int line = fromLine; line <= lastLine; line += tileCells) {
+      for (int j = fromColumn; j <= lastColumn; j += tileCells) {
+        g.drawImage(emptyTile, x0 + j * cell, y0 + line * cell, null);
+      }
+    }
+  }
+
+  /**
+   * Paints a tile of the board with cells too small for discs by writing the color of
+   * every pixel into a cached image and drawing that image, which costs far less than
+   * drawing each cell.
+   */
+  private void paintPixels(Graphics g, Rectangle tile, int x0, int y0) {
+    if (pixelTile == null) {
+      pixelTile = new BufferedImage(TILE_PIXELS, TILE_PIXELS, BufferedImage.TYPE_INT_RGB);
+    }
+    int[] pixels = ((DataBufferInt) pixelTile.getRaster().getDataBuffer()).getData();
+    int rows = board.getRows();
+    int cell = cellSize;
+    for (int y = 0; y < tile.height; y++) {
+      Arrays.fill(pixels, y * TILE_PIXELS, y * TILE_PIXELS + tile.width, EMPTY.getRGB());
+    }
+    int firstColumn = (tile.x - x0) / cell;
+    int lastColumn = (tile.x + tile.width - 1 - x0) / cell;
+    int lowRow = rows - 1 - (tile.y + tile.height - 1 - y0) / cell;
+    int highRow = rows - 1 - (tile.y - y0) / cell;
+    for (int j = firstColumn; j <= lastColumn; j++) {
+      int top = Math.min(board.getColumnHeight(j) - 1, highRow);
+      // the pixels of the column inside the tile
+      int left = Math.max(x0 + j * cell, tile.x) - tile.x;
+      int right = Math.min(x0 + (j + 1) * cell, tile.x + tile.width) - tile.x;
+      for (int row = lowRow; row <= top; row++) {
+        int color = DISCS[board.getCell(row, j).ordinal()].getRGB();
+        int line = y0 + (rows - 1 - row) * cell;
+        int from = Math.max(line, tile.y) - tile.y;
+        int to = Math.min(line + cell, tile.y + tile.height) - tile.y;
+        for (int y = from; y < to; y++) {
+          Arrays.fill(pixels, y * TILE_PIXELS + left, y * TILE_PIXELS + right, color);
+        }
+      }
+    }
+    // the raster was written directly, so the image is not cached on the screen device
+    g.drawImage(pixelTile, tile.x, tile.y, tile.x + tile.width, tile.y + tile.height,
+        0, 0, tile.width, tile.height, null);
+  }
+
+  private void drag(Point onScreen) {
+    JViewport viewport = getViewport();
+    if (pressedOnScreen == null || viewport == null || pressedViewPosition == null) {
+      return;
+    }
+    int dx = onScreen.x - pressedOnScreen.x;
+    int dy = onScreen.y - pressedOnScreen.y;
+    if (!dragging && Math.abs(dx) + Math.abs(dy) < DRAG_THRESHOLD) {
+      return;
+    }
+    dragging = true;
+    Dimension size = viewport.getViewSize();
+    Dimension extent = viewport.getExtentSize();
+    viewport.setViewPosition(new Point(
+        clamp(pressedViewPosition.x - dx, size.width - extent.width),
+        clamp(pressedViewPosition.y - dy, size.height - extent.height)));
+  }
+
+  private JViewport getViewport() {
+    Container parent = getParent();
+    return parent instanceof JViewport ? (JViewport) parent : null;
+  }
+
+  private int originX(int cell) {
+    return Math.max(0, (getWidth() - board.getColumns() * cell) / 2);
+  }
+
+  private int originY(int cell) {
+    return Math.max(0, (getHeight() - board.getRows() * cell) / 2);
+  }
+
+  private int clampCell(int cell) {
+    int longest = Math.max(board.getRows(), board.getColumns());
+    return Math.max(MIN_CELL, Math.min(Math.min(cell, MAX_CELL), MAX_EXTENT / longest));
+  }
+
+  private static int clamp(int value, int max) {
+    return Math.max(0, Math.min(value, Math.max(0, max)));
+  }
+
+  /**
+   * Draws the images of the discs and the block of empty cells for a cell size.
+   */
+  private void drawImages(int cell) {
+    imageSize = cell;
+    int margin = Math.max(cell / 10, 1);
+    for (int k = 0; k < DISCS.length; k++) {
+      BufferedImage image = new BufferedImage(cell, cell, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = image.createGraphics();
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g.setColor(BOARD);
+      g.fillRect(0, 0, cell, cell);
+      g.setColor(DISCS[k]);
+      g.fillOval(margin, margin, cell - 2 * margin, cell - 2 * margin);
+      g.dispose();
+      discImages[k] = image;
+    }
+    tileCells = Math.max(1, TILE_PIXELS / cell);
+    int side = tileCells * cell;
+    emptyTile = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = emptyTile.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    g.setColor(BOARD);
+    g.fillRect(0, 0, side, side);
+    g.setColor(EMPTY);
+    for (int i = 0; i < tileCells; i++) {
+      for (int j = 0; j < tileCells; j++) {
+        g.fillOval(j * cell + margin, i * cell + margin, cell - 2 * margin, cell - 2 * margin);
+      }
+    }
+    g.dispose();
+  }
+
+  /**
+   * A board without discs, shown after the view is cleared.
+   */
+  private static final class EmptyBoard implements BoardSnapshot {
+    private final int rows;
+    private final int columns;
+
+    private EmptyBoard(int rows, int columns) throws IllegalArgumentException {
+      if (rows <= 0 || columns <= 0) {
+        throw new IllegalArgumentException("Invalid rows or columns");
+      }
+      this.rows = rows;
+      this.columns = columns;
+    }
+
+    @Override
+    public int getRows() {
+      return rows;
+    }
+
+    @Override
+    public int getColumns() {
+      return columns;
+    }
+
+    @Override
+    public Player getCell(int row, int column) throws IllegalArgumentException {
+      if (row < 0 || row >= rows || column < 0 || column >= columns) {
+        throw new IllegalArgumentException("Invalid row or column");
+      }
+      return null;
+    }
+
+    @Override
+    public int getColumnHeight(int column) throws IllegalArgumentException {
+      if (column < 0 || column >= columns) {
+        throw new IllegalArgumentException("Invalid column");
+      }
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,498 @@
+package connect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A headless simulator that plays large batches of games between two move-selection
+ * strategies and adds up what happened, for tuning strategies without a view.
+ *
+ * <p>Games are shared out among a pool of threads in small batches. Every thread builds
+ * one model and one instance of each strategy and reuses them for all its games, resetting
+ * the model with {@link ConnectFourModel#resetBoard()} between games. The results are
+ * streamed into counters per thread as the games finish, so memory does not grow with the
+ * number of games, and the counters are added up at the end.
+ *
+ * <p>A run is reproducible: game {@code i} draws its random numbers from a generator
+ * seeded with the run's seed and {@code i}, so the results do not depend on the number of
+ * threads or on which thread plays which game, as long as the strategies only use the
+ * random numbers they are given.
+ */
+public class SelfPlaySimulator {
+  private static final int GAMES_PER_BATCH = 64;
+
+  /**
+   * A move-selection strategy. A simulator thread keeps its own instance of every
+   * strategy, so a strategy may keep state between moves without synchronization.
+   */
+  public interface Strategy {
+
+    /**
+     * Chooses a move for the player to move. The strategy may make and take back moves on
+     * the model to look ahead, but must leave it as it found it.
+     *
+     * @param model the game in progress, which is not over
+     * @param random the random numbers of the current game
+     * @return the zero-based column to play, which must be playable
+     */
+    int chooseMove(ConnectFourModel model, SplittableRandom random);
+  }
+
+  private final Supplier<? extends ConnectFourModel> factory;
+  private final Supplier<? extends Strategy> first;
+  private final Supplier<? extends Strategy> second;
+  private final int threads;
+
+  /**
+   * Constructs a simulator for two strategies.
+   *
+   * @param factory creates new models with an empty board, all of the same size
+   * @param first creates the strategy that plays first, which is red, in even games
+   * @param second creates the strategy that plays first in odd games
+   * @param threads the number of threads to play on
+   * @throws IllegalArgumentException if the factory or a strategy is null, or the number
+   *     of threads is not positive
+   */
+  public SelfPlaySimulator(Supplier<? extends ConnectFourModel> factory,
+                           Supplier<? extends Strategy> first,
+                           Supplier<? extends Strategy> second,
+                           int threads) throws IllegalArgumentException {
+    if (factory == null || first == null || second == null) {
+      throw new IllegalArgumentException("Factory and strategies cannot be null");
+    }
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Invalid number of threads");
+    }
+    this.factory = factory;
+    this.first = first;
+    this.second = second;
+    this.threads = threads;
+  }
+
+  /**
+   * Plays a batch of games. The two strategies take turns at moving first, so each one
+   * plays first in half of the games.
+   *
+   * @param games the number of games to play
+   * @param seed the seed that all random numbers of the run derive from
+   * @return the statistics of the games
+   * @throws IllegalArgumentException if the number of games is negative
+   */
+  public Result run(long games, long seed) throws IllegalArgumentException {
+    if (games < 0) {
+      throw new IllegalArgumentException("Invalid number of games");
+    }
+    long begin = System.nanoTime();
+    AtomicLong next = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "connect-four-self-play");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Stats total = null;
+    try {
+      List<Future<Stats>> tasks = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        tasks.add(executor.submit(() -> play(games, seed, next)));
+      }
+      for (Future<Stats> task : tasks) {
+        Stats stats = task.get();
+        if (total == null) {
+          total = stats;
+        } else {
+          total.add(stats);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return new Result(total, threads, System.nanoTime() - begin);
+  }
+
+  /**
+   * Plays batches of games on one thread until all games of the run have been taken.
+   */
+  private Stats play(long games, long seed, AtomicLong next) {
+    ConnectFourModel model = factory.get();
+    Strategy[] strategies = {first.get(), second.get()};
+    Stats stats = new Stats(model.getRows() * model.getColumns(), model.getColumns());
+    long start;
+    while ((start = next.getAndAdd(GAMES_PER_BATCH)) < games) {
+      long end = Math.min(games, start + GAMES_PER_BATCH);
+      for (long game = start; game < end; game++) {
+        model.resetBoard();
+        SplittableRandom random = new SplittableRandom(mix(seed, game));
+        int firstStrategy = (int) (game & 1);
+        while (!model.isGameOver()) {
+          int mover = (model.getTurn() == Player.RED ? 0 : 1) ^ firstStrategy;
+          int column = strategies[mover].chooseMove(model, random);
+          if (model.tryMove(column) != MoveStatus.OK) {
+            throw new IllegalStateException(
+                "Strategy " + (mover + 1) + " chose an illegal column: " + column);
+          }
+          stats.columns[mover][column]++;
+        }
+        stats.count(model, firstStrategy);
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * Derives the seed of one game from the seed of the run with the SplitMix64 mixing
+   * function, so that neighboring games get unrelated random numbers.
+   */
+  private static long mix(long seed, long game) {
+    long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Creates a strategy that plays a uniformly random playable column.
+   *
+   * @return the random strategy
+   */
+  public static Strategy randomStrategy() {
+    return (model, random) -> randomMove(model, random);
+  }
+
+  /**
+   * Creates a strategy that wins at once if it can, otherwise plays a random column that
+   * does not let the opponent win on the next move, and a random column if there is none.
+   *
+   * @return the greedy strategy
+   */
+  public static Strategy greedyStrategy() {
+    return new GreedyStrategy();
+  }
+
+  /**
+   * Creates a strategy that asks a computer opponent for every move and ignores the
+   * random numbers. Computer opponents keep state, so the simulator should get a new one
+   * for every thread, as in {@code () -> aiStrategy(new NegamaxConnectFourAI(1 << 20))}.
+   *
+   * @param ai the computer opponent
+   * @return the strategy backed by the opponent
+   * @throws IllegalArgumentException if the opponent is null
+   */
+  public static Strategy aiStrategy(ConnectFourAI ai) throws IllegalArgumentException {
+    if (ai == null) {
+      throw new IllegalArgumentException("AI cannot be null");
+    }
+    return (model, random) -> ai.chooseMove(model);
+  }
+
+  private static int randomMove(ConnectFourModel model, SplittableRandom random) {
+    int columns = model.getColumns();
+    int count = 0;
+    for (int first = 0; first < columns; first += Long.SIZE) {
+      count += Long.bitCount(model.legalMovesMask(first));
+    }
+    int pick = random.nextInt(count);
+    for (int first = 0; ; first += Long.SIZE) {
+      long legal = model.legalMovesMask(first);
+      int bits = Long.bitCount(legal);
+      if (pick < bits) {
+        for (int i = 0; i < pick; i++) {
+          legal &= legal - 1;
+        }
+        return first + Long.numberOfTrailingZeros(legal);
+      }
+      pick -= bits;
+    }
+  }
+
+  /**
+   * The greedy strategy, which tries every move and every reply on the model with
+   * {@link ConnectFourModel#tryMove(int)} and {@link ConnectFourModel#undoMove()}. It
+   * keeps its list of safe columns between moves, so it allocates nothing per move.
+   */
+  private static final class GreedyStrategy implements Strategy {
+    private int[] safe = new int[0];
+
+    @Override
+    public int chooseMove(ConnectFourModel model, SplittableRandom random) {
+      int columns = model.getColumns();
+      if (safe.length != columns) {
+        safe = new int[columns];
+      }
+      int count = 0;
+      for (int first = 0; first < columns; first += Long.SIZE) {
+        long legal = model.legalMovesMask(first);
+        while (legal != 0) {
+          int column = first + Long.numberOfTrailingZeros(legal);
+          legal &= legal - 1;
+          model.tryMove(column);
+          boolean won = model.getWinner() != null;
+          boolean losing = !won && !model.isGameOver() && hasWinningMove(model);
+          model.undoMove();
+          if (won) {
+            return column;
+          }
+          if (!losing) {
+            safe[count++] = column;
+          }
+        }
+      }
+      return count == 0 ? randomMove(model, random) : safe[random.nextInt(count)];
+    }
+
+    private static boolean hasWinningMove(ConnectFourModel model) {
+      int columns = model.getColumns();
+      for (int first = 0; first < columns; first += Long.SIZE) {
+        long legal = model.legalMovesMask(first);
+        while (legal != 0) {
+          model.tryMove(first + Long.numberOfTrailingZeros(legal));
+          boolean won = model.getWinner() != null;
+          model.undoMove();
+          if (won) {
+            return true;
+          }
+          legal &= legal - 1;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The counters of one thread, which are added up when all threads are done.
+   */
+  private static final class Stats {
+    private final long[] wins = new long[2];
+    private final long[] firstPlayerWins = new long[2];
+    private final long[] lengths;
+    private final long[][] columns;
+    private long games;
+    private long draws;
+
+    private Stats(int cells, int columns) {
+      this.lengths = new long[cells + 1];
+      this.columns = new long[2][columns];
+    }
+
+    private void count(ConnectFourModel model, int firstStrategy) {
+      games++;
+      int length = 0;
+      for (int j = 0; j < model.getColumns(); j++) {
+        length += model.getColumnHeight(j);
+      }
+      lengths[length]++;
+      Player winner = model.getWinner();
+      if (winner == null) {
+        draws++;
+      } else {
+        int seat = winner == Player.RED ? 0 : 1;
+        wins[seat ^ firstStrategy]++;
+        firstPlayerWins[seat]++;
+      }
+    }
+
+    private void add(Stats other) {
+      games += other.games;
+      draws += other.draws;
+      for (int i = 0; i < 2; i++) {
+        wins[i] += other.wins[i];
+        firstPlayerWins[i] += other.firstPlayerWins[i];
+        for (int j = 0; j < columns[i].length; j++) {
+          columns[i][j] += other.columns[i][j];
+        }
+      }
+      for (int i = 0; i < lengths.length; i++) {
+        lengths[i] += other.lengths[i];
+      }
+    }
+  }
+
+  /**
+   * The statistics of a run. Strategies are numbered 0 for the first strategy given to
+   * the simulator and 1 for the second.
+   */
+  public static final class Result {
+    private final Stats stats;
+    private final int threads;
+    private final long elapsedNanos;
+
+    private Result(Stats stats, int threads, long elapsedNanos) {
+      this.stats = stats;
+      this.threads = threads;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Retrieves the number of games played.
+     *
+     * @return the number of games
+     */
+    public long getGames() {
+      return stats.games;
+    }
+
+    /**
+     * Retrieves the number of games a strategy won.
+     *
+     * @param strategy 0 for the first strategy, 1 for the second
+     * @return the number of wins
+     */
+    public long getWins(int strategy) {
+      return stats.wins[strategy];
+    }
+
+    /**
+     * Retrieves the number of games that ended in a draw.
+     *
+     * @return the number of draws
+     */
+    public long getDraws() {
+      return stats.draws;
+    }
+
+    /**
+     * Retrieves the share of games won by the player who moved first, whichever strategy
+     * it was.
+     *
+     * @return the win rate of the first player between 0 and 1
+     */
+    public double getFirstPlayerWinRate() {
+      return stats.games == 0 ? 0 : (double) stats.firstPlayerWins[0] / stats.games;
+    }
+
+    /**
+     * Retrieves the share of games won by the player who moved second.
+     *
+     * @return the win rate of the second player between 0 and 1
+     */
+    public double getSecondPlayerWinRate() {
+      return stats.games == 0 ? 0 : (double) stats.firstPlayerWins[1] / stats.games;
+    }
+
+    /**
+     * Retrieves the number of games that lasted a given number of moves.
+     *
+     * @param moves the number of moves, from 0 to the number of cells
+     * @return the number of games of that length
+     */
+    public long getGamesOfLength(int moves) {
+      return stats.lengths[moves];
+    }
+
+    /**
+     * Retrieves how often a strategy played a column.
+     *
+     * @param strategy 0 for the first strategy, 1 for the second
+     * @param column the zero-based column
+     * @return the number of moves the strategy made in the column
+     */
+    public long getColumnChoices(int strategy, int column) {
+      return stats.columns[strategy][column];
+    }
+
+    /**
+     * Retrieves the wall-clock time of the run.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * Retrieves the throughput of the run over all threads.
+     *
+     * @return the number of games played per second
+     */
+    public double getGamesPerSecond() {
+      return elapsedNanos == 0 ? 0 : stats.games * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Retrieves the throughput of the run per core, counting the threads that could run
+     * at the same time.
+     *
+     * @return the number of games played per second and core
+     */
+    public double getGamesPerSecondPerCore() {
+      int cores = Math.min(threads, Runtime.getRuntime().availableProcessors());
+      return getGamesPerSecond() / cores;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      long games = Math.max(1, stats.games);
+      sb.append(String.format("%d games: strategy 1 won %.1f%%, strategy 2 won %.1f%%,"
+              + " %.1f%% draws%n", stats.games, 100.0 * stats.wins[0] / games,
+          100.0 * stats.wins[1] / games, 100.0 * stats.draws / games));
+      sb.append(String.format("first player won %.1f%%, second player won %.1f%%%n",
+          100 * getFirstPlayerWinRate(), 100 * getSecondPlayerWinRate()));
+      sb.append(String.format("%8s %12s%n", "length", "games"));
+      for (int i = 0; i < stats.lengths.length; i++) {
+        if (stats.lengths[i] != 0) {
+          sb.append(String.format("%8d %12d%n", i, stats.lengths[i]));
+        }
+      }
+      sb.append(String.format("%8s %12s %12s%n", "column", "strategy 1", "strategy 2"));
+      for (int j = 0; j < stats.columns[0].length; j++) {
+        sb.append(String.format("%8d %12d %12d%n", j + 1, stats.columns[0][j],
+            stats.columns[1][j]));
+      }
+      sb.append(String.format("%.2f s, %.0f games/s, %.0f games/s per core%n",
+          elapsedNanos / 1e9, getGamesPerSecond(), getGamesPerSecondPerCore()));
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Runs a batch of games from the command line and prints the statistics.
+   *
+   * @param args the rows, columns and number of games, then optionally the two
+   *     strategies ("random", "greedy" or "negamax"), the number of threads and the seed
+   */
+  public static void main(String[] args) {
+    if (args.length < 3) {
+      System.err.println("Usage: SelfPlaySimulator rows columns games"
+          + " [strategy strategy] [threads] [seed]");
+      return;
+    }
+    int rows = Integer.parseInt(args[0]);
+    int columns = Integer.parseInt(args[1]);
+    long games = Long.parseLong(args[2]);
+    String firstName = args.length > 3 ? args[3] : "random";
+    String secondName = args.length > 4 ? args[4] : "greedy";
+    int threads = args.length > 5
+        ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+    long seed = args.length > 6 ? Long.parseLong(args[6]) : 1;
+    SelfPlaySimulator simulator = new SelfPlaySimulator(
+        () -> new ConnectFourModelImpl(rows, columns),
+        () -> strategy(firstName), () -> strategy(secondName), threads);
+    System.out.print(simulator.run(games, seed));
+  }
+
+  private static Strategy strategy(String name) {
+    switch (name) {
+      case "random":
+        return randomStrategy();
+      case "greedy":
+        return greedyStrategy();
+      case "negamax":
+        return aiStrategy(new NegamaxConnectFourAI(1 << 20));
+      default:
+        throw new IllegalArgumentException("Unknown strategy: " + name);
+    }
+  }
+}
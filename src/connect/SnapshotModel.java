@@ -0,0 +1,143 @@
+package connect;
+
+/**
+ * A read-only model of a game in progress, made of a snapshot of its board and the player
+ * to move. It lets a computer opponent think on another thread while the real model goes
+ * on changing, since the snapshot never changes. Every query answers for the moment the
+ * snapshot was taken, and every call that would change the game throws an
+ * {@link IllegalStateException}.
+ */
+class SnapshotModel implements ConnectFourModel {
+  private final BoardSnapshot board;
+  private final Player turn;
+  private final int winLength;
+  private final ZobristHashes hashes;
+
+  /**
+   * Captures the current position of a model whose game is not over.
+   *
+   * @param model the model to capture
+   * @throws IllegalArgumentException if the game is over
+   */
+  SnapshotModel(ConnectFourModel model) throws IllegalArgumentException {
+    if (model.isGameOver()) {
+      throw new IllegalArgumentException("Game over");
+    }
+    this.board = model.getSnapshot();
+    this.turn = model.getTurn();
+    this.winLength = model.getWinLength();
+    // the hashes of the model, if it keeps any, so the copy's key costs nothing either
+    ZobristHashes source = CanonicalKey.hashesOf(model);
+    this.hashes = source == null ? null : source.copy();
+  }
+
+  /**
+   * Retrieves the hashes of the board at the moment it was captured.
+   *
+   * @return the hashes, or null if the captured model kept none
+   */
+  ZobristHashes getHashes() {
+    return hashes;
+  }
+
+  @Override
+  public void initializeBoard() {
+    throw new IllegalStateException("Model is read-only");
+  }
+
+  @Override
+  public void makeMove(int column) {
+    throw new IllegalStateException("Model is read-only");
+  }
+
+  @Override
+  public int tryMove(int column) {
+    throw new IllegalStateException("Model is read-only");
+  }
+
+  @Override
+  public long legalMovesMask() {
+    return legalMovesMask(0);
+  }
+
+  @Override
+  public long legalMovesMask(int firstColumn) throws IllegalArgumentException {
+    if (firstColumn < 0) {
+      throw new IllegalArgumentException("Invalid column");
+    }
+    long mask = 0L;
+    int end = Math.min(board.getColumns(), firstColumn + Long.SIZE);
+    for (int j = firstColumn; j < end; j++) {
+      if (board.getColumnHeight(j) < board.getRows()) {
+        mask |= 1L << (j - firstColumn);
+      }
+    }
+    return mask;
+  }
+
+  @Override
+  public void undoMove() {
+    throw new IllegalStateException("Model is read-only");
+  }
+
+  @Override
+  public Player getTurn() {
+    return turn;
+  }
+
+  @Override
+  public boolean isGameOver() {
+    return false;
+  }
+
+  @Override
+  public Player getWinner() {
+    return null;
+  }
+
+  @Override
+  public void resetBoard() {
+    throw new IllegalStateException("Model is read-only");
+  }
+
+  @Override
+  public Player[][] getBoardState() {
+    Player[][] state = new Player[board.getRows()][board.getColumns()];
+    for (int j = 0; j < board.getColumns(); j++) {
+      for (int i = 0; i < board.getColumnHeight(j); i++) {
+        state[i][j] = board.getCell(i, j);
+      }
+    }
+    return state;
+  }
+
+  @Override
+  public int getRows() {
+    return board.getRows();
+  }
+
+  @Override
+  public int getColumns() {
+    return board.getColumns();
+  }
+
+  @Override
+  public int getWinLength() {
+    return winLength;
+  }
+
+  @Override
+  public Player getCell(int row, int column) throws IllegalArgumentException {
+    return board.getCell(row, column);
+  }
+
+  @Override
+  public int getColumnHeight(int column) throws IllegalArgumentException {
+    return board.getColumnHeight(column);
+  }
+
+  @Override
+  public BoardSnapshot getSnapshot() {
+    return board;
+  }
+}
@@ -14,6 +14,8 @@ public interface SwingConnectFourController {
 
   void resetGame();
 
+  void columnClicked(int column);
+
   Player getTurn();
 
 }
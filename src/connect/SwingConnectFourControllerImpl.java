@@ -1,5 +1,16 @@
 package connect;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
 
 /**
  * This is the controller for the Connect Four game.
@@ -9,53 +20,124 @@ package connect;
  * The controller is responsible for updating the view when the model changes.
  * The controller is responsible for updating the model when the user makes a move.
  * The controller is responsible for executing the game.
+ *
+ * <p>The controller is driven by events rather than a loop that waits for input. The
+ * model is only touched by one background thread, the game thread, which handles the
+ * clicks, the restart button and the moves of the computer opponent one after another.
+ * The computer opponent thinks on a thread of its own, on a read-only copy of the
+ * position, so the game thread stays free and a restart is handled at once. A restart
+ * interrupts the search in progress, which the opponent answers by giving up soon after,
+ * and a move that still comes back for the old game is dropped. If the opponent throws
+ * anything, even an error, or picks a column that cannot be played, the view shows why
+ * and the players make its move themselves, so the game goes on. A click is handed to the
+ * game thread through a queue of one: it is dropped if the game thread has not taken the
+ * previous one yet, or if it is not a human player's turn.
+ *
+ * <p>The view is only used on the event dispatch thread. After every change the game
+ * thread publishes the latest board, and a single pending {@code invokeLater} shows
+ * whatever board is latest by the time it runs, so a burst of moves costs one update.
  */
 public class SwingConnectFourControllerImpl implements SwingConnectFourController {
-  private final SwingConnectFourViewImpl view;
-  private final ConnectFourModelImpl model;
+  private final SwingConnectFourView view;
+  private final ConnectFourModel model;
+  private final ConnectFourAI ai;
+  private final Player aiPlayer;
+  private final ExecutorService game;
+  private final ExecutorService engine;
+  private final BlockingQueue<Integer> clicks = new ArrayBlockingQueue<>(1);
+  private final AtomicReference<Frame> latest = new AtomicReference<>();
+  private final AtomicBoolean updateScheduled = new AtomicBoolean();
+  // whose input the game waits for; written by the game thread, read on the event thread
+  private volatile State state = State.STOPPED;
+  // changes with every restart, so that late results of an old game can be told apart;
+  // only used on the game thread
+  private long generation;
+  // the search of the computer opponent for the current turn; only used on the game thread
+  private Future<?> search;
+  // the game whose board the view shows; only used on the event dispatch thread
+  private long shownGeneration;
+
+  /**
+   * The states of a game: not started, waiting for a human player, waiting for the
+   * computer opponent, or over.
+   */
+  private enum State { STOPPED, PLAYER_TURN, ENGINE_TURN, GAME_OVER }
+
+  /**
+   * A board to show, with the turn it belongs to and the game it belongs to.
+   */
+  private static final class Frame {
+    private final long generation;
+    private final BoardSnapshot board;
+    private final Player turn;
+
+    private Frame(long generation, BoardSnapshot board, Player turn) {
+      this.generation = generation;
+      this.board = board;
+      this.turn = turn;
+    }
+  }
 
   /**
    * Constructor for the SwingConnectFourControllerImpl.
    * @param view The view for the game.
    * @param model The model for the game.
    */
-  public SwingConnectFourControllerImpl(SwingConnectFourViewImpl view, ConnectFourModelImpl model) {
+  public SwingConnectFourControllerImpl(SwingConnectFourView view, ConnectFourModel model) {
+    this(view, model, null, null);
+  }
+
+  /**
+   * Constructor for the SwingConnectFourControllerImpl with a computer opponent.
+   * @param view The view for the game.
+   * @param model The model for the game.
+   * @param ai The computer opponent, or null for two human players.
+   * @param aiPlayer The player the computer opponent plays for.
+   */
+  public SwingConnectFourControllerImpl(SwingConnectFourView view, ConnectFourModel model,
+                                        ConnectFourAI ai, Player aiPlayer) {
     this.view = view;
     this.model = model;
+    this.ai = ai;
+    this.aiPlayer = aiPlayer;
+    this.game = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "connect-four-game");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.engine = ai == null ? null : Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "connect-four-engine");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.latest.set(new Frame(0, model.getSnapshot(), model.getTurn()));
   }
 
   /**
-   * This method plays the game.
-   * @param model The model for the game.
+   * This method starts the game and returns at once; the game then runs on the clicks
+   * of the players. The current board of the model is shown first, so a game that was
+   * resumed goes on where it stopped.
+   * @param model The model for the game, which must be the one given to the constructor.
+   * @throws IllegalArgumentException if the model is not the controller's model
    */
   @Override
-  public void playGame(ConnectFourModel model) {
-
-    while (!model.isGameOver()) {
-      // Wait for player input
-      int column = view.waitForPlayerInput();
-      // Make a move
-      try {
-        model.makeMove(column);
-      } catch (IllegalArgumentException e) {
-        // Handle invalid moves
-        view.displayMessage(e.getMessage());
-        continue;
-      }
+  public void playGame(ConnectFourModel model) throws IllegalArgumentException {
+    if (model == null || model != this.model) {
+      throw new IllegalArgumentException("Model must be the controller's model");
+    }
+    game.execute(this::nextTurn);
+  }
 
-      view.updateBoard(model.getBoardState());
-
-      // Check for game over
-      if (model.isGameOver()) {
-        Player winner = model.getWinner();
-        // Ask if player wants to play again
-        boolean playAgain = view.askToPlayAgain(winner);
-        // Reset the board if player wants to play again
-        if (playAgain) {
-          model.resetBoard();
-          view.resetBoard();
-        }
-      }
+  /**
+   * This method hands a click on a column to the game. It is called by the view on the
+   * event dispatch thread and never waits; the click is dropped if it is not a human
+   * player's turn or the game thread has not taken the previous click yet.
+   * @param column The zero-based column that was clicked.
+   */
+  @Override
+  public void columnClicked(int column) {
+    if (state == State.PLAYER_TURN && clicks.offer(column)) {
+      game.execute(this::takeClick);
     }
   }
 
@@ -64,16 +146,147 @@ public class SwingConnectFourControllerImpl implements SwingConnectFourControlle
    */
   @Override
   public void resetGame() {
-    model.resetBoard();
-    view.resetBoard();
+    game.execute(this::reset);
   }
 
   /**
-   * his method returns the player whose turn it is.
+   * his method returns the player whose turn it is on the board the view shows.
    * @return The player whose turn it is.
    */
   @Override
   public Player getTurn() {
-    return model.getTurn();
+    return latest.get().turn;
+  }
+
+  /**
+   * Waits until the game thread has handled everything handed to it so far and the view
+   * has shown the result. It must not be called on the event dispatch thread.
+   */
+  void awaitIdle() throws InterruptedException, ExecutionException, InvocationTargetException {
+    game.submit(() -> { }).get();
+    SwingUtilities.invokeAndWait(() -> { });
+  }
+
+  private void takeClick() {
+    Integer column = clicks.poll();
+    if (column == null || state != State.PLAYER_TURN) {
+      return;
+    }
+    play(column);
+  }
+
+  private void engineMoved(long moveGeneration, int column) {
+    if (moveGeneration != generation || state != State.ENGINE_TURN) {
+      // the game was restarted while the computer was thinking
+      return;
+    }
+    play(column);
+  }
+
+  private void engineFailed(long moveGeneration, String message) {
+    if (moveGeneration != generation || state != State.ENGINE_TURN) {
+      return;
+    }
+    engineGaveUp(message);
+  }
+
+  /**
+   * Shows why the computer opponent has no move and hands its turn to the players.
+   */
+  private void engineGaveUp(String message) {
+    state = State.PLAYER_TURN;
+    SwingUtilities.invokeLater(() -> view.displayMessage(message));
+  }
+
+  private void play(int column) {
+    int status = model.tryMove(column);
+    if (status != MoveStatus.OK) {
+      // Handle invalid moves
+      String message = MoveStatus.message(status);
+      if (state == State.ENGINE_TURN) {
+        engineGaveUp(message);
+      } else {
+        SwingUtilities.invokeLater(() -> view.displayMessage(message));
+      }
+      return;
+    }
+    nextTurn();
+  }
+
+  private void reset() {
+    generation++;
+    if (search != null) {
+      search.cancel(true);
+      search = null;
+    }
+    clicks.clear();
+    model.resetBoard();
+    nextTurn();
+  }
+
+  /**
+   * Works out who plays next and shows the board. The state is set first, so that a
+   * click on the board just shown is not dropped.
+   */
+  private void nextTurn() {
+    if (model.isGameOver()) {
+      state = State.GAME_OVER;
+      publish();
+      Player winner = model.getWinner();
+      long over = generation;
+      SwingUtilities.invokeLater(() -> askToPlayAgain(winner, over));
+    } else if (ai != null && model.getTurn() == aiPlayer) {
+      state = State.ENGINE_TURN;
+      publish();
+      long thinking = generation;
+      ConnectFourModel position = new SnapshotModel(model);
+      search = engine.submit(() -> {
+        try {
+          int column = ai.chooseMove(position);
+          game.execute(() -> engineMoved(thinking, column));
+        } catch (Throwable e) {
+          // even an error such as running out of memory must give the turn back, or the
+          // game would wait for the computer forever
+          String message = e.getMessage() != null ? e.getMessage() : e.toString();
+          game.execute(() -> engineFailed(thinking, message));
+        }
+      });
+    } else {
+      state = State.PLAYER_TURN;
+      publish();
+    }
+  }
+
+  /**
+   * Makes the current board the latest one and makes sure an update of the view is on
+   * its way.
+   */
+  private void publish() {
+    latest.set(new Frame(generation, model.getSnapshot(), model.getTurn()));
+    if (updateScheduled.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(this::updateView);
+    }
+  }
+
+  private void updateView() {
+    // cleared before reading, so a board published from now on schedules another update
+    updateScheduled.set(false);
+    Frame frame = latest.get();
+    if (frame.generation != shownGeneration) {
+      view.resetBoard();
+      shownGeneration = frame.generation;
+    }
+    view.updateBoard(frame.board);
+  }
+
+  private void askToPlayAgain(Player winner, long over) {
+    // Ask if player wants to play again, and reset the board if so
+    if (view.askToPlayAgain(winner)) {
+      game.execute(() -> {
+        if (generation == over) {
+          reset();
+        }
+      });
+    }
   }
 }
@@ -6,9 +6,9 @@ package connect;
  * The view and the model are separated from each other.
  * The controller is the middleman between the view and the model.
  * the window will display the game board and the current player.
- * The main portion of the window will be a 6row x 7column grid of buttons.
- * The buttons are initially empty (white)
- * and will be filled with the player's color (yellow or red) when clicked.
+ * The main portion of the window will be the game board, 6 rows x 7 columns by default.
+ * The cells are initially empty (white)
+ * and will be filled with the player's color (yellow or red) when a column is clicked.
  * The window will also display the current player's turn at the top.
  * The window will also display a message when the game is over.
  * The window will have a "Restart Game" button that will reset the game.
@@ -21,13 +21,13 @@ public interface SwingConnectFourView {
 
   void updateBoard(Player[][] boardState);
 
-  void setController(SwingConnectFourControllerImpl controller);
+  void updateBoard(BoardSnapshot snapshot);
+
+  void setController(SwingConnectFourController controller);
 
   void resetBoard();
 
   void displayMessage(String message);
 
-  int waitForPlayerInput();
-
   boolean askToPlayAgain(Player winner);
 }
@@ -2,15 +2,14 @@ package connect;
 
 
 import java.awt.BorderLayout;
-import java.awt.Color;
-import java.awt.GridLayout;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 /**
  * The view for the Connect Four game.
@@ -18,9 +17,13 @@ import javax.swing.JPanel;
  * The view and the model are separated from each other.
  * The controller is the middleman between the view and the model.
  * the window will display the game board and the current player.
- * The main portion of the window will be a 6row x 7column grid of buttons.
- * The buttons are initially empty (white)
- * and will be filled with the player's color (yellow or red) when clicked.
+ * The main portion of the window is a {@link BoardComponent} that paints the board,
+ * 6 rows by 7 columns unless another size is given, and sizes itself to fit it.
+ * The cells are initially empty (white)
+ * and a disc of the player's color (yellow or red) drops into the column clicked.
+ * Only the cells that change are repainted, so boards of hundreds of columns stay smooth.
+ * Boards with more than a hundred rows or columns are shown by a {@link ScrollableBoardView}
+ * in a scroll pane instead, which can be panned and zoomed.
  * The window will also display the current player's turn at the top.
  * The window will also display a message when the game is over.
  * The window will have a "Restart Game" button that will reset the game.
@@ -28,45 +31,50 @@ import javax.swing.JPanel;
  * These two buttons are at the bottom of the window.
  */
 public class SwingConnectFourViewImpl extends JFrame implements SwingConnectFourView {
-  private final JButton[][] buttons;
+  private static final long serialVersionUID = 1L;
+  // boards with more rows or columns than this scroll instead of shrinking to fit
+  private static final int MAX_FITTED_SIZE = 100;
+  // exactly one of the two shows the board
+  private final BoardComponent board;
+  private final ScrollableBoardView largeBoard;
   private final JLabel turnLabel;
   private final JLabel messageLabel;
-  private SwingConnectFourControllerImpl controller;
-  private final BlockingQueue<Integer> inputQueue;
+  private SwingConnectFourController controller;
 
   /**
-   * Constructor for the view.
+   * Constructor for the view of the standard 6x7 board.
    * @param title the title of the window
    */
   public SwingConnectFourViewImpl(String title) {
+    this(title, 6, 7);
+  }
+
+  /**
+   * Constructor for the view of a board of any size.
+   * @param title the title of the window
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   */
+  public SwingConnectFourViewImpl(String title, int rows, int columns) {
     super(title);
     setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    setSize(800, 600);
-
-    // Initialize input queue
-    inputQueue = new LinkedBlockingQueue<>();
 
     // Create components
     turnLabel = new JLabel("Current turn: RED");
     messageLabel = new JLabel("");
-    JPanel boardPanel = new JPanel(new GridLayout(6, 7));
     final JPanel buttonPanel = new JPanel();
-    buttons = new JButton[6][7];
-    // Create board buttons
-    // cells are to be filled with the player's color when clicked
-    // from the bottom row to the top row
-    for (int i = 5; i >= 0; i--) {
-      for (int j = 0; j < 7; j++) {
-        buttons[i][j] = new JButton();
-        buttons[i][j].setBackground(Color.WHITE);
-        final int column = j;
-        buttons[i][j].addActionListener(e -> {
-          // Notify controller of player's move
-          inputQueue.offer(column);
-        });
-        boardPanel.add(buttons[i][j]);
-
-      }
+    final JComponent boardPane;
+    if (rows <= MAX_FITTED_SIZE && columns <= MAX_FITTED_SIZE) {
+      board = new BoardComponent(rows, columns);
+      largeBoard = null;
+      // Notify controller of player's move
+      board.setColumnListener(this::columnClicked);
+      boardPane = board;
+    } else {
+      board = null;
+      largeBoard = new ScrollableBoardView(rows, columns);
+      largeBoard.setColumnListener(this::columnClicked);
+      boardPane = new JScrollPane(largeBoard);
     }
 
     // Create restart and quit buttons
@@ -85,10 +93,14 @@ public class SwingConnectFourViewImpl extends JFrame implements SwingConnectFour
 
     // Add components to the frame
     add(turnLabel, BorderLayout.NORTH);
-    add(boardPanel, BorderLayout.CENTER);
-    add(messageLabel, BorderLayout.SOUTH);
-    add(buttonPanel, BorderLayout.SOUTH);
+    add(boardPane, BorderLayout.CENTER);
+    // the message goes above the buttons, since a layout slot only shows one component
+    JPanel southPanel = new JPanel(new BorderLayout());
+    southPanel.add(messageLabel, BorderLayout.NORTH);
+    southPanel.add(buttonPanel, BorderLayout.SOUTH);
+    add(southPanel, BorderLayout.SOUTH);
 
+    pack();
     setVisible(true);
   }
 
@@ -97,50 +109,95 @@ public class SwingConnectFourViewImpl extends JFrame implements SwingConnectFour
    * @param controller the controller to set
    */
   @Override
-  public void setController(SwingConnectFourControllerImpl controller) {
+  public void setController(SwingConnectFourController controller) {
     this.controller = controller;
   }
 
+  private void columnClicked(int column) {
+    if (controller != null) {
+      controller.columnClicked(column);
+    }
+  }
+
 
   /**
    * Create the board for the game.
    */
   @Override
   public void createBoard() {
-    // Initialize the board
-    for (int i = 0; i < 6; i++) {
-      for (int j = 0; j < 7; j++) {
-        buttons[i][j].setBackground(Color.WHITE);
+    onEventThread(() -> {
+      // Initialize the board
+      if (board != null) {
+        board.clear();
+      } else {
+        largeBoard.clear();
       }
-    }
-    // Display initial turn
-    turnLabel.setText("Current turn: RED");
-    // Clear message
-    messageLabel.setText("");
+      // Display initial turn
+      turnLabel.setText("Current turn: RED");
+      // Clear message
+      messageLabel.setText("");
+    });
   }
 
   @Override
   public void updateBoard(Player[][] boardState) {
     // Update the board display based on the board state
-    for (int i = 0; i < 6; i++) {
-      for (int j = 0; j < 7; j++) {
-        if (boardState[i][j] == Player.RED) {
-          buttons[i][j].setBackground(Color.RED);
-        } else if (boardState[i][j] == Player.YELLOW) {
-          buttons[i][j].setBackground(Color.YELLOW);
-        } else {
-          buttons[i][j].setBackground(Color.WHITE);
+    Player turn = controller.getTurn();
+    onEventThread(() -> {
+      if (board != null) {
+        for (int i = 0; i < boardState.length; i++) {
+          for (int j = 0; j < boardState[i].length; j++) {
+            board.setCell(i, j, boardState[i][j]);
+          }
         }
+      } else {
+        largeBoard.setBoard(new ArraySnapshot(boardState));
       }
-    }
+      updateTurnLabel(turn);
+    });
+  }
+
+  /**
+   * Update the board from a snapshot of the model, reading cells in place
+   * instead of copying the board into an array first. The board component
+   * only repaints the cells that changed.
+   * @param snapshot the snapshot of the board to display
+   */
+  @Override
+  public void updateBoard(BoardSnapshot snapshot) {
+    Player turn = controller.getTurn();
+    onEventThread(() -> {
+      if (board != null) {
+        board.setBoard(snapshot);
+      } else {
+        largeBoard.setBoard(snapshot);
+      }
+      updateTurnLabel(turn);
+    });
+  }
+
+  private void updateTurnLabel(Player turn) {
     // Update turn label
-    if (controller.getTurn() == Player.RED) {
+    if (turn == Player.RED) {
       turnLabel.setText("Current turn: RED");
     } else {
       turnLabel.setText("Current turn: YELLOW");
     }
   }
 
+  /**
+   * Run an update of the components on the event dispatch thread, which is the
+   * only thread Swing components may be used on. Snapshots never change, so they
+   * can be shown a moment after the model moved on.
+   */
+  private static void onEventThread(Runnable update) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      update.run();
+    } else {
+      SwingUtilities.invokeLater(update);
+    }
+  }
+
   /**
    * Display a message to the user.
    * @param message the message to display
@@ -148,7 +205,7 @@ public class SwingConnectFourViewImpl extends JFrame implements SwingConnectFour
   @Override
   public void displayMessage(String message) {
     // Display a message to the user
-    messageLabel.setText(message);
+    onEventThread(() -> messageLabel.setText(message));
   }
 
 
@@ -177,24 +234,43 @@ public class SwingConnectFourViewImpl extends JFrame implements SwingConnectFour
   @Override
   public void resetBoard() {
     // Reset the board for a new game
-    inputQueue.clear();
     createBoard();
 
   }
 
   /**
-   * Wait for player input.
-   * @return the column the player selected
+   * A snapshot that reads the cells of a board state array, for boards shown by the
+   * scrolling view. The array must not change while it is shown.
    */
-  @Override
-  public int waitForPlayerInput() {
-    try {
-      // Block until player makes a move
-      return inputQueue.take();
-    } catch (InterruptedException e) {
-      // Handle interruption
-      Thread.currentThread().interrupt();
-      return -1;
+  private static final class ArraySnapshot implements BoardSnapshot {
+    private final Player[][] cells;
+
+    private ArraySnapshot(Player[][] cells) {
+      this.cells = cells;
+    }
+
+    @Override
+    public int getRows() {
+      return cells.length;
+    }
+
+    @Override
+    public int getColumns() {
+      return cells[0].length;
+    }
+
+    @Override
+    public Player getCell(int row, int column) {
+      return cells[row][column];
+    }
+
+    @Override
+    public int getColumnHeight(int column) {
+      int height = 0;
+      while (height < cells.length && cells[height][column] != null) {
+        height++;
+      }
+      return height;
     }
   }
 }
@@ -0,0 +1,106 @@
+package connect;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A fixed-size transposition table for the search engines. It maps a position key to a
+ * small non-zero value, with one entry per slot and newer entries always replacing older
+ * ones. The number of slots is a prime so that keys spread evenly over the table.
+ *
+ * <p>The slot index already tells which keys could live in a slot, so an entry only
+ * keeps the quotient of the key by the table size next to the value, packed into one
+ * {@code long}. Every read and write of an entry is a single atomic 64-bit access, so
+ * several search threads can share one table without locks: a reader sees either the
+ * old entry or the new one, never a mix of the two.
+ */
+final class TranspositionTable {
+  private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final int MIN_SIZE = 1 << 8;
+
+  private final long[] entries;
+  private int rows;
+  private int columns;
+
+  /**
+   * Constructs an empty table with at least the given number of slots.
+   *
+   * @param minSize the minimum number of slots
+   * @throws IllegalArgumentException if the size is not positive
+   */
+  TranspositionTable(int minSize) throws IllegalArgumentException {
+    if (minSize <= 0) {
+      throw new IllegalArgumentException("Invalid table size");
+    }
+    // at least 2^8 slots keep the quotient of any 64-bit key within 56 bits
+    this.entries = new long[nextPrime(Math.max(minSize, MIN_SIZE))];
+  }
+
+  /**
+   * Stores a value for a position, replacing whatever was in its slot.
+   *
+   * @param key the key of the position
+   * @param value the value to store, between -128 and 127 and not 0
+   */
+  void put(long key, int value) {
+    int i = (int) Long.remainderUnsigned(key, entries.length);
+    long quotient = Long.divideUnsigned(key, entries.length);
+    ENTRIES.setOpaque(entries, i, (quotient << 8) | (value & 0xFF));
+  }
+
+  /**
+   * Retrieves the value stored for a position.
+   *
+   * @param key the key of the position
+   * @return the stored value, or 0 if the position is not in the table
+   */
+  int get(long key) {
+    int i = (int) Long.remainderUnsigned(key, entries.length);
+    long entry = (long) ENTRIES.getOpaque(entries, i);
+    if (entry != 0 && entry >>> 8 == Long.divideUnsigned(key, entries.length)) {
+      return (byte) entry;
+    }
+    return 0;
+  }
+
+  int size() {
+    return entries.length;
+  }
+
+  /**
+   * Makes the table ready for positions of the given board size, clearing it if it held
+   * positions of another size, because keys of different board sizes are not comparable.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   */
+  synchronized void ensureBoard(int rows, int columns) {
+    if (rows != this.rows || columns != this.columns) {
+      clear();
+      this.rows = rows;
+      this.columns = columns;
+    }
+  }
+
+  void clear() {
+    Arrays.fill(entries, 0L);
+  }
+
+  private static int nextPrime(int n) {
+    int candidate = Math.max(n, 2);
+    while (!isPrime(candidate)) {
+      candidate++;
+    }
+    return candidate;
+  }
+
+  private static boolean isPrime(int n) {
+    for (int d = 2; (long) d * d <= n; d++) {
+      if (n % d == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
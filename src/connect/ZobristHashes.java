@@ -0,0 +1,69 @@
+package connect;
+
+/**
+ * The Zobrist hashes of a board and of its mirror image, which a model keeps up to date
+ * as discs are dropped and taken back so that {@link CanonicalKey} can read them without
+ * looking at the board. They are the hashes a {@link GridPosition} of the same board
+ * keeps, built from the same disc keys.
+ */
+final class ZobristHashes {
+  private final int rows;
+  private final int columns;
+  private long hash;
+  private long mirrorHash;
+
+  /**
+   * Constructs the hashes of an empty board.
+   *
+   * @param rows the number of rows in the game board
+   * @param columns the number of columns in the game board
+   */
+  ZobristHashes(int rows, int columns) {
+    this.rows = rows;
+    this.columns = columns;
+  }
+
+  /**
+   * Adds a player's disc to a cell, or removes it if it is there, which are the same
+   * operation under exclusive or.
+   *
+   * @param row the row of the cell
+   * @param column the column of the cell
+   * @param player the player who owns the disc
+   */
+  void toggle(int row, int column, Player player) {
+    int code = player == Player.RED ? 1 : 2;
+    hash ^= GridPosition.zobristKey(column * rows + row, code);
+    mirrorHash ^= GridPosition.zobristKey((columns - 1 - column) * rows + row, code);
+  }
+
+  /**
+   * Makes a copy that no longer follows the board.
+   *
+   * @return the copy
+   */
+  ZobristHashes copy() {
+    ZobristHashes copy = new ZobristHashes(rows, columns);
+    copy.hash = hash;
+    copy.mirrorHash = mirrorHash;
+    return copy;
+  }
+
+  /**
+   * Returns the hashes to those of an empty board.
+   */
+  void clear() {
+    hash = 0;
+    mirrorHash = 0;
+  }
+
+  /**
+   * Retrieves the hash of the board or of its mirror image.
+   *
+   * @param mirrored true for the hash of the board mirrored left to right
+   * @return the hash
+   */
+  long get(boolean mirrored) {
+    return mirrored ? mirrorHash : hash;
+  }
+}
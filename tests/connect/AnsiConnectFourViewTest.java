@@ -0,0 +1,186 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the AnsiConnectFourView class. The output is played back on a
+ * small terminal that understands the escape sequences the view writes.
+ */
+public class AnsiConnectFourViewTest {
+
+  @Test
+  public void testScreenShowsEveryBoard() throws IOException {
+    Random random = new Random(6);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    StringBuilder out = new StringBuilder();
+    AnsiConnectFourView view = new AnsiConnectFourView(out);
+    Terminal terminal = new Terminal(30, 80);
+    while (!model.isGameOver()) {
+      model.tryMove(random.nextInt(7));
+      view.displayGameState(model.toString());
+      view.displayPlayerTurn(String.valueOf(model.getTurn()));
+      terminal.play(out);
+      out.setLength(0);
+      assertEquals(model.toString(), terminal.lines(0, 6));
+      // messages start below the board and the area is cleared for every board
+      assertTrue(terminal.line(7).startsWith("Player "));
+      assertEquals("", terminal.line(8).trim());
+    }
+  }
+
+  @Test
+  public void testBytesPerMoveDoNotGrowWithTheBoard() throws IOException {
+    for (int size : new int[] {8, 40, 160}) {
+      ConnectFourModel model = new PackedConnectFourModel(size, size);
+      StringBuilder out = new StringBuilder();
+      AnsiConnectFourView view = new AnsiConnectFourView(out);
+      view.displayGameState(model.toString());
+      view.flush();
+      assertTrue(out.length() > 2 * size * size);
+      for (int i = 0; i < 20; i++) {
+        out.setLength(0);
+        model.makeMove(i * 7 % size);
+        view.displayGameState(model.toString());
+        view.flush();
+        assertTrue(out.length() < 32);
+      }
+    }
+  }
+
+  @Test
+  public void testBoardsInABurstAreDrawnOnce() throws IOException {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    StringBuilder out = new StringBuilder();
+    AnsiConnectFourView view = new AnsiConnectFourView(out);
+    Terminal terminal = new Terminal(12, 80);
+    view.displayGameState(model.toString());
+    view.flush();
+    terminal.play(out);
+    out.setLength(0);
+    model.makeMove(3);
+    view.displayGameState(model.toString());
+    model.makeMove(3);
+    view.displayGameState(model.toString());
+    model.makeMove(4);
+    view.displayGameState(model.toString());
+    assertEquals(0, out.length());
+    view.displayComputerMove("RED", 5);
+    // one cursor move per changed row, as the cells beside each other share one, and one
+    // for the messages
+    assertEquals(3, out.toString().split("\u001b\\[\\d+;\\d+H", -1).length - 1);
+    terminal.play(out);
+    assertEquals(model.toString(), terminal.lines(0, 6));
+    assertEquals("Player RED plays column 5", terminal.line(7).trim());
+  }
+
+  @Test
+  public void testNewBoardSizeRedrawsScreen() throws IOException {
+    StringBuilder out = new StringBuilder();
+    AnsiConnectFourView view = new AnsiConnectFourView(out);
+    Terminal terminal = new Terminal(20, 80);
+    ConnectFourModel small = new ConnectFourModelImpl(4, 4);
+    small.makeMove(0);
+    view.displayGameState(small.toString());
+    view.flush();
+    ConnectFourModel large = new ConnectFourModelImpl(6, 9);
+    large.makeMove(8);
+    view.displayGameState(large.toString());
+    view.flush();
+    terminal.play(out);
+    assertEquals(large.toString(), terminal.lines(0, 6));
+  }
+
+  @Test
+  public void testPlaysWithConsoleController() throws IOException {
+    StringBuilder out = new StringBuilder();
+    ConnectFourConsoleController controller = new ConnectFourConsoleController(
+        new StringReader("1\n2\n1\n2\n9\n1\n2\n1\nno\n"), new AnsiConnectFourView(out));
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    controller.playGame(model);
+    Terminal terminal = new Terminal(20, 80);
+    terminal.play(out);
+    // the controller shows the board before every turn, so the winning move is not on it
+    model.undoMove();
+    assertEquals(model.toString(), terminal.lines(0, 6));
+    assertEquals("Game over! RED is the winner!", terminal.line(9).trim());
+    assertEquals("Do you want to play again? (yes/no)", terminal.line(10).trim());
+  }
+
+  /**
+   * A screen of characters that follows text, newlines and the cursor movement and
+   * erase sequences the view uses.
+   */
+  private static final class Terminal {
+    private final char[][] screen;
+    private int row;
+    private int column;
+
+    private Terminal(int rows, int columns) {
+      screen = new char[rows][columns];
+      clear(0);
+    }
+
+    private void play(CharSequence output) {
+      String text = output.toString();
+      int i = 0;
+      while (i < text.length()) {
+        char c = text.charAt(i);
+        if (c == '\u001b') {
+          int end = i + 2;
+          while (!Character.isLetter(text.charAt(end))) {
+            end++;
+          }
+          String parameters = text.substring(i + 2, end);
+          char command = text.charAt(end);
+          if (command == 'H') {
+            String[] position = parameters.isEmpty() ? new String[] {"1", "1"}
+                : parameters.split(";");
+            row = Integer.parseInt(position[0]) - 1;
+            column = Integer.parseInt(position[1]) - 1;
+          } else if (command == 'J') {
+            if (parameters.equals("2")) {
+              clear(0);
+            } else {
+              Arrays.fill(screen[row], column, screen[row].length, ' ');
+              clear(row + 1);
+            }
+          }
+          i = end + 1;
+        } else {
+          if (c == '\n') {
+            row++;
+            column = 0;
+          } else {
+            screen[row][column++] = c;
+          }
+          i++;
+        }
+      }
+    }
+
+    private void clear(int fromRow) {
+      for (int r = fromRow; r < screen.length; r++) {
+        Arrays.fill(screen[r], ' ');
+      }
+    }
+
+    private String line(int r) {
+      return new String(screen[r]).replaceAll(" +$", "");
+    }
+
+    private String lines(int from, int count) {
+      StringBuilder text = new StringBuilder();
+      for (int r = from; r < from + count; r++) {
+        text.append(line(r)).append('\n');
+      }
+      return text.toString();
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package connect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the BitboardConnectFourModel class.
+ */
+public class BitboardConnectFourModelTest {
+
+  private BitboardConnectFourModel model;
+
+  @Before
+  public void setUp() {
+    model = new BitboardConnectFourModel(6, 7);
+  }
+
+  @Test
+  public void testValidConstructor() {
+    assertEquals(Player.RED, model.getTurn());
+    assertFalse(model.isGameOver());
+    assertNull(model.getWinner());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorRowsTooSmall() {
+    new BitboardConnectFourModel(3, 7);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorColumnsTooSmall() {
+    new BitboardConnectFourModel(6, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorBoardTooLarge() {
+    new BitboardConnectFourModel(8, 8);
+  }
+
+  @Test
+  public void testFits() {
+    assertTrue(BitboardConnectFourModel.fits(6, 7));
+    assertTrue(BitboardConnectFourModel.fits(7, 8));
+    assertFalse(BitboardConnectFourModel.fits(8, 8));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooBigColumn() {
+    model.makeMove(7);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFullColumn() {
+    for (int i = 0; i < 6; i++) {
+      model.makeMove(0);
+    }
+    model.makeMove(0);
+  }
+
+  @Test
+  public void testVerticalWinRed() {
+    model.makeMove(0);
+    model.makeMove(6);
+    model.makeMove(0);
+    model.makeMove(5);
+    model.makeMove(0);
+    model.makeMove(4);
+    model.makeMove(0);
+    assertTrue(model.isGameOver());
+    assertEquals(Player.RED, model.getWinner());
+    assertNull(model.getTurn());
+  }
+
+  @Test
+  public void testDiagonalWinTopLeftToBottomRightYellow() {
+    model.makeMove(0);
+    model.makeMove(0);
+    model.makeMove(0);
+    model.makeMove(0);
+    model.makeMove(1);
+    model.makeMove(1);
+    model.makeMove(6);
+    model.makeMove(1);
+    model.makeMove(2);
+    model.makeMove(2);
+    model.makeMove(6);
+    model.makeMove(3);
+    assertTrue(model.isGameOver());
+    assertEquals(Player.YELLOW, model.getWinner());
+  }
+
+  @Test
+  public void testDraw() {
+    BitboardConnectFourModel fourByfour = new BitboardConnectFourModel(4, 4);
+    int[] moves = {0, 0, 0, 0, 1, 1, 1, 1, 3, 2, 2, 2, 2, 3, 3, 3};
+    for (int move : moves) {
+      fourByfour.makeMove(move);
+    }
+    assertTrue(fourByfour.isGameOver());
+    assertNull(fourByfour.getWinner());
+  }
+
+  @Test
+  public void testToString() {
+    BitboardConnectFourModel fourByfour = new BitboardConnectFourModel(4, 4);
+    fourByfour.makeMove(0);
+    fourByfour.makeMove(3);
+    assertEquals("R _ _ Y\n_ _ _ _\n_ _ _ _\n_ _ _ _\n", fourByfour.toString());
+  }
+
+  @Test
+  public void testMatchesReferenceModelOnRandomGames() {
+    int[][] sizes = {{4, 4}, {4, 12}, {6, 7}, {7, 8}, {5, 10}, {15, 4}};
+    Random random = new Random(42);
+    for (int[] size : sizes) {
+      for (int game = 0; game < 500; game++) {
+        ConnectFourModel expected = new ConnectFourModelImpl(size[0], size[1]);
+        ConnectFourModel actual = new BitboardConnectFourModel(size[0], size[1]);
+        // play a few columns that may be full or out of range to compare the errors too
+        for (int ply = 0; ply < size[0] * size[1] + 5; ply++) {
+          int column = random.nextInt(size[1] + 1) - (random.nextInt(20) == 0 ? 1 : 0);
+          assertSameMove(expected, actual, column);
+          assertEquals(expected.legalMovesMask(), actual.legalMovesMask());
+          assertEquals(expected.getTurn(), actual.getTurn());
+          assertEquals(expected.isGameOver(), actual.isGameOver());
+          assertEquals(expected.getWinner(), actual.getWinner());
+          assertEquals(expected.toString(), actual.toString());
+        }
+        BoardSnapshot expectedSnapshot = expected.getSnapshot();
+        BoardSnapshot actualSnapshot = actual.getSnapshot();
+        for (int j = 0; j < size[1]; j++) {
+          assertEquals(expected.getColumnHeight(j), actual.getColumnHeight(j));
+          assertEquals(expectedSnapshot.getColumnHeight(j), actualSnapshot.getColumnHeight(j));
+          for (int i = 0; i < size[0]; i++) {
+            assertEquals(expected.getCell(i, j), actual.getCell(i, j));
+            assertEquals(expectedSnapshot.getCell(i, j), actualSnapshot.getCell(i, j));
+          }
+        }
+        assertArrayEquals(expected.getBoardState(), actual.getBoardState());
+      }
+    }
+  }
+
+  private static void assertSameMove(ConnectFourModel expected, ConnectFourModel actual,
+                                     int column) {
+    String expectedError = null;
+    try {
+      expected.makeMove(column);
+    } catch (IllegalArgumentException e) {
+      expectedError = e.getMessage();
+    }
+    try {
+      actual.makeMove(column);
+      if (expectedError != null) {
+        fail("Expected IllegalArgumentException: " + expectedError);
+      }
+    } catch (IllegalArgumentException e) {
+      assertEquals(expectedError, e.getMessage());
+    }
+  }
+
+  @Test
+  public void testGameReset() {
+    model.makeMove(0);
+    model.makeMove(1);
+    model.resetBoard();
+    assertNull(model.getBoardState()[0][0]);
+    assertNull(model.getBoardState()[0][1]);
+    assertEquals(Player.RED, model.getTurn());
+    assertFalse(model.isGameOver());
+    assertNull(model.getWinner());
+  }
+
+  @Test
+  public void testSnapshotDoesNotChangeAfterMoves() {
+    model.makeMove(5);
+    BoardSnapshot snapshot = model.getSnapshot();
+    model.makeMove(5);
+    assertEquals(Player.RED, snapshot.getCell(0, 5));
+    assertNull(snapshot.getCell(1, 5));
+    assertEquals(1, snapshot.getColumnHeight(5));
+    assertEquals(2, model.getColumnHeight(5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUndoWithoutMoves() {
+    model.undoMove();
+  }
+
+  @Test
+  public void testUndoRestoresEveryPosition() {
+    Random random = new Random(11);
+    for (int game = 0; game < 50; game++) {
+      ConnectFourModel connect = new BitboardConnectFourModel(6, 7);
+      List<String> states = new ArrayList<>();
+      while (!connect.isGameOver()) {
+        int column = random.nextInt(connect.getColumns());
+        if (connect.getColumnHeight(column) < connect.getRows()) {
+          states.add(describe(connect));
+          connect.makeMove(column);
+        }
+      }
+      for (int i = states.size() - 1; i >= 0; i--) {
+        connect.undoMove();
+        assertEquals(states.get(i), describe(connect));
+      }
+    }
+  }
+
+  private static String describe(ConnectFourModel model) {
+    StringBuilder sb = new StringBuilder(model.toString());
+    for (int j = 0; j < model.getColumns(); j++) {
+      sb.append(model.getColumnHeight(j)).append(' ');
+    }
+    return sb.append(model.getTurn()).append(' ').append(model.getWinner())
+        .append(' ').append(model.isGameOver()).toString();
+  }
+}
@@ -0,0 +1,136 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the BoardComponent class. The component is painted into an image,
+ * so the tests run without a screen.
+ */
+public class BoardComponentTest {
+
+  @Test
+  public void testPaintsDiscsWithRowZeroAtTheBottom() {
+    BoardComponent board = new BoardComponent(6, 7);
+    board.setSize(700, 600);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    model.makeMove(3);
+    model.makeMove(3);
+    model.makeMove(0);
+    board.setBoard(model.getSnapshot());
+    BufferedImage image = paint(board, null);
+    assertEquals(Color.RED.getRGB(), centerColor(board, image, 0, 3));
+    assertEquals(Color.YELLOW.getRGB(), centerColor(board, image, 1, 3));
+    assertEquals(Color.RED.getRGB(), centerColor(board, image, 0, 0));
+    assertEquals(Color.WHITE.getRGB(), centerColor(board, image, 2, 3));
+    assertEquals(Color.WHITE.getRGB(), centerColor(board, image, 5, 6));
+    // the bottom row is painted at the bottom of the component
+    assertEquals(500, board.getCellBounds(0, 3).y);
+  }
+
+  @Test
+  public void testMoveRepaintsOneCell() {
+    List<Rectangle> dirty = new ArrayList<>();
+    BoardComponent board = new BoardComponent(50, 300) {
+      @Override
+      public void repaint(long tm, int x, int y, int width, int height) {
+        dirty.add(new Rectangle(x, y, width, height));
+      }
+    };
+    board.setSize(1200, 200);
+    ConnectFourModel model = new PackedConnectFourModel(50, 300);
+    for (int i = 0; i < 40; i++) {
+      dirty.clear();
+      model.makeMove(i * 37 % 300);
+      board.setBoard(model.getSnapshot());
+      assertEquals(1, dirty.size());
+      int row = model.getColumnHeight(i * 37 % 300) - 1;
+      assertEquals(board.getCellBounds(row, i * 37 % 300), dirty.get(0));
+      assertEquals(4, dirty.get(0).width);
+    }
+    dirty.clear();
+    board.setBoard(model.getSnapshot());
+    assertTrue(dirty.isEmpty());
+  }
+
+  @Test
+  public void testPaintsOnlyTheClip() {
+    BoardComponent board = new BoardComponent(6, 7);
+    board.setSize(700, 600);
+    board.setCell(0, 0, Player.RED);
+    board.setCell(0, 6, Player.YELLOW);
+    // a clip around the bottom left cell leaves the rest of the image untouched
+    BufferedImage image = paint(board, board.getCellBounds(0, 0));
+    assertEquals(Color.RED.getRGB(), centerColor(board, image, 0, 0));
+    assertEquals(0, centerColor(board, image, 0, 6));
+  }
+
+  @Test
+  public void testColumnAt() {
+    BoardComponent board = new BoardComponent(6, 7);
+    // cells of 50 pixels, centered with 75 pixels on each side
+    board.setSize(500, 300);
+    assertEquals(50, board.getCellSize());
+    assertEquals(-1, board.columnAt(74));
+    assertEquals(0, board.columnAt(75));
+    assertEquals(3, board.columnAt(249));
+    assertEquals(6, board.columnAt(424));
+    assertEquals(-1, board.columnAt(425));
+    List<Integer> clicked = new ArrayList<>();
+    board.setColumnListener(clicked::add);
+    board.dispatchEvent(new MouseEvent(board, MouseEvent.MOUSE_PRESSED, 0, 0, 260, 10, 1, false));
+    assertEquals(List.of(3), clicked);
+  }
+
+  @Test
+  public void testSnapshotOfAnotherSizeResizesBoard() {
+    BoardComponent board = new BoardComponent(6, 7);
+    board.setCell(2, 2, Player.RED);
+    ConnectFourModel model = new BitboardConnectFourModel(7, 8);
+    model.makeMove(7);
+    board.setBoard(model.getSnapshot());
+    assertEquals(7, board.getRows());
+    assertEquals(8, board.getColumns());
+    assertEquals(Player.RED, board.getCell(0, 7));
+    assertNull(board.getCell(2, 2));
+    board.clear();
+    assertNull(board.getCell(0, 7));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new BoardComponent(0, 7);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCell() {
+    new BoardComponent(6, 7).setCell(6, 0, Player.RED);
+  }
+
+  private static BufferedImage paint(BoardComponent board, Rectangle clip) {
+    BufferedImage image = new BufferedImage(board.getWidth(), board.getHeight(),
+        BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = image.createGraphics();
+    if (clip != null) {
+      g.setClip(clip);
+    }
+    board.paint(g);
+    g.dispose();
+    return image;
+  }
+
+  private static int centerColor(BoardComponent board, BufferedImage image, int row, int col) {
+    Rectangle bounds = board.getCellBounds(row, col);
+    return image.getRGB((int) bounds.getCenterX(), (int) bounds.getCenterY());
+  }
+}
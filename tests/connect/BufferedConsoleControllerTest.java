@@ -0,0 +1,174 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test class for BufferedConsoleController and BufferedConsoleView.
+ */
+public class BufferedConsoleControllerTest {
+  // the computer always plays the leftmost column that is not full
+  private static final ConnectFourAI LEFTMOST = m -> {
+    int column = 0;
+    while (m.getColumnHeight(column) == m.getRows()) {
+      column++;
+    }
+    return column;
+  };
+
+  @Test
+  public void testSameOutputAsConsoleController() throws IOException {
+    String[] scripts = {
+        "1\n2\n1\n2\n1\n2\n1\nn\n",
+        "1\n2\n1\n2\n1\n2\n3\n2\nNo\n",
+        "1 2 3 4 1 2 3 4 4 3 2 1 1 2 3 4 YES 0\n",
+        "x\n9\n-3\n+2\n99999999999\n2147483648\n2\n2\n2\n2\n2\n2\n0\n",
+        "1\n2\n3\n4\n1\n2\n3\n0\n",
+        "\t 4\r\n\n  4 4 4 4 4 4 abc 5 0"};
+    for (String script : scripts) {
+      assertEquals(consoleOutput(script, null), bufferedOutput(script, null));
+    }
+    String script = "2\n3\n4\n2\nno\n";
+    assertEquals(consoleOutput(script, LEFTMOST), bufferedOutput(script, LEFTMOST));
+  }
+
+  @Test
+  public void testSameOutputForRandomScripts() throws IOException {
+    Random random = new Random(4);
+    for (int s = 0; s < 20; s++) {
+      StringBuilder script = new StringBuilder();
+      int games = 1 + random.nextInt(4);
+      ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+      for (int g = 0; g < games; g++) {
+        model.resetBoard();
+        while (!model.isGameOver()) {
+          int column = random.nextInt(9);
+          script.append(column == 0 ? 1 : column).append(random.nextBoolean() ? '\n' : ' ');
+          model.tryMove((column == 0 ? 1 : column) - 1);
+        }
+        script.append(g < games - 1 ? "yes\n" : "no\n");
+      }
+      assertEquals(consoleOutput(script.toString(), null, new ConnectFourModelImpl(6, 7)),
+          bufferedOutput(script.toString(), null, new BitboardConnectFourModel(6, 7)));
+    }
+  }
+
+  @Test
+  public void testTokensSplitAcrossReads() throws IOException {
+    String script = "1\n2\n1\n2\n1\n  12\n2\n1\nno\n";
+    // a stream that hands out one byte per read
+    InputStream trickle = new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII)) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        return super.read(b, off, Math.min(len, 1));
+      }
+    };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    new BufferedConsoleController(trickle, new BufferedConsoleView(out)).playGame(model);
+    assertEquals(Player.RED, model.getWinner());
+    assertEquals(consoleOutput(script, null, new ConnectFourModelImpl(6, 7)),
+        out.toString(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testPromptsFlushedBeforeReading() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    InputStream answers = new InputStream() {
+      private final byte[] script = "4\n0\n".getBytes(StandardCharsets.US_ASCII);
+      private int next;
+
+      @Override
+      public int read() {
+        return next < script.length ? script[next++] : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        // every prompt must be visible by the time the player is asked to type
+        assertTrue(out.toString(StandardCharsets.US_ASCII)
+            .endsWith("Enter a column number to make a move: \n"));
+        return super.read(b, off, Math.min(len, 2));
+      }
+    };
+    new BufferedConsoleController(answers, new BufferedConsoleView(out))
+        .playGame(new ConnectFourModelImpl(6, 7));
+    assertTrue(out.toString(StandardCharsets.US_ASCII).contains("Game quit!"));
+  }
+
+  @Test
+  public void testRunsOutOfInput() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BufferedConsoleController controller = new BufferedConsoleController(
+        new ByteArrayInputStream("1\n2\n".getBytes(StandardCharsets.US_ASCII)),
+        new BufferedConsoleView(out));
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    try {
+      controller.playGame(model);
+      fail("Expected NoSuchElementException");
+    } catch (NoSuchElementException e) {
+      assertEquals(2, model.getColumnHeight(0) + model.getColumnHeight(1));
+      // what was displayed before the input ran out still reaches the stream
+      assertTrue(out.toString(StandardCharsets.US_ASCII)
+          .endsWith("Enter a column number to make a move: \n"));
+    }
+  }
+
+  @Test
+  public void testBoardRenderedFromModelInProgress() throws IOException {
+    ConnectFourModel model = new PackedConnectFourModel(4, 5);
+    model.makeMove(2);
+    model.makeMove(2);
+    model.makeMove(4);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BufferedConsoleController(
+        new ByteArrayInputStream("0".getBytes(StandardCharsets.US_ASCII)),
+        new BufferedConsoleView(out)).playGame(model);
+    String text = out.toString(StandardCharsets.US_ASCII);
+    assertTrue(text.startsWith(model.toString() + "\n"));
+    assertFalse(model.isGameOver());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testModelInvalid() throws IOException {
+    new BufferedConsoleController(new ByteArrayInputStream(new byte[0]),
+        new BufferedConsoleView(new ByteArrayOutputStream())).playGame(null);
+  }
+
+  private static String consoleOutput(String script, ConnectFourAI ai) throws IOException {
+    return consoleOutput(script, ai, new ConnectFourModelImpl(4, 4));
+  }
+
+  private static String consoleOutput(String script, ConnectFourAI ai, ConnectFourModel model)
+      throws IOException {
+    StringBuilder out = new StringBuilder();
+    new ConnectFourConsoleController(new StringReader(script), new ConnectFourView(out),
+        ai, Player.YELLOW).playGame(model);
+    return out.toString();
+  }
+
+  private static String bufferedOutput(String script, ConnectFourAI ai) throws IOException {
+    return bufferedOutput(script, ai, new ConnectFourModelImpl(4, 4));
+  }
+
+  private static String bufferedOutput(String script, ConnectFourAI ai, ConnectFourModel model)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BufferedConsoleController(
+        new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII)),
+        new BufferedConsoleView(out), ai, Player.YELLOW).playGame(model);
+    return out.toString(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,169 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the CanonicalKey class and the canonical keys of the search
+ * positions.
+ */
+public class CanonicalKeyTest {
+
+  @Test
+  public void testMirroredSequencesShareKeys() {
+    int[][] sizes = {{6, 7}, {7, 9}, {4, 4}, {5, 12}};
+    Random random = new Random(11);
+    for (int[] size : sizes) {
+      int rows = size[0];
+      int columns = size[1];
+      for (int game = 0; game < 20; game++) {
+        ConnectFourModel model = new ConnectFourModelImpl(rows, columns);
+        ConnectFourModel mirror = new PackedConnectFourModel(rows, columns);
+        GridPosition position = new GridPosition(rows, columns, 4, false);
+        GridPosition mirrorPosition = new GridPosition(rows, columns, 4, false);
+        Position bitboard = BitboardConnectFourModel.fits(rows, columns)
+            ? new Position(rows, columns) : null;
+        while (!model.isGameOver()) {
+          int column = random.nextInt(columns);
+          if (model.tryMove(column) != MoveStatus.OK) {
+            continue;
+          }
+          mirror.makeMove(columns - 1 - column);
+          position.play(column);
+          mirrorPosition.play(columns - 1 - column);
+          if (bitboard != null) {
+            bitboard.playColumn(column);
+          }
+          long key = CanonicalKey.of(model);
+          assertEquals(key, CanonicalKey.of(mirror));
+          assertEquals(key, position.canonicalHash());
+          assertEquals(key, mirrorPosition.canonicalHash());
+          if (position.hash() != mirrorPosition.hash()) {
+            assertTrue(CanonicalKey.isMirrored(model) != CanonicalKey.isMirrored(mirror));
+            assertTrue(position.isMirrored() != mirrorPosition.isMirrored());
+          }
+          if (bitboard != null && !model.isGameOver()) {
+            assertEquals(bitboard.canonicalKey(), Position.of(mirror).canonicalKey());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUndoRestoresKeys() {
+    GridPosition position = new GridPosition(6, 7, 4, false);
+    long empty = position.canonicalHash();
+    position.play(1);
+    long one = position.canonicalHash();
+    position.play(1);
+    position.play(6);
+    position.undo(6);
+    position.undo(1);
+    assertEquals(one, position.canonicalHash());
+    position.undo(1);
+    assertEquals(empty, position.canonicalHash());
+    assertEquals(0, empty);
+  }
+
+  @Test
+  public void testModelsKeepKeysUpToDate() {
+    ConnectFourModel[] models = {new ConnectFourModelImpl(6, 7),
+        new BitboardConnectFourModel(6, 7), new PackedConnectFourModel(6, 7)};
+    for (ConnectFourModel model : models) {
+      Random random = new Random(5);
+      int moves = 0;
+      for (int step = 0; step < 2000; step++) {
+        int action = random.nextInt(20);
+        if (action == 0) {
+          model.resetBoard();
+          moves = 0;
+        } else if (action == 1) {
+          model.getSnapshot();
+        } else if (model.isGameOver() || moves > 0 && action < 6) {
+          model.undoMove();
+          moves--;
+        } else if (model.tryMove(random.nextInt(7)) == MoveStatus.OK) {
+          moves++;
+        }
+        if (!model.isGameOver()) {
+          // a position read cell by cell has the hashes the model keeps, and so does a
+          // read-only copy of the board
+          ConnectFourModel copy = new SnapshotModel(model);
+          GridPosition position = GridPosition.of(model);
+          assertEquals(position.canonicalHash(), CanonicalKey.of(model));
+          assertEquals(position.isMirrored(), CanonicalKey.isMirrored(model));
+          assertEquals(CanonicalKey.of(copy), CanonicalKey.of(model));
+          assertEquals(CanonicalKey.isMirrored(copy), CanonicalKey.isMirrored(model));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMirroredColumnsMapToTheSameColumn() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    ConnectFourModel mirror = new ConnectFourModelImpl(6, 7);
+    model.makeMove(0);
+    model.makeMove(2);
+    mirror.makeMove(6);
+    mirror.makeMove(4);
+    assertNotEquals(CanonicalKey.isMirrored(model), CanonicalKey.isMirrored(mirror));
+    // a move cached under the key means the same cell in both orientations
+    for (int column = 0; column < 7; column++) {
+      assertEquals(canonicalColumn(model, column), canonicalColumn(mirror, 6 - column));
+    }
+  }
+
+  @Test
+  public void testNoCollisionsOnStandardBoard() {
+    // every position of up to eight discs, identified exactly by the smaller of its
+    // bitboard key and its mirror's, against the canonical Zobrist hash
+    Map<Long, Long> exactByHash = new HashMap<>();
+    Set<Long> positions = new HashSet<>();
+    enumerate(new Position(6, 7), new Position(6, 7), new GridPosition(6, 7, 4, false),
+        8, positions, exactByHash);
+    assertEquals(exactByHash.size(), new HashSet<>(exactByHash.values()).size());
+    // mirror images of each other count once, only symmetric positions stand alone
+    assertTrue(exactByHash.size() < positions.size() * 0.55);
+    assertTrue(exactByHash.size() > positions.size() / 2);
+  }
+
+  private static void enumerate(Position position, Position mirror, GridPosition grid,
+                                int depth, Set<Long> positions, Map<Long, Long> exactByHash) {
+    if (!positions.add(position.key())) {
+      return;
+    }
+    long exact = Math.min(position.key(), mirror.key());
+    assertEquals(exact, position.canonicalKey());
+    assertEquals(exact, mirror.canonicalKey());
+    Long previous = exactByHash.putIfAbsent(grid.canonicalHash(), exact);
+    assertEquals(exact, previous == null ? exact : previous);
+    if (depth == 0) {
+      return;
+    }
+    for (int column = 0; column < 7; column++) {
+      if (position.canPlay(column)) {
+        long move = position.playColumn(column);
+        long mirrorMove = mirror.playColumn(6 - column);
+        grid.play(column);
+        enumerate(position, mirror, grid, depth - 1, positions, exactByHash);
+        grid.undo(column);
+        mirror.undo(mirrorMove);
+        position.undo(move);
+      }
+    }
+  }
+
+  private static int canonicalColumn(ConnectFourModel model, int column) {
+    return CanonicalKey.isMirrored(model) ? model.getColumns() - 1 - column : column;
+  }
+}
@@ -120,4 +120,28 @@ public class ConnectFourConsoleControllerTest {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testComputerOpponentPlaysYellow() {
+    StringBuilder out = new StringBuilder();
+    ConnectFourView view = new ConnectFourView(out);
+    // the computer always plays the leftmost column that is not full
+    ConnectFourAI leftmost = m -> {
+      int column = 0;
+      while (m.getColumnHeight(column) == m.getRows()) {
+        column++;
+      }
+      return column;
+    };
+    ConnectFourConsoleController controller = new ConnectFourConsoleController(
+        new StringReader("2\n3\n4\n2\nno\n"), view, leftmost, Player.YELLOW);
+    ConnectFourModelImpl model = new ConnectFourModelImpl(4, 4);
+    try {
+      controller.playGame(model);
+      assertTrue(model.isGameOver());
+      assertEquals(Player.YELLOW, model.getWinner());
+      assertTrue(out.toString().contains("Player YELLOW plays column 1"));
+    } catch (IllegalArgumentException | IOException e) {
+      fail("Unexpected exception");
+    }
+  }
+}
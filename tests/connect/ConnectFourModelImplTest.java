@@ -2,9 +2,15 @@ package connect;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -330,4 +336,345 @@ public class ConnectFourModelImplTest {
     assertEquals("R _ _ _\n_ _ _ _\n_ _ _ _\n_ _ _ _\n",
         fourByfour.toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testDiagonalWinInMiddleOfLargeBoard() {
+    ConnectFourModelImpl large = new ConnectFourModelImpl(20, 30);
+    // red builds a staircase from (0, 10) to (3, 13), yellow fills in below it
+    int[] moves = {10, 11, 11, 12, 20, 12, 12, 13, 20, 13, 21, 13};
+    for (int move : moves) {
+      large.makeMove(move);
+      assertFalse(large.isGameOver());
+    }
+    large.makeMove(13);
+    assertTrue(large.isGameOver());
+    assertEquals(Player.RED, large.getWinner());
+  }
+
+  @Test
+  public void testGetCellAndColumnHeight() {
+    assertEquals(6, model.getRows());
+    assertEquals(7, model.getColumns());
+    model.makeMove(3);
+    model.makeMove(3);
+    assertEquals(Player.RED, model.getCell(0, 3));
+    assertEquals(Player.YELLOW, model.getCell(1, 3));
+    assertNull(model.getCell(2, 3));
+    assertEquals(2, model.getColumnHeight(3));
+    assertEquals(0, model.getColumnHeight(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetCellOutOfBounds() {
+    model.getCell(6, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetColumnHeightOutOfBounds() {
+    model.getColumnHeight(-1);
+  }
+
+  @Test
+  public void testSnapshotIsReusedUntilNextMove() {
+    BoardSnapshot first = model.getSnapshot();
+    assertSame(first, model.getSnapshot());
+    model.makeMove(0);
+    assertNotSame(first, model.getSnapshot());
+  }
+
+  @Test
+  public void testSnapshotDoesNotChangeAfterMovesAndReset() {
+    model.makeMove(2);
+    BoardSnapshot snapshot = model.getSnapshot();
+    model.makeMove(2);
+    model.makeMove(4);
+    assertEquals(Player.RED, snapshot.getCell(0, 2));
+    assertNull(snapshot.getCell(1, 2));
+    assertNull(snapshot.getCell(0, 4));
+    assertEquals(1, snapshot.getColumnHeight(2));
+    assertEquals(0, snapshot.getColumnHeight(4));
+    BoardSnapshot later = model.getSnapshot();
+    model.resetBoard();
+    assertEquals(Player.YELLOW, later.getCell(1, 2));
+    assertEquals(Player.RED, later.getCell(0, 4));
+    assertNull(model.getCell(0, 2));
+    assertEquals(Player.RED, snapshot.getCell(0, 2));
+    model.makeMove(2);
+    assertEquals(Player.RED, model.getCell(0, 2));
+    assertEquals(2, later.getColumnHeight(2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorWinLengthTooSmall() {
+    new ConnectFourModelImpl(6, 7, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorBoardSmallerThanWinLength() {
+    new ConnectFourModelImpl(5, 7, 6);
+  }
+
+  @Test
+  public void testDefaultWinLength() {
+    assertEquals(4, model.getWinLength());
+    assertEquals(5, new ConnectFourModelImpl(5, 5, 5).getWinLength());
+  }
+
+  @Test
+  public void testConnectFiveHorizontalWin() {
+    ConnectFourModelImpl five = new ConnectFourModelImpl(6, 9, 5);
+    // four in a row is not enough
+    int[] moves = {1, 1, 2, 2, 3, 3, 4, 4};
+    for (int move : moves) {
+      five.makeMove(move);
+    }
+    assertFalse(five.isGameOver());
+    five.makeMove(5);
+    assertTrue(five.isGameOver());
+    assertEquals(Player.RED, five.getWinner());
+  }
+
+  @Test
+  public void testConnectFiveWinInMiddleOfRun() {
+    ConnectFourModelImpl five = new ConnectFourModelImpl(6, 9, 5);
+    // the last disc fills the gap in the middle of the run
+    int[] moves = {1, 1, 2, 2, 4, 4, 5, 5};
+    for (int move : moves) {
+      five.makeMove(move);
+    }
+    assertFalse(five.isGameOver());
+    five.makeMove(3);
+    assertEquals(Player.RED, five.getWinner());
+  }
+
+  @Test
+  public void testConnectNMatchesFullBoardScan() {
+    Random random = new Random(5);
+    for (int winLength = 3; winLength <= 7; winLength++) {
+      for (int game = 0; game < 30; game++) {
+        ConnectFourModelImpl connect = new ConnectFourModelImpl(8, 10, winLength);
+        while (!connect.isGameOver()) {
+          int column = random.nextInt(10);
+          if (connect.getColumnHeight(column) < 8) {
+            Player mover = connect.getTurn();
+            connect.makeMove(column);
+            boolean won = hasRun(connect, mover, winLength);
+            assertEquals(won, connect.isGameOver() && connect.getWinner() == mover);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testConnectSixVerticalWin() {
+    ConnectFourModelImpl six = new ConnectFourModelImpl(8, 8, 6);
+    for (int i = 0; i < 5; i++) {
+      six.makeMove(0);
+      six.makeMove(1);
+    }
+    assertFalse(six.isGameOver());
+    six.makeMove(0);
+    assertEquals(Player.RED, six.getWinner());
+  }
+
+  @Test
+  public void testConnectThree() {
+    ConnectFourModelImpl three = new ConnectFourModelImpl(3, 3, 3);
+    int[] moves = {0, 1, 1, 2, 2, 0};
+    for (int move : moves) {
+      three.makeMove(move);
+    }
+    assertFalse(three.isGameOver());
+    three.makeMove(2);
+    assertEquals(Player.RED, three.getWinner());
+  }
+
+  @Test
+  public void testUndoRestoresWinAndTurn() {
+    int[] moves = {0, 1, 0, 1, 0, 1};
+    for (int move : moves) {
+      model.makeMove(move);
+    }
+    model.makeMove(0);
+    assertEquals(Player.RED, model.getWinner());
+    model.undoMove();
+    assertFalse(model.isGameOver());
+    assertNull(model.getWinner());
+    assertEquals(Player.RED, model.getTurn());
+    assertNull(model.getCell(3, 0));
+    assertEquals(3, model.getColumnHeight(0));
+    model.undoMove();
+    assertEquals(Player.YELLOW, model.getTurn());
+    assertEquals(2, model.getColumnHeight(1));
+  }
+
+  @Test
+  public void testUndoRestoresDraw() {
+    ConnectFourModelImpl fourByfour = new ConnectFourModelImpl(4, 4);
+    int[] moves = {0, 0, 0, 0, 1, 1, 1, 1, 3, 2, 2, 2, 2, 3, 3, 3};
+    for (int move : moves) {
+      fourByfour.makeMove(move);
+    }
+    assertTrue(fourByfour.isGameOver());
+    fourByfour.undoMove();
+    assertFalse(fourByfour.isGameOver());
+    assertEquals(Player.YELLOW, fourByfour.getTurn());
+    fourByfour.makeMove(3);
+    assertTrue(fourByfour.isGameOver());
+    assertNull(fourByfour.getWinner());
+  }
+
+  @Test
+  public void testUndoDoesNotChangeSnapshot() {
+    model.makeMove(2);
+    model.makeMove(2);
+    BoardSnapshot snapshot = model.getSnapshot();
+    model.undoMove();
+    assertEquals(Player.YELLOW, snapshot.getCell(1, 2));
+    assertEquals(2, snapshot.getColumnHeight(2));
+    assertNull(model.getCell(1, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUndoAfterReset() {
+    model.makeMove(2);
+    model.resetBoard();
+    model.undoMove();
+  }
+
+  @Test
+  public void testTryMoveStatus() {
+    assertEquals(MoveStatus.INVALID_COLUMN, model.tryMove(-1));
+    assertEquals(MoveStatus.INVALID_COLUMN, model.tryMove(7));
+    for (int i = 0; i < 6; i++) {
+      assertEquals(MoveStatus.OK, model.tryMove(3));
+    }
+    assertEquals(MoveStatus.COLUMN_FULL, model.tryMove(3));
+    assertEquals(Player.RED, model.getTurn());
+    int[] moves = {0, 1, 0, 1, 0, 1, 0};
+    for (int move : moves) {
+      assertEquals(MoveStatus.OK, model.tryMove(move));
+    }
+    assertEquals(MoveStatus.GAME_OVER, model.tryMove(2));
+    assertEquals(Player.RED, model.getWinner());
+  }
+
+  @Test
+  public void testMakeMoveKeepsExceptionMessages() {
+    for (int i = 0; i < 6; i++) {
+      model.makeMove(3);
+    }
+    try {
+      model.makeMove(3);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Column full", e.getMessage());
+    }
+    try {
+      model.makeMove(9);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid column", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testLegalMovesMask() {
+    assertEquals(0x7FL, model.legalMovesMask());
+    for (int i = 0; i < 6; i++) {
+      model.makeMove(2);
+    }
+    assertEquals(0x7BL, model.legalMovesMask());
+    assertEquals(0x3DL, model.legalMovesMask(1));
+    assertEquals(0L, model.legalMovesMask(7));
+    model.undoMove();
+    assertEquals(0x7FL, model.legalMovesMask());
+    int[] moves = {2, 0, 1, 0, 1, 0, 1, 0};
+    for (int move : moves) {
+      model.makeMove(move);
+    }
+    assertTrue(model.isGameOver());
+    assertEquals(0L, model.legalMovesMask());
+  }
+
+  @Test
+  public void testLegalMovesMaskOnWideBoard() {
+    ConnectFourModelImpl wide = new ConnectFourModelImpl(4, 130);
+    for (int i = 0; i < 4; i++) {
+      wide.makeMove(70);
+    }
+    assertEquals(~(1L << 6), wide.legalMovesMask(64));
+    assertEquals(~(1L << 10), wide.legalMovesMask(60));
+    assertEquals(-1L, wide.legalMovesMask(0));
+    assertEquals(0x3FFFFFFFL, wide.legalMovesMask(100));
+    assertEquals(0L, wide.legalMovesMask(130));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLegalMovesMaskNegativeColumn() {
+    model.legalMovesMask(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUndoWithoutMoves() {
+    model.undoMove();
+  }
+
+  @Test
+  public void testUndoRestoresEveryPosition() {
+    Random random = new Random(11);
+    for (int game = 0; game < 50; game++) {
+      ConnectFourModel connect = new ConnectFourModelImpl(6, 7, 3 + game % 3);
+      List<String> states = new ArrayList<>();
+      while (!connect.isGameOver()) {
+        int column = random.nextInt(connect.getColumns());
+        if (connect.getColumnHeight(column) < connect.getRows()) {
+          states.add(describe(connect));
+          connect.makeMove(column);
+        }
+      }
+      for (int i = states.size() - 1; i >= 0; i--) {
+        connect.undoMove();
+        assertEquals(states.get(i), describe(connect));
+      }
+    }
+  }
+
+  private static String describe(ConnectFourModel model) {
+    StringBuilder sb = new StringBuilder(model.toString());
+    for (int j = 0; j < model.getColumns(); j++) {
+      sb.append(model.getColumnHeight(j)).append(' ');
+    }
+    return sb.append(model.getTurn()).append(' ').append(model.getWinner())
+        .append(' ').append(model.isGameOver()).toString();
+  }
+
+  /**
+   * Scans the whole board for a run of the given length, as the model did before it
+   * only looked at the last move.
+   */
+  private static boolean hasRun(ConnectFourModel model, Player player, int length) {
+    int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    for (int i = 0; i < model.getRows(); i++) {
+      for (int j = 0; j < model.getColumns(); j++) {
+        for (int[] d : directions) {
+          int k = 0;
+          while (k < length) {
+            int r = i + k * d[0];
+            int c = j + k * d[1];
+            if (r >= model.getRows() || c < 0 || c >= model.getColumns()
+                || model.getCell(r, c) != player) {
+              break;
+            }
+            k++;
+          }
+          if (k == length) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,207 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the GameRecordWriter and GameRecordReader classes.
+ */
+public class GameRecordTest {
+
+  @Test
+  public void testRoundTripOfRandomGames() throws IOException {
+    int[][] sizes = {{6, 7, 4}, {4, 15, 4}, {5, 16, 4}, {7, 9, 5}, {4, 300, 4}};
+    Random random = new Random(8);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int[][] games = new int[500][];
+    try (GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes))) {
+      for (int g = 0; g < games.length; g++) {
+        int[] size = sizes[g % sizes.length];
+        ConnectFourModel model = new ConnectFourModelImpl(size[0], size[1], size[2]);
+        int[] moves = new int[size[0] * size[1]];
+        int count = 0;
+        // leave some games unfinished
+        int stop = random.nextInt(10) == 0 ? random.nextInt(moves.length) : moves.length;
+        while (!model.isGameOver() && count < stop) {
+          int column = random.nextInt(size[1]);
+          if (model.tryMove(column) == MoveStatus.OK) {
+            moves[count++] = column;
+          }
+        }
+        writer.write(model, moves, count);
+        games[g] = Arrays.copyOf(moves, count);
+      }
+      assertEquals(games.length, writer.getGames());
+    }
+    try (GameRecordReader reader = new GameRecordReader(
+        Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+      for (int g = 0; g < games.length; g++) {
+        int[] size = sizes[g % sizes.length];
+        assertTrue(reader.next());
+        assertEquals(size[0], reader.getRows());
+        assertEquals(size[1], reader.getColumns());
+        assertEquals(size[2], reader.getWinLength());
+        assertEquals(games[g].length, reader.getMoveCount());
+        for (int i = 0; i < games[g].length; i++) {
+          assertEquals(games[g][i], reader.getMove(i));
+        }
+        ConnectFourModel model = new PackedConnectFourModel(size[0], size[1], size[2]);
+        reader.replay(model);
+        assertEquals(reader.getResult(), GameRecord.resultOf(model));
+      }
+      assertFalse(reader.next());
+      assertEquals(games.length, reader.getGames());
+    }
+  }
+
+  @Test
+  public void testStandardGameSize() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes))) {
+      writer.write(6, 7, 4, GameRecord.RED_WON, new int[] {0, 1, 0, 1, 0, 1, 0}, 7);
+    }
+    // the file header, four header bytes and seven moves in four bytes
+    assertEquals(5 + 4 + 4, bytes.size());
+  }
+
+  @Test
+  public void testRecordLargerThanBuffer() throws IOException {
+    int[] moves = new int[300_000];
+    for (int i = 0; i < moves.length; i++) {
+      moves[i] = i * 5 % 7;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes))) {
+      writer.write(50_000, 7, 4, GameRecord.UNFINISHED, moves, moves.length);
+      writer.write(6, 7, 4, GameRecord.UNFINISHED, moves, 3);
+    }
+    GameRecordReader reader = new GameRecordReader(
+        Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+    assertTrue(reader.next());
+    assertEquals(moves.length, reader.getMoveCount());
+    for (int i = 0; i < moves.length; i++) {
+      assertEquals(moves[i], reader.getMove(i));
+    }
+    assertTrue(reader.next());
+    assertEquals(3, reader.getMoveCount());
+    assertEquals(5, reader.getMove(1));
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void testResultCodes() {
+    ConnectFourModel model = new ConnectFourModelImpl(4, 4);
+    assertEquals(GameRecord.UNFINISHED, GameRecord.resultOf(model));
+    for (int move : new int[] {0, 0, 0, 0, 1, 1, 1, 1, 3, 2, 2, 2, 2, 3, 3, 3}) {
+      model.makeMove(move);
+    }
+    assertEquals(GameRecord.DRAW, GameRecord.resultOf(model));
+    model.resetBoard();
+    for (int move : new int[] {1, 0, 1, 0, 2, 0, 2, 0}) {
+      model.makeMove(move);
+    }
+    assertEquals(GameRecord.YELLOW_WON, GameRecord.resultOf(model));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotARecordFile() throws IOException {
+    new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(new byte[] {1, 2})));
+  }
+
+  @Test
+  public void testTruncatedRecord() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes))) {
+      writer.write(6, 7, 4, GameRecord.UNFINISHED, new int[] {3, 3, 3, 2}, 4);
+    }
+    byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+    GameRecordReader reader = new GameRecordReader(
+        Channels.newChannel(new ByteArrayInputStream(truncated)));
+    try {
+      reader.next();
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals("Truncated game record", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testOversizedHeaders() throws IOException {
+    // a count of moves no array can hold, on a board that would have room for it
+    assertHeaderFails("Corrupt game record", 1 << 30, 7, Integer.MAX_VALUE);
+    assertHeaderFails("Corrupt game record", 1 << 30, 100, Integer.MAX_VALUE - 1);
+    // a count that could be read, but whose moves are missing
+    assertHeaderFails("Truncated game record", 1 << 30, 7, 1 << 30);
+    assertHeaderFails("Truncated game record", 1 << 30, 100, Integer.MAX_VALUE - 20);
+  }
+
+  private static void assertHeaderFails(String message, int rows, int columns, int moveCount)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (int b : new int[] {0x43, 0x34, 0x47, 0x52, 1}) {
+      bytes.write(b);
+    }
+    writeVarint(bytes, rows);
+    writeVarint(bytes, columns);
+    // the flags of an unfinished game with four in a row
+    bytes.write(GameRecord.UNFINISHED);
+    writeVarint(bytes, moveCount);
+    GameRecordReader reader = new GameRecordReader(
+        Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+    try {
+      reader.next();
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals(message, e.getMessage());
+    }
+  }
+
+  private static void writeVarint(ByteArrayOutputStream bytes, int value) {
+    while (value >= 0x80) {
+      bytes.write(value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    bytes.write(value);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReplayDetectsWrongResult() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes))) {
+      writer.write(6, 7, 4, GameRecord.YELLOW_WON, new int[] {0, 1, 0, 1, 0, 1, 0}, 7);
+    }
+    GameRecordReader reader = new GameRecordReader(
+        Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+    assertTrue(reader.next());
+    reader.replay(new ConnectFourModelImpl(6, 7));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteInvalidColumn() throws IOException {
+    GameRecordWriter writer = new GameRecordWriter(
+        Channels.newChannel(new ByteArrayOutputStream()));
+    writer.write(6, 7, 4, GameRecord.UNFINISHED, new int[] {7}, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReplayOnWrongBoard() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes))) {
+      writer.write(6, 7, 4, GameRecord.UNFINISHED, new int[] {3}, 1);
+    }
+    GameRecordReader reader = new GameRecordReader(
+        Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+    assertTrue(reader.next());
+    reader.replay(new ConnectFourModelImpl(6, 8));
+  }
+}
@@ -0,0 +1,143 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the GridPosition class.
+ */
+public class GridPositionTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new GridPosition(0, 7);
+  }
+
+  @Test
+  public void testHashOfEmptyBoard() {
+    assertEquals(0, new GridPosition(6, 7).hash());
+  }
+
+  @Test
+  public void testHashIsIncremental() {
+    Random random = new Random(11);
+    for (int game = 0; game < 50; game++) {
+      ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+      GridPosition position = new GridPosition(6, 7);
+      Position bitboard = new Position(6, 7);
+      int[] played = new int[42];
+      long[] hashes = new long[42];
+      int count = 0;
+      while (!model.isGameOver()) {
+        int column = random.nextInt(7);
+        if (position.canPlay(column)) {
+          assertEquals(bitboard.isWinningMove(column), position.isWinningMove(column));
+          hashes[count] = position.hash();
+          played[count++] = column;
+          model.makeMove(column);
+          position.play(column);
+          bitboard.playColumn(column);
+          if (!model.isGameOver()) {
+            assertEquals(GridPosition.of(model).hash(), position.hash());
+          }
+        }
+      }
+      for (int i = count - 1; i >= 0; i--) {
+        position.undo(played[i]);
+        assertEquals(hashes[i], position.hash());
+      }
+      assertEquals(0, position.getMoves());
+    }
+  }
+
+  @Test
+  public void testTranspositionsShareHash() {
+    GridPosition a = new GridPosition(6, 7);
+    GridPosition b = new GridPosition(6, 7);
+    for (int column : new int[] {3, 2, 4, 5}) {
+      a.play(column);
+    }
+    for (int column : new int[] {4, 5, 3, 2}) {
+      b.play(column);
+    }
+    assertEquals(a.hash(), b.hash());
+    b.undo(2);
+    b.play(1);
+    assertNotEquals(a.hash(), b.hash());
+  }
+
+  @Test
+  public void testReadsModel() {
+    ConnectFourModel model = new ConnectFourModelImpl(5, 6);
+    for (int column : new int[] {0, 0, 1, 5}) {
+      model.makeMove(column);
+    }
+    GridPosition position = GridPosition.of(model);
+    assertEquals(4, position.getMoves());
+    assertEquals(1, position.getCurrentPlayer());
+    assertEquals(1, position.getCell(0, 0));
+    assertEquals(2, position.getCell(1, 0));
+    assertEquals(2, position.getHeight(0));
+    assertEquals(0, position.getCell(0, 2));
+    assertTrue(position.canPlay(0));
+    assertFalse(position.isFull());
+  }
+
+  @Test
+  public void testReusesPositionOfTheSameGame() {
+    Random random = new Random(13);
+    ConnectFourModel model = new PackedConnectFourModel(6, 7);
+    GridPosition previous = null;
+    int moves = 0;
+    for (int step = 0; step < 3000; step++) {
+      int action = random.nextInt(40);
+      if (action == 0) {
+        model.resetBoard();
+        moves = 0;
+      } else if (action == 1) {
+        // a different game on a board of the same size
+        model = new ConnectFourModelImpl(6, 7);
+        model.makeMove(random.nextInt(7));
+        moves = 1;
+      } else if (model.isGameOver() || action < 6 && moves > 0) {
+        model.undoMove();
+        moves--;
+      } else if (model.tryMove(random.nextInt(7)) == MoveStatus.OK) {
+        moves++;
+      }
+      if (model.isGameOver() || random.nextBoolean()) {
+        continue;
+      }
+      GridPosition expected = GridPosition.of(model);
+      GridPosition position = GridPosition.of(model, previous);
+      assertEquals(expected.hash(), position.hash());
+      assertEquals(expected.evaluate(), position.evaluate());
+      assertEquals(expected.getMoves(), position.getMoves());
+      for (int column = 0; column < 7; column++) {
+        assertEquals(expected.getHeight(column), position.getHeight(column));
+      }
+      if (previous != null && position != previous) {
+        assertNotEquals(previous.hash(), position.hash());
+      }
+      previous = position;
+    }
+  }
+
+  @Test
+  public void testLargeBoard() {
+    GridPosition position = new GridPosition(1000, 1000);
+    position.play(999);
+    position.play(0);
+    position.play(998);
+    position.play(0);
+    position.play(997);
+    position.play(0);
+    assertTrue(position.isWinningMove(996));
+    assertFalse(position.isWinningMove(995));
+  }
+}
@@ -0,0 +1,105 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the IterativeDeepeningConnectFourAI class.
+ */
+public class IterativeDeepeningConnectFourAITest {
+
+  private IterativeDeepeningConnectFourAI ai;
+
+  @Before
+  public void setUp() {
+    ai = new IterativeDeepeningConnectFourAI(200, 1 << 20);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBudget() {
+    new IterativeDeepeningConnectFourAI(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testModelInvalid() {
+    ai.chooseMove(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGameOver() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    for (int move : new int[] {0, 1, 0, 1, 0, 1, 0}) {
+      model.makeMove(move);
+    }
+    ai.chooseMove(model);
+  }
+
+  @Test
+  public void testChoosesImmediateWin() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    for (int move : new int[] {0, 1, 0, 1, 0, 1}) {
+      model.makeMove(move);
+    }
+    assertEquals(0, ai.chooseMove(model));
+    assertEquals(IterativeDeepeningConnectFourAI.WIN, ai.getLastScore());
+  }
+
+  @Test
+  public void testBlocksOpponentWin() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    for (int move : new int[] {0, 6, 1, 6, 2}) {
+      model.makeMove(move);
+    }
+    assertEquals(3, ai.chooseMove(model));
+  }
+
+  @Test
+  public void testFindsForcedWin() {
+    // on 4x5 the first player wins, so a proven score must agree with the exact solver
+    NegamaxConnectFourAI solver = new NegamaxConnectFourAI(1 << 16);
+    ConnectFourModel model = new ConnectFourModelImpl(4, 5);
+    for (int move : new int[] {2, 2, 1}) {
+      model.makeMove(move);
+    }
+    int exact = solver.solve(model);
+    int move = ai.chooseMove(model);
+    assertTrue(ai.getCompletedDepth() > 0);
+    if (Math.abs(ai.getLastScore()) >= IterativeDeepeningConnectFourAI.WIN - 128) {
+      assertEquals(Integer.signum(exact), Integer.signum(ai.getLastScore()));
+    }
+    if (exact > 0) {
+      model.makeMove(move);
+      assertTrue(model.isGameOver() || solver.solve(model) < 0);
+    }
+  }
+
+  @Test
+  public void testPrincipalVariationStartsWithMove() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    model.makeMove(3);
+    int move = ai.chooseMove(model);
+    int[] pv = ai.getPrincipalVariation();
+    assertTrue(pv.length >= 1);
+    assertEquals(move, pv[0]);
+    assertTrue(ai.getNodeCount() > 0);
+  }
+
+  @Test
+  public void testAnswersWithinBudgetOnLargeBoards() {
+    int[][] sizes = {{6, 7}, {60, 70}, {200, 500}};
+    for (int[] size : sizes) {
+      ConnectFourModel model = new ConnectFourModelImpl(size[0], size[1]);
+      model.makeMove(size[1] / 2);
+      IterativeDeepeningConnectFourAI fast = new IterativeDeepeningConnectFourAI(100, 1 << 20);
+      long start = System.nanoTime();
+      int move = fast.chooseMove(model);
+      long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+      assertTrue(move >= 0 && move < size[1]);
+      assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 400);
+      assertTrue(fast.getCompletedDepth() >= 1);
+    }
+  }
+}
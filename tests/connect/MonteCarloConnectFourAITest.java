@@ -0,0 +1,116 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the MonteCarloConnectFourAI class.
+ */
+public class MonteCarloConnectFourAITest {
+
+  private MonteCarloConnectFourAI ai;
+
+  @Before
+  public void setUp() {
+    ai = new MonteCarloConnectFourAI(2, 1 << 16, 42);
+    ai.setTimeBudget(5000);
+    ai.setIterationBudget(20000);
+  }
+
+  @After
+  public void tearDown() {
+    ai.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidThreadCount() {
+    new MonteCarloConnectFourAI(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNodeCount() {
+    new MonteCarloConnectFourAI(1, 0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidTimeBudget() {
+    ai.setTimeBudget(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidIterationBudget() {
+    ai.setIterationBudget(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testModelInvalid() {
+    ai.chooseMove(null);
+  }
+
+  @Test
+  public void testChoosesImmediateWin() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    for (int move : new int[] {0, 1, 0, 1, 0, 1}) {
+      model.makeMove(move);
+    }
+    assertEquals(0, ai.chooseMove(model));
+  }
+
+  @Test
+  public void testBlocksOpponentWin() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    for (int move : new int[] {0, 6, 1, 6, 2}) {
+      model.makeMove(move);
+    }
+    assertEquals(3, ai.chooseMove(model));
+  }
+
+  @Test
+  public void testIterationBudget() {
+    ai.setIterationBudget(500);
+    ai.chooseMove(new ConnectFourModelImpl(6, 7));
+    assertEquals(500, ai.getPlayoutCount());
+    assertTrue(ai.getTreeSize() > 1);
+    assertTrue(ai.getPlayoutsPerSecond() > 0);
+  }
+
+  @Test
+  public void testFullTreeKeepsPlaying() {
+    try (MonteCarloConnectFourAI small = new MonteCarloConnectFourAI(2, 20, 7)) {
+      small.setIterationBudget(2000);
+      ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+      int move = small.chooseMove(model);
+      assertTrue(move >= 0 && move < 7);
+      assertEquals(2000, small.getPlayoutCount());
+      assertTrue(small.getTreeSize() <= 20);
+    }
+  }
+
+  @Test
+  public void testTimeBudgetOnLargeBoard() {
+    ConnectFourModel model = new ConnectFourModelImpl(20, 30);
+    model.makeMove(15);
+    ai.setIterationBudget(Long.MAX_VALUE);
+    ai.setTimeBudget(200);
+    long start = System.nanoTime();
+    int move = ai.chooseMove(model);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    assertTrue(move >= 0 && move < 30);
+    assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 500);
+    assertTrue(ai.getPlayoutCount() > 0);
+  }
+
+  @Test
+  public void testPlaysFullGame() {
+    ai.setIterationBudget(300);
+    ConnectFourModel model = new ConnectFourModelImpl(5, 6);
+    while (!model.isGameOver()) {
+      model.makeMove(ai.chooseMove(model));
+    }
+    assertTrue(model.isGameOver());
+  }
+}
@@ -0,0 +1,309 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the MoveJournal class.
+ */
+public class MoveJournalTest {
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("journal");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    }
+  }
+
+  @Test
+  public void testGamesSurviveReopen() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      ConnectFourModel first = journal.startGame(1, new ConnectFourModelImpl(6, 7));
+      ConnectFourModel second = journal.startGame(2, new PackedConnectFourModel(5, 9, 3));
+      first.makeMove(3);
+      first.makeMove(3);
+      first.makeMove(4);
+      assertEquals(MoveStatus.INVALID_COLUMN, first.tryMove(7));
+      first.undoMove();
+      second.makeMove(8);
+      second.resetBoard();
+      second.makeMove(0);
+      ConnectFourModel third = journal.startGame(3, new ConnectFourModelImpl(6, 7));
+      third.makeMove(1);
+      journal.endGame(3);
+    }
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      assertEquals(2, journal.getGameIds().size());
+      assertNull(journal.getGame(3));
+      ConnectFourModel first = journal.getGame(1);
+      assertEquals(2, first.getColumnHeight(3));
+      assertEquals(0, first.getColumnHeight(4));
+      assertEquals(Player.RED, first.getTurn());
+      ConnectFourModel second = journal.getGame(2);
+      assertEquals(5, second.getRows());
+      assertEquals(9, second.getColumns());
+      assertEquals(3, second.getWinLength());
+      assertEquals(Player.RED, second.getCell(0, 0));
+      assertEquals(Player.YELLOW, second.getTurn());
+      assertEquals(0, second.getColumnHeight(8));
+      // moves made after a restart are journaled too
+      first.makeMove(0);
+    }
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      assertEquals(1, journal.getGame(1).getColumnHeight(0));
+    }
+  }
+
+  @Test
+  public void testTornEntryIsCutOff() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      ConnectFourModel model = journal.startGame(7, new ConnectFourModelImpl(6, 7));
+      model.makeMove(2);
+      model.makeMove(5);
+    }
+    Path log = directory.resolve("journal-0.log");
+    long size = Files.size(log);
+    // a move entry that was half written when the host went down
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      channel.truncate(size - 3);
+    }
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      ConnectFourModel model = journal.getGame(7);
+      assertEquals(1, model.getColumnHeight(2));
+      assertEquals(0, model.getColumnHeight(5));
+      model.makeMove(6);
+    }
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      assertEquals(1, journal.getGame(7).getColumnHeight(6));
+    }
+  }
+
+  @Test
+  public void testCorruptEntryEndsReplay() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      ConnectFourModel model = journal.startGame(7, new ConnectFourModelImpl(6, 7));
+      model.makeMove(2);
+      model.makeMove(5);
+    }
+    Path log = directory.resolve("journal-0.log");
+    byte[] bytes = Files.readAllBytes(log);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(log, bytes);
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      assertEquals(0, journal.getGame(7).getColumnHeight(5));
+    }
+  }
+
+  @Test
+  public void testSnapshotsKeepRecoveryShort() throws IOException {
+    Random random = new Random(3);
+    ConnectFourModel reference = new ConnectFourModelImpl(6, 7);
+    try (MoveJournal journal = MoveJournal.open(directory, 16)) {
+      ConnectFourModel model = journal.startGame(1, new ConnectFourModelImpl(6, 7));
+      for (int i = 0; i < 200; i++) {
+        if (model.isGameOver()) {
+          model.resetBoard();
+          reference.resetBoard();
+        }
+        int column = random.nextInt(7);
+        if (model.tryMove(column) == MoveStatus.OK) {
+          reference.makeMove(column);
+        }
+      }
+    }
+    // older generations are deleted once a newer snapshot is in place, and the log
+    // only holds what was written since
+    Path[] files;
+    try (Stream<Path> list = Files.list(directory)) {
+      files = list.sorted().toArray(Path[]::new);
+    }
+    assertEquals(2, files.length);
+    assertTrue(files[0].getFileName().toString().startsWith("journal-"));
+    assertFalse(files[0].getFileName().toString().equals("journal-0.log"));
+    assertTrue(Files.size(files[0]) < 16 * 21);
+    assertTrue(files[1].getFileName().toString().startsWith("snapshot-"));
+    try (MoveJournal journal = MoveJournal.open(directory, 16)) {
+      ConnectFourModel model = journal.getGame(1);
+      for (int j = 0; j < 7; j++) {
+        assertEquals(reference.getColumnHeight(j), model.getColumnHeight(j));
+      }
+      assertEquals(reference.getTurn(), model.getTurn());
+    }
+  }
+
+  @Test
+  public void testCorruptSnapshotFailsToOpen() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(directory, 16)) {
+      ConnectFourModel model = journal.startGame(1, new ConnectFourModelImpl(6, 7));
+      for (int i = 0; i < 20; i++) {
+        model.makeMove(i % 7);
+      }
+    }
+    Path snapshot = directory.resolve("snapshot-1.bin");
+    byte[] bytes = Files.readAllBytes(snapshot);
+    bytes[bytes.length - 5] ^= 1;
+    Files.write(snapshot, bytes);
+    try {
+      MoveJournal.open(directory, 16).close();
+      fail("Expected IOException");
+    } catch (IOException e) {
+      // the journal is left as it was for someone to look at
+      assertTrue(Files.exists(snapshot));
+      assertTrue(Files.exists(directory.resolve("journal-1.log")));
+    }
+  }
+
+  @Test
+  public void testConcurrentGamesShareCommits() throws Exception {
+    int threads = 4;
+    int movesPerGame = 40;
+    int columns = 20;
+    // the players start together, so their moves pile up while a commit is being synced
+    CyclicBarrier start = new CyclicBarrier(threads);
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      Thread[] players = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+        ConnectFourModel model = journal.startGame(t, new PackedConnectFourModel(columns, columns));
+        players[t] = new Thread(() -> {
+          try {
+            start.await();
+          } catch (InterruptedException | BrokenBarrierException e) {
+            throw new IllegalStateException(e);
+          }
+          for (int i = 0; i < movesPerGame; i++) {
+            model.makeMove(i % columns);
+          }
+        });
+      }
+      long before = journal.getCommits();
+      long entries = journal.getEntries();
+      for (Thread player : players) {
+        player.start();
+      }
+      for (Thread player : players) {
+        player.join();
+      }
+      assertEquals(threads * (movesPerGame + 1), journal.getEntries());
+      assertEquals(threads * movesPerGame, journal.getEntries() - entries);
+      assertTrue(journal.getCommits() - before < threads * movesPerGame);
+    }
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      for (int t = 0; t < threads; t++) {
+        assertEquals(2, journal.getGame(t).getColumnHeight(0));
+      }
+    }
+  }
+
+  @Test
+  public void testConsoleGameIsJournaled() throws IOException {
+    String script = "4\n4\n5\n9\n2\n0\n";
+    StringBuilder expected = new StringBuilder();
+    new ConnectFourConsoleController(new StringReader(script), new ConnectFourView(expected))
+        .playGame(new ConnectFourModelImpl(6, 7));
+    StringBuilder out = new StringBuilder();
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      ConnectFourModel model = journal.startGame(1, new ConnectFourModelImpl(6, 7));
+      new ConnectFourConsoleController(new StringReader(script), new ConnectFourView(out))
+          .playGame(model);
+    }
+    // the console shows the same boards as for a game without a journal
+    assertEquals(expected.toString(), out.toString());
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      ConnectFourModel model = journal.getGame(1);
+      assertEquals(2, model.getColumnHeight(3));
+      assertEquals(1, model.getColumnHeight(4));
+      assertEquals(1, model.getColumnHeight(1));
+      ConnectFourModel plain = new ConnectFourModelImpl(6, 7);
+      for (int column : new int[] {3, 3, 4, 1}) {
+        plain.makeMove(column);
+      }
+      assertEquals(plain.toString(), model.toString());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartGameTwice() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      journal.startGame(1, new ConnectFourModelImpl(6, 7));
+      journal.startGame(1, new ConnectFourModelImpl(6, 7));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartGameOnPlayedBoard() throws IOException {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    model.makeMove(0);
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      journal.startGame(1, model);
+    }
+  }
+
+  @Test
+  public void testEndedGameIsNoLongerJournaled() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      ConnectFourModel model = journal.startGame(1, new ConnectFourModelImpl(6, 7));
+      model.makeMove(3);
+      journal.endGame(1);
+      String board = model.toString();
+      // the journal refuses every change, and the board keeps the game as journaled
+      try {
+        model.makeMove(0);
+        fail("Expected IllegalStateException");
+      } catch (IllegalStateException e) {
+        assertEquals(board, model.toString());
+        assertEquals(0, model.getColumnHeight(0));
+        assertEquals(Player.YELLOW, model.getTurn());
+      }
+      try {
+        model.undoMove();
+        fail("Expected IllegalStateException");
+      } catch (IllegalStateException e) {
+        assertEquals(1, model.getColumnHeight(3));
+      }
+      try {
+        model.resetBoard();
+        fail("Expected IllegalStateException");
+      } catch (IllegalStateException e) {
+        assertEquals(board, model.toString());
+      }
+    }
+  }
+
+  @Test
+  public void testRejectedMovesAreNotJournaled() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(directory)) {
+      ConnectFourModel model = journal.startGame(1, new ConnectFourModelImpl(6, 7));
+      long entries = journal.getEntries();
+      try {
+        model.makeMove(9);
+      } catch (IllegalArgumentException e) {
+        assertEquals("Invalid column", e.getMessage());
+      }
+      assertEquals(entries, journal.getEntries());
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the NegamaxConnectFourAI class.
+ */
+public class NegamaxConnectFourAITest {
+
+  private NegamaxConnectFourAI ai;
+
+  @Before
+  public void setUp() {
+    ai = new NegamaxConnectFourAI(1 << 16);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testModelInvalid() {
+    ai.chooseMove(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGameOver() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    play(model, 0, 1, 0, 1, 0, 1, 0);
+    ai.chooseMove(model);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBoardTooLarge() {
+    ai.chooseMove(new ConnectFourModelImpl(20, 30));
+  }
+
+  @Test
+  public void testChoosesImmediateWin() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    play(model, 0, 1, 0, 1, 0, 1);
+    assertEquals(0, ai.chooseMove(model));
+  }
+
+  @Test
+  public void testBlocksImmediateThreat() {
+    ConnectFourModel model = new ConnectFourModelImpl(4, 6);
+    play(model, 0, 1, 5, 2, 5, 3);
+    assertEquals(4, ai.chooseMove(model));
+  }
+
+  @Test
+  public void testChooseMoveDoesNotChangeModel() {
+    ConnectFourModel model = new ConnectFourModelImpl(4, 6);
+    play(model, 3, 3, 2, 4, 4);
+    String before = model.toString();
+    ai.chooseMove(model);
+    assertEquals(before, model.toString());
+    assertEquals(Player.YELLOW, model.getTurn());
+  }
+
+  @Test
+  public void testReportsSearchStatistics() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    play(model, 3, 3, 2, 4, 4, 2, 5, 1, 1, 0, 6, 6, 3, 3, 2, 2, 0, 0);
+    ai.solve(model);
+    assertTrue(ai.getNodeCount() > 0);
+    assertTrue(ai.getElapsedNanos() > 0);
+    assertTrue(ai.getNodesPerSecond() > 0);
+  }
+
+  @Test
+  public void testSolveMatchesBruteForceOnSmallBoards() {
+    int[][] sizes = {{4, 4}, {4, 5}, {5, 4}};
+    Random random = new Random(7);
+    for (int[] size : sizes) {
+      Map<String, Integer> memo = new HashMap<>();
+      for (int game = 0; game < 25; game++) {
+        ConnectFourModel model = new ConnectFourModelImpl(size[0], size[1]);
+        int opening = 4 + random.nextInt(6);
+        for (int ply = 0; ply < opening && !model.isGameOver(); ply++) {
+          int column = random.nextInt(size[1]);
+          if (model.getColumnHeight(column) < size[0]) {
+            model.makeMove(column);
+          }
+        }
+        if (model.isGameOver()) {
+          continue;
+        }
+        int expected = bruteForce(toGrid(model), model.getTurn() == Player.RED ? 1 : 2, memo);
+        assertEquals(expected, ai.solve(model));
+        assertEquals(Integer.signum(expected), ai.solve(model, true));
+        int move = ai.chooseMove(model);
+        assertTrue(model.getColumnHeight(move) < size[0]);
+      }
+    }
+  }
+
+  @Test
+  public void testFourByFourIsADraw() {
+    assertEquals(0, ai.solve(new ConnectFourModelImpl(4, 4)));
+  }
+
+  @Test
+  public void testBudgetAnswersEmptyBoardInTime() {
+    NegamaxConnectFourAI timed = new NegamaxConnectFourAI(1 << 16, null, 200);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    int move = timed.chooseMove(model);
+    assertEquals(0, model.getColumnHeight(move));
+    assertFalse(timed.isLastMoveSolved());
+    assertTrue(timed.getElapsedNanos() < 1_000_000_000L);
+  }
+
+  @Test
+  public void testBudgetStillSolvesEasyPositions() {
+    NegamaxConnectFourAI timed = new NegamaxConnectFourAI(1 << 16, null, 2000);
+    ConnectFourModel model = new ConnectFourModelImpl(4, 6);
+    play(model, 0, 1, 5, 2, 5, 3);
+    assertEquals(4, timed.chooseMove(model));
+    assertTrue(timed.isLastMoveSolved());
+  }
+
+  @Test
+  public void testInterruptStopsSearch() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    Thread.currentThread().interrupt();
+    try {
+      int move = ai.chooseMove(model);
+      assertEquals(0, model.getColumnHeight(move));
+      assertFalse(ai.isLastMoveSolved());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBudgetInvalid() {
+    new NegamaxConnectFourAI(1 << 16, null, 0);
+  }
+
+  private static void play(ConnectFourModel model, int... columns) {
+    for (int column : columns) {
+      model.makeMove(column);
+    }
+  }
+
+  private static int[][] toGrid(ConnectFourModel model) {
+    int[][] grid = new int[model.getRows()][model.getColumns()];
+    for (int i = 0; i < model.getRows(); i++) {
+      for (int j = 0; j < model.getColumns(); j++) {
+        Player cell = model.getCell(i, j);
+        grid[i][j] = cell == null ? 0 : cell == Player.RED ? 1 : 2;
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Plain minimax over every continuation, scoring wins the same way as the engine.
+   */
+  private static int bruteForce(int[][] grid, int player, Map<String, Integer> memo) {
+    int rows = grid.length;
+    int columns = grid[0].length;
+    StringBuilder key = new StringBuilder();
+    int moves = 0;
+    for (int[] row : grid) {
+      for (int cell : row) {
+        key.append(cell);
+        moves += cell == 0 ? 0 : 1;
+      }
+    }
+    Integer cached = memo.get(key.toString());
+    if (cached != null) {
+      return cached;
+    }
+    int best = Integer.MIN_VALUE;
+    for (int j = 0; j < columns; j++) {
+      int i = 0;
+      while (i < rows && grid[i][j] != 0) {
+        i++;
+      }
+      if (i == rows) {
+        continue;
+      }
+      grid[i][j] = player;
+      int score;
+      if (wins(grid, i, j)) {
+        score = (rows * columns + 1 - moves) / 2;
+      } else {
+        score = -bruteForce(grid, 3 - player, memo);
+      }
+      grid[i][j] = 0;
+      best = Math.max(best, score);
+    }
+    if (best == Integer.MIN_VALUE) {
+      best = 0;
+    }
+    memo.put(key.toString(), best);
+    return best;
+  }
+
+  private static boolean wins(int[][] grid, int row, int column) {
+    int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    for (int[] d : directions) {
+      int count = 1;
+      for (int sign = -1; sign <= 1; sign += 2) {
+        int i = row + sign * d[0];
+        int j = column + sign * d[1];
+        while (i >= 0 && i < grid.length && j >= 0 && j < grid[0].length
+            && grid[i][j] == grid[row][column]) {
+          count++;
+          i += sign * d[0];
+          j += sign * d[1];
+        }
+      }
+      if (count >= 4) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
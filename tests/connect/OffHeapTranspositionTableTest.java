@@ -0,0 +1,123 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the OffHeapTranspositionTable class.
+ */
+public class OffHeapTranspositionTableTest {
+
+  private OffHeapTranspositionTable table;
+
+  @Before
+  public void setUp() {
+    table = new OffHeapTranspositionTable(1 << 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new OffHeapTranspositionTable(16);
+  }
+
+  @Test
+  public void testSize() {
+    assertEquals(64, table.capacity());
+    assertEquals(1 << 10, table.sizeInBytes());
+    assertEquals(1 << 10, new OffHeapTranspositionTable((1 << 10) + 100).sizeInBytes());
+  }
+
+  @Test
+  public void testStoreAndProbe() {
+    table.store(12345L, -70000, OffHeapTranspositionTable.LOWER, 17, 999);
+    long data = table.probe(12345L);
+    assertEquals(-70000, OffHeapTranspositionTable.score(data));
+    assertEquals(OffHeapTranspositionTable.LOWER, OffHeapTranspositionTable.bound(data));
+    assertEquals(17, OffHeapTranspositionTable.depth(data));
+    assertEquals(999, OffHeapTranspositionTable.move(data));
+    table.store(12345L, 3, OffHeapTranspositionTable.EXACT, 2, -1);
+    data = table.probe(12345L);
+    assertEquals(3, OffHeapTranspositionTable.score(data));
+    assertEquals(-1, OffHeapTranspositionTable.move(data));
+    assertEquals(0, table.probe(54321L));
+  }
+
+  @Test
+  public void testDepthPreferredReplacement() {
+    // 32 buckets, so these keys share a bucket
+    long deep = 5;
+    long shallow = 5 + 32;
+    long other = 5 + 64;
+    table.store(deep, 1, OffHeapTranspositionTable.EXACT, 10, 0);
+    table.store(shallow, 2, OffHeapTranspositionTable.EXACT, 3, 0);
+    table.store(other, 3, OffHeapTranspositionTable.EXACT, 4, 0);
+    // the deep entry survives, the always-replace entry holds the latest result
+    assertEquals(1, OffHeapTranspositionTable.score(table.probe(deep)));
+    assertEquals(0, table.probe(shallow));
+    assertEquals(3, OffHeapTranspositionTable.score(table.probe(other)));
+    table.store(shallow, 4, OffHeapTranspositionTable.EXACT, 12, 0);
+    assertEquals(4, OffHeapTranspositionTable.score(table.probe(shallow)));
+    table.newSearch();
+    table.store(deep, 5, OffHeapTranspositionTable.EXACT, 1, 0);
+    assertEquals(5, OffHeapTranspositionTable.score(table.probe(deep)));
+  }
+
+  @Test
+  public void testStatistics() {
+    table.store(1, 1, OffHeapTranspositionTable.EXACT, 1, 0);
+    table.store(2, 1, OffHeapTranspositionTable.EXACT, 1, 0);
+    table.probe(1);
+    table.probe(2);
+    table.probe(3);
+    table.probe(1 + 32);
+    assertEquals(4, table.getProbes());
+    assertEquals(2, table.getHits());
+    assertEquals(1, table.getCollisions());
+    assertEquals(2, table.getStores());
+    assertEquals(0.5, table.getHitRate(), 1e-9);
+    assertEquals(2.0 / 64, table.getOccupancy(), 1e-9);
+    table.store(1 + 32, 1, OffHeapTranspositionTable.EXACT, 0, 0);
+    table.store(1 + 64, 1, OffHeapTranspositionTable.EXACT, 0, 0);
+    assertEquals(1, table.getOverwrites());
+    table.resetStats();
+    assertEquals(0, table.getProbes());
+    table.clear();
+    assertEquals(0, table.getOccupancy(), 1e-9);
+  }
+
+  @Test
+  public void testRacingWritersNeverCorruptEntries() throws InterruptedException {
+    OffHeapTranspositionTable small = new OffHeapTranspositionTable(1 << 8);
+    List<Thread> threads = new ArrayList<>();
+    boolean[] failed = new boolean[1];
+    for (int t = 0; t < 4; t++) {
+      SplittableRandom random = new SplittableRandom(t);
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 200000; i++) {
+          long hash = random.nextLong(64) * 0x9E3779B97F4A7C15L;
+          long data = small.probe(hash);
+          if (data != 0 && OffHeapTranspositionTable.score(data) != (int) (hash >>> 32)) {
+            failed[0] = true;
+          }
+          small.store(hash, (int) (hash >>> 32), OffHeapTranspositionTable.EXACT,
+              random.nextInt(20), 0);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertFalse(failed[0]);
+    assertTrue(small.getHits() > 0);
+  }
+}
@@ -0,0 +1,119 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A JUnit test class for the OpeningBook and OpeningBookGenerator classes.
+ */
+public class OpeningBookTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file;
+  private OpeningBook book;
+
+  @Before
+  public void setUp() throws IOException, InterruptedException {
+    file = folder.newFile("4x5.book").toPath();
+    new OpeningBookGenerator(4, 5, 4, 2).generate(file);
+    book = OpeningBook.open(file);
+  }
+
+  @Test
+  public void testHeader() {
+    assertEquals(4, book.getRows());
+    assertEquals(5, book.getColumns());
+    assertEquals(4, book.getMaxPly());
+    // 1 + 5 + 25 + 125 + 625 paths collapse to far fewer distinct positions
+    assertTrue(book.size() > 31 && book.size() < 781);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPly() {
+    new OpeningBookGenerator(4, 5, 20, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBoard() {
+    new OpeningBookGenerator(9, 7, 4, 1);
+  }
+
+  @Test
+  public void testMatchesSearch() {
+    NegamaxConnectFourAI ai = new NegamaxConnectFourAI(1 << 16);
+    Random random = new Random(7);
+    for (int game = 0; game < 40; game++) {
+      ConnectFourModel model = new ConnectFourModelImpl(4, 5);
+      int opening = random.nextInt(5);
+      for (int ply = 0; ply < opening; ply++) {
+        model.makeMove(random.nextInt(5));
+      }
+      if (model.isGameOver()) {
+        continue;
+      }
+      Position p = Position.of(model);
+      assertEquals(ai.chooseMove(model), book.getMove(model));
+      assertEquals(ai.solve(model), book.getScore(p));
+    }
+  }
+
+  @Test
+  public void testMissingPositions() {
+    ConnectFourModel model = new ConnectFourModelImpl(4, 5);
+    for (int column : new int[] {0, 1, 2, 3, 4}) {
+      model.makeMove(column);
+    }
+    assertEquals(-1, book.getMove(model));
+    assertEquals(-1, book.getMove(new ConnectFourModelImpl(6, 7)));
+    assertEquals(-1, book.getMove((ConnectFourModel) null));
+  }
+
+  @Test
+  public void testOpponentsUseBook() {
+    ConnectFourModel model = new ConnectFourModelImpl(4, 5);
+    model.makeMove(2);
+    NegamaxConnectFourAI ai = new NegamaxConnectFourAI(1 << 16, book);
+    assertEquals(book.getMove(model), ai.chooseMove(model));
+    assertEquals(0, ai.getNodeCount());
+    try (ParallelNegamaxConnectFourAI parallel =
+        new ParallelNegamaxConnectFourAI(2, 1 << 16, book)) {
+      assertEquals(book.getMove(model), parallel.chooseMove(model));
+      assertEquals(0, parallel.getNodeCount());
+    }
+    IterativeDeepeningConnectFourAI timed =
+        new IterativeDeepeningConnectFourAI(1000, 1L << 20, book);
+    assertEquals(book.getMove(model), timed.chooseMove(model));
+    assertEquals(0, timed.getNodeCount());
+    for (int column : new int[] {0, 1, 3, 4}) {
+      model.makeMove(column);
+    }
+    assertEquals(new NegamaxConnectFourAI(1 << 16).chooseMove(model), ai.chooseMove(model));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotABook() throws IOException {
+    Path other = folder.newFile("other.book").toPath();
+    Files.write(other, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+    OpeningBook.open(other);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedBook() throws IOException {
+    byte[] bytes = Files.readAllBytes(file);
+    Path other = folder.newFile("truncated.book").toPath();
+    Files.write(other, Arrays.copyOf(bytes, bytes.length - 3));
+    OpeningBook.open(other);
+  }
+}
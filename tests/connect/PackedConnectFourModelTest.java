@@ -0,0 +1,276 @@
+package connect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the PackedConnectFourModel class.
+ */
+public class PackedConnectFourModelTest {
+
+  private PackedConnectFourModel model;
+
+  @Before
+  public void setUp() {
+    model = new PackedConnectFourModel(6, 7);
+  }
+
+  @Test
+  public void testValidConstructor() {
+    assertEquals(Player.RED, model.getTurn());
+    assertFalse(model.isGameOver());
+    assertNull(model.getWinner());
+    assertEquals(4, model.getWinLength());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorRowsTooSmall() {
+    new PackedConnectFourModel(3, 7);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorWinLengthTooSmall() {
+    new PackedConnectFourModel(6, 7, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorBoardTooLarge() {
+    new PackedConnectFourModel(100_000, 100_000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFullColumn() {
+    for (int i = 0; i < 6; i++) {
+      model.makeMove(0);
+    }
+    model.makeMove(0);
+  }
+
+  @Test
+  public void testVerticalWinRed() {
+    model.makeMove(0);
+    model.makeMove(6);
+    model.makeMove(0);
+    model.makeMove(5);
+    model.makeMove(0);
+    model.makeMove(4);
+    model.makeMove(0);
+    assertTrue(model.isGameOver());
+    assertEquals(Player.RED, model.getWinner());
+    assertNull(model.getTurn());
+  }
+
+  @Test
+  public void testRunAcrossWordBoundary() {
+    // with 40 rows, column 0 ends in the middle of the second word and column 1 starts
+    // there, so the horizontal run below reads cells from three different words
+    PackedConnectFourModel large = new PackedConnectFourModel(40, 40);
+    for (int column : new int[] {0, 0, 1, 1, 2, 2}) {
+      large.makeMove(column);
+    }
+    assertFalse(large.isGameOver());
+    large.makeMove(3);
+    assertEquals(Player.RED, large.getWinner());
+  }
+
+  @Test
+  public void testToString() {
+    PackedConnectFourModel fourByfour = new PackedConnectFourModel(4, 4);
+    fourByfour.makeMove(0);
+    fourByfour.makeMove(3);
+    assertEquals("R _ _ Y\n_ _ _ _\n_ _ _ _\n_ _ _ _\n", fourByfour.toString());
+  }
+
+  @Test
+  public void testMatchesReferenceModelOnRandomGames() {
+    int[][] sizes = {{4, 4, 4}, {6, 7, 4}, {5, 10, 3}, {33, 5, 5}, {20, 30, 4}, {7, 9, 6}};
+    Random random = new Random(42);
+    for (int[] size : sizes) {
+      for (int game = 0; game < 100; game++) {
+        ConnectFourModel expected = new ConnectFourModelImpl(size[0], size[1], size[2]);
+        ConnectFourModel actual = new PackedConnectFourModel(size[0], size[1], size[2]);
+        // play a few columns that may be full or out of range to compare the errors too
+        for (int ply = 0; ply < size[0] * size[1] + 5; ply++) {
+          int column = random.nextInt(size[1] + 1) - (random.nextInt(20) == 0 ? 1 : 0);
+          assertSameMove(expected, actual, column);
+          assertEquals(expected.legalMovesMask(), actual.legalMovesMask());
+          assertEquals(expected.getTurn(), actual.getTurn());
+          assertEquals(expected.isGameOver(), actual.isGameOver());
+          assertEquals(expected.getWinner(), actual.getWinner());
+        }
+        assertEquals(expected.toString(), actual.toString());
+        BoardSnapshot expectedSnapshot = expected.getSnapshot();
+        BoardSnapshot actualSnapshot = actual.getSnapshot();
+        for (int j = 0; j < size[1]; j++) {
+          assertEquals(expected.getColumnHeight(j), actual.getColumnHeight(j));
+          assertEquals(expectedSnapshot.getColumnHeight(j), actualSnapshot.getColumnHeight(j));
+          for (int i = 0; i < size[0]; i++) {
+            assertEquals(expected.getCell(i, j), actual.getCell(i, j));
+            assertEquals(expectedSnapshot.getCell(i, j), actualSnapshot.getCell(i, j));
+          }
+        }
+        assertArrayEquals(expected.getBoardState(), actual.getBoardState());
+      }
+    }
+  }
+
+  @Test
+  public void testPerftMatchesReferenceModel() {
+    Perft.Result expected = new Perft(() -> new ConnectFourModelImpl(5, 5), 1)
+        .run(new int[0], 7, false);
+    Perft.Result actual = new Perft(() -> new PackedConnectFourModel(5, 5), 1)
+        .run(new int[0], 7, false);
+    for (int ply = 0; ply <= 7; ply++) {
+      assertEquals(expected.getPositions(ply), actual.getPositions(ply));
+      assertEquals(expected.getWins(ply), actual.getWins(ply));
+      assertEquals(expected.getDraws(ply), actual.getDraws(ply));
+    }
+  }
+
+  private static void assertSameMove(ConnectFourModel expected, ConnectFourModel actual,
+                                     int column) {
+    String expectedError = null;
+    try {
+      expected.makeMove(column);
+    } catch (IllegalArgumentException e) {
+      expectedError = e.getMessage();
+    }
+    try {
+      actual.makeMove(column);
+      if (expectedError != null) {
+        fail("Expected IllegalArgumentException: " + expectedError);
+      }
+    } catch (IllegalArgumentException e) {
+      assertEquals(expectedError, e.getMessage());
+    }
+  }
+
+  @Test
+  public void testGameReset() {
+    model.makeMove(0);
+    model.makeMove(1);
+    model.resetBoard();
+    assertNull(model.getCell(0, 0));
+    assertNull(model.getCell(0, 1));
+    assertEquals(0, model.getColumnHeight(0));
+    assertEquals(Player.RED, model.getTurn());
+    assertFalse(model.isGameOver());
+    assertNull(model.getWinner());
+  }
+
+  @Test
+  public void testSnapshotDoesNotChangeAfterMovesOrReset() {
+    model.makeMove(5);
+    BoardSnapshot snapshot = model.getSnapshot();
+    model.makeMove(5);
+    assertEquals(Player.RED, snapshot.getCell(0, 5));
+    assertNull(snapshot.getCell(1, 5));
+    assertEquals(1, snapshot.getColumnHeight(5));
+    assertEquals(2, model.getColumnHeight(5));
+    BoardSnapshot second = model.getSnapshot();
+    model.resetBoard();
+    assertEquals(Player.YELLOW, second.getCell(1, 5));
+    assertNull(model.getCell(1, 5));
+  }
+
+  @Test
+  public void testSnapshotsOfLargeBoardCopyOnlyChangedBlocks() {
+    // 90000 cells span six blocks, and nobody can win
+    PackedConnectFourModel large = new PackedConnectFourModel(300, 300, 300);
+    int[] columns = {0, 299, 150, 0, 54, 55};
+    Random random = new Random(9);
+    List<BoardSnapshot> snapshots = new ArrayList<>();
+    List<Player[][]> expected = new ArrayList<>();
+    int moves = 0;
+    for (int step = 0; step < 400; step++) {
+      int action = random.nextInt(10);
+      if (action == 0) {
+        snapshots.add(large.getSnapshot());
+        expected.add(large.getBoardState());
+      } else if (action == 1 && step % 7 == 0) {
+        large.resetBoard();
+        moves = 0;
+      } else if (action < 4 && moves > 0) {
+        large.undoMove();
+        moves--;
+      } else {
+        large.makeMove(columns[random.nextInt(columns.length)]);
+        moves++;
+      }
+    }
+    assertTrue(snapshots.size() > 10);
+    for (int k = 0; k < snapshots.size(); k++) {
+      for (int column : columns) {
+        for (int row = 0; row < 300; row++) {
+          assertEquals(expected.get(k)[row][column], snapshots.get(k).getCell(row, column));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTryMoveOnWideBoard() {
+    PackedConnectFourModel wide = new PackedConnectFourModel(4, 150);
+    Random random = new Random(3);
+    while (!wide.isGameOver()) {
+      int column = random.nextInt(152) - 1;
+      int expected = column < 0 || column >= 150 ? MoveStatus.INVALID_COLUMN
+          : wide.getColumnHeight(column) == 4 ? MoveStatus.COLUMN_FULL : MoveStatus.OK;
+      assertEquals(expected, wide.tryMove(column));
+      for (int first = 0; first < 160; first += 37) {
+        long mask = wide.isGameOver() ? 0L : wide.legalMovesMask(first);
+        for (int i = 0; i < Long.SIZE; i++) {
+          boolean legal = !wide.isGameOver() && first + i < 150
+              && wide.getColumnHeight(first + i) < 4;
+          assertEquals(legal, (mask >>> i & 1) != 0);
+        }
+      }
+    }
+    assertEquals(MoveStatus.GAME_OVER, wide.tryMove(0));
+    assertEquals(0L, wide.legalMovesMask(64));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUndoWithoutMoves() {
+    model.undoMove();
+  }
+
+  @Test
+  public void testUndoRestoresEveryPosition() {
+    Random random = new Random(11);
+    for (int game = 0; game < 50; game++) {
+      ConnectFourModel connect = new PackedConnectFourModel(5 + game % 3, 40 + game);
+      List<String> states = new ArrayList<>();
+      while (!connect.isGameOver()) {
+        int column = random.nextInt(connect.getColumns());
+        if (connect.getColumnHeight(column) < connect.getRows()) {
+          states.add(describe(connect));
+          connect.makeMove(column);
+        }
+      }
+      for (int i = states.size() - 1; i >= 0; i--) {
+        connect.undoMove();
+        assertEquals(states.get(i), describe(connect));
+      }
+    }
+  }
+
+  private static String describe(ConnectFourModel model) {
+    StringBuilder sb = new StringBuilder(model.toString());
+    for (int j = 0; j < model.getColumns(); j++) {
+      sb.append(model.getColumnHeight(j)).append(' ');
+    }
+    return sb.append(model.getTurn()).append(' ').append(model.getWinner())
+        .append(' ').append(model.isGameOver()).toString();
+  }
+}
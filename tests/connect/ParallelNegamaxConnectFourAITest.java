@@ -0,0 +1,73 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the ParallelNegamaxConnectFourAI class.
+ */
+public class ParallelNegamaxConnectFourAITest {
+
+  private ParallelNegamaxConnectFourAI ai;
+
+  @Before
+  public void setUp() {
+    ai = new ParallelNegamaxConnectFourAI(3, 1 << 16);
+  }
+
+  @After
+  public void tearDown() {
+    ai.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidThreadCount() {
+    new ParallelNegamaxConnectFourAI(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testModelInvalid() {
+    ai.chooseMove(null);
+  }
+
+  @Test
+  public void testThreadCount() {
+    assertEquals(3, ai.getThreadCount());
+  }
+
+  @Test
+  public void testChoosesImmediateWin() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    int[] moves = {0, 1, 0, 1, 0, 1};
+    for (int move : moves) {
+      model.makeMove(move);
+    }
+    assertEquals(0, ai.chooseMove(model));
+  }
+
+  @Test
+  public void testMatchesSingleThreadedSearch() {
+    NegamaxConnectFourAI sequential = new NegamaxConnectFourAI(1 << 16);
+    Random random = new Random(3);
+    for (int game = 0; game < 30; game++) {
+      ConnectFourModel model = new ConnectFourModelImpl(4, 5);
+      int opening = 3 + random.nextInt(6);
+      for (int ply = 0; ply < opening && !model.isGameOver(); ply++) {
+        int column = random.nextInt(5);
+        if (model.getColumnHeight(column) < 4) {
+          model.makeMove(column);
+        }
+      }
+      if (model.isGameOver()) {
+        continue;
+      }
+      assertEquals(sequential.solve(model), ai.solve(model));
+      assertEquals(sequential.solve(model, true), ai.solve(model, true));
+      assertEquals(sequential.chooseMove(model), ai.chooseMove(model));
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the Perft class.
+ */
+public class PerftTest {
+
+  private static final int[] EMPTY = new int[0];
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidThreads() {
+    new Perft(() -> new ConnectFourModelImpl(6, 7), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFactory() {
+    new Perft(null, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDepth() {
+    new Perft(() -> new ConnectFourModelImpl(6, 7), 1).run(EMPTY, -1, false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidStart() {
+    new Perft(() -> new ConnectFourModelImpl(6, 7), 1).run(new int[] {7}, 1, false);
+  }
+
+  @Test
+  public void testKnownCounts() {
+    Perft.Result result = new Perft(() -> new ConnectFourModelImpl(6, 7), 2)
+        .run(EMPTY, 7, false);
+    long[] expected = {1, 7, 49, 343, 2401, 16807, 117649, 823536};
+    for (int ply = 0; ply <= 7; ply++) {
+      assertEquals(expected[ply], result.getPositions(ply));
+    }
+    // the first player can first complete four with their fourth disc
+    assertEquals(0, result.getWins(6));
+    assertEquals(13032, result.getWins(7));
+  }
+
+  @Test
+  public void testKnownDistinctCounts() {
+    Perft.Result result = new Perft(() -> new ConnectFourModelImpl(6, 7), 3)
+        .run(EMPTY, 7, true);
+    long[] expected = {1, 7, 49, 238, 1120, 4263, 16422, 54859};
+    for (int ply = 0; ply <= 7; ply++) {
+      assertEquals(expected[ply], result.getPositions(ply));
+    }
+  }
+
+  @Test
+  public void testModelsAgree() {
+    Perft.Result impl = new Perft(() -> new ConnectFourModelImpl(4, 4), 2)
+        .run(EMPTY, 16, true);
+    Perft.Result bitboard = new Perft(() -> new BitboardConnectFourModel(4, 4), 1)
+        .run(EMPTY, 16, true);
+    long draws = 0;
+    for (int ply = 0; ply <= 16; ply++) {
+      assertEquals(impl.getPositions(ply), bitboard.getPositions(ply));
+      assertEquals(impl.getWins(ply), bitboard.getWins(ply));
+      assertEquals(impl.getDraws(ply), bitboard.getDraws(ply));
+      draws += impl.getDraws(ply);
+    }
+    // draws only happen on a full board
+    assertEquals(draws, impl.getDraws(16));
+  }
+
+  @Test
+  public void testStartPosition() {
+    Perft perft = new Perft(() -> new ConnectFourModelImpl(6, 7), 1);
+    // six discs fill the first column, so only six columns remain
+    Perft.Result result = perft.run(new int[] {0, 0, 0, 0, 0, 0}, 2, false);
+    assertEquals(1, result.getPositions(0));
+    assertEquals(6, result.getPositions(1));
+    assertEquals(36, result.getPositions(2));
+    Perft.Result over = perft.run(new int[] {0, 1, 0, 1, 0, 1, 0}, 3, false);
+    assertEquals(1, over.getWins(0));
+    assertEquals(0, over.getPositions(1));
+    // the root and every task play the start moves, then every position costs one move
+    assertEquals(6 + 6 * 6 + 6 + 36, result.getMoves());
+  }
+}
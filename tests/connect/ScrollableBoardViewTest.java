@@ -0,0 +1,227 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the ScrollableBoardView class. The view is laid out in a scroll
+ * pane and painted into an image the size of the viewport, so the tests run without a
+ * screen.
+ */
+public class ScrollableBoardViewTest {
+
+  @Test
+  public void testPaintsOnlyVisibleCellsOfHugeBoard() {
+    // a long win length lets a column fill with discs of one player
+    ConnectFourModel model = new PackedConnectFourModel(2000, 2000, 100);
+    // fill the bottom left corner and the bottom right corner
+    for (int i = 0; i < 400; i++) {
+      model.makeMove(i % 20);
+    }
+    model.makeMove(1999);
+    CountingBoard board = new CountingBoard(model.getSnapshot());
+    ScrollableBoardView view = new ScrollableBoardView(board);
+    JViewport viewport = layOut(view, 504, 360);
+    assertEquals(24, view.getCellSize());
+    assertEquals(48000, view.getWidth());
+    // scroll to the bottom left corner
+    viewport.setViewPosition(new Point(0, 48000 - 360));
+    BufferedImage image = paintVisible(view, viewport);
+    assertEquals(Color.RED.getRGB(), colorAt(view, viewport, image, 0, 0));
+    assertEquals(Color.YELLOW.getRGB(), colorAt(view, viewport, image, 0, 1));
+    assertEquals(Color.WHITE.getRGB(), colorAt(view, viewport, image, 0, 20));
+    assertEquals(Color.RED.getRGB(), colorAt(view, viewport, image, 14, 0));
+    // 21 by 15 cells are visible, and the discs among them are read once each
+    assertEquals(20 * 15, board.cellReads);
+    assertEquals(21, board.heightReads);
+    // pan to the bottom right corner
+    board.cellReads = 0;
+    viewport.setViewPosition(new Point(48000 - 504, 48000 - 360));
+    image = paintVisible(view, viewport);
+    assertEquals(Color.RED.getRGB(), colorAt(view, viewport, image, 0, 1999));
+    assertEquals(1, board.cellReads);
+  }
+
+  @Test
+  public void testSmallCellsPaintRuns() {
+    ConnectFourModel model = new PackedConnectFourModel(2000, 2000);
+    for (int i = 0; i < 40; i++) {
+      model.makeMove(0);
+    }
+    CountingBoard board = new CountingBoard(model.getSnapshot());
+    ScrollableBoardView view = new ScrollableBoardView(board);
+    JViewport viewport = layOut(view, 400, 300);
+    view.setCellSize(2);
+    assertEquals(2, view.getCellSize());
+    viewport.setViewPosition(new Point(0, 4000 - 300));
+    BufferedImage image = paintVisible(view, viewport);
+    for (int row = 0; row < 40; row++) {
+      int expected = (row % 2 == 0 ? Color.RED : Color.YELLOW).getRGB();
+      assertEquals(expected, colorAt(view, viewport, image, row, 0));
+    }
+    assertEquals(Color.WHITE.getRGB(), colorAt(view, viewport, image, 40, 0));
+    assertEquals(Color.WHITE.getRGB(), colorAt(view, viewport, image, 0, 1));
+    assertEquals(40, board.cellReads);
+  }
+
+  @Test
+  public void testZoomKeepsAnchorInPlace() {
+    ScrollableBoardView view = new ScrollableBoardView(1000, 1000);
+    JViewport viewport = layOut(view, 400, 300);
+    viewport.setViewPosition(new Point(12000, 9000));
+    Point anchor = new Point(12000 + 100, 9000 + 50);
+    int column = view.columnAt(anchor.x);
+    view.zoom(48, anchor);
+    assertEquals(48, view.getCellSize());
+    assertEquals(48000, view.getWidth());
+    Point moved = viewport.getViewPosition();
+    assertEquals(column, view.columnAt(moved.x + 100));
+    assertEquals(24200, moved.x + 100);
+    // zooming out keeps the view inside the board
+    view.setCellSize(1);
+    assertEquals(1, view.getCellSize());
+    Point position = viewport.getViewPosition();
+    assertTrue(position.x >= 0 && position.x <= 1000 - 400);
+    view.setCellSize(1000);
+    assertEquals(128, view.getCellSize());
+  }
+
+  @Test
+  public void testClickReportsColumnAndDragPans() {
+    ScrollableBoardView view = new ScrollableBoardView(500, 500);
+    JViewport viewport = layOut(view, 400, 300);
+    List<Integer> clicked = new ArrayList<>();
+    view.setColumnListener(clicked::add);
+    viewport.setViewPosition(new Point(2400, 2400));
+    press(view, MouseEvent.MOUSE_PRESSED, 2410, 2410);
+    press(view, MouseEvent.MOUSE_RELEASED, 2411, 2410);
+    assertEquals(List.of(100), clicked);
+    press(view, MouseEvent.MOUSE_PRESSED, 2410, 2410);
+    press(view, MouseEvent.MOUSE_DRAGGED, 2310, 2360);
+    press(view, MouseEvent.MOUSE_RELEASED, 2310, 2360);
+    assertEquals(List.of(100), clicked);
+    assertEquals(new Point(2500, 2450), viewport.getViewPosition());
+  }
+
+  @Test
+  public void testSmallBoardIsCentered() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    model.makeMove(3);
+    ScrollableBoardView view = new ScrollableBoardView(model.getSnapshot());
+    JViewport viewport = layOut(view, 400, 300);
+    assertEquals(400, view.getWidth());
+    assertEquals(new Rectangle(116, 78, 24, 24), view.getCellBounds(5, 0));
+    assertEquals(-1, view.columnAt(115));
+    assertEquals(3, view.columnAt(200));
+    BufferedImage image = paintVisible(view, viewport);
+    assertEquals(Color.RED.getRGB(), colorAt(view, viewport, image, 0, 3));
+  }
+
+  @Test
+  public void testSetBoardAndClear() {
+    ScrollableBoardView view = new ScrollableBoardView(6, 7);
+    ConnectFourModel model = new ConnectFourModelImpl(8, 9);
+    model.makeMove(8);
+    view.setBoard(model.getSnapshot());
+    assertEquals(9 * 24, view.getPreferredSize().width);
+    assertEquals(Player.RED, view.getBoard().getCell(0, 8));
+    view.clear();
+    assertEquals(8, view.getBoard().getRows());
+    assertNull(view.getBoard().getCell(0, 8));
+    assertEquals(0, view.getBoard().getColumnHeight(8));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new ScrollableBoardView(5, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBoardInvalid() {
+    new ScrollableBoardView(null);
+  }
+
+  private static JViewport layOut(ScrollableBoardView view, int width, int height) {
+    JScrollPane scrollPane = new JScrollPane(view, JScrollPane.VERTICAL_SCROLLBAR_NEVER,
+        JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+    scrollPane.setBorder(null);
+    scrollPane.setSize(width, height);
+    scrollPane.doLayout();
+    scrollPane.getViewport().doLayout();
+    return scrollPane.getViewport();
+  }
+
+  private static BufferedImage paintVisible(ScrollableBoardView view, JViewport viewport) {
+    Rectangle visible = new Rectangle(viewport.getViewPosition(), viewport.getExtentSize());
+    BufferedImage image = new BufferedImage(visible.width, visible.height,
+        BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = image.createGraphics();
+    g.translate(-visible.x, -visible.y);
+    g.setClip(visible);
+    view.paint(g);
+    g.dispose();
+    return image;
+  }
+
+  private static int colorAt(ScrollableBoardView view, JViewport viewport, BufferedImage image,
+                             int row, int column) {
+    Rectangle bounds = view.getCellBounds(row, column);
+    Point position = viewport.getViewPosition();
+    return image.getRGB((int) bounds.getCenterX() - position.x,
+        (int) bounds.getCenterY() - position.y);
+  }
+
+  private static void press(ScrollableBoardView view, int id, int x, int y) {
+    // the position on the screen is given, as the view is not on a screen
+    view.dispatchEvent(new MouseEvent(view, id, 0, 0, x, y, x, y, 1, false,
+        MouseEvent.BUTTON1));
+  }
+
+  /**
+   * A snapshot that counts how often its cells and column heights are read.
+   */
+  private static final class CountingBoard implements BoardSnapshot {
+    private final BoardSnapshot board;
+    private int cellReads;
+    private int heightReads;
+
+    private CountingBoard(BoardSnapshot board) {
+      this.board = board;
+    }
+
+    @Override
+    public int getRows() {
+      return board.getRows();
+    }
+
+    @Override
+    public int getColumns() {
+      return board.getColumns();
+    }
+
+    @Override
+    public Player getCell(int row, int column) {
+      cellReads++;
+      return board.getCell(row, column);
+    }
+
+    @Override
+    public int getColumnHeight(int column) {
+      heightReads++;
+      return board.getColumnHeight(column);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the SelfPlaySimulator class.
+ */
+public class SelfPlaySimulatorTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidThreads() {
+    new SelfPlaySimulator(() -> new ConnectFourModelImpl(6, 7),
+        SelfPlaySimulator::randomStrategy, SelfPlaySimulator::randomStrategy, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullStrategy() {
+    new SelfPlaySimulator(() -> new ConnectFourModelImpl(6, 7),
+        SelfPlaySimulator::randomStrategy, null, 1);
+  }
+
+  @Test
+  public void testCountsAddUp() {
+    SelfPlaySimulator.Result result = new SelfPlaySimulator(
+        () -> new ConnectFourModelImpl(6, 7), SelfPlaySimulator::randomStrategy,
+        SelfPlaySimulator::randomStrategy, 2).run(1000, 1);
+    assertEquals(1000, result.getGames());
+    assertEquals(1000, result.getWins(0) + result.getWins(1) + result.getDraws());
+    long games = 0;
+    long moves = 0;
+    for (int length = 0; length <= 42; length++) {
+      games += result.getGamesOfLength(length);
+      moves += length * result.getGamesOfLength(length);
+    }
+    assertEquals(1000, games);
+    // nobody wins before the seventh move
+    assertEquals(0, result.getGamesOfLength(6));
+    long choices = 0;
+    for (int column = 0; column < 7; column++) {
+      choices += result.getColumnChoices(0, column) + result.getColumnChoices(1, column);
+    }
+    assertEquals(moves, choices);
+    assertEquals(1.0, result.getFirstPlayerWinRate() + result.getSecondPlayerWinRate()
+        + (double) result.getDraws() / 1000, 1e-9);
+  }
+
+  @Test
+  public void testReproducibleAcrossThreadCounts() {
+    SelfPlaySimulator.Result one = new SelfPlaySimulator(
+        () -> new ConnectFourModelImpl(6, 7), SelfPlaySimulator::randomStrategy,
+        SelfPlaySimulator::greedyStrategy, 1).run(500, 42);
+    SelfPlaySimulator.Result three = new SelfPlaySimulator(
+        () -> new ConnectFourModelImpl(6, 7), SelfPlaySimulator::randomStrategy,
+        SelfPlaySimulator::greedyStrategy, 3).run(500, 42);
+    assertEquals(one.getWins(0), three.getWins(0));
+    assertEquals(one.getWins(1), three.getWins(1));
+    assertEquals(one.getFirstPlayerWinRate(), three.getFirstPlayerWinRate(), 0);
+    for (int length = 0; length <= 42; length++) {
+      assertEquals(one.getGamesOfLength(length), three.getGamesOfLength(length));
+    }
+    for (int column = 0; column < 7; column++) {
+      assertEquals(one.getColumnChoices(1, column), three.getColumnChoices(1, column));
+    }
+  }
+
+  @Test
+  public void testReusesModelsAndStrategies() {
+    AtomicInteger models = new AtomicInteger();
+    AtomicInteger strategies = new AtomicInteger();
+    new SelfPlaySimulator(() -> {
+      models.incrementAndGet();
+      return new ConnectFourModelImpl(6, 7);
+    }, () -> {
+      strategies.incrementAndGet();
+      return SelfPlaySimulator.randomStrategy();
+    }, SelfPlaySimulator::randomStrategy, 2).run(300, 5);
+    assertEquals(2, models.get());
+    assertEquals(2, strategies.get());
+  }
+
+  @Test
+  public void testGreedyBeatsRandom() {
+    SelfPlaySimulator.Result result = new SelfPlaySimulator(
+        () -> new ConnectFourModelImpl(6, 7), SelfPlaySimulator::randomStrategy,
+        SelfPlaySimulator::greedyStrategy, 1).run(400, 9);
+    assertTrue(result.getWins(1) > 4 * result.getWins(0));
+  }
+
+  @Test
+  public void testAiStrategyOnWideBoard() {
+    SelfPlaySimulator.Result result = new SelfPlaySimulator(
+        () -> new PackedConnectFourModel(5, 80), SelfPlaySimulator::greedyStrategy,
+        () -> SelfPlaySimulator.aiStrategy(new IterativeDeepeningConnectFourAI(5, 1 << 16)),
+        1).run(2, 3);
+    assertEquals(2, result.getGames());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testIllegalMoveFromStrategy() {
+    new SelfPlaySimulator(() -> new ConnectFourModelImpl(6, 7),
+        () -> (model, random) -> 7, SelfPlaySimulator::randomStrategy, 1).run(1, 1);
+  }
+}
@@ -0,0 +1,316 @@
+package connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import javax.swing.SwingUtilities;
+import org.junit.Test;
+
+/**
+ * A JUnit test class for the SwingConnectFourControllerImpl class. The controller drives
+ * a view that records what it is asked to show, so the tests run without a screen.
+ */
+public class SwingConnectFourControllerTest {
+
+  @Test
+  public void testClicksPlayTheGame() throws Exception {
+    RecordingView view = new RecordingView(false);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    SwingConnectFourControllerImpl controller = new SwingConnectFourControllerImpl(view, model);
+    controller.playGame(model);
+    controller.awaitIdle();
+    for (int column : new int[] {0, 1, 0, 1, 0, 1}) {
+      click(controller, column);
+      controller.awaitIdle();
+    }
+    click(controller, 0);
+    await(() -> view.askedWinner.size() == 1);
+    assertEquals(Player.RED, view.askedWinner.get(0));
+    assertEquals(Player.RED, view.shown().getCell(3, 0));
+    // the game is over, so clicks no longer reach the model
+    click(controller, 5);
+    controller.awaitIdle();
+    assertEquals(0, model.getColumnHeight(5));
+    assertTrue(view.onEventThread);
+  }
+
+  @Test
+  public void testInvalidMoveShowsMessage() throws Exception {
+    RecordingView view = new RecordingView(false);
+    ConnectFourModel model = new ConnectFourModelImpl(4, 4);
+    SwingConnectFourControllerImpl controller = new SwingConnectFourControllerImpl(view, model);
+    controller.playGame(model);
+    controller.awaitIdle();
+    for (int i = 0; i < 5; i++) {
+      click(controller, 2);
+      controller.awaitIdle();
+    }
+    assertEquals(4, model.getColumnHeight(2));
+    assertEquals(List.of(MoveStatus.message(MoveStatus.COLUMN_FULL)), view.messages);
+    click(controller, 3);
+    controller.awaitIdle();
+    assertEquals(1, model.getColumnHeight(3));
+  }
+
+  @Test
+  public void testClicksWhileEngineThinksAreDropped() throws Exception {
+    RecordingView view = new RecordingView(false);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    SlowAI ai = new SlowAI(6, 5);
+    SwingConnectFourControllerImpl controller =
+        new SwingConnectFourControllerImpl(view, model, ai, Player.YELLOW);
+    controller.playGame(model);
+    controller.awaitIdle();
+    click(controller, 0);
+    assertTrue(ai.started.tryAcquire(5, TimeUnit.SECONDS));
+    // the player's disc is shown while the engine is still thinking
+    controller.awaitIdle();
+    assertEquals(Player.RED, view.shown().getCell(0, 0));
+    assertEquals(Player.YELLOW, controller.getTurn());
+    click(controller, 1);
+    click(controller, 2);
+    ai.release.countDown();
+    await(() -> controller.getTurn() == Player.RED);
+    controller.awaitIdle();
+    assertEquals(Player.YELLOW, view.shown().getCell(0, 6));
+    assertEquals(0, model.getColumnHeight(1) + model.getColumnHeight(2));
+    click(controller, 3);
+    controller.awaitIdle();
+    assertEquals(Player.RED, model.getCell(0, 3));
+  }
+
+  @Test
+  public void testRestartDoesNotWaitForEngine() throws Exception {
+    RecordingView view = new RecordingView(false);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    SlowAI ai = new SlowAI(6, 5);
+    SwingConnectFourControllerImpl controller =
+        new SwingConnectFourControllerImpl(view, model, ai, Player.YELLOW);
+    controller.playGame(model);
+    controller.awaitIdle();
+    click(controller, 0);
+    assertTrue(ai.started.tryAcquire(5, TimeUnit.SECONDS));
+    SwingUtilities.invokeAndWait(controller::resetGame);
+    controller.awaitIdle();
+    assertEquals(1, view.resets);
+    assertNull(view.shown().getCell(0, 0));
+    assertEquals(Player.RED, controller.getTurn());
+    click(controller, 4);
+    controller.awaitIdle();
+    // the old search was interrupted, so the new one starts without waiting for it
+    assertTrue(ai.started.tryAcquire(5, TimeUnit.SECONDS));
+    assertEquals(1, ai.interrupted);
+    // the move the engine found for the old game was thrown away, and the new one is played
+    ai.release.countDown();
+    await(() -> controller.getTurn() == Player.RED);
+    controller.awaitIdle();
+    assertEquals(0, model.getColumnHeight(0));
+    assertEquals(0, model.getColumnHeight(6));
+    assertEquals(Player.RED, model.getCell(0, 4));
+    assertEquals(Player.YELLOW, model.getCell(0, 5));
+    assertEquals(Player.YELLOW, view.shown().getCell(0, 5));
+  }
+
+  @Test
+  public void testGameGoesOnWhenEngineFails() throws Exception {
+    RecordingView view = new RecordingView(false);
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    int[] calls = new int[1];
+    ConnectFourAI failing = m -> {
+      if (calls[0]++ == 0) {
+        throw new OutOfMemoryError("Java heap space");
+      }
+      return 9;
+    };
+    SwingConnectFourControllerImpl controller =
+        new SwingConnectFourControllerImpl(view, model, failing, Player.YELLOW);
+    controller.playGame(model);
+    controller.awaitIdle();
+    click(controller, 0);
+    await(() -> view.messages.size() == 1);
+    assertEquals("Java heap space", view.messages.get(0));
+    // the players make the computer's move, and the computer plays the next one again
+    click(controller, 1);
+    controller.awaitIdle();
+    assertEquals(Player.YELLOW, model.getCell(0, 1));
+    click(controller, 2);
+    await(() -> view.messages.size() == 2);
+    assertEquals(MoveStatus.message(MoveStatus.INVALID_COLUMN), view.messages.get(1));
+    assertEquals(2, calls[0]);
+    // an illegal column is handled the same way
+    click(controller, 3);
+    controller.awaitIdle();
+    assertEquals(Player.YELLOW, model.getCell(0, 3));
+    assertEquals(Player.RED, controller.getTurn());
+  }
+
+  @Test
+  public void testPlayAgainResetsBoard() throws Exception {
+    RecordingView view = new RecordingView(true);
+    ConnectFourModel model = new ConnectFourModelImpl(4, 4);
+    // the computer plays the leftmost column that is not full
+    ConnectFourAI leftmost = m -> {
+      int column = 0;
+      while (m.getColumnHeight(column) == m.getRows()) {
+        column++;
+      }
+      return column;
+    };
+    SwingConnectFourControllerImpl controller =
+        new SwingConnectFourControllerImpl(view, model, leftmost, Player.YELLOW);
+    controller.playGame(model);
+    controller.awaitIdle();
+    for (int i = 0; i < 4; i++) {
+      click(controller, 3);
+      controller.awaitIdle();
+      await(() -> controller.getTurn() == Player.RED || view.askedWinner.size() > 0);
+    }
+    await(() -> view.resets == 1);
+    assertEquals(List.of(Player.RED), view.askedWinner);
+    controller.awaitIdle();
+    assertEquals(0, model.getColumnHeight(0) + model.getColumnHeight(3));
+    assertNull(view.shown().getCell(0, 3));
+  }
+
+  @Test
+  public void testResumedGameIsShown() throws Exception {
+    RecordingView view = new RecordingView(false);
+    ConnectFourModel model = new PackedConnectFourModel(6, 7);
+    model.makeMove(3);
+    model.makeMove(4);
+    SwingConnectFourControllerImpl controller = new SwingConnectFourControllerImpl(view, model);
+    controller.playGame(model);
+    controller.awaitIdle();
+    assertEquals(Player.YELLOW, view.shown().getCell(0, 4));
+    assertEquals(0, view.resets);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOtherModelInvalid() {
+    ConnectFourModel model = new ConnectFourModelImpl(6, 7);
+    new SwingConnectFourControllerImpl(new RecordingView(false), model)
+        .playGame(new ConnectFourModelImpl(6, 7));
+  }
+
+  private static void click(SwingConnectFourController controller, int column)
+      throws Exception {
+    SwingUtilities.invokeAndWait(() -> controller.columnClicked(column));
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue("timed out", System.nanoTime() < deadline);
+      Thread.sleep(2);
+    }
+  }
+
+  /**
+   * A computer opponent that plays a fixed series of columns once it is allowed to, or at
+   * once when it is interrupted.
+   */
+  private static final class SlowAI implements ConnectFourAI {
+    private final int[] columns;
+    private final Semaphore started = new Semaphore(0);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private int calls;
+    private volatile int interrupted;
+
+    private SlowAI(int... columns) {
+      this.columns = columns;
+    }
+
+    @Override
+    public int chooseMove(ConnectFourModel model) {
+      int column = columns[calls++];
+      started.release();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        interrupted++;
+        Thread.currentThread().interrupt();
+      }
+      // the copy of the position cannot be changed
+      try {
+        model.makeMove(column);
+      } catch (IllegalStateException e) {
+        return column;
+      }
+      throw new AssertionError("model is not read-only");
+    }
+  }
+
+  /**
+   * A view that records the boards, messages and questions it is given, and whether they
+   * all came on the event dispatch thread.
+   */
+  private static final class RecordingView implements SwingConnectFourView {
+    private final boolean playAgain;
+    private final List<Player> askedWinner = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+    private volatile BoardSnapshot shown;
+    private volatile int resets;
+    private volatile boolean onEventThread = true;
+
+    private RecordingView(boolean playAgain) {
+      this.playAgain = playAgain;
+    }
+
+    private BoardSnapshot shown() {
+      return shown;
+    }
+
+    private void check() {
+      onEventThread &= SwingUtilities.isEventDispatchThread();
+      assertTrue(SwingUtilities.isEventDispatchThread());
+    }
+
+    @Override
+    public void createBoard() {
+      check();
+    }
+
+    @Override
+    public void updateBoard(Player[][] boardState) {
+      throw new AssertionError("snapshots are shown");
+    }
+
+    @Override
+    public void updateBoard(BoardSnapshot snapshot) {
+      check();
+      shown = snapshot;
+    }
+
+    @Override
+    public void setController(SwingConnectFourController controller) {
+    }
+
+    @Override
+    public void resetBoard() {
+      check();
+      resets++;
+      shown = null;
+    }
+
+    @Override
+    public void displayMessage(String message) {
+      check();
+      messages.add(message);
+    }
+
+    @Override
+    public boolean askToPlayAgain(Player winner) {
+      check();
+      askedWinner.add(winner);
+      return playAgain;
+    }
+  }
+}